@@ -0,0 +1,71 @@
+package ie.atu.sw.benchmarks;
+
+import ie.atu.sw.LexiconParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long LexiconParser takes to load a single lexicon file and a directory of lexicon files.
+ * The directory always holds the same total number of entries, spread over a varying number of files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexiconParsingBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int lexiconSize;
+
+    @Param({"1", "16", "128"})
+    public int files;
+
+    private LexiconParser lexiconParser;
+    private Path root;
+    private Path lexiconFile;
+    private Path lexiconDirectory;
+
+    @Setup
+    public void setUp() throws IOException {
+        SyntheticCorpus corpus = new SyntheticCorpus();
+        lexiconParser = new LexiconParser();
+        root = Files.createTempDirectory("lexicon-bench");
+        lexiconFile = root.resolve("lexicon.txt");
+        lexiconDirectory = root.resolve("lexicons");
+        corpus.writeLexicon(lexiconFile, lexiconSize);
+        corpus.writeLexiconDirectory(lexiconDirectory, files, lexiconSize);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SyntheticCorpus.delete(root);
+    }
+
+    @Benchmark
+    public Map<String, Double> parseFile() throws IOException {
+        return lexiconParser.parseFile(lexiconFile.toString());
+    }
+
+    @Benchmark
+    public Map<String, Double> parseLexiconDirectory() throws IOException {
+        return lexiconParser.parseLexiconDirectory(lexiconDirectory.toString());
+    }
+}
@@ -0,0 +1,117 @@
+package ie.atu.sw.benchmarks;
+
+import ie.atu.sw.SentimentAnalysisManager;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures SentimentAnalysisManager.performAnalysis end to end: cached lexicon lookup, streamed scoring and output.
+ * The "tweets" counter reports throughput in tweets per second. With "-prof gc", divide
+ * gc.alloc.rate.norm by files * tweetsPerFile for the bytes allocated per tweet.
+ * Progress reporting is off and any other console output is discarded, so the terminal does not dominate the result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PipelineBenchmark {
+
+    /**
+     * The executor used to process the files of the tweet directory.
+     */
+    public enum ExecutorType {
+        VIRTUAL(Executors::newVirtualThreadPerTaskExecutor),
+        FIXED(() -> Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())),
+        FORK_JOIN(() -> new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
+
+        private final Supplier<ExecutorService> factory;
+
+        ExecutorType(Supplier<ExecutorService> factory) {
+            this.factory = factory;
+        }
+    }
+
+    /**
+     * Counts the tweets scored per invocation so JMH can report tweets per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class TweetCounter {
+        public long tweets;
+    }
+
+    @Param({"VIRTUAL", "FIXED", "FORK_JOIN"})
+    public ExecutorType executorType;
+
+    @Param({"1", "16", "128"})
+    public int files;
+
+    @Param({"1000"})
+    public int tweetsPerFile;
+
+    @Param({"20"})
+    public int tweetLength;
+
+    @Param({"100000"})
+    public int lexiconSize;
+
+    private SentimentAnalysisManager analysisManager;
+    private PrintStream console;
+    private Path root;
+    private Path lexiconFile;
+    private Path tweetDirectory;
+    private Path outputDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticCorpus corpus = new SyntheticCorpus();
+        root = Files.createTempDirectory("pipeline-bench");
+        lexiconFile = root.resolve("lexicon.txt");
+        tweetDirectory = root.resolve("tweets");
+        outputDirectory = Files.createDirectories(root.resolve("output"));
+        corpus.writeLexicon(lexiconFile, lexiconSize);
+        corpus.writeTweetDirectory(tweetDirectory, files, tweetsPerFile, tweetLength, lexiconSize);
+
+        analysisManager = new SentimentAnalysisManager(executorType.factory);
+        analysisManager.setProgressOutput(null);
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(console);
+        SyntheticCorpus.delete(root);
+    }
+
+    @Benchmark
+    public void performAnalysis(TweetCounter counter) throws IOException {
+        analysisManager.performAnalysis(lexiconFile.toString(), tweetDirectory.toString(), outputDirectory.toString());
+        counter.tweets += (long) files * tweetsPerFile;
+    }
+}
@@ -0,0 +1,120 @@
+package ie.atu.sw.benchmarks;
+
+import ie.atu.sw.CompiledLexicon;
+import ie.atu.sw.LexiconSet;
+import ie.atu.sw.ProcessingTweets;
+import ie.atu.sw.RuleBasedTweetProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ProcessingTweets.calculateSentiment in tweets per second, with a lexicon map and with a compiled lexicon,
+ * and scoring against {@value #LEXICONS} lexicons one after another and in a single pass over a {@link LexiconSet}.
+ * RuleBasedTweetProcessor is measured on the same tweets against plain summing with the compiled lexicon.
+ * One invocation scores {@value #TWEETS} tweets, so with "-prof gc" the gc.alloc.rate.norm
+ * column is the number of bytes allocated per tweet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoringBenchmark {
+    static final int TWEETS = 1024;
+    static final int LEXICONS = 3;
+
+    @Param({"8", "32", "128"})
+    public int tweetLength;
+
+    @Param({"1000", "100000", "1000000"})
+    public int lexiconSize;
+
+    private ProcessingTweets processingTweets;
+    private RuleBasedTweetProcessor ruleBasedProcessor;
+    private Map<String, Double> lexicon;
+    private CompiledLexicon compiledLexicon;
+    private List<CompiledLexicon> compiledLexicons;
+    private LexiconSet lexiconSet;
+    private double[] scores;
+    private String[] tweets;
+
+    @Setup
+    public void setUp() {
+        SyntheticCorpus corpus = new SyntheticCorpus();
+        processingTweets = new ProcessingTweets();
+        ruleBasedProcessor = new RuleBasedTweetProcessor();
+        lexicon = corpus.lexicon(lexiconSize);
+        compiledLexicon = CompiledLexicon.compile(lexicon);
+        compiledLexicons = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < LEXICONS; i++) {
+            // Same words with different scores, as when comparing lexicons
+            compiledLexicons.add(CompiledLexicon.compile(new SyntheticCorpus(i + 1).lexicon(lexiconSize)));
+            names.add("lexicon" + i);
+        }
+        lexiconSet = LexiconSet.combine(names, compiledLexicons);
+        scores = new double[LEXICONS];
+        List<String> generated = corpus.tweets(TWEETS, tweetLength, lexiconSize);
+        tweets = generated.toArray(new String[0]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TWEETS)
+    public void calculateSentiment(Blackhole blackhole) {
+        for (String tweet : tweets) {
+            blackhole.consume(processingTweets.calculateSentiment(tweet, lexicon));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TWEETS)
+    public void calculateSentimentCompiled(Blackhole blackhole) {
+        for (String tweet : tweets) {
+            blackhole.consume(processingTweets.calculateSentiment(tweet, compiledLexicon));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TWEETS)
+    public void calculateSentimentRuleBased(Blackhole blackhole) {
+        for (String tweet : tweets) {
+            blackhole.consume(ruleBasedProcessor.calculateSentiment(tweet, compiledLexicon));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TWEETS)
+    public void calculateSentimentEachLexicon(Blackhole blackhole) {
+        for (String tweet : tweets) {
+            for (CompiledLexicon each : compiledLexicons) {
+                blackhole.consume(processingTweets.calculateSentiment(tweet, each));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TWEETS)
+    public void calculateSentimentsLexiconSet(Blackhole blackhole) {
+        for (String tweet : tweets) {
+            processingTweets.calculateSentiments(tweet, lexiconSet, scores);
+            blackhole.consume(scores);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package ie.atu.sw.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Generates reproducible lexicons and tweets so the benchmarks run offline.
+ * Every word is derived from its index, and every random choice comes from a seeded generator,
+ * so the same parameters always produce byte-identical files.
+ */
+public final class SyntheticCorpus {
+    private static final String[] SYLLABLES = {
+            "ba", "ce", "di", "fo", "gu", "ha", "je", "ki", "lo", "mu", "na", "pe", "qui", "ro", "su", "ta",
+            "ve", "wi", "xo", "yu", "za", "bre", "cla", "dro", "fle", "gri", "plo", "sta", "tru", "sho", "the", "ng"
+    };
+    private static final String[] FILLER = {
+            "the", "a", "and", "to", "of", "in", "is", "it", "you", "that", "on", "for", "this", "with", "at", "RT"
+    };
+    private static final long DEFAULT_SEED = 0x5EED_2024L;
+
+    private final SplittableRandom random;
+
+    /**
+     * Creates a corpus generator with the default seed.
+     * Complexity: O(1).
+     */
+    public SyntheticCorpus() {
+        this(DEFAULT_SEED);
+    }
+
+    /**
+     * Creates a corpus generator with the given seed.
+     * Complexity: O(1).
+     *
+     * @param seed Seed of the random generator; equal seeds give equal corpora.
+     */
+    public SyntheticCorpus(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Builds the lexicon word with the given index.
+     * Words are made of syllables picked by the digits of the index, so they are unique and look like text.
+     * Complexity: O(log n), where n is the index.
+     *
+     * @param index The index of the word.
+     * @return The lower-case word for the index.
+     */
+    public static String word(int index) {
+        StringBuilder word = new StringBuilder(12);
+        int remaining = index;
+        do {
+            word.append(SYLLABLES[remaining % SYLLABLES.length]);
+            remaining /= SYLLABLES.length;
+        } while (remaining > 0);
+        return word.toString();
+    }
+
+    /**
+     * Creates a lexicon with the given number of entries and scores between -5.0 and 5.0.
+     * Complexity: O(n), where n is the number of entries.
+     *
+     * @param size The number of entries in the lexicon.
+     * @return A map of words and scores.
+     */
+    public Map<String, Double> lexicon(int size) {
+        Map<String, Double> lexicon = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            lexicon.put(word(i), score());
+        }
+        return lexicon;
+    }
+
+    /**
+     * Creates tweets that mix lexicon words, filler words and capitalised words.
+     * Complexity: O(n*m), where n is the number of tweets and m is the number of words per tweet.
+     *
+     * @param count       The number of tweets.
+     * @param words       The number of words in every tweet.
+     * @param lexiconSize The number of lexicon words the tweets draw from.
+     * @return The generated tweets.
+     */
+    public List<String> tweets(int count, int words, int lexiconSize) {
+        List<String> tweets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tweets.add(tweet(words, lexiconSize));
+        }
+        return tweets;
+    }
+
+    /**
+     * Writes a lexicon file in the "word, score" format read by the LexiconParser.
+     * Complexity: O(n), where n is the number of entries.
+     *
+     * @param file The file to write.
+     * @param size The number of entries.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeLexicon(Path file, int size) throws IOException {
+        writeLexicon(file, 0, size);
+    }
+
+    /**
+     * Writes a directory of lexicon files that together hold the given number of entries.
+     * Complexity: O(n), where n is the number of entries.
+     *
+     * @param directory The directory to fill.
+     * @param files     The number of lexicon files.
+     * @param size      The total number of entries over all files.
+     * @throws IOException If a file cannot be written.
+     */
+    public void writeLexiconDirectory(Path directory, int files, int size) throws IOException {
+        Files.createDirectories(directory);
+        int perFile = Math.max(1, size / files);
+        for (int i = 0; i < files; i++) {
+            writeLexicon(directory.resolve(String.format("lexicon-%04d.txt", i)), i * perFile, perFile);
+        }
+    }
+
+    /**
+     * Writes a directory of tweet files with one tweet per line.
+     * Complexity: O(f*n*m), where f is the number of files, n the tweets per file and m the words per tweet.
+     *
+     * @param directory     The directory to fill.
+     * @param files         The number of tweet files.
+     * @param tweetsPerFile The number of tweets in every file.
+     * @param words         The number of words in every tweet.
+     * @param lexiconSize   The number of lexicon words the tweets draw from.
+     * @throws IOException If a file cannot be written.
+     */
+    public void writeTweetDirectory(Path directory, int files, int tweetsPerFile, int words, int lexiconSize) throws IOException {
+        Files.createDirectories(directory);
+        for (int i = 0; i < files; i++) {
+            Files.write(directory.resolve(String.format("tweets-%04d.txt", i)),
+                    tweets(tweetsPerFile, words, lexiconSize), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Deletes a directory tree created by the benchmarks.
+     * Complexity: O(n), where n is the number of files in the tree.
+     *
+     * @param root The directory to delete.
+     * @throws IOException If a file cannot be deleted.
+     */
+    public static void delete(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private void writeLexicon(Path file, int firstIndex, int size) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = firstIndex; i < firstIndex + size; i++) {
+                writer.write(word(i));
+                writer.write(", ");
+                writer.write(Double.toString(score()));
+                writer.newLine();
+            }
+        }
+    }
+
+    private String tweet(int words, int lexiconSize) {
+        StringBuilder tweet = new StringBuilder(words * 8);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                tweet.append(' ');
+            }
+            int kind = random.nextInt(10);
+            if (kind < 4) {
+                tweet.append(FILLER[random.nextInt(FILLER.length)]);
+            } else if (kind < 9) {
+                tweet.append(word(random.nextInt(lexiconSize)));
+            } else {
+                String word = word(random.nextInt(lexiconSize));
+                tweet.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            }
+        }
+        return tweet.toString();
+    }
+
+    private double score() {
+        return (random.nextInt(101) - 50) / 10.0;
+    }
+}
@@ -0,0 +1,200 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregate statistics of an analysis, overall and for every tweet file.
+ * Each file is accumulated into its own {@link ScoreStatistics} by the one thread that consumes its batches,
+ * so scoring threads never share a counter; the files are only merged into the overall statistics when asked,
+ * in the order of their sources, so the report is the same however the files were scheduled.
+ * The most positive and most negative tweets of each file are tracked the same way, if asked for, and so are
+ * the lexicon terms that drove the scores across the run.
+ */
+public class AnalysisStatistics {
+    private final List<FileStatistics> files = new ArrayList<>();
+    private final TermAnalytics terms;
+
+    /**
+     * Creates empty statistics without term analytics.
+     * Complexity: O(1).
+     */
+    public AnalysisStatistics() {
+        this(null);
+    }
+
+    /**
+     * Creates empty statistics.
+     * Complexity: O(1).
+     *
+     * @param terms The analytics of the lexicon terms matched in the run, or null if they are not reported.
+     */
+    public AnalysisStatistics(TermAnalytics terms) {
+        this.terms = terms;
+    }
+
+    /**
+     * Returns the analytics of the lexicon terms that scoring threads record their matches in.
+     * Complexity: O(1).
+     *
+     * @return The term analytics, or null if they are not reported.
+     */
+    public TermAnalytics terms() {
+        return terms;
+    }
+
+    /**
+     * Adds the statistics of a finished tweet file.
+     * Complexity: O(1).
+     *
+     * @param source     The tweet file the statistics belong to.
+     * @param statistics The statistics of its scores; must not change afterwards.
+     * @param topTweets  Its most positive and most negative tweets, or null if they are not tracked;
+     *                   must not change afterwards.
+     */
+    public synchronized void fileCompleted(String source, ScoreStatistics statistics, TopKTracker topTweets) {
+        files.add(new FileStatistics(source, statistics, topTweets));
+    }
+
+    /**
+     * Combines the statistics of every tweet file completed so far.
+     * Complexity: O(f log f + f*b), where f is the number of files and b is the number of histogram buckets.
+     *
+     * @return The overall statistics.
+     */
+    public ScoreStatistics overall() {
+        return overall(sortedFiles());
+    }
+
+    /**
+     * Combines the most positive and most negative tweets of every tweet file completed so far.
+     * Complexity: O(f log f + f*k log k), where f is the number of files and k is the number of tweets kept.
+     *
+     * @return The overall top tweets, or null if they are not tracked.
+     */
+    public TopKTracker overallTopTweets() {
+        return overallTopTweets(sortedFiles());
+    }
+
+    /**
+     * Formats the overall and per-file statistics as a JSON object, with the files sorted by source.
+     * The text of the top tweets is read back from each tweet file once, only up to the last line needed.
+     * Term analytics, if reported, come between the overall statistics and the files.
+     * Complexity: O(f log f + f*b + f*k log k + t), where f is the number of files, b is the number of histogram
+     * buckets, k is the number of top tweets kept and t is the size of the tweet files read back.
+     *
+     * @return The JSON report.
+     * @throws IOException If a tweet file cannot be read back for the text of its top tweets.
+     */
+    public String toJson() throws IOException {
+        List<FileStatistics> sorted = sortedFiles();
+        TopKTracker overallTopTweets = overallTopTweets(sorted);
+        Map<Path, Map<Long, String>> texts = new HashMap<>();
+        for (FileStatistics file : sorted) {
+            if (file.topTweets() != null) {
+                List<TopKTracker.Entry> entries = new ArrayList<>(file.topTweets().mostPositive());
+                entries.addAll(file.topTweets().mostNegative());
+                if (!entries.isEmpty()) {
+                    Path source = entries.get(0).source();
+                    texts.put(source, TopKTracker.readTweets(source, entries));
+                }
+            }
+        }
+
+        StringBuilder json = new StringBuilder(256 + 320 * sorted.size());
+        json.append("{\"overall\":");
+        appendStatistics(json, overall(sorted), overallTopTweets, texts, true);
+        if (terms != null) {
+            json.append(",\"terms\":").append(terms.toJson());
+        }
+        json.append(",\"files\":[");
+        for (int i = 0; i < sorted.size(); i++) {
+            FileStatistics file = sorted.get(i);
+            json.append(i == 0 ? "\n" : ",\n").append("{\"source\":").append(JsonLinesEncoder.quote(file.source()))
+                    .append(',');
+            int start = json.length();
+            appendStatistics(json, file.statistics(), file.topTweets(), texts, false);
+            json.deleteCharAt(start);
+        }
+        return json.append("]}\n").toString();
+    }
+
+    /**
+     * Appends statistics as a JSON object, with the top tweets if they are tracked.
+     * Complexity: O(b + k), where b is the number of histogram buckets and k is the number of top tweets.
+     */
+    private static void appendStatistics(StringBuilder json, ScoreStatistics statistics, TopKTracker topTweets,
+                                         Map<Path, Map<Long, String>> texts, boolean withSource) {
+        String object = statistics.toJson();
+        if (topTweets == null) {
+            json.append(object);
+            return;
+        }
+        json.append(object, 0, object.length() - 1);
+        appendTweets(json.append(",\"mostPositive\":"), topTweets.mostPositive(), texts, withSource);
+        appendTweets(json.append(",\"mostNegative\":"), topTweets.mostNegative(), texts, withSource);
+        json.append('}');
+    }
+
+    /**
+     * Appends top tweets as a JSON array.
+     * Complexity: O(k), where k is the number of tweets.
+     */
+    private static void appendTweets(StringBuilder json, List<TopKTracker.Entry> entries,
+                                     Map<Path, Map<Long, String>> texts, boolean withSource) {
+        json.append('[');
+        for (int i = 0; i < entries.size(); i++) {
+            TopKTracker.Entry entry = entries.get(i);
+            String text = texts.getOrDefault(entry.source(), Map.of()).get(entry.line());
+            json.append(i == 0 ? "{" : ",{");
+            if (withSource) {
+                json.append("\"source\":").append(JsonLinesEncoder.quote(entry.source().toString())).append(',');
+            }
+            json.append("\"line\":").append(entry.line())
+                    .append(",\"score\":").append(entry.score())
+                    .append(",\"text\":").append(text == null ? "null" : JsonLinesEncoder.quote(text))
+                    .append('}');
+        }
+        json.append(']');
+    }
+
+    private synchronized List<FileStatistics> sortedFiles() {
+        List<FileStatistics> sorted = new ArrayList<>(files);
+        sorted.sort(Comparator.comparing(FileStatistics::source));
+        return sorted;
+    }
+
+    private static ScoreStatistics overall(List<FileStatistics> sorted) {
+        ScoreStatistics overall = new ScoreStatistics();
+        for (FileStatistics file : sorted) {
+            overall.merge(file.statistics());
+        }
+        return overall;
+    }
+
+    private static TopKTracker overallTopTweets(List<FileStatistics> sorted) {
+        TopKTracker overall = null;
+        for (FileStatistics file : sorted) {
+            if (file.topTweets() != null) {
+                overall = overall != null ? overall : new TopKTracker(file.topTweets().k(), null);
+                overall.merge(file.topTweets());
+            }
+        }
+        return overall;
+    }
+
+    /**
+     * The statistics of one tweet file.
+     *
+     * @param source     The tweet file.
+     * @param statistics The statistics of its scores.
+     * @param topTweets  Its most positive and most negative tweets, or null if they are not tracked.
+     */
+    private record FileStatistics(String source, ScoreStatistics statistics, TopKTracker topTweets) {
+    }
+}
@@ -0,0 +1,241 @@
+package ie.atu.sw;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Immutable summary of one analysis: what was scored, the sentiment split, where the results went,
+ * how long each stage took and how the run ended.
+ * Returned by {@link SentimentAnalysisManager#performAnalysis(String, String, String)}.
+ * Scoring and writing overlap, so the write time only covers draining the output once scoring has finished.
+ */
+public final class AnalysisSummary {
+    private final int files;
+    private final int reusedFiles;
+    private final int failedFiles;
+    private final long tweets;
+    private final long positive;
+    private final long negative;
+    private final long lexiconLoadNanos;
+    private final long scoringNanos;
+    private final long writeNanos;
+    private final Path outputFile;
+    private final RunResult run;
+    private final LatencyHistogram ioWaits;
+
+    /**
+     * Creates a summary.
+     * Complexity: O(1).
+     *
+     * @param files            The number of tweet files scored.
+     * @param reusedFiles      The number of unchanged tweet files whose stored results were reused.
+     * @param failedFiles      The number of tweet files that could not be scored.
+     * @param tweets           The number of tweets scored.
+     * @param positive         The number of tweets with a positive score.
+     * @param negative         The number of tweets with a negative score.
+     * @param lexiconLoadNanos The time taken to load the lexicon, or to find it in the cache.
+     * @param scoringNanos     The time taken to read and score the tweets.
+     * @param writeNanos       The time taken to finish writing the results after scoring.
+     * @param outputFile       The results file.
+     * @param run              The outcome of every tweet file and of the run; must not change afterwards.
+     * @param ioWaits          The time each tweet file waited to be opened, or null without admission control.
+     */
+    public AnalysisSummary(int files, int reusedFiles, int failedFiles, long tweets, long positive, long negative,
+                           long lexiconLoadNanos, long scoringNanos, long writeNanos, Path outputFile,
+                           RunResult run, LatencyHistogram ioWaits) {
+        this.files = files;
+        this.reusedFiles = reusedFiles;
+        this.failedFiles = failedFiles;
+        this.tweets = tweets;
+        this.positive = positive;
+        this.negative = negative;
+        this.lexiconLoadNanos = lexiconLoadNanos;
+        this.scoringNanos = scoringNanos;
+        this.writeNanos = writeNanos;
+        this.outputFile = outputFile;
+        this.run = run;
+        this.ioWaits = ioWaits;
+    }
+
+    /**
+     * Returns the number of tweet files scored.
+     * Complexity: O(1).
+     *
+     * @return The number of files.
+     */
+    public int files() {
+        return files;
+    }
+
+    /**
+     * Returns the number of unchanged tweet files whose stored results were reused instead of being scored.
+     * Complexity: O(1).
+     *
+     * @return The number of reused files.
+     */
+    public int reusedFiles() {
+        return reusedFiles;
+    }
+
+    /**
+     * Returns the number of tweet files that could not be scored.
+     * Complexity: O(1).
+     *
+     * @return The number of failed files.
+     */
+    public int failedFiles() {
+        return failedFiles;
+    }
+
+    /**
+     * Returns the number of tweet files that were not scored, or not completely, because the run stopped early.
+     * Complexity: O(f), where f is the number of tweet files in the run.
+     *
+     * @return The number of skipped files.
+     */
+    public int skippedFiles() {
+        return run.count(RunResult.Outcome.SKIPPED);
+    }
+
+    /**
+     * Returns the outcome of every tweet file and how the run ended.
+     * Complexity: O(1).
+     *
+     * @return The run result.
+     */
+    public RunResult run() {
+        return run;
+    }
+
+    /**
+     * Checks whether every tweet file was scored or reused, and the run was neither stopped nor cancelled.
+     * Complexity: O(f), where f is the number of tweet files in the run.
+     *
+     * @return true if the analysis succeeded.
+     */
+    public boolean isSuccessful() {
+        return failedFiles == 0 && run.isSuccessful();
+    }
+
+    /**
+     * Returns the number of tweets scored.
+     * Complexity: O(1).
+     *
+     * @return The number of tweets.
+     */
+    public long tweets() {
+        return tweets;
+    }
+
+    /**
+     * Returns the number of tweets with a positive score.
+     * Complexity: O(1).
+     *
+     * @return The number of positive tweets.
+     */
+    public long positive() {
+        return positive;
+    }
+
+    /**
+     * Returns the number of tweets with a negative score.
+     * Complexity: O(1).
+     *
+     * @return The number of negative tweets.
+     */
+    public long negative() {
+        return negative;
+    }
+
+    /**
+     * Returns the number of tweets with a neutral score.
+     * Complexity: O(1).
+     *
+     * @return The number of neutral tweets.
+     */
+    public long neutral() {
+        return tweets - positive - negative;
+    }
+
+    /**
+     * Returns the time taken to load the lexicon, or to find it in the cache.
+     * Complexity: O(1).
+     *
+     * @return The time in nanoseconds.
+     */
+    public long lexiconLoadNanos() {
+        return lexiconLoadNanos;
+    }
+
+    /**
+     * Returns the time taken to read and score the tweets.
+     * Complexity: O(1).
+     *
+     * @return The time in nanoseconds.
+     */
+    public long scoringNanos() {
+        return scoringNanos;
+    }
+
+    /**
+     * Returns the time taken to finish writing the results after scoring.
+     * Complexity: O(1).
+     *
+     * @return The time in nanoseconds.
+     */
+    public long writeNanos() {
+        return writeNanos;
+    }
+
+    /**
+     * Returns the time taken by the whole analysis.
+     * Complexity: O(1).
+     *
+     * @return The time in nanoseconds.
+     */
+    public long totalNanos() {
+        return lexiconLoadNanos + scoringNanos + writeNanos;
+    }
+
+    /**
+     * Returns the time each tweet file waited for its turn to be opened, within the limits on open files and
+     * bytes in flight.
+     * Complexity: O(1).
+     *
+     * @return The histogram of waits in nanoseconds, or null if files were read without admission control.
+     */
+    public LatencyHistogram ioWaits() {
+        return ioWaits;
+    }
+
+    /**
+     * Returns the results file.
+     * Complexity: O(1).
+     *
+     * @return The path of the results file.
+     */
+    public Path outputFile() {
+        return outputFile;
+    }
+
+    /**
+     * Formats the summary as a single-line JSON object, with times in milliseconds, the time tweet files waited
+     * to be opened and the reason for every failed file.
+     * Complexity: O(p + f), where p is the length of the output path and f is the number of tweet files.
+     *
+     * @return The JSON object.
+     */
+    public String toJson() {
+        return String.format(Locale.ROOT,
+                "{\"status\":\"%s\",\"files\":%d,\"reusedFiles\":%d,\"failedFiles\":%d,\"skippedFiles\":%d,"
+                        + "\"tweets\":%d,\"positive\":%d,\"negative\":%d,\"neutral\":%d,"
+                        + "\"timingsMs\":{\"lexiconLoad\":%.3f,\"scoring\":%.3f,\"write\":%.3f,\"total\":%.3f},"
+                        + "\"ioWaitMs\":%s,\"tweetsPerSecond\":%.1f,\"output\":%s,\"failures\":%s}",
+                run.statusName(), files, reusedFiles, failedFiles, skippedFiles(), tweets,
+                positive, negative, neutral(),
+                lexiconLoadNanos / 1e6, scoringNanos / 1e6, writeNanos / 1e6, totalNanos() / 1e6,
+                ioWaits == null ? "null" : FileAdmission.waitsToJson(ioWaits),
+                scoringNanos == 0 ? 0.0 : tweets / (scoringNanos / 1e9),
+                JsonLinesEncoder.quote(outputFile.toString()), run.failuresToJson());
+    }
+}
@@ -0,0 +1,43 @@
+package ie.atu.sw;
+
+import java.util.List;
+
+/**
+ * Encodes scored tweets for one {@link OutputFormat}.
+ * Encoders are stateless and shared by all threads; rows are appended to a {@link ByteSink}
+ * without creating objects per row. Batches scored against several lexicons get one score per lexicon.
+ */
+interface BatchEncoder {
+
+    /**
+     * Returns the bytes written once at the start of a results file, such as a header row.
+     *
+     * @param scoreNames The name of each score column, or null for a single score.
+     * @return The header, or an empty array if the format has none.
+     */
+    byte[] header(List<String> scoreNames);
+
+    /**
+     * Appends every tweet of a batch.
+     *
+     * @param batch The scored tweets.
+     * @param sink  The sink to append to.
+     */
+    void encode(TweetBatch batch, ByteSink sink);
+
+    /**
+     * Classifies a score as positive, negative or neutral.
+     * Complexity: O(1).
+     *
+     * @param score The sentiment score.
+     * @return 1 for positive, -1 for negative and 0 for neutral scores.
+     */
+    static int sentimentClass(double score) {
+        if (score > 0) {
+            return 1;
+        } else if (score < 0) {
+            return -1;
+        }
+        return 0;
+    }
+}
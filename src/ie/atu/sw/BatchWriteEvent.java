@@ -0,0 +1,33 @@
+package ie.atu.sw;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for encoding one scored batch and queuing it for the output file, including any time
+ * spent waiting for room in the queue of the writer.
+ */
+@Name("ie.atu.sw.BatchWrite")
+@Label("Batch Write")
+@Category({"Sentiment Analysis", "Output"})
+@Description("Encoding of one scored batch in the output format and queuing it for the results file")
+@StackTrace(false)
+final class BatchWriteEvent extends Event {
+    @Label("Source")
+    String source;
+
+    @Label("Format")
+    String format;
+
+    @Label("Tweets")
+    int tweets;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+}
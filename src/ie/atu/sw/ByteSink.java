@@ -0,0 +1,194 @@
+package ie.atu.sw;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Growable byte buffer that output encoders append results to.
+ * Text, numbers and scores are encoded straight into the buffer, so encoding a row creates no objects.
+ * The buffer only grows, by doubling, when a batch does not fit; recycled buffers keep their grown size.
+ * Instances are not thread-safe; each encoding thread uses its own sink.
+ */
+final class ByteSink {
+    private static final int SCORE_FAST_PATH_LIMIT = 10_000_000;
+
+    private ByteBuffer buffer;
+
+    /**
+     * Creates a sink that appends to a buffer, starting at its position.
+     * Complexity: O(1).
+     *
+     * @param buffer The buffer to append to.
+     */
+    ByteSink(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Returns the bytes written, ready to be read from position 0 to the limit.
+     * The sink must not be used afterwards.
+     * Complexity: O(1).
+     *
+     * @return The flipped buffer, which may be larger than the one the sink started with.
+     */
+    ByteBuffer finish() {
+        return buffer.flip();
+    }
+
+    /**
+     * Appends a byte.
+     * Complexity: O(1) amortised.
+     *
+     * @param b The byte.
+     */
+    void put(byte b) {
+        ensure(1);
+        buffer.put(b);
+    }
+
+    /**
+     * Appends bytes.
+     * Complexity: O(n), where n is the number of bytes.
+     *
+     * @param bytes The bytes.
+     */
+    void put(byte[] bytes) {
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Appends an int in big-endian order.
+     * Complexity: O(1) amortised.
+     *
+     * @param value The value.
+     */
+    void putInt(int value) {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    /**
+     * Appends a long in big-endian order.
+     * Complexity: O(1) amortised.
+     *
+     * @param value The value.
+     */
+    void putLong(long value) {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    /**
+     * Appends a double in big-endian order.
+     * Complexity: O(1) amortised.
+     *
+     * @param value The value.
+     */
+    void putDouble(double value) {
+        ensure(Double.BYTES);
+        buffer.putDouble(value);
+    }
+
+    /**
+     * Appends characters encoded as UTF-8; unpaired surrogates become '?', as with String.getBytes.
+     * Complexity: O(n), where n is the number of characters.
+     *
+     * @param text The characters.
+     */
+    void putUtf8(CharSequence text) {
+        int length = text.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                ensure(1);
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                ensure(4);
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                ensure(1);
+                buffer.put((byte) '?');
+            } else {
+                ensure(3);
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Appends a whole number in decimal.
+     * Complexity: O(d), where d is the number of digits.
+     *
+     * @param value The value.
+     */
+    void putDecimal(long value) {
+        ensure(20);
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                put(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int start = buffer.position();
+        do {
+            buffer.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while (value > 0);
+        for (int left = start, right = buffer.position() - 1; left < right; left++, right--) {
+            byte swap = buffer.get(left);
+            buffer.put(left, buffer.get(right));
+            buffer.put(right, swap);
+        }
+    }
+
+    /**
+     * Appends a score exactly as Double.toString prints it.
+     * Scores rounded to one decimal place below ten million are printed digit by digit without creating a String;
+     * any other value falls back to Double.toString.
+     * Complexity: O(d), where d is the number of digits.
+     *
+     * @param score The score.
+     */
+    void putScore(double score) {
+        double magnitude = Math.abs(score);
+        long tenths = Math.round(magnitude * 10);
+        if (magnitude == 0.0 || (magnitude < SCORE_FAST_PATH_LIMIT && tenths / 10.0 == magnitude)) {
+            if (Double.doubleToRawLongBits(score) < 0) {
+                put((byte) '-');
+            }
+            putDecimal(tenths / 10);
+            put((byte) '.');
+            put((byte) ('0' + tenths % 10));
+        } else {
+            put(Double.toString(score).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Makes room for at least the given number of bytes, doubling the buffer if needed.
+     * Complexity: O(n) when the buffer grows, where n is its size; O(1) otherwise.
+     */
+    private void ensure(int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        grown.put(buffer.flip());
+        buffer = grown;
+    }
+}
@@ -0,0 +1,176 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Scores a single large tweet file in parallel by splitting it into chunks.
+ * The file is cut by {@link LineRanges} into byte ranges that end just after a line feed, so no tweet is split
+ * between chunks.
+ * Each range is memory-mapped with {@link FileChannel#map} and decoded and scored as a separate task
+ * on a ForkJoin pool with one thread per CPU.
+ * Finished chunks are handed on strictly in file order, and line numbers are assigned as they are handed on,
+ * so the output matches reading the file line by line. Only a bounded window of chunks is in flight at once.
+ */
+final class ChunkedTweetScorer {
+    private final int chunkSize;
+
+    /**
+     * Receives the scored chunks of a file in order.
+     */
+    @FunctionalInterface
+    interface BatchConsumer {
+        /**
+         * Accepts the next scored chunk.
+         *
+         * @param batch The tweets and scores of the chunk, with line numbers set.
+         * @throws IOException If the results cannot be written.
+         */
+        void accept(TweetBatch batch) throws IOException;
+    }
+
+    /**
+     * Creates a scorer that cuts files into chunks of about the given size.
+     * Complexity: O(1).
+     *
+     * @param chunkSize The target number of bytes per chunk; chunks are extended to the next line feed.
+     */
+    ChunkedTweetScorer(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Scores every tweet of a file and passes the chunks to a consumer in file order.
+     * Complexity: O(n*m / p), where n is the number of tweets, m is the average length of a tweet and p is the number of CPUs.
+     *
+     * @param file      The file containing one tweet per line.
+     * @param processor The processor that scores each tweet.
+     * @param lexicons  The lexicons for sentiment analysis, one score column each.
+     * @param terms     The analytics the scored terms are recorded in, or null to record nothing.
+     * @param metrics   The registry the scoring of each chunk is timed in, or null to time nothing.
+     * @param consumer  Receives the scored chunks in order.
+     * @throws IOException If the file cannot be read or decoded, or the consumer fails.
+     */
+    void process(Path file, TweetProcessor processor, LexiconSet lexicons, TermAnalytics terms,
+                 MetricsRegistry metrics, BatchConsumer consumer) throws IOException {
+        String source = file.getFileName().toString();
+        ForkJoinPool pool = Pool.INSTANCE;
+        int window = pool.getParallelism() + 1;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = LineRanges.split(channel, chunkSize);
+            ArrayDeque<ForkJoinTask<TweetBatch>> pending = new ArrayDeque<>();
+            long nextLine = 1;
+            int nextChunk = 0;
+            try {
+                while (nextChunk < bounds.length - 1 || !pending.isEmpty()) {
+                    while (nextChunk < bounds.length - 1 && pending.size() < window) {
+                        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY,
+                                bounds[nextChunk], bounds[nextChunk + 1] - bounds[nextChunk]);
+                        pending.add(pool.submit(() -> scoreChunk(region, source, processor, lexicons, terms,
+                                metrics)));
+                        nextChunk++;
+                    }
+                    TweetBatch batch = join(pending.poll());
+                    batch.startAt(nextLine);
+                    nextLine += batch.size();
+                    consumer.accept(batch);
+                }
+            } finally {
+                for (ForkJoinTask<TweetBatch> task : pending) {
+                    task.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes a mapped chunk into tweets, split into lines as {@link LineRanges} describes, and scores them.
+     * A term sketch is borrowed for the whole chunk, so recording terms costs no synchronisation per tweet.
+     * The scoring is recorded as a {@link TweetBatchEvent} when the flight recorder is on, and timed in the
+     * "batch.score" histogram of the metrics registry if there is one, like the batches of smaller files.
+     * Complexity: O(n*m), where n is the number of tweets in the chunk and m is the average length of a tweet.
+     */
+    private static TweetBatch scoreChunk(ByteBuffer region, String source, TweetProcessor processor,
+                                         LexiconSet lexicons, TermAnalytics terms, MetricsRegistry metrics) {
+        CharBuffer text;
+        try {
+            text = StandardCharsets.UTF_8.newDecoder().decode(region);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<String> lines = new ArrayList<>();
+        int length = text.length();
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (LineRanges.isLineEnd(text.get(i))) {
+                lines.add(text.subSequence(lineStart, i).toString());
+                lineStart = LineRanges.nextLineStart(text, i);
+                i = lineStart - 1;
+            }
+        }
+        if (lineStart < length) {
+            lines.add(text.subSequence(lineStart, length).toString());
+        }
+
+        TweetBatch batch = new TweetBatch(source, lines.toArray(new String[0]), lexicons.scoreNames());
+        TweetBatchEvent event = new TweetBatchEvent();
+        event.begin();
+        long start = metrics == null ? 0 : System.nanoTime();
+        TermSketch sketch = terms == null ? null : terms.acquire();
+        try {
+            processor.scoreBatch(batch, lexicons, sketch);
+        } finally {
+            if (sketch != null) {
+                terms.release(sketch);
+            }
+        }
+        event.end();
+        if (metrics != null) {
+            metrics.histogram("batch.score").record(System.nanoTime() - start);
+        }
+        if (event.shouldCommit()) {
+            // The first line of a chunk is only known once the chunks before it have been counted
+            event.source = source;
+            event.tweets = batch.size();
+            event.tokens = batch.tokenCount();
+            event.commit();
+        }
+        return batch;
+    }
+
+    private static TweetBatch join(ForkJoinTask<TweetBatch> task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException e) {
+            Throwable cause = e;
+            while (cause instanceof UncheckedIOException) {
+                cause = cause.getCause();
+            }
+            throw cause instanceof IOException ioException ? ioException : e.getCause();
+        }
+    }
+
+    /**
+     * Holds the shared scoring pool, created on first use with one worker per CPU.
+     */
+    private static final class Pool {
+        private static final ForkJoinPool INSTANCE = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,78 @@
+package ie.atu.sw;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Encodes results in a compact binary columnar format, big-endian throughout.
+ * The file starts with the magic number 0x54575343 ("TWSC") and the format version.
+ * Each batch follows as one block: the row count, the source as a length-prefixed UTF-8 string,
+ * the line number of the first row (the rows of a block are consecutive lines), then a column of
+ * double scores and a column of byte classes (1 positive, -1 negative, 0 neutral).
+ * Results scored against several lexicons are written as version 2: the header goes on with the number of
+ * lexicons and their names as length-prefixed UTF-8 strings, and each block has a column of scores per lexicon,
+ * in that order, followed by a column of classes per lexicon.
+ */
+final class ColumnarEncoder implements BatchEncoder {
+    static final int MAGIC = 0x54575343;
+    static final int VERSION = 1;
+    static final int MULTI_LEXICON_VERSION = 2;
+
+    /**
+     * Returns the file header: the magic number and the format version, and for several lexicons their names.
+     * Complexity: O(l), where l is the number of score columns.
+     *
+     * @param scoreNames The name of each score column, or null for a single score.
+     * @return The header.
+     */
+    @Override
+    public byte[] header(List<String> scoreNames) {
+        ByteSink sink = new ByteSink(ByteBuffer.allocate(64));
+        sink.putInt(MAGIC);
+        if (scoreNames == null) {
+            sink.putInt(VERSION);
+        } else {
+            sink.putInt(MULTI_LEXICON_VERSION);
+            sink.putInt(scoreNames.size());
+            for (String name : scoreNames) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                sink.putInt(bytes.length);
+                sink.put(bytes);
+            }
+        }
+        ByteBuffer header = sink.finish();
+        byte[] bytes = new byte[header.remaining()];
+        header.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Appends a batch as one block of columns.
+     * Complexity: O(n*l), where n is the number of tweets in the batch and l is the number of score columns.
+     *
+     * @param batch The scored tweets.
+     * @param sink  The sink to append to.
+     */
+    @Override
+    public void encode(TweetBatch batch, ByteSink sink) {
+        if (batch.size() == 0) {
+            return;
+        }
+        byte[] source = batch.source().getBytes(StandardCharsets.UTF_8);
+        sink.putInt(batch.size());
+        sink.putInt(source.length);
+        sink.put(source);
+        sink.putLong(batch.lineNumber(0));
+        for (int column = 0; column < batch.columns(); column++) {
+            for (int i = 0; i < batch.size(); i++) {
+                sink.putDouble(batch.score(i, column));
+            }
+        }
+        for (int column = 0; column < batch.columns(); column++) {
+            for (int i = 0; i < batch.size(); i++) {
+                sink.put((byte) BatchEncoder.sentimentClass(batch.score(i, column)));
+            }
+        }
+    }
+}
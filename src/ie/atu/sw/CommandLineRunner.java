@@ -0,0 +1,497 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Non-interactive mode of the application, driven by command line arguments instead of the menu,
+ * so analyses can be scheduled from cron or a pipeline.
+ * The summary of a run, with the time taken by each stage, is printed as one JSON object on the last line of
+ * standard output; progress and errors go to standard error. The exit code tells how the run ended.
+ * With --watch, new tweet files are scored as they arrive in the tweet directory until the process is stopped.
+ * With --serve, the lexicon is loaded once and a {@link ScoringServer} answers scoring requests until the
+ * process is stopped. With --compile-snapshot, each lexicon is compiled into a snapshot stored next to it.
+ */
+public class CommandLineRunner {
+    /**
+     * Exit code of a run that scored every tweet file.
+     */
+    public static final int EXIT_OK = 0;
+    /**
+     * Exit code of a run that failed during the analysis, could not score some of the tweet files, or was stopped
+     * by its deadline or the first failure under --fail-fast.
+     */
+    public static final int EXIT_ANALYSIS_FAILED = 1;
+    /**
+     * Exit code for missing or invalid arguments.
+     */
+    public static final int EXIT_USAGE = 2;
+    /**
+     * Exit code for a lexicon or tweet path that does not exist or cannot be read.
+     */
+    public static final int EXIT_INPUT = 3;
+    /**
+     * Exit code for an output directory that cannot be created or written, or a server port that cannot be bound.
+     */
+    public static final int EXIT_OUTPUT = 4;
+
+    private static final long DEFAULT_SETTLE_MILLIS = 2000;
+
+    private static final String USAGE = """
+            Usage: java -jar SentimentAnalysisWithVirtualThreads.jar [options]
+              -l, --lexicon <path>      Lexicon file, directory or snapshot (required); repeat to score every tweet
+                                        against several lexicons in one pass, with one score column each
+                  --conflict <policy>   Score of a word in several lexicon files: priority, average, max-magnitude
+                                        or sum (default: priority, the first file in path order wins)
+              -t, --tweets <path>       Tweet file or directory (required)
+              -o, --output <dir>        Output directory, created if missing (required unless serving)
+              -c, --concurrency <n>     Platform threads for tweet files, or 'virtual' (default: virtual)
+              -f, --format <format>     text, csv, jsonl or binary (default: text)
+              -b, --batch-size <n>      Tweets read, scored and written at a time (default: 1024)
+                  --max-open-files <n>  Files open at once in a directory run, counting each tweet file and the
+                                        temporary files of its results (default: 64)
+                  --max-inflight-mb <n> Megabytes of tweet files read and not yet scored (default: 256)
+                  --order <order>       Order tweet files of a directory are read in: path or size, largest
+                                        first (default: path)
+                  --deadline <s>        Stop loading a lexicon directory or scoring tweet files after this many
+                                        seconds, skipping the files not done (default: 3600 for tweet files)
+                  --fail-fast           Stop at the first lexicon or tweet file that cannot be read, instead of
+                                        reporting it and carrying on with the other files
+                  --echo                Print every scored tweet to standard output
+              -q, --quiet               Do not report progress
+              -i, --incremental         Only score tweet files that are new or changed since the last run
+                  --top <k>             Add the k most positive and most negative tweets per file and overall to summary.json
+                  --terms <k>           Add the k most frequent, most positive and most negative lexicon terms to summary.json
+                  --rules               Score with negation, boosters, capitals and "but" clauses, using the
+                                        modifier lists in <lexicon>.modifiers next to the first lexicon if present
+                  --summary-only        Only write summary.json with the score statistics, not every tweet's score
+                  --metrics             Write the counters, timers and latency histograms of every stage to
+                                        metrics.json in the output directory
+              -w, --watch               Keep watching the tweet directory and score new files as they arrive
+                  --settle <ms>         How long a new file must stay unchanged before it is scored (default: 2000)
+              -s, --serve <port>        Load the lexicon once and serve scoring requests over HTTP instead
+                  --compile-snapshot    Compile each lexicon into a snapshot next to it (<lexicon>.lexsnap), merged
+                                        with the --conflict policy, print its path and exit
+                  --host <address>      Address the server listens on (default: 127.0.0.1)
+              -h, --help                Show this help
+            Without options the interactive menu starts.
+            Exit codes: 0 success, 1 analysis failed, 2 invalid arguments, 3 unreadable input, 4 unwritable output or port in use.""";
+
+    private final PrintStream out;
+    private final PrintStream err;
+
+    private final List<String> lexiconPaths = new ArrayList<>();
+    private String tweetPath;
+    private String outputPath;
+    private Supplier<ExecutorService> executorFactory = Executors::newVirtualThreadPerTaskExecutor;
+    private OutputFormat format = OutputFormat.TEXT;
+    private int batchSize = -1;
+    private boolean echo;
+    private boolean quiet;
+    private int servePort = -1;
+    private String serveHost = "127.0.0.1";
+    private boolean watch;
+    private boolean incremental;
+    private boolean summaryOnly;
+    private boolean metrics;
+    private int topTweets;
+    private int termReportSize;
+    private boolean rules;
+    private boolean compileSnapshot;
+    private LexiconConflictPolicy conflictPolicy = LexiconConflictPolicy.PRIORITY;
+    private long settleMillis = DEFAULT_SETTLE_MILLIS;
+    private ErrorPolicy errorPolicy = ErrorPolicy.COLLECT_ALL;
+    private Duration deadline;
+    private int maxOpenFiles = -1;
+    private long maxInFlightBytes = -1;
+    private FileOrder fileOrder = FileOrder.PATH;
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    /**
+     * Creates a command line runner that prints to the given streams.
+     * Complexity: O(1).
+     *
+     * @param out The stream the summary, and any echoed tweets, are printed to.
+     * @param err The stream progress and errors are printed to.
+     */
+    public CommandLineRunner(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Runs an analysis described by command line arguments.
+     * Complexity: O(n*m), where n is the number of tweets and m is the average length of a tweet.
+     *
+     * @param args The command line arguments.
+     * @return The exit code of the run.
+     */
+    public int run(String[] args) {
+        try {
+            if (!parseArguments(args)) {
+                out.println(USAGE);
+                return EXIT_OK;
+            }
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        if (servePort >= 0) {
+            return serve();
+        }
+        if (compileSnapshot) {
+            return compileSnapshots();
+        }
+
+        int inputCheck = checkPaths();
+        if (inputCheck != EXIT_OK) {
+            return inputCheck;
+        }
+
+        TweetProcessor tweetProcessor;
+        try {
+            tweetProcessor = tweetProcessor();
+        } catch (IOException e) {
+            err.println("Error loading modifiers: " + e.getMessage());
+            return EXIT_INPUT;
+        }
+
+        MetricsRegistry registry = metrics ? new MetricsRegistry() : null;
+        LexiconParser lexiconParser = lexiconParser();
+        lexiconParser.setMetrics(registry);
+        SentimentAnalysisManager analysisManager = new SentimentAnalysisManager(
+                new LexiconCache(new LexiconLoader(lexiconParser)), executorFactory);
+        analysisManager.setTweetProcessor(tweetProcessor);
+        analysisManager.setOutputFormat(format);
+        analysisManager.setEcho(echo);
+        analysisManager.setIncremental(incremental);
+        analysisManager.setSummaryOnly(summaryOnly);
+        analysisManager.setTopTweets(topTweets);
+        analysisManager.setTermReportSize(termReportSize);
+        analysisManager.setProgressOutput(quiet ? null : err);
+        analysisManager.setErrorPolicy(errorPolicy);
+        analysisManager.setFileOrder(fileOrder);
+        analysisManager.setMetrics(registry);
+        if (maxOpenFiles > 0) {
+            analysisManager.setMaxOpenFiles(maxOpenFiles);
+        }
+        if (maxInFlightBytes > 0) {
+            analysisManager.setMaxInFlightBytes(maxInFlightBytes);
+        }
+        if (batchSize > 0) {
+            analysisManager.setBatchSize(batchSize);
+        }
+        if (deadline != null) {
+            analysisManager.setDeadline(deadline);
+        }
+
+        try {
+            AnalysisSummary summary = watch ? watch(analysisManager)
+                    : analysisManager.performAnalysis(lexiconPaths, tweetPath, outputPath);
+            out.println(summary.toJson());
+            return summary.isSuccessful() ? EXIT_OK : EXIT_ANALYSIS_FAILED;
+        } catch (IOException | RuntimeException e) {
+            err.println("Error in performing sentiment analysis: " + e.getMessage());
+            out.println("{\"status\":\"failed\",\"error\":" + JsonLinesEncoder.quote(String.valueOf(e.getMessage())) + "}");
+            return EXIT_ANALYSIS_FAILED;
+        } finally {
+            out.flush();
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Reads the options into fields.
+     * Complexity: O(a), where a is the number of arguments.
+     *
+     * @return false if help was requested, true if an analysis should run.
+     * @throws IllegalArgumentException If an option is unknown, lacks its value, or a required option is missing.
+     */
+    private boolean parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            switch (option) {
+                case "-h", "--help" -> {
+                    return false;
+                }
+                case "-l", "--lexicon" -> lexiconPaths.add(value(args, ++i, option));
+                case "-t", "--tweets" -> tweetPath = value(args, ++i, option);
+                case "-o", "--output" -> outputPath = value(args, ++i, option);
+                case "-c", "--concurrency" -> executorFactory = executorFactory(value(args, ++i, option));
+                case "-f", "--format" -> format = format(value(args, ++i, option));
+                case "-b", "--batch-size" -> batchSize = positiveInt(value(args, ++i, option), option);
+                case "--echo" -> echo = true;
+                case "-q", "--quiet" -> quiet = true;
+                case "-s", "--serve" -> servePort = port(value(args, ++i, option));
+                case "--host" -> serveHost = value(args, ++i, option);
+                case "-w", "--watch" -> watch = true;
+                case "-i", "--incremental" -> incremental = true;
+                case "--summary-only" -> summaryOnly = true;
+                case "--metrics" -> metrics = true;
+                case "--rules" -> rules = true;
+                case "--compile-snapshot" -> compileSnapshot = true;
+                case "--top" -> topTweets = positiveInt(value(args, ++i, option), option);
+                case "--conflict" -> conflictPolicy = conflictPolicy(value(args, ++i, option));
+                case "--terms" -> termReportSize = positiveInt(value(args, ++i, option), option);
+                case "--settle" -> settleMillis = positiveInt(value(args, ++i, option), option);
+                case "--deadline" -> deadline = Duration.ofSeconds(positiveInt(value(args, ++i, option), option));
+                case "--fail-fast" -> errorPolicy = ErrorPolicy.FAIL_FAST;
+                case "--max-open-files" -> maxOpenFiles = positiveInt(value(args, ++i, option), option);
+                case "--max-inflight-mb" -> maxInFlightBytes = (long) positiveInt(value(args, ++i, option), option) << 20;
+                case "--order" -> fileOrder = fileOrder(value(args, ++i, option));
+                default -> throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+        if (servePort >= 0) {
+            if (lexiconPaths.size() != 1) {
+                throw new IllegalArgumentException("--serve needs exactly one --lexicon");
+            }
+            return true;
+        }
+        if (compileSnapshot) {
+            if (lexiconPaths.isEmpty()) {
+                throw new IllegalArgumentException("--compile-snapshot needs a --lexicon");
+            }
+            return true;
+        }
+        if (summaryOnly && (watch || incremental)) {
+            throw new IllegalArgumentException("--summary-only cannot be combined with --watch or --incremental");
+        }
+        if (lexiconPaths.isEmpty() || tweetPath == null || outputPath == null) {
+            throw new IllegalArgumentException("--lexicon, --tweets and --output are required");
+        }
+        if (lexiconPaths.size() > 1 && (watch || incremental || termReportSize > 0)) {
+            throw new IllegalArgumentException("--watch, --incremental and --terms need a single --lexicon");
+        }
+        return true;
+    }
+
+    /**
+     * Watches the tweet directory until the process is stopped, then lets the files in progress finish.
+     * A shutdown hook interrupts the watch and holds the JVM open until the summary has been printed.
+     * Complexity: O(n*m), where n is the number of new tweets and m is the average length of a tweet.
+     *
+     * @param analysisManager The configured manager.
+     * @return The summary of the tweets scored while watching.
+     * @throws IOException If the watch cannot start or the output cannot be written.
+     */
+    private AnalysisSummary watch(SentimentAnalysisManager analysisManager) throws IOException {
+        if (!Files.isDirectory(Paths.get(tweetPath))) {
+            throw new IOException("--watch needs a tweet directory: " + tweetPath);
+        }
+        Thread watcher = Thread.currentThread();
+        Thread shutdownHook = new Thread(() -> {
+            watcher.interrupt();
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        err.println("Watching " + tweetPath + " for new tweet files; stop with Ctrl+C");
+        return analysisManager.watchTweetDirectory(lexiconPaths.get(0), tweetPath, outputPath, settleMillis);
+    }
+
+    /**
+     * Loads the lexicon and serves scoring requests until the process is stopped.
+     * Complexity: O(n) to load the lexicon, where n is the number of lexicon lines; then runs until stopped.
+     *
+     * @return The exit code, once the server has stopped.
+     */
+    private int serve() {
+        String lexiconPath = lexiconPaths.get(0);
+        if (!Files.isReadable(Paths.get(lexiconPath))) {
+            err.println("Error: Cannot read input path: " + lexiconPath);
+            return EXIT_INPUT;
+        }
+        CompiledLexicon lexicon;
+        TweetProcessor tweetProcessor;
+        try {
+            lexicon = new LexiconLoader(lexiconParser()).load(lexiconPath);
+            tweetProcessor = tweetProcessor();
+        } catch (IOException e) {
+            err.println("Error loading lexicon: " + e.getMessage());
+            return EXIT_INPUT;
+        }
+
+        ScoringServer server;
+        try {
+            server = new ScoringServer(lexicon, new InetSocketAddress(serveHost, servePort), tweetProcessor);
+        } catch (IOException e) {
+            err.println("Error: Cannot listen on " + serveHost + ":" + servePort + ". Error: " + e.getMessage());
+            return EXIT_OUTPUT;
+        }
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            stopped.countDown();
+        }));
+        server.start();
+        err.println("Scoring server listening on http://" + serveHost + ":" + server.getAddress().getPort()
+                + " with " + lexicon.size() + " lexicon words");
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.close();
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Compiles every lexicon into a snapshot stored next to it, with lexicon directories merged by the conflict
+     * policy, and prints the path of each snapshot.
+     * Complexity: O(n), where n is the number of lines in the lexicons.
+     *
+     * @return EXIT_OK, or EXIT_INPUT if a lexicon cannot be compiled.
+     */
+    private int compileSnapshots() {
+        LexiconLoader lexiconLoader = new LexiconLoader(lexiconParser());
+        for (String lexiconPath : lexiconPaths) {
+            try {
+                out.println(lexiconLoader.compileSnapshot(lexiconPath));
+            } catch (IOException e) {
+                err.println("Error compiling lexicon snapshot: " + e.getMessage());
+                return EXIT_INPUT;
+            }
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Creates the parser of lexicon files and directories with the conflict policy, error policy and deadline.
+     * Complexity: O(1).
+     *
+     * @return The lexicon parser.
+     */
+    private LexiconParser lexiconParser() {
+        LexiconParser lexiconParser = new LexiconParser(conflictPolicy);
+        lexiconParser.setErrorPolicy(errorPolicy);
+        lexiconParser.setDeadline(deadline);
+        return lexiconParser;
+    }
+
+    /**
+     * Creates the processor that scores each tweet: plain summing of word scores, or with --rules the rule-based
+     * processor with the modifiers kept next to the first lexicon.
+     * Complexity: O(n), where n is the number of lines in the modifiers file.
+     *
+     * @return The tweet processor.
+     * @throws IOException If the modifiers file exists but cannot be read.
+     */
+    private TweetProcessor tweetProcessor() throws IOException {
+        if (!rules) {
+            return new ProcessingTweets();
+        }
+        return new RuleBasedTweetProcessor(SentimentModifiers.forLexicon(lexiconPaths.get(0)));
+    }
+
+    /**
+     * Checks that the inputs can be read and the output directory can be written, creating it if needed.
+     * Complexity: O(1).
+     *
+     * @return EXIT_OK, or the exit code describing the first problem found.
+     */
+    private int checkPaths() {
+        List<String> inputs = new ArrayList<>(lexiconPaths);
+        inputs.add(tweetPath);
+        for (String input : inputs) {
+            Path path = Paths.get(input);
+            if (!Files.exists(path) || !Files.isReadable(path)) {
+                err.println("Error: Cannot read input path: " + input);
+                return EXIT_INPUT;
+            }
+        }
+
+        Path output = Paths.get(outputPath);
+        try {
+            Files.createDirectories(output);
+        } catch (IOException e) {
+            err.println("Error: Cannot create output directory: " + outputPath + ". Error: " + e.getMessage());
+            return EXIT_OUTPUT;
+        }
+        if (!Files.isDirectory(output) || !Files.isWritable(output)) {
+            err.println("Error: Cannot write to output directory: " + outputPath);
+            return EXIT_OUTPUT;
+        }
+        return EXIT_OK;
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    private static Supplier<ExecutorService> executorFactory(String concurrency) {
+        if (concurrency.equalsIgnoreCase("virtual")) {
+            return Executors::newVirtualThreadPerTaskExecutor;
+        }
+        int threads = positiveInt(concurrency, "--concurrency");
+        return () -> Executors.newFixedThreadPool(threads);
+    }
+
+    private static int port(String value) {
+        try {
+            int port = Integer.parseInt(value);
+            if (port >= 0 && port <= 65535) {
+                return port;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below with the option name
+        }
+        throw new IllegalArgumentException("--serve must be a port from 0 to 65535: " + value);
+    }
+
+    private static OutputFormat format(String name) {
+        try {
+            return OutputFormat.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown format: " + name);
+        }
+    }
+
+    private static FileOrder fileOrder(String name) {
+        try {
+            return FileOrder.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown file order: " + name);
+        }
+    }
+
+    private static LexiconConflictPolicy conflictPolicy(String name) {
+        try {
+            return LexiconConflictPolicy.valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown conflict policy: " + name);
+        }
+    }
+
+    private static int positiveInt(String value, String option) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below with the option name
+        }
+        throw new IllegalArgumentException(option + " must be a positive whole number: " + value);
+    }
+}
@@ -0,0 +1,195 @@
+package ie.atu.sw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, primitive-specialised lexicon built once after parsing.
+ * Words live in an open-addressing {@link TokenTable} and their scores in a parallel {@code double[]},
+ * so a lookup hashes a character range and reads a primitive score without boxing or creating Strings.
+ * Entries made of several words, such as "not good", are compiled into a {@link PhraseAutomaton} instead.
+ * A lexicon loaded from a {@link LexiconSnapshot} serves its words straight from the memory-mapped file.
+ * Instances are read-only and can be shared by any number of threads without synchronisation.
+ */
+public final class CompiledLexicon {
+    private final LexiconTable words;
+    private final PhraseAutomaton phrases;
+
+    /**
+     * Creates a compiled lexicon from its word table and phrases.
+     * Complexity: O(1).
+     *
+     * @param words   The table of words and scores.
+     * @param phrases The automaton of multi-word entries, or null if there are none.
+     */
+    CompiledLexicon(LexiconTable words, PhraseAutomaton phrases) {
+        this.words = words;
+        this.phrases = phrases;
+    }
+
+    /**
+     * Compiles a parsed lexicon map.
+     * Complexity: O(n*k), where n is the number of words and k is the average word length.
+     *
+     * @param lexicon A map containing words and their associated sentiment scores.
+     * @return The compiled lexicon.
+     */
+    public static CompiledLexicon compile(Map<String, Double> lexicon) {
+        List<String> keys = new ArrayList<>(lexicon.size());
+        double[] scores = new double[lexicon.size()];
+        Map<String, Double> phraseEntries = new HashMap<>();
+        TweetTokenizer tokenizer = new TweetTokenizer();
+        for (Map.Entry<String, Double> entry : lexicon.entrySet()) {
+            if (isPhrase(entry.getKey(), tokenizer)) {
+                phraseEntries.put(entry.getKey(), entry.getValue());
+            } else {
+                scores[keys.size()] = entry.getValue();
+                keys.add(entry.getKey());
+            }
+        }
+        if (keys.size() < scores.length) {
+            scores = Arrays.copyOf(scores, keys.size());
+        }
+        return new CompiledLexicon(new HeapLexiconTable(new TokenTable(keys), scores), PhraseAutomaton.build(phraseEntries));
+    }
+
+    /**
+     * Returns the score of a word, or 0.0 if the word is not in the lexicon.
+     * Complexity: O(k) on average, where k is the length of the word.
+     *
+     * @param word The word to look up.
+     * @return The sentiment score of the word.
+     */
+    public double score(CharSequence word) {
+        int index = words.indexOf(word);
+        return index < 0 ? 0.0 : words.scoreAt(index);
+    }
+
+    /**
+     * Returns the score of the word held in a character range, or 0.0 if the word is not in the lexicon.
+     * Complexity: O(k) on average, where k is the length of the word.
+     *
+     * @param chars  The characters holding the word.
+     * @param offset The index of the first character of the word.
+     * @param length The number of characters in the word.
+     * @return The sentiment score of the word.
+     */
+    public double score(char[] chars, int offset, int length) {
+        int index = words.indexOf(chars, offset, length);
+        return index < 0 ? 0.0 : words.scoreAt(index);
+    }
+
+    /**
+     * Finds the index of a word in the lexicon.
+     * Complexity: O(k) on average, where k is the length of the word.
+     *
+     * @param word The word to look up.
+     * @return The index of the word, or -1 if it is not in the lexicon.
+     */
+    public int indexOf(CharSequence word) {
+        return words.indexOf(word);
+    }
+
+    /**
+     * Finds the index of the word held in a character range.
+     * Complexity: O(k) on average, where k is the length of the word.
+     *
+     * @param chars  The characters holding the word.
+     * @param offset The index of the first character of the word.
+     * @param length The number of characters in the word.
+     * @return The index of the word, or -1 if it is not in the lexicon.
+     */
+    public int indexOf(char[] chars, int offset, int length) {
+        return words.indexOf(chars, offset, length);
+    }
+
+    /**
+     * Returns the score of the word at an index.
+     * Complexity: O(1).
+     *
+     * @param index An index returned by indexOf.
+     * @return The sentiment score of the word.
+     */
+    public double scoreAt(int index) {
+        return words.scoreAt(index);
+    }
+
+    /**
+     * Returns the word at an index.
+     * Complexity: O(k), where k is the length of the word.
+     *
+     * @param index An index between 0 and size() - 1.
+     * @return The word.
+     */
+    public String wordAt(int index) {
+        return words.wordAt(index);
+    }
+
+    /**
+     * Returns the number of words in the lexicon.
+     * Complexity: O(1).
+     *
+     * @return The number of words.
+     */
+    public int size() {
+        return words.size();
+    }
+
+    /**
+     * Returns the number of multi-word entries in the lexicon.
+     * Complexity: O(1).
+     *
+     * @return The number of phrases.
+     */
+    public int phraseCount() {
+        return phrases == null ? 0 : phrases.size();
+    }
+
+    /**
+     * Estimates the heap used by the lexicon; a memory-mapped word table counts as zero.
+     * Complexity: O(p), where p is the number of phrases.
+     *
+     * @return The approximate number of heap bytes held by the lexicon.
+     */
+    public long estimatedBytes() {
+        return words.estimatedBytes() + (phrases == null ? 0L : phrases.estimatedBytes());
+    }
+
+    /**
+     * Returns the table of single-word entries.
+     * Complexity: O(1).
+     *
+     * @return The word table.
+     */
+    LexiconTable words() {
+        return words;
+    }
+
+    /**
+     * Returns the automaton of multi-word entries.
+     * Complexity: O(1).
+     *
+     * @return The phrase automaton, or null if the lexicon has no phrases.
+     */
+    PhraseAutomaton phrases() {
+        return phrases;
+    }
+
+    /**
+     * Checks whether a lexicon key holds more than one token.
+     * Complexity: O(k), where k is the length of the key.
+     */
+    private static boolean isPhrase(String key, TweetTokenizer tokenizer) {
+        int tokens = 0;
+        tokenizer.reset(key);
+        while (tokenizer.next()) {
+            if (tokenizer.tokenLength() > 0) {
+                tokens++;
+            }
+        }
+        return tokens > 1;
+    }
+}
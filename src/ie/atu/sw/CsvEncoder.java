@@ -0,0 +1,68 @@
+package ie.atu.sw;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Encodes results as comma-separated values with a "source,line,score" header row.
+ * Against several lexicons, the score column is replaced by one "score_name" column per lexicon.
+ * Sources containing commas, quotes or line breaks are quoted as described in RFC 4180.
+ */
+final class CsvEncoder implements BatchEncoder {
+    private static final byte[] HEADER = "source,line,score\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Returns the header row.
+     * Complexity: O(l), where l is the number of score columns.
+     *
+     * @param scoreNames The name of each score column, or null for a single score.
+     * @return The header row.
+     */
+    @Override
+    public byte[] header(List<String> scoreNames) {
+        if (scoreNames == null) {
+            return HEADER.clone();
+        }
+        StringBuilder header = new StringBuilder("source,line");
+        for (String name : scoreNames) {
+            header.append(',').append(quote("score_" + name));
+        }
+        return header.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends one row for every tweet of a batch.
+     * Complexity: O(n*l), where n is the number of tweets in the batch and l is the number of score columns.
+     *
+     * @param batch The scored tweets.
+     * @param sink  The sink to append to.
+     */
+    @Override
+    public void encode(TweetBatch batch, ByteSink sink) {
+        byte[] source = quote(batch.source()).getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < batch.size(); i++) {
+            sink.put(source);
+            sink.put((byte) ',');
+            sink.putDecimal(batch.lineNumber(i));
+            for (int column = 0; column < batch.columns(); column++) {
+                sink.put((byte) ',');
+                sink.putScore(batch.score(i, column));
+            }
+            sink.put((byte) '\n');
+        }
+    }
+
+    /**
+     * Quotes a field if it contains a comma, a quote or a line break.
+     * Complexity: O(k), where k is the length of the field.
+     */
+    private static String quote(String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return "\"" + field.replace("\"", "\"\"") + "\"";
+            }
+        }
+        return field;
+    }
+}
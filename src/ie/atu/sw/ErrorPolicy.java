@@ -0,0 +1,17 @@
+package ie.atu.sw;
+
+/**
+ * Decides what happens to the rest of a directory run when one of its files cannot be processed.
+ */
+public enum ErrorPolicy {
+    /**
+     * Stops the run at the first failed file: files not yet started are skipped and files in progress are
+     * cancelled, so a broken input does not hold the run up.
+     */
+    FAIL_FAST,
+
+    /**
+     * Carries on with the other files and records every failure, so one bad file does not stop the run.
+     */
+    COLLECT_ALL
+}
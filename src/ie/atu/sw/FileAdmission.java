@@ -0,0 +1,226 @@
+package ie.atu.sw;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control in front of tweet file reading: limits how many files are open at once and how many bytes
+ * have been read into memory but not yet scored.
+ * A file is admitted with a ticket that holds its open files and its size in bytes: the tweet file itself, plus
+ * the spill and copy files its results may need. The tweet file is released as soon as it has been read, so
+ * scoring from memory carries on without holding it open, while the bytes and the files of the results are held
+ * until scoring is done. A file larger than the byte limit is charged the whole limit, and a file needing more
+ * open files than the limit is charged the whole limit.
+ * <p>
+ * Tickets are reserved by the thread that lists the files, in listing order, and each task then waits on its own
+ * ticket, so files are admitted strictly in the order the run lists them, whatever order the tasks start in, and
+ * the disk sees mostly sequential reads. The time every file waited to be admitted is recorded in a
+ * {@link LatencyHistogram}.
+ */
+final class FileAdmission {
+    private final int maxOpenFiles;
+    private final long maxBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+    private final LatencyHistogram waits = new LatencyHistogram();
+    private int openFiles;
+    private long bytes;
+
+    /**
+     * Creates an admission controller.
+     * Complexity: O(1).
+     *
+     * @param maxOpenFiles The number of files that may be open at once, at least 1.
+     * @param maxBytes     The number of bytes that may be read and not yet scored, at least 1.
+     */
+    FileAdmission(int maxOpenFiles, long maxBytes) {
+        if (maxOpenFiles < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("Open files and bytes must be at least 1: " + maxOpenFiles + ", " + maxBytes);
+        }
+        this.maxOpenFiles = maxOpenFiles;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the number of bytes that may be read and not yet scored.
+     * Complexity: O(1).
+     *
+     * @return The byte limit.
+     */
+    long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Places a file in line for admission, behind every file reserved before it.
+     * The ticket must be closed even if the file is never read, or the files behind it wait forever.
+     * Complexity: O(1).
+     *
+     * @param size  The number of bytes the file will hold in memory, or 0 if it is streamed.
+     * @param files The number of files open while the file is scored, counting the tweet file, at least 1.
+     * @return The ticket; wait on it before opening the file, and close it once the file has been scored.
+     */
+    Ticket reserve(long size, int files) {
+        Ticket ticket = new Ticket(Math.min(size, maxBytes), Math.max(1, Math.min(files, maxOpenFiles)));
+        lock.lock();
+        try {
+            waiting.add(ticket);
+        } finally {
+            lock.unlock();
+        }
+        return ticket;
+    }
+
+    /**
+     * Returns the time files waited to be admitted.
+     * Complexity: O(1).
+     *
+     * @return The histogram of waits, in nanoseconds.
+     */
+    LatencyHistogram waits() {
+        return waits;
+    }
+
+    /**
+     * Formats the waits as a JSON object, with times in milliseconds.
+     * Complexity: O(b), where b is the number of histogram buckets.
+     *
+     * @param waits The histogram of waits.
+     * @return The JSON object.
+     */
+    static String waitsToJson(LatencyHistogram waits) {
+        return String.format(Locale.ROOT,
+                "{\"files\":%d,\"meanMs\":%.3f,\"p50Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f}",
+                waits.count(), waits.mean() / 1e6, waits.percentile(50) / 1e6, waits.percentile(99) / 1e6,
+                waits.percentile(100) / 1e6);
+    }
+
+    /**
+     * Releases an open file or bytes, and wakes the files waiting for them.
+     * Complexity: O(w), where w is the number of waiting files.
+     */
+    private void release(int files, long released) {
+        lock.lock();
+        try {
+            openFiles -= files;
+            bytes -= released;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The admission of one file: the tweet file until it is closed, and its bytes and the files of its results until
+     * the ticket is closed.
+     * A ticket is reserved by one thread and then used by one other thread only.
+     */
+    final class Ticket implements AutoCloseable {
+        private final long bytes;
+        private int files;
+        private long waitNanos;
+        private boolean admitted;
+        private boolean fileOpen = true;
+        private boolean closed;
+
+        private Ticket(long bytes, int files) {
+            this.bytes = bytes;
+            this.files = files;
+        }
+
+        /**
+         * Returns the number of bytes the ticket holds once admitted.
+         * Complexity: O(1).
+         *
+         * @return The bytes reserved, at most the byte limit.
+         */
+        long bytes() {
+            return bytes;
+        }
+
+        /**
+         * Waits until every file reserved earlier has been admitted and there is room for the ticket's open files
+         * and bytes. If the thread is interrupted, the ticket leaves the line and is closed.
+         * Complexity: O(1) for the call; waits for earlier files to be released.
+         *
+         * @throws InterruptedIOException If the thread is interrupted while waiting.
+         */
+        void await() throws InterruptedIOException {
+            long start = System.nanoTime();
+            lock.lock();
+            try {
+                while (waiting.peek() != this || openFiles + files > maxOpenFiles
+                        || FileAdmission.this.bytes + bytes > maxBytes) {
+                    changed.await();
+                }
+                waiting.poll();
+                admitted = true;
+                openFiles += files;
+                FileAdmission.this.bytes += bytes;
+                // The next file in line may fit as well
+                changed.signalAll();
+            } catch (InterruptedException e) {
+                closed = true;
+                waiting.remove(this);
+                changed.signalAll();
+                throw new InterruptedIOException("Cancelled while waiting to open a tweet file");
+            } finally {
+                lock.unlock();
+            }
+            waitNanos = System.nanoTime() - start;
+            waits.record(waitNanos);
+        }
+
+        /**
+         * Returns how long the file waited to be admitted.
+         * Complexity: O(1).
+         *
+         * @return The wait in nanoseconds.
+         */
+        long waitNanos() {
+            return waitNanos;
+        }
+
+        /**
+         * Releases the tweet file once it has been read, keeping the bytes and the files of the results until
+         * scoring is done.
+         * Complexity: O(w), where w is the number of waiting files.
+         */
+        void fileClosed() {
+            if (admitted && fileOpen) {
+                fileOpen = false;
+                files--;
+                release(1, 0);
+            }
+        }
+
+        /**
+         * Releases the open files still held and the bytes; a ticket not yet admitted leaves the line instead.
+         * Complexity: O(w), where w is the number of waiting files.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (admitted) {
+                release(files, bytes);
+                files = 0;
+                fileOpen = false;
+                return;
+            }
+            lock.lock();
+            try {
+                waiting.remove(this);
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
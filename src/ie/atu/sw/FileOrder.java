@@ -0,0 +1,18 @@
+package ie.atu.sw;
+
+/**
+ * Decides the order in which the tweet files of a directory are opened, read and written to the results file.
+ */
+public enum FileOrder {
+    /**
+     * Takes the files in path order, which on most file systems keeps the reads of a directory close together
+     * on disk.
+     */
+    PATH,
+
+    /**
+     * Takes the largest files first, so the run does not end waiting on one large file; files of the same size
+     * are taken in path order.
+     */
+    SIZE
+}
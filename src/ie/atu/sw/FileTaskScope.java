@@ -0,0 +1,232 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Structured scope for the per-file tasks of a directory run: every task forked in the scope has finished by
+ * the time the scope is closed, so no thread of a run outlives it.
+ * It follows the shape of StructuredTaskScope, which Java 21 only offers as a preview API, and runs its tasks on
+ * an executor from the manager's factory, so virtual threads can still be compared with platform thread pools.
+ * <p>
+ * The scope shuts down when its deadline passes, when the thread joining it is interrupted, or, under the
+ * fail-fast policy, when a task fails. Shutting down cancels the tasks not yet started, interrupts the running
+ * ones and wakes the joining thread, and the reason is recorded as the status of the run.
+ * Every forked file is recorded in the {@link RunResult} as skipped until its task runs to the end.
+ * Only the tasks not yet finished are kept, so a long-lived scope, e.g. one watching a directory, does not grow
+ * with every file it has scored.
+ */
+final class FileTaskScope implements AutoCloseable {
+    /**
+     * The work done for one file.
+     */
+    @FunctionalInterface
+    interface FileTask {
+        void run() throws IOException;
+    }
+
+    private final ExecutorService executor;
+    private final ErrorPolicy errorPolicy;
+    private final Instant deadline;
+    private final RunResult result;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition finished = lock.newCondition();
+    // Each task removes itself when it finishes or is cancelled
+    private final Set<Future<?>> tasks = ConcurrentHashMap.newKeySet();
+    private int running;
+    private volatile boolean shutdown;
+    private Runnable onShutdown;
+
+    /**
+     * Opens a scope.
+     * Complexity: O(1).
+     *
+     * @param executor    The executor the tasks run on; the scope shuts it down when closed.
+     * @param errorPolicy Whether the first failed task shuts the scope down.
+     * @param deadline    How long the scope may run before it shuts down, or null for no limit.
+     * @param result      The record of the run that every forked file is added to.
+     */
+    FileTaskScope(ExecutorService executor, ErrorPolicy errorPolicy, Duration deadline, RunResult result) {
+        this.executor = executor;
+        this.errorPolicy = errorPolicy;
+        this.deadline = deadline == null ? null : Instant.now().plus(deadline);
+        this.result = result;
+    }
+
+    /**
+     * Sets an action run once when the scope shuts down, e.g. to stop a thread that is not joining the scope.
+     * Complexity: O(1).
+     *
+     * @param onShutdown The action, run by the thread that shuts the scope down.
+     */
+    void onShutdown(Runnable onShutdown) {
+        this.onShutdown = onShutdown;
+    }
+
+    /**
+     * Checks whether the scope has shut down, shutting it down first if its deadline has passed.
+     * Complexity: O(t) the first time the deadline is found to have passed, where t is the number of tasks not yet
+     * finished; O(1) otherwise.
+     *
+     * @return true if no more tasks will be started.
+     */
+    boolean isShutdown() {
+        if (!shutdown && deadline != null && !Instant.now().isBefore(deadline)) {
+            shutdown(RunResult.Status.TIMED_OUT);
+        }
+        return shutdown;
+    }
+
+    /**
+     * Starts the task of a file, unless the scope has shut down, in which case the file is only recorded as skipped.
+     * A task that throws is recorded as failed, unless it was cancelled by the scope shutting down.
+     * Complexity: O(1).
+     *
+     * @param file The file the task processes.
+     * @param task The work for the file.
+     * @return false if the scope has shut down and the task was not started.
+     */
+    boolean fork(Path file, FileTask task) {
+        result.record(file, RunResult.Outcome.SKIPPED);
+        lock.lock();
+        try {
+            if (isShutdown()) {
+                return false;
+            }
+            running++;
+            FutureTask<Void> future = new FutureTask<>(() -> {
+                try {
+                    if (!shutdown) {
+                        task.run();
+                        result.record(file, RunResult.Outcome.SUCCEEDED);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    if (!shutdown) {
+                        result.fail(file, String.valueOf(e.getMessage()));
+                        if (errorPolicy == ErrorPolicy.FAIL_FAST) {
+                            shutdown(RunResult.Status.FAILED);
+                        }
+                    }
+                } finally {
+                    taskFinished();
+                }
+            }, null) {
+                @Override
+                protected void done() {
+                    tasks.remove(this);
+                }
+            };
+            tasks.add(future);
+            executor.execute(future);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every forked task has finished, the deadline has passed, or the scope has shut down.
+     * If the waiting thread is interrupted, the scope is shut down as cancelled before the exception is thrown.
+     * Complexity: O(1) for the call; waits for the tasks.
+     *
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    void join() throws InterruptedException {
+        lock.lock();
+        try {
+            while (running > 0 && !isShutdown()) {
+                if (deadline == null) {
+                    finished.await();
+                } else {
+                    finished.awaitNanos(Math.max(1, Duration.between(Instant.now(), deadline).toNanos()));
+                }
+            }
+        } catch (InterruptedException e) {
+            shutdown(RunResult.Status.CANCELLED);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the scope: tasks not yet started never run and running tasks are interrupted.
+     * The first reason given is recorded as the status of the run; later calls have no further effect.
+     * Complexity: O(t), where t is the number of tasks not yet finished.
+     *
+     * @param status The reason the scope stops.
+     */
+    void shutdown(RunResult.Status status) {
+        lock.lock();
+        try {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+            result.stop(status);
+            for (Future<?> task : tasks) {
+                task.cancel(true);
+            }
+            finished.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (onShutdown != null) {
+            onShutdown.run();
+        }
+    }
+
+    /**
+     * Closes the scope, waiting for every task to stop; interrupts are remembered and restored afterwards,
+     * so the scope is never left with tasks still running.
+     * Complexity: O(1) for the call; waits for the tasks still running.
+     */
+    @Override
+    public void close() {
+        if (shutdown) {
+            executor.shutdownNow();
+        } else {
+            executor.shutdown();
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+                shutdown(RunResult.Status.CANCELLED);
+                executor.shutdownNow();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Counts a task as finished and wakes the joining thread once none is left.
+     * Complexity: O(1).
+     */
+    private void taskFinished() {
+        lock.lock();
+        try {
+            if (--running == 0) {
+                finished.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ie.atu.sw;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Lexicon table held in heap arrays: a {@link TokenTable} of words and a parallel array of scores.
+ */
+final class HeapLexiconTable implements LexiconTable {
+    private final TokenTable words;
+    private final double[] scores;
+
+    /**
+     * Creates a table from words and their scores.
+     * Complexity: O(1).
+     *
+     * @param words  The table of words.
+     * @param scores The score of every word, indexed by ordinal.
+     */
+    HeapLexiconTable(TokenTable words, double[] scores) {
+        this.words = words;
+        this.scores = scores;
+    }
+
+    /**
+     * Finds the index of the word held in a character range.
+     * Complexity: O(k) on average, where k is the length of the word.
+     */
+    @Override
+    public int indexOf(char[] chars, int offset, int length) {
+        return words.indexOf(chars, offset, length);
+    }
+
+    /**
+     * Finds the index of a word given as a CharSequence.
+     * Complexity: O(k) on average, where k is the length of the word.
+     */
+    @Override
+    public int indexOf(CharSequence word) {
+        return words.indexOf(word);
+    }
+
+    /**
+     * Returns the score of the word at an index.
+     * Complexity: O(1).
+     */
+    @Override
+    public double scoreAt(int index) {
+        return scores[index];
+    }
+
+    /**
+     * Returns the word at an index.
+     * Complexity: O(k), where k is the length of the word.
+     */
+    @Override
+    public String wordAt(int index) {
+        return words.wordAt(index);
+    }
+
+    /**
+     * Returns the number of words in the table.
+     * Complexity: O(1).
+     */
+    @Override
+    public int size() {
+        return words.size();
+    }
+
+    /**
+     * Estimates the heap held by the word table and score array.
+     * Complexity: O(1).
+     */
+    @Override
+    public long estimatedBytes() {
+        return words.estimatedBytes() + 8L * scores.length;
+    }
+
+    /**
+     * Writes the word table followed by the scores.
+     * Complexity: O(n + c + p), where n is the number of words, c the capacity and p the pool length.
+     */
+    @Override
+    public void writeTo(DataOutputStream out) throws IOException {
+        words.writeTo(out);
+        for (double score : scores) {
+            out.writeDouble(score);
+        }
+    }
+}
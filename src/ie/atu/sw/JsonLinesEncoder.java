@@ -0,0 +1,107 @@
+package ie.atu.sw;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Encodes results as JSON Lines: one object per tweet with "source", "line" and "score" fields.
+ * Against several lexicons, the score field is replaced by one "score_name" field per lexicon.
+ * Scores that JSON cannot represent, such as infinities, are written as null.
+ */
+final class JsonLinesEncoder implements BatchEncoder {
+    private static final byte[] SOURCE = bytes("{\"source\":");
+    private static final byte[] LINE = bytes(",\"line\":");
+    private static final byte[] SCORE = bytes(",\"score\":");
+    private static final byte[] NULL = bytes("null");
+    private static final byte[] END = bytes("}\n");
+
+    /**
+     * JSON Lines has no header.
+     * Complexity: O(1).
+     *
+     * @param scoreNames The name of each score column, or null for a single score.
+     * @return An empty array.
+     */
+    @Override
+    public byte[] header(List<String> scoreNames) {
+        return new byte[0];
+    }
+
+    /**
+     * Appends one JSON object per line for every tweet of a batch.
+     * Complexity: O(n*l), where n is the number of tweets in the batch and l is the number of score columns.
+     *
+     * @param batch The scored tweets.
+     * @param sink  The sink to append to.
+     */
+    @Override
+    public void encode(TweetBatch batch, ByteSink sink) {
+        byte[] source = bytes(quote(batch.source()));
+        byte[][] fields = scoreFields(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            sink.put(SOURCE);
+            sink.put(source);
+            sink.put(LINE);
+            sink.putDecimal(batch.lineNumber(i));
+            for (int column = 0; column < fields.length; column++) {
+                double score = batch.score(i, column);
+                sink.put(fields[column]);
+                if (Double.isFinite(score)) {
+                    sink.putScore(score);
+                } else {
+                    sink.put(NULL);
+                }
+            }
+            sink.put(END);
+        }
+    }
+
+    /**
+     * Builds the bytes that open each score field of a batch.
+     * Complexity: O(l), where l is the number of score columns.
+     */
+    private static byte[][] scoreFields(TweetBatch batch) {
+        List<String> names = batch.scoreNames();
+        if (names == null) {
+            return new byte[][]{SCORE};
+        }
+        byte[][] fields = new byte[names.size()][];
+        for (int column = 0; column < fields.length; column++) {
+            fields[column] = bytes("," + quote("score_" + names.get(column)) + ":");
+        }
+        return fields;
+    }
+
+    /**
+     * Writes a string as a JSON string literal, escaping quotes, backslashes and control characters.
+     * Complexity: O(k), where k is the length of the string.
+     *
+     * @param text The string.
+     * @return The quoted and escaped literal.
+     */
+    static String quote(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
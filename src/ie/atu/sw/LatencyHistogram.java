@@ -0,0 +1,114 @@
+package ie.atu.sw;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies, used to report percentiles without keeping every sample.
+ * Latencies are counted in log-linear buckets: values below 32 ns have a bucket each, and every power of two
+ * above that is split into 16 buckets, so a percentile is accurate to within about 6%.
+ * Recording is a single atomic increment, so many request threads can record at once.
+ * Latencies above about 18 minutes are counted in the last bucket.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_SHIFT = 36;
+    private static final int BUCKETS = (MAX_SHIFT + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Records one latency.
+     * Complexity: O(1).
+     *
+     * @param nanos The latency in nanoseconds; negative values count as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        total.increment();
+        sum.add(value);
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     * Complexity: O(s), where s is the number of counter stripes.
+     *
+     * @return The number of samples.
+     */
+    public long count() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the mean latency.
+     * Complexity: O(s), where s is the number of counter stripes.
+     *
+     * @return The mean in nanoseconds, or 0 if nothing was recorded.
+     */
+    public double mean() {
+        long samples = total.sum();
+        return samples == 0 ? 0.0 : (double) sum.sum() / samples;
+    }
+
+    /**
+     * Returns the latency below which the given fraction of samples fall.
+     * The result is the upper bound of the bucket holding that sample.
+     * Samples recorded while the percentile is computed may or may not be included.
+     * Complexity: O(b), where b is the number of buckets.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The latency in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long samples = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            samples += snapshot[i];
+        }
+        if (samples == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * samples));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    /**
+     * Maps a latency to its bucket.
+     * Complexity: O(1).
+     */
+    private static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        if (shift > MAX_SHIFT) {
+            return BUCKETS - 1;
+        }
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the largest latency that falls in a bucket.
+     * Complexity: O(1).
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
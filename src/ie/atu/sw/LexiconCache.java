@@ -0,0 +1,257 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Keeps compiled lexicons in memory for the whole session, so repeated analyses skip reloading them.
+ * Entries are keyed by the canonical path of the lexicon file or directory. An entry is reused while the
+ * path's file count, size and modification time are unchanged; when they change, the contents are checksummed
+ * and the lexicon is only reloaded if the checksum differs too. A path is only checksummed once it has been
+ * cached and changed, so the first load of a lexicon reads its files once, at the cost of always reloading it
+ * on its first change.
+ * Lexicons can be loaded in the background ahead of use, and the least recently used lexicons are evicted
+ * once the estimated heap of all entries exceeds the memory limit. All methods are thread-safe.
+ */
+public class LexiconCache {
+    private final LexiconLoader lexiconLoader;
+    private final long maxBytes;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, CompletableFuture<Entry>> loading = new HashMap<>();
+    private long totalBytes;
+
+    /**
+     * Creates a cache limited to half of the maximum heap.
+     * Complexity: O(1).
+     */
+    public LexiconCache() {
+        this(LexiconConflictPolicy.PRIORITY);
+    }
+
+    /**
+     * Creates a cache limited to half of the maximum heap whose lexicon directories are merged with the given
+     * conflict policy.
+     * Complexity: O(1).
+     *
+     * @param conflictPolicy How the scores of a word from several files of a lexicon directory are combined.
+     */
+    public LexiconCache(LexiconConflictPolicy conflictPolicy) {
+        this(Runtime.getRuntime().maxMemory() / 2, conflictPolicy);
+    }
+
+    /**
+     * Creates a cache with a memory limit.
+     * Complexity: O(1).
+     *
+     * @param maxBytes The estimated heap, in bytes, that cached lexicons may use together.
+     */
+    public LexiconCache(long maxBytes) {
+        this(maxBytes, LexiconConflictPolicy.PRIORITY);
+    }
+
+    /**
+     * Creates a cache with a memory limit whose lexicon directories are merged with the given conflict policy.
+     * Complexity: O(1).
+     *
+     * @param maxBytes       The estimated heap, in bytes, that cached lexicons may use together.
+     * @param conflictPolicy How the scores of a word from several files of a lexicon directory are combined.
+     */
+    public LexiconCache(long maxBytes, LexiconConflictPolicy conflictPolicy) {
+        this(maxBytes, new LexiconLoader(conflictPolicy));
+    }
+
+    /**
+     * Creates a cache limited to half of the maximum heap that loads lexicons with the given loader.
+     * Complexity: O(1).
+     *
+     * @param lexiconLoader The loader of lexicon files, directories and snapshots.
+     */
+    public LexiconCache(LexiconLoader lexiconLoader) {
+        this(Runtime.getRuntime().maxMemory() / 2, lexiconLoader);
+    }
+
+    /**
+     * Creates a cache with a memory limit that loads lexicons with the given loader.
+     * Complexity: O(1).
+     *
+     * @param maxBytes      The estimated heap, in bytes, that cached lexicons may use together.
+     * @param lexiconLoader The loader of lexicon files, directories and snapshots.
+     */
+    public LexiconCache(long maxBytes, LexiconLoader lexiconLoader) {
+        this.lexiconLoader = lexiconLoader;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns how the scores of a word from several files of a lexicon directory are combined.
+     * Complexity: O(1).
+     *
+     * @return The conflict policy.
+     */
+    public LexiconConflictPolicy getConflictPolicy() {
+        return lexiconLoader.getConflictPolicy();
+    }
+
+    /**
+     * Returns the compiled lexicon for a path, loading it only if it is not cached or has changed.
+     * If the same lexicon is already loading in the background, waits for that load instead of starting another.
+     * Complexity: O(f) for a cached lexicon, where f is the number of source files checked for changes;
+     * O(n) when the lexicon has to be loaded, where n is the number of lexicon lines.
+     *
+     * @param lexiconPath The path to the lexicon file, directory or snapshot.
+     * @return The compiled lexicon.
+     * @throws IOException If the lexicon cannot be read.
+     */
+    public CompiledLexicon get(String lexiconPath) throws IOException {
+        Path key = canonical(lexiconPath);
+        CompletableFuture<Entry> pending;
+        Entry cached;
+        synchronized (this) {
+            pending = loading.get(key);
+            cached = entries.get(key);
+        }
+        if (pending != null) {
+            return await(pending).lexicon;
+        }
+        if (cached != null && SourceFingerprint.of(key).matches(cached.fingerprint)) {
+            return cached.lexicon;
+        }
+        return load(key, cached).lexicon;
+    }
+
+    /**
+     * Starts loading a lexicon on a virtual thread so it is ready by the time an analysis asks for it.
+     * Failures are reported on the console and retried by the next call to get.
+     * Complexity: O(1) for the caller; the load itself runs in the background.
+     *
+     * @param lexiconPath The path to the lexicon file, directory or snapshot.
+     */
+    public void preload(String lexiconPath) {
+        Thread.ofVirtual().name("lexicon-preload").start(() -> {
+            try {
+                get(lexiconPath);
+            } catch (IOException e) {
+                System.err.println("Background lexicon load failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Returns the number of cached lexicons.
+     * Complexity: O(1).
+     *
+     * @return The number of entries.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Loads a lexicon, or revalidates a changed entry whose contents turn out to be the same.
+     * Only one thread loads a given path at a time; others wait for its result.
+     * Complexity: O(n), where n is the number of bytes in the lexicon files.
+     */
+    private Entry load(Path key, Entry stale) throws IOException {
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        CompletableFuture<Entry> existing;
+        synchronized (this) {
+            existing = loading.putIfAbsent(key, future);
+        }
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            SourceFingerprint fingerprint = SourceFingerprint.of(key);
+            Long contentHash = stale == null ? null : SourceFingerprint.contentHash(key);
+            Entry entry;
+            if (stale != null && contentHash.equals(stale.contentHash)) {
+                entry = new Entry(stale.lexicon, fingerprint, contentHash);
+            } else {
+                entry = new Entry(lexiconLoader.load(key.toString()), fingerprint, contentHash);
+            }
+            synchronized (this) {
+                store(key, entry);
+                loading.remove(key);
+            }
+            future.complete(entry);
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                loading.remove(key);
+            }
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Adds an entry and evicts the least recently used others while the memory limit is exceeded.
+     * Complexity: O(e), where e is the number of entries.
+     */
+    private void store(Path key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            totalBytes -= previous.bytes;
+        }
+        totalBytes += entry.bytes;
+
+        Iterator<Map.Entry<Path, Entry>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Path, Entry> candidate = eldest.next();
+            if (!candidate.getKey().equals(key)) {
+                totalBytes -= candidate.getValue().bytes;
+                eldest.remove();
+            }
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Path canonical(String lexiconPath) throws IOException {
+        try {
+            return Paths.get(lexiconPath).toRealPath();
+        } catch (IOException e) {
+            throw new IOException("Lexicon path does not exist: " + lexiconPath, e);
+        }
+    }
+
+    /**
+     * A cached lexicon with the source state it was loaded from.
+     */
+    private static final class Entry {
+        private final CompiledLexicon lexicon;
+        private final SourceFingerprint fingerprint;
+        // null until the path has changed once, as a first load is not checksummed
+        private final Long contentHash;
+        private final long bytes;
+
+        private Entry(CompiledLexicon lexicon, SourceFingerprint fingerprint, Long contentHash) {
+            this.lexicon = lexicon;
+            this.fingerprint = fingerprint;
+            this.contentHash = contentHash;
+            this.bytes = lexicon.estimatedBytes();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ie.atu.sw;
+
+/**
+ * Decides the score of a word that appears in more than one file of a lexicon directory.
+ * Files are ordered by their path, so the result does not depend on which file is read first.
+ * Within a single file, a later line for the same word replaces an earlier one.
+ */
+public enum LexiconConflictPolicy {
+    /**
+     * Takes the score from the first file in path order, so e.g. "00-overrides.txt" wins over "50-base.txt".
+     */
+    PRIORITY {
+        @Override
+        void combine(double[] earlier, double[] later) {
+            earlier[COUNT] += later[COUNT];
+        }
+    },
+
+    /**
+     * Takes the mean of the scores from every file that has the word.
+     */
+    AVERAGE {
+        @Override
+        void combine(double[] earlier, double[] later) {
+            earlier[VALUE] += later[VALUE];
+            earlier[COUNT] += later[COUNT];
+        }
+
+        @Override
+        double score(double[] merged) {
+            return merged[VALUE] / merged[COUNT];
+        }
+    },
+
+    /**
+     * Takes the score furthest from zero; of two scores equally far, the one from the earlier file.
+     */
+    MAX_MAGNITUDE {
+        @Override
+        void combine(double[] earlier, double[] later) {
+            if (Math.abs(later[VALUE]) > Math.abs(earlier[VALUE])) {
+                earlier[VALUE] = later[VALUE];
+            }
+            earlier[COUNT] += later[COUNT];
+        }
+    },
+
+    /**
+     * Adds up the scores from every file that has the word.
+     */
+    SUM {
+        @Override
+        void combine(double[] earlier, double[] later) {
+            earlier[VALUE] += later[VALUE];
+            earlier[COUNT] += later[COUNT];
+        }
+    };
+
+    /**
+     * Index of the combined value in a merged score.
+     */
+    static final int VALUE = 0;
+    /**
+     * Index of the number of files combined in a merged score.
+     */
+    static final int COUNT = 1;
+
+    /**
+     * Combines the merged scores of a word from two runs of consecutive files, the earlier run first.
+     * Runs are always adjacent, so the earlier files keep their precedence however the files are grouped.
+     * Complexity: O(1).
+     *
+     * @param earlier The merged score from the earlier files, updated in place.
+     * @param later   The merged score from the later files.
+     */
+    abstract void combine(double[] earlier, double[] later);
+
+    /**
+     * Returns the final score of a word from its merged score.
+     * Complexity: O(1).
+     *
+     * @param merged The merged score of the word over every file that has it.
+     * @return The score.
+     */
+    double score(double[] merged) {
+        return merged[VALUE];
+    }
+}
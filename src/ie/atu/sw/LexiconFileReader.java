@@ -0,0 +1,409 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * Reads the "word,score" lines of a lexicon file straight from its bytes.
+ * The file is memory-mapped in the byte ranges of {@link LineRanges}, which end just after a line feed, so no line
+ * is split between ranges.
+ * Ranges are parsed in parallel on the ForkJoin pool and handed on strictly in file order, so words reach the
+ * consumer in the same order as when the file is read line by line, and a later line for a word still wins.
+ * <p>
+ * Plain ASCII lines are split, trimmed and their scores parsed on the bytes, creating no String but the word.
+ * Scores with up to 15 or so significant digits and no exponent are computed as one exactly rounded division; any
+ * other score, and any line with non-ASCII characters, is decoded and parsed as a String. The result is the same as
+ * {@code line.split(",")}, {@code trim()} and {@code Double.parseDouble} on every line, and input that is not
+ * valid UTF-8 is rejected as before.
+ * Malformed lines are collected and reported once per file, with the first few of them, instead of one by one.
+ */
+final class LexiconFileReader {
+    private static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+    private static final int REPORTED_LINES = 5;
+    // Below 2^53 every integer is a double, and 10^22 is the largest power of ten that is one
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final int chunkSize;
+
+    /**
+     * Creates a reader that parses files in chunks of about 4 MB.
+     * Complexity: O(1).
+     */
+    LexiconFileReader() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a reader that parses files in chunks of about the given size.
+     * Complexity: O(1).
+     *
+     * @param chunkSize The target number of bytes per chunk; chunks are extended to the next line feed.
+     */
+    LexiconFileReader(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Parses a lexicon file, and reports its malformed lines to standard error once the file has been read.
+     * Complexity: O(n / p), where n is the number of bytes in the file and p is the number of CPUs.
+     *
+     * @param file The lexicon file.
+     * @return The words and scores of the well-formed lines, in file order.
+     * @throws IOException If the file cannot be read or is not valid UTF-8.
+     */
+    Entries read(Path file) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        long size;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = LineRanges.split(channel, chunkSize);
+            size = bounds[bounds.length - 1];
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                // A mapping stays valid once the channel is closed
+                chunks.add(new Chunk(channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]),
+                        bounds[i]));
+            }
+        }
+        try {
+            if (chunks.size() == 1) {
+                chunks.get(0).compute();
+            } else {
+                ForkJoinTask.invokeAll(chunks);
+            }
+        } catch (UncheckedIOException e) {
+            throw new IOException(file + ": " + e.getCause().getMessage(), e.getCause());
+        }
+        long malformedLines = report(file, chunks);
+        return new Entries(chunks, size, malformedLines);
+    }
+
+    /**
+     * Prints how many lines of a file were malformed, with the first few of them.
+     * Complexity: O(c), where c is the number of chunks.
+     *
+     * @return The number of malformed lines.
+     */
+    private static long report(Path file, List<Chunk> chunks) {
+        long line = 0;
+        long problems = 0;
+        StringBuilder report = new StringBuilder();
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.reported && problems + i < REPORTED_LINES; i++) {
+                report.append("\n  line ").append(line + chunk.problemLines[i]).append(": ").append(chunk.problems[i]);
+            }
+            problems += chunk.problemCount;
+            line += chunk.lines;
+        }
+        if (problems > 0) {
+            System.err.println("Ignored " + problems + " malformed line" + (problems == 1 ? "" : "s") + " in lexicon "
+                    + file + (problems > REPORTED_LINES ? ", the first " + REPORTED_LINES + " being:" : ":") + report);
+        }
+        return problems;
+    }
+
+    /**
+     * The words and scores of a parsed lexicon file, in file order.
+     */
+    static final class Entries {
+        private final List<Chunk> chunks;
+        private final int size;
+        private final long bytes;
+        private final long malformedLines;
+
+        private Entries(List<Chunk> chunks, long bytes, long malformedLines) {
+            this.chunks = chunks;
+            this.size = chunks.stream().mapToInt(chunk -> chunk.count).sum();
+            this.bytes = bytes;
+            this.malformedLines = malformedLines;
+        }
+
+        /**
+         * Returns the size of the file the entries were parsed from.
+         * Complexity: O(1).
+         *
+         * @return The number of bytes read.
+         */
+        long bytes() {
+            return bytes;
+        }
+
+        /**
+         * Returns the number of lines that were ignored because they were malformed.
+         * Complexity: O(1).
+         *
+         * @return The number of malformed lines.
+         */
+        long malformedLines() {
+            return malformedLines;
+        }
+
+        /**
+         * Returns the number of well-formed lines, so a map can be sized before it is filled.
+         * Complexity: O(1).
+         *
+         * @return The number of words, counting a word again for every line that has it.
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Passes each word and its score to a consumer in file order, so a later line for a word can replace
+         * an earlier one.
+         * Complexity: O(n), where n is the number of words.
+         *
+         * @param lexicon Receives every word with its score.
+         */
+        void forEach(ObjDoubleConsumer<String> lexicon) {
+            for (Chunk chunk : chunks) {
+                for (int i = 0; i < chunk.count; i++) {
+                    lexicon.accept(chunk.words[i], chunk.scores[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses the lines of one mapped chunk into words and scores, kept in file order until they are handed on.
+     */
+    @SuppressWarnings("serial") // Fork/join tasks are never serialized
+    private static final class Chunk extends RecursiveAction {
+        private final ByteBuffer region;
+        private final long offset;
+        private String[] words;
+        private double[] scores;
+        private int count;
+        private int lines;
+        private final int[] problemLines = new int[REPORTED_LINES];
+        private final String[] problems = new String[REPORTED_LINES];
+        private int reported;
+        private int problemCount;
+        private byte[] wordBytes = new byte[64];
+        private CharsetDecoder decoder;
+
+        private Chunk(ByteBuffer region, long offset) {
+            this.region = region;
+            this.offset = offset;
+            int capacity = Math.max(16, region.limit() / 16);
+            this.words = new String[capacity];
+            this.scores = new double[capacity];
+        }
+
+        /**
+         * Parses every line of the chunk, split into lines as {@link LineRanges} describes.
+         * Complexity: O(n), where n is the number of bytes in the chunk.
+         */
+        @Override
+        protected void compute() {
+            ByteBuffer bytes = region;
+            int limit = bytes.limit();
+            int start = 0;
+            while (start < limit) {
+                int end = start;
+                int commas = 0;
+                int firstComma = -1;
+                boolean ascii = true;
+                byte b;
+                while (end < limit && !LineRanges.isLineEnd(b = bytes.get(end))) {
+                    if (b == ',') {
+                        if (commas++ == 0) {
+                            firstComma = end;
+                        }
+                    } else if (b < 0) {
+                        ascii = false;
+                    }
+                    end++;
+                }
+                lines++;
+                if (ascii) {
+                    parseLine(start, end, commas, firstComma);
+                } else {
+                    parseDecodedLine(start, end);
+                }
+                start = LineRanges.nextLineStart(bytes, end, limit);
+            }
+        }
+
+        /**
+         * Parses a plain ASCII line on its bytes.
+         * split(",") drops trailing empty parts, so a line is well formed when, less any trailing commas, it has
+         * exactly one comma.
+         * Complexity: O(k), where k is the length of the line.
+         */
+        private void parseLine(int start, int end, int commas, int firstComma) {
+            int stripped = end;
+            while (stripped > start && region.get(stripped - 1) == ',') {
+                stripped--;
+                commas--;
+            }
+            if (commas != 1) {
+                problem("Unusual line format (ignored): " + ascii(start, end));
+                return;
+            }
+            int wordStart = skipSpaces(start, firstComma);
+            int wordEnd = trimSpaces(wordStart, firstComma);
+            int scoreStart = skipSpaces(firstComma + 1, stripped);
+            int scoreEnd = trimSpaces(scoreStart, stripped);
+            double score = parseScore(scoreStart, scoreEnd);
+            if (Double.isNaN(score)) {
+                try {
+                    score = Double.parseDouble(ascii(scoreStart, scoreEnd));
+                } catch (NumberFormatException e) {
+                    problem("Error parsing score for line: " + ascii(start, end) + ". Error: " + e.getMessage());
+                    return;
+                }
+            }
+            add(ascii(wordStart, wordEnd), score);
+        }
+
+        /**
+         * Parses a line with non-ASCII characters as a String, as the line-based parser did.
+         * Complexity: O(k), where k is the length of the line.
+         */
+        private void parseDecodedLine(int start, int end) {
+            if (decoder == null) {
+                decoder = StandardCharsets.UTF_8.newDecoder();
+            }
+            String line;
+            try {
+                line = decoder.decode(region.slice(start, end - start)).toString();
+            } catch (CharacterCodingException e) {
+                throw new UncheckedIOException(new IOException("Input is not valid UTF-8 at byte " + (offset + start), e));
+            }
+            String[] parts = line.split(",");
+            if (parts.length != 2) {
+                problem("Unusual line format (ignored): " + line);
+                return;
+            }
+            try {
+                add(parts[0].trim(), Double.parseDouble(parts[1].trim()));
+            } catch (NumberFormatException e) {
+                problem("Error parsing score for line: " + line + ". Error: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Parses a plain decimal score, such as "-2", "3.5" or ".25", when it can be computed exactly.
+         * The digits form an integer below 2^53 and the fraction a power of ten up to 10^22, both exact as doubles,
+         * so their quotient is correctly rounded and equals what Double.parseDouble returns.
+         * Complexity: O(k), where k is the length of the score.
+         *
+         * @return The score, or NaN if it needs the full parser.
+         */
+        private double parseScore(int from, int to) {
+            int i = from;
+            boolean negative = false;
+            if (i < to && (region.get(i) == '-' || region.get(i) == '+')) {
+                negative = region.get(i) == '-';
+                i++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int fractionDigits = -1;
+            for (; i < to; i++) {
+                byte b = region.get(i);
+                if (b >= '0' && b <= '9') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (fractionDigits >= 0) {
+                        fractionDigits++;
+                    }
+                } else if (b == '.' && fractionDigits < 0) {
+                    fractionDigits = 0;
+                } else {
+                    return Double.NaN;
+                }
+                if (digits > MAX_MANTISSA_DIGITS) {
+                    return Double.NaN;
+                }
+            }
+            if (digits == 0 || mantissa >= MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length) {
+                return Double.NaN;
+            }
+            double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+            return negative ? -value : value;
+        }
+
+        /**
+         * Returns the first index in a range that is not a space or control character, as String.trim skips.
+         * Complexity: O(k), where k is the length of the range.
+         */
+        private int skipSpaces(int from, int to) {
+            while (from < to && region.get(from) <= ' ') {
+                from++;
+            }
+            return from;
+        }
+
+        /**
+         * Returns the end of a range less its trailing spaces and control characters.
+         * Complexity: O(k), where k is the length of the range.
+         */
+        private int trimSpaces(int from, int to) {
+            while (to > from && region.get(to - 1) <= ' ') {
+                to--;
+            }
+            return to;
+        }
+
+        /**
+         * Creates a String from ASCII bytes of the chunk.
+         * Complexity: O(k), where k is the length of the range.
+         */
+        private String ascii(int from, int to) {
+            int length = to - from;
+            if (wordBytes.length < length) {
+                wordBytes = new byte[Math.max(length, wordBytes.length * 2)];
+            }
+            region.get(from, wordBytes, 0, length);
+            return new String(wordBytes, 0, length, StandardCharsets.ISO_8859_1);
+        }
+
+        /**
+         * Keeps a parsed word and its score.
+         * Complexity: O(1) amortised.
+         */
+        private void add(String word, double score) {
+            if (count == words.length) {
+                words = Arrays.copyOf(words, count * 2);
+                scores = Arrays.copyOf(scores, count * 2);
+            }
+            words[count] = word;
+            scores[count] = score;
+            count++;
+        }
+
+        /**
+         * Counts a malformed line, keeping the description of the first few.
+         * Complexity: O(1).
+         */
+        private void problem(String description) {
+            if (reported < REPORTED_LINES) {
+                problemLines[reported] = lines;
+                problems[reported] = description;
+                reported++;
+            }
+            problemCount++;
+        }
+    }
+}
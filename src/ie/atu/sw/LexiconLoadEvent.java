@@ -0,0 +1,42 @@
+package ie.atu.sw;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for parsing a lexicon file or directory, spanning the read and merge of its files.
+ * Loads served by the cache or from a snapshot parse nothing and record no event.
+ */
+@Name("ie.atu.sw.LexiconLoad")
+@Label("Lexicon Load")
+@Category({"Sentiment Analysis", "Lexicon"})
+@Description("Parsing of a lexicon file or of every file in a lexicon directory")
+@StackTrace(false)
+final class LexiconLoadEvent extends Event {
+    @Label("Path")
+    String path;
+
+    @Label("Files")
+    @Description("Lexicon files parsed")
+    int files;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Lines")
+    @Description("Well-formed lines, counting a word again for every line that has it")
+    long lines;
+
+    @Label("Words")
+    @Description("Distinct words in the lexicon")
+    int words;
+
+    @Label("Malformed Lines")
+    long malformedLines;
+}
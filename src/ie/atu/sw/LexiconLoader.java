@@ -0,0 +1,122 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Loads a compiled lexicon from a lexicon file, a lexicon directory or a lexicon snapshot.
+ * When a current snapshot sits next to the lexicon, it is memory-mapped instead of parsing the text files.
+ */
+public class LexiconLoader {
+    private LexiconParser lexiconParser;
+
+    /**
+     * Constructor for LexiconLoader.
+     * In a lexicon directory, the first file in path order wins a word found in several files.
+     * Complexity: O(1) - constant time complexity for initialising the parser.
+     */
+    public LexiconLoader() {
+        this(LexiconConflictPolicy.PRIORITY);
+    }
+
+    /**
+     * Constructor for LexiconLoader with a rule for words found in several files of a lexicon directory.
+     * Complexity: O(1) - constant time complexity for initialising the parser.
+     *
+     * @param conflictPolicy How the scores of a word from several files are combined.
+     */
+    public LexiconLoader(LexiconConflictPolicy conflictPolicy) {
+        this(new LexiconParser(conflictPolicy));
+    }
+
+    /**
+     * Constructor for LexiconLoader with a configured parser, e.g. with an error policy and deadline for
+     * lexicon directories.
+     * Complexity: O(1).
+     *
+     * @param lexiconParser The parser of lexicon files and directories.
+     */
+    public LexiconLoader(LexiconParser lexiconParser) {
+        this.lexiconParser = lexiconParser;
+    }
+
+    /**
+     * Returns how the scores of a word from several files of a lexicon directory are combined.
+     * Complexity: O(1).
+     *
+     * @return The conflict policy.
+     */
+    public LexiconConflictPolicy getConflictPolicy() {
+        return lexiconParser.getConflictPolicy();
+    }
+
+    /**
+     * Loads the lexicon at a path.
+     * A snapshot path is mapped directly. For a file or directory, a current snapshot next to it is used
+     * when there is one and it was merged with the same conflict policy; otherwise the text files are parsed
+     * and compiled.
+     * Complexity: O(n) to parse, where n is the number of lexicon lines, or O(f) with a current snapshot,
+     * where f is the number of source files checked for changes.
+     *
+     * @param lexiconPath The path to the lexicon file, directory or snapshot.
+     * @return The compiled lexicon.
+     * @throws IOException If the lexicon cannot be read.
+     */
+    public CompiledLexicon load(String lexiconPath) throws IOException {
+        Path path = Paths.get(lexiconPath);
+        if (!Files.exists(path)) {
+            throw new IOException("Lexicon path does not exist: " + lexiconPath);
+        }
+        if (LexiconSnapshot.isSnapshot(path)) {
+            return LexiconSnapshot.load(path);
+        }
+
+        Path snapshot = LexiconSnapshot.snapshotPathFor(path);
+        if (LexiconSnapshot.isFresh(snapshot, path, lexiconParser.getConflictPolicy())) {
+            try {
+                return LexiconSnapshot.map(snapshot);
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable lexicon snapshot: " + e.getMessage());
+            }
+        }
+        return CompiledLexicon.compile(parse(path));
+    }
+
+    /**
+     * Parses and compiles a lexicon, then writes its snapshot next to it so later runs can map it.
+     * Complexity: O(n), where n is the number of lexicon lines.
+     *
+     * @param lexiconPath The path to the lexicon file or directory.
+     * @return The path of the written snapshot.
+     * @throws IOException If the lexicon cannot be read or the snapshot cannot be written.
+     */
+    public Path compileSnapshot(String lexiconPath) throws IOException {
+        Path path = Paths.get(lexiconPath);
+        if (!Files.exists(path)) {
+            throw new IOException("Lexicon path does not exist: " + lexiconPath);
+        }
+        if (LexiconSnapshot.isSnapshot(path)) {
+            throw new IOException("Lexicon path is already a snapshot: " + lexiconPath);
+        }
+
+        SourceFingerprint fingerprint = SourceFingerprint.of(path);
+        CompiledLexicon lexicon = CompiledLexicon.compile(parse(path));
+        Path snapshot = LexiconSnapshot.snapshotPathFor(path);
+        LexiconSnapshot.write(lexicon, path, fingerprint, lexiconParser.getConflictPolicy(), snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Parses a lexicon file or every file in a lexicon directory.
+     * Complexity: O(n), where n is the number of lexicon lines.
+     */
+    private Map<String, Double> parse(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            return lexiconParser.parseLexiconDirectory(path.toString());
+        }
+        return lexiconParser.parseFile(path.toString());
+    }
+}
@@ -1,25 +1,146 @@
 package ie.atu.sw;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.*;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Stream;
 
 /**
  * Parses lexicon files to extract word sentiment scores.
  * This parser can handle both single files and directories containing multiple files.
+ * Each file is read by a {@link LexiconFileReader}, which parses its bytes in parallel chunks.
  */
 public class LexiconParser implements Parser {
+    /**
+     * Number of files merged one after another on one thread at the leaves of the merge tree.
+     * Fixed rather than derived from the CPU count, so sums and averages add up in the same order on every machine.
+     */
+    private static final int MERGE_RUN_FILES = 16;
+
+    private final LexiconFileReader fileReader = new LexiconFileReader();
+    private LexiconConflictPolicy conflictPolicy;
+    private ErrorPolicy errorPolicy = ErrorPolicy.COLLECT_ALL;
+    private Duration deadline;
+    private MetricsRegistry metrics;
+
+    /**
+     * Creates a parser where, in a lexicon directory, the first file in path order wins a conflicting word.
+     * Complexity: O(1).
+     */
+    public LexiconParser() {
+        this(LexiconConflictPolicy.PRIORITY);
+    }
+
+    /**
+     * Creates a parser with the given rule for words found in several files of a lexicon directory.
+     * Complexity: O(1).
+     *
+     * @param conflictPolicy How the scores of a word from several files are combined.
+     */
+    public LexiconParser(LexiconConflictPolicy conflictPolicy) {
+        this.conflictPolicy = conflictPolicy;
+    }
+
+    /**
+     * Getter for the rule for words found in several files of a lexicon directory.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The conflict policy.
+     */
+    public LexiconConflictPolicy getConflictPolicy() {
+        return conflictPolicy;
+    }
+
+    /**
+     * Setter for the rule for words found in several files of a lexicon directory.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param conflictPolicy How the scores of a word from several files are combined.
+     */
+    public void setConflictPolicy(LexiconConflictPolicy conflictPolicy) {
+        this.conflictPolicy = conflictPolicy;
+    }
+
+    /**
+     * Getter for what happens to a lexicon directory when one of its files cannot be read.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The error policy.
+     */
+    public ErrorPolicy getErrorPolicy() {
+        return errorPolicy;
+    }
+
+    /**
+     * Setter for what happens to a lexicon directory when one of its files cannot be read.
+     * By default an unreadable file is reported and contributes no words; with fail-fast, the load stops and fails.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param errorPolicy The error policy.
+     */
+    public void setErrorPolicy(ErrorPolicy errorPolicy) {
+        this.errorPolicy = errorPolicy;
+    }
+
+    /**
+     * Getter for how long a lexicon directory may take to load.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The deadline, or null for no limit.
+     */
+    public Duration getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Setter for how long a lexicon directory may take to load, no limit by default.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param deadline The deadline, or null for no limit.
+     */
+    public void setDeadline(Duration deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Getter for the registry each parse is timed in.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The metrics registry, or null if no metrics are kept.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Setter for the registry each parse of a lexicon file or directory is timed in, as "lexicon.parse".
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param metrics The metrics registry, or null to keep no metrics.
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
 
     /**
      * Parses a single lexicon file.
      * Reads each line of the file, expecting a comma-separated format for word and sentiment score.
-     * Complexity: O(n), where n is the number of lines in the file.
+     * The parse is recorded as a {@link LexiconLoadEvent} when the flight recorder is on, and timed in the
+     * metrics registry if there is one.
+     * Complexity: O(n / p), where n is the number of lines in the file and p is the number of CPUs.
      *
      * @param filePath The path to the lexicon file.
      * @return A Map with words as keys and their sentiment scores as values.
@@ -27,58 +148,243 @@ public class LexiconParser implements Parser {
      */
     @Override
     public Map<String, Double> parseFile(String filePath) throws IOException {
-        Map<String, Double> lexicon = new HashMap<>();
-        try (Stream<String> lines = Files.lines(Paths.get(filePath))) {
-            lines.forEach(line -> {
-                try {
-                    String[] parts = line.split(",");
-                    if (parts.length == 2) {
-                        String word = parts[0].trim();
-                        double score = Double.parseDouble(parts[1].trim());
-                        lexicon.put(word, score);
-                    } else {
-                        System.err.println("Unusual line format (ignored): " + line);
-                    }
-                } catch (NumberFormatException e) {
-                    System.err.println("Error parsing score for line: " + line + ".\nError: " + e.getMessage());
-                }
-            });
+        LexiconLoadEvent event = new LexiconLoadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        LexiconFileReader.Entries entries = fileReader.read(Paths.get(filePath));
+        Map<String, Double> lexicon = new HashMap<>(capacityFor(entries.size()));
+        entries.forEach(lexicon::put);
+        recordParse(start);
+        if (event.shouldCommit()) {
+            event.path = filePath;
+            event.files = 1;
+            event.bytes = entries.bytes();
+            event.lines = entries.size();
+            event.words = lexicon.size();
+            event.malformedLines = entries.malformedLines();
+            event.commit();
         }
         return lexicon;
     }
 
     /**
-     * Parses all lexicon files in a given directory.
-     * Processes each file in the directory in parallel using virtual threads.
-     * Complexity: O(m*n), where m is the number of files and n is the average number of lines per file.
+     * Times a completed parse in the metrics registry, if there is one.
+     * Complexity: O(1).
+     */
+    private void recordParse(long start) {
+        if (metrics != null) {
+            metrics.timer("lexicon.parse").record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the initial capacity of a HashMap that holds the given number of words without resizing.
+     * Complexity: O(1).
+     */
+    private static int capacityFor(int words) {
+        return Math.max(16, (int) (words / 0.75f) + 1);
+    }
+
+    /**
+     * Parses all lexicon files in a given directory and merges them into one lexicon.
+     * Files are split into runs that are parsed and merged by a parallel tree reduction in path order, so threads
+     * never contend on a shared map, and words found in several files
+     * are scored by the conflict policy, so the lexicon is the same on every run.
+     * Lexicon snapshots stored in the directory are skipped.
+     * The load stops when the deadline passes, when the calling thread is interrupted, or, under the fail-fast
+     * policy, at the first file that cannot be read; files not yet started are then skipped and the load fails.
+     * A load that completes is recorded as one {@link LexiconLoadEvent} when the flight recorder is on, and timed
+     * in the metrics registry if there is one.
+     * Complexity: O(m*n + w log m), where m is the number of files, n is the average number of lines per file
+     * and w is the number of distinct words.
      *
      * @param directoryPath The path to the directory containing lexicon files.
-     * @return A ConcurrentHashMap with words as keys and their sentiment scores as values, aggregated from all files.
-     * @throws IOException If an I/O error occurs reading from the files.
+     * @return An unmodifiable map with words as keys and their sentiment scores as values.
+     * @throws IOException If an I/O error occurs listing the files, or the load stopped early.
      */
-    public ConcurrentHashMap<String, Double> parseLexiconDirectory(String directoryPath) throws IOException {
-        ConcurrentHashMap<String, Double> combinedLexicon = new ConcurrentHashMap<>();
-        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
-
+    public Map<String, Double> parseLexiconDirectory(String directoryPath) throws IOException {
+        LexiconLoadEvent event = new LexiconLoadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        List<Path> files;
         try (Stream<Path> paths = Files.walk(Paths.get(directoryPath))) {
-            paths.filter(Files::isRegularFile)
-                    .forEach(filePath -> executor.submit(() -> {
-                        try {
-                            combinedLexicon.putAll(parseFile(filePath.toString()));
-                        } catch (IOException e) {
-                            System.err.println("Failed to read file: " + filePath + ".\nError: " + e.getMessage());
-                        }
-                    }));
+            files = paths.filter(Files::isRegularFile)
+                    .filter(filePath -> !LexiconSnapshot.isSnapshot(filePath))
+                    .sorted()
+                    .toList();
+        }
+
+        RunResult run = new RunResult();
+        for (Path file : files) {
+            run.record(file, RunResult.Outcome.SKIPPED);
+        }
+        AtomicBoolean stopped = new AtomicBoolean();
+        LoadTotals totals = new LoadTotals();
+        Map<String, double[]> merged = files.isEmpty() ? Map.of()
+                : await(ForkJoinPool.commonPool().submit(new MergeTask(files, 0, files.size(), conflictPolicy,
+                run, stopped, totals)), stopped, run, directoryPath);
+        if (run.status() == RunResult.Status.FAILED) {
+            Map.Entry<Path, String> failure = run.failures().entrySet().iterator().next();
+            throw new IOException("Failed to read lexicon file: " + failure.getKey() + ". Error: " + failure.getValue());
+        }
+        Map<String, Double> lexicon = new HashMap<>(capacityFor(merged.size()));
+        for (Map.Entry<String, double[]> entry : merged.entrySet()) {
+            lexicon.put(entry.getKey(), conflictPolicy.score(entry.getValue()));
+        }
+        recordParse(start);
+        if (event.shouldCommit()) {
+            event.path = directoryPath;
+            event.files = run.count(RunResult.Outcome.SUCCEEDED);
+            event.bytes = totals.bytes.sum();
+            event.lines = totals.lines.sum();
+            event.words = lexicon.size();
+            event.malformedLines = totals.malformedLines.sum();
+            event.commit();
         }
+        return Collections.unmodifiableMap(lexicon);
+    }
 
-        executor.shutdown();
+    /**
+     * Waits for the merge of a lexicon directory until the deadline, stopping its tasks if the deadline passes
+     * or the calling thread is interrupted. Tasks check the stop flag before each file, so the files in
+     * progress finish but no new one is started.
+     * Complexity: O(1) for the call; waits for the merge.
+     */
+    private Map<String, double[]> await(ForkJoinTask<Map<String, double[]>> merge, AtomicBoolean stopped,
+                                        RunResult run, String directoryPath) throws IOException {
         try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            return deadline == null ? merge.get() : merge.get(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            run.stop(RunResult.Status.TIMED_OUT);
+            stopped.set(true);
+            throw new IOException("Lexicon directory not loaded within " + deadline.toSeconds() + " s: " + directoryPath);
         } catch (InterruptedException e) {
+            run.stop(RunResult.Status.CANCELLED);
+            stopped.set(true);
             Thread.currentThread().interrupt();
-            System.err.println("Lexicon parsing interrupted: " + e.getMessage());
+            throw new InterruptedIOException("Lexicon loading cancelled: " + directoryPath);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("Failed to load lexicon directory: " + directoryPath, e.getCause());
         }
+    }
+
+    /**
+     * The sizes of the files parsed for a lexicon directory, added up by the merge tasks for its load event.
+     */
+    private static final class LoadTotals {
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder lines = new LongAdder();
+        private final LongAdder malformedLines = new LongAdder();
+    }
+
+    /**
+     * Parses and merges a run of consecutive lexicon files, splitting the run in half until it is short enough
+     * to parse file by file and combining the halves.
+     */
+    @SuppressWarnings("serial") // Fork/join tasks are never serialized
+    private final class MergeTask extends RecursiveTask<Map<String, double[]>> {
+        private final List<Path> files;
+        private final int from;
+        private final int to;
+        private final LexiconConflictPolicy policy;
+        private final RunResult run;
+        private final AtomicBoolean stopped;
+        private final LoadTotals totals;
 
-        return combinedLexicon;
+        private MergeTask(List<Path> files, int from, int to, LexiconConflictPolicy policy, RunResult run,
+                          AtomicBoolean stopped, LoadTotals totals) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.policy = policy;
+            this.run = run;
+            this.stopped = stopped;
+            this.totals = totals;
+        }
+
+        /**
+         * Parses and merges the run of files.
+         * Complexity: O(n + w log r), where n is the number of lines in the run, w is the number of words
+         * and r is the number of files.
+         *
+         * @return The merged scores of the run, keyed by word.
+         */
+        @Override
+        protected Map<String, double[]> compute() {
+            if (to - from <= MERGE_RUN_FILES) {
+                Map<String, double[]> merged = parse(files.get(from));
+                for (int i = from + 1; i < to; i++) {
+                    merged = merge(merged, parse(files.get(i)));
+                }
+                return merged;
+            }
+            int middle = (from + to) >>> 1;
+            MergeTask earlierTask = new MergeTask(files, from, middle, policy, run, stopped, totals);
+            earlierTask.fork();
+            Map<String, double[]> later = new MergeTask(files, middle, to, policy, run, stopped, totals).compute();
+            return merge(earlierTask.join(), later);
+        }
+
+        /**
+         * Parses one file into merged scores; a file that cannot be read, or is not started because the load
+         * has stopped, contributes no words.
+         * Under the fail-fast policy, a file that cannot be read stops the load.
+         * Complexity: O(n), where n is the number of lines in the file.
+         *
+         * @return The scores of the file, keyed by word.
+         */
+        private Map<String, double[]> parse(Path filePath) {
+            if (stopped.get()) {
+                return new HashMap<>();
+            }
+            try {
+                LexiconFileReader.Entries entries = fileReader.read(filePath);
+                Map<String, double[]> lexicon = new HashMap<>(capacityFor(entries.size()));
+                entries.forEach((word, score) -> lexicon.put(word, new double[]{score, 1.0}));
+                totals.bytes.add(entries.bytes());
+                totals.lines.add(entries.size());
+                totals.malformedLines.add(entries.malformedLines());
+                run.record(filePath, RunResult.Outcome.SUCCEEDED);
+                return lexicon;
+            } catch (IOException e) {
+                run.fail(filePath, e.getMessage());
+                if (errorPolicy == ErrorPolicy.FAIL_FAST) {
+                    run.stop(RunResult.Status.FAILED);
+                    stopped.set(true);
+                } else {
+                    System.err.println("Failed to read file: " + filePath + ".\nError: " + e.getMessage());
+                }
+                return new HashMap<>();
+            }
+        }
+
+        /**
+         * Merges the scores of two adjacent runs of files, putting the smaller map into the larger one while
+         * the conflict policy always sees the earlier run first.
+         * Complexity: O(s), where s is the size of the smaller map.
+         *
+         * @return The larger map, now holding the words of both.
+         */
+        private Map<String, double[]> merge(Map<String, double[]> earlier, Map<String, double[]> later) {
+            if (earlier.size() >= later.size()) {
+                for (Map.Entry<String, double[]> entry : later.entrySet()) {
+                    double[] existing = earlier.putIfAbsent(entry.getKey(), entry.getValue());
+                    if (existing != null) {
+                        policy.combine(existing, entry.getValue());
+                    }
+                }
+                return earlier;
+            }
+            for (Map.Entry<String, double[]> entry : earlier.entrySet()) {
+                double[] existing = later.put(entry.getKey(), entry.getValue());
+                if (existing != null) {
+                    policy.combine(entry.getValue(), existing);
+                }
+            }
+            return later;
+        }
     }
 }
@@ -0,0 +1,252 @@
+package ie.atu.sw;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Several compiled lexicons, such as AFINN, VADER and an in-house lexicon, combined so a tweet is scored against
+ * all of them in a single pass.
+ * The words of every lexicon share one {@link TokenTable} whose value is a small vector of scores, one per lexicon,
+ * and their phrases share one {@link PhraseAutomaton}, so each token of a tweet is hashed and fed through the
+ * automaton once however many lexicons there are. Each lexicon still only scores the words and phrases it has,
+ * so every score is the same as scoring the tweet with that lexicon alone.
+ * A set of one lexicon keeps no combined structure and scores tweets with the lexicon itself.
+ * Instances are read-only and can be shared by any number of threads without synchronisation.
+ */
+public final class LexiconSet {
+    private final List<String> names;
+    private final List<CompiledLexicon> lexicons;
+    private final TokenTable words;
+    // Scores of word w are at [w * size, (w + 1) * size), with flags telling which lexicons have the word
+    private final double[] wordScores;
+    private final boolean[] wordPresent;
+    private final PhraseAutomaton phrases;
+    // Scores of phrase p are at [p * size, (p + 1) * size), with flags telling which lexicons have the phrase
+    private final double[] phraseScores;
+    private final boolean[] phrasePresent;
+    private final boolean[] hasPhrases;
+
+    /**
+     * Combines compiled lexicons.
+     * Complexity: O(n*k + t), where n is the total number of words, k is the average word length and t is the
+     * total number of phrase characters.
+     *
+     * @param names    The name of each lexicon, used for its score column.
+     * @param lexicons The lexicons, in the order of their score columns.
+     */
+    private LexiconSet(List<String> names, List<CompiledLexicon> lexicons) {
+        this.names = List.copyOf(names);
+        this.lexicons = List.copyOf(lexicons);
+        int size = lexicons.size();
+        this.hasPhrases = new boolean[size];
+        if (size == 1) {
+            this.words = null;
+            this.wordScores = null;
+            this.wordPresent = null;
+            this.phrases = null;
+            this.phraseScores = null;
+            this.phrasePresent = null;
+            return;
+        }
+
+        Map<String, Integer> ordinals = new LinkedHashMap<>();
+        for (CompiledLexicon lexicon : lexicons) {
+            for (int i = 0; i < lexicon.size(); i++) {
+                ordinals.putIfAbsent(lexicon.wordAt(i), ordinals.size());
+            }
+        }
+        this.words = new TokenTable(ordinals.keySet());
+        this.wordScores = new double[ordinals.size() * size];
+        this.wordPresent = new boolean[wordScores.length];
+        for (int column = 0; column < size; column++) {
+            CompiledLexicon lexicon = lexicons.get(column);
+            for (int i = 0; i < lexicon.size(); i++) {
+                int cell = ordinals.get(lexicon.wordAt(i)) * size + column;
+                wordScores[cell] = lexicon.scoreAt(i);
+                wordPresent[cell] = true;
+            }
+        }
+
+        Map<String, Double> phraseKeys = new HashMap<>();
+        for (int column = 0; column < size; column++) {
+            PhraseAutomaton own = lexicons.get(column).phrases();
+            hasPhrases[column] = own != null;
+            for (int p = 0; own != null && p < own.size(); p++) {
+                phraseKeys.putIfAbsent(own.phraseText(p), 0.0);
+            }
+        }
+        this.phrases = PhraseAutomaton.build(phraseKeys);
+        int phraseCount = phrases == null ? 0 : phrases.size();
+        this.phraseScores = new double[phraseCount * size];
+        this.phrasePresent = new boolean[phraseScores.length];
+        TweetTokenizer tokenizer = new TweetTokenizer();
+        for (int column = 0; column < size; column++) {
+            PhraseAutomaton own = lexicons.get(column).phrases();
+            for (int p = 0; own != null && p < own.size(); p++) {
+                int cell = phraseOf(own.phraseText(p), tokenizer) * size + column;
+                phraseScores[cell] = own.phraseScore(p);
+                phrasePresent[cell] = true;
+            }
+        }
+    }
+
+    /**
+     * Wraps a single lexicon, which scores tweets by itself.
+     * Complexity: O(1).
+     *
+     * @param lexicon The lexicon.
+     * @return The set of one lexicon.
+     */
+    public static LexiconSet of(CompiledLexicon lexicon) {
+        return new LexiconSet(List.of("score"), List.of(lexicon));
+    }
+
+    /**
+     * Combines lexicons into one set with a score column per lexicon.
+     * Complexity: O(n*k + t), where n is the total number of words, k is the average word length and t is the
+     * total number of phrase characters.
+     *
+     * @param names    The name of each lexicon, used for its score column; names must be distinct.
+     * @param lexicons The lexicons, in the order of their score columns.
+     * @return The combined set.
+     */
+    public static LexiconSet combine(List<String> names, List<CompiledLexicon> lexicons) {
+        if (lexicons.isEmpty() || names.size() != lexicons.size()) {
+            throw new IllegalArgumentException("Every lexicon needs exactly one name: " + names);
+        }
+        if (names.stream().distinct().count() != names.size()) {
+            throw new IllegalArgumentException("Lexicon names must be distinct: " + names);
+        }
+        return new LexiconSet(names, lexicons);
+    }
+
+    /**
+     * Returns the number of lexicons, which is the number of scores per tweet.
+     * Complexity: O(1).
+     *
+     * @return The number of lexicons.
+     */
+    public int size() {
+        return lexicons.size();
+    }
+
+    /**
+     * Returns a lexicon of the set.
+     * Complexity: O(1).
+     *
+     * @param column The position of the lexicon.
+     * @return The lexicon.
+     */
+    public CompiledLexicon lexicon(int column) {
+        return lexicons.get(column);
+    }
+
+    /**
+     * Returns the names of the score columns of a set of several lexicons.
+     * Complexity: O(1).
+     *
+     * @return The name of each lexicon, or null for a single lexicon, whose one column is just the score.
+     */
+    public List<String> scoreNames() {
+        return lexicons.size() == 1 ? null : names;
+    }
+
+    /**
+     * Finds the index of the word held in a character range in the combined word table.
+     * Complexity: O(k) on average, where k is the length of the word.
+     *
+     * @param chars  The characters holding the word.
+     * @param offset The index of the first character of the word.
+     * @param length The number of characters in the word.
+     * @return The index of the word, or -1 if no lexicon has it.
+     */
+    int indexOf(char[] chars, int offset, int length) {
+        return words.indexOf(chars, offset, length);
+    }
+
+    /**
+     * Returns the score vectors of the combined words.
+     * Complexity: O(1).
+     *
+     * @return The scores, lexicon by lexicon for each word in turn; 0.0 where a lexicon lacks the word.
+     */
+    double[] wordScores() {
+        return wordScores;
+    }
+
+    /**
+     * Returns which lexicons have each combined word.
+     * Complexity: O(1).
+     *
+     * @return The flags, laid out like {@link #wordScores()}.
+     */
+    boolean[] wordPresent() {
+        return wordPresent;
+    }
+
+    /**
+     * Returns the automaton of the phrases of every lexicon.
+     * Complexity: O(1).
+     *
+     * @return The combined automaton, or null if no lexicon has phrases.
+     */
+    PhraseAutomaton phrases() {
+        return phrases;
+    }
+
+    /**
+     * Returns the score vectors of the combined phrases.
+     * Complexity: O(1).
+     *
+     * @return The scores, lexicon by lexicon for each phrase in turn; 0.0 where a lexicon lacks the phrase.
+     */
+    double[] phraseScores() {
+        return phraseScores;
+    }
+
+    /**
+     * Returns which lexicons have each combined phrase.
+     * Complexity: O(1).
+     *
+     * @return The flags, laid out like {@link #phraseScores()}.
+     */
+    boolean[] phrasePresent() {
+        return phrasePresent;
+    }
+
+    /**
+     * Checks whether a lexicon has any phrases, which decides how its matches are scored.
+     * Complexity: O(1).
+     *
+     * @param column The position of the lexicon.
+     * @return true if the lexicon has multi-word entries.
+     */
+    boolean hasPhrases(int column) {
+        return hasPhrases[column];
+    }
+
+    /**
+     * Finds the combined phrase with the same folded tokens as a phrase of one lexicon, by walking its tokens
+     * through the combined automaton.
+     * Complexity: O(k), where k is the length of the phrase.
+     */
+    private int phraseOf(String text, TweetTokenizer tokenizer) {
+        int state = PhraseAutomaton.ROOT;
+        int tokens = 0;
+        tokenizer.reset(text);
+        while (tokenizer.next()) {
+            if (tokenizer.tokenLength() > 0) {
+                state = phrases.next(state, phrases.tokenId(tokenizer.token(), 0, tokenizer.tokenLength()));
+                tokens++;
+            }
+        }
+        int match = phrases.firstMatch(state);
+        int phrase = match < 0 ? -1 : phrases.matchedPhrase(match);
+        if (phrase < 0 || phrases.phraseLength(phrase) != tokens) {
+            throw new IllegalStateException("Phrase missing from the combined lexicon: " + text);
+        }
+        return phrase;
+    }
+}
@@ -0,0 +1,217 @@
+package ie.atu.sw;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Versioned binary snapshot of a compiled lexicon, written once and memory-mapped on later runs.
+ * The snapshot holds the hash table, the string pool and the scores exactly as {@link CompiledLexicon} uses them,
+ * so loading maps the file with {@link FileChannel#map} and serves lookups from the mapping without parsing.
+ * The header records the source path, a {@link SourceFingerprint} and the {@link LexiconConflictPolicy} the
+ * source files were merged with; a snapshot older than its source, or merged differently, is not used in its place.
+ * <p>
+ * Layout (big-endian): magic "LXSN", format version, source path, source file count, size and modification time,
+ * conflict policy name, the word table, and a flag followed by the phrase automaton when the lexicon has phrases.
+ */
+public final class LexiconSnapshot {
+    /**
+     * File name extension of lexicon snapshots.
+     */
+    public static final String EXTENSION = ".lexsnap";
+
+    private static final int MAGIC = 0x4C58534E;
+    private static final int VERSION = 2;
+
+    private LexiconSnapshot() {
+    }
+
+    /**
+     * Returns where the snapshot of a lexicon file or directory is kept: next to it, with the snapshot extension.
+     * Complexity: O(1).
+     *
+     * @param lexiconPath The lexicon file or directory.
+     * @return The snapshot path.
+     */
+    public static Path snapshotPathFor(Path lexiconPath) {
+        Path absolute = lexiconPath.toAbsolutePath().normalize();
+        return absolute.resolveSibling(absolute.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Checks whether a path names a lexicon snapshot.
+     * Complexity: O(1).
+     *
+     * @param path The path to check.
+     * @return true if the file name has the snapshot extension.
+     */
+    public static boolean isSnapshot(Path path) {
+        Path fileName = path.getFileName();
+        return fileName != null && fileName.toString().endsWith(EXTENSION);
+    }
+
+    /**
+     * Writes a compiled lexicon to a snapshot file, replacing any previous snapshot atomically.
+     * Complexity: O(n), where n is the size of the compiled lexicon.
+     *
+     * @param lexicon     The compiled lexicon.
+     * @param source      The lexicon file or directory the lexicon was parsed from.
+     * @param fingerprint The fingerprint of the source, taken before it was parsed.
+     * @param policy      The conflict policy the source files were merged with.
+     * @param snapshot    The snapshot file to write.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    static void write(CompiledLexicon lexicon, Path source, SourceFingerprint fingerprint, LexiconConflictPolicy policy,
+                      Path snapshot) throws IOException {
+        Path directory = snapshot.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, snapshot.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                String sourcePath = normalise(source);
+                out.writeInt(sourcePath.length());
+                out.writeChars(sourcePath);
+                out.writeInt(fingerprint.files);
+                out.writeLong(fingerprint.bytes);
+                out.writeLong(fingerprint.lastModified);
+                out.writeUTF(policy.name());
+                lexicon.words().writeTo(out);
+                PhraseAutomaton phrases = lexicon.phrases();
+                out.writeInt(phrases == null ? 0 : 1);
+                if (phrases != null) {
+                    phrases.writeTo(out);
+                }
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Memory-maps a snapshot, rejecting it if its source still exists and has changed since it was written.
+     * Complexity: O(f + p), where f is the number of source files and p the number of phrases; words are not read.
+     *
+     * @param snapshot The snapshot file.
+     * @return The compiled lexicon, served from the mapping.
+     * @throws IOException If the snapshot is unreadable, of another version, or older than its source files.
+     */
+    public static CompiledLexicon load(Path snapshot) throws IOException {
+        Header header = readHeader(snapshot);
+        Path source = Path.of(header.source);
+        if (Files.exists(source) && !isFresh(snapshot, header, source)) {
+            throw new IOException("Lexicon snapshot is older than its source files: " + snapshot);
+        }
+        return map(snapshot);
+    }
+
+    /**
+     * Checks whether a snapshot exists and was compiled from the current state of a lexicon source with the
+     * given conflict policy.
+     * Complexity: O(f), where f is the number of source files.
+     *
+     * @param snapshot The snapshot file.
+     * @param source   The lexicon file or directory.
+     * @param policy   The conflict policy the source files would be merged with.
+     * @return true if the snapshot can be used instead of parsing the source.
+     */
+    static boolean isFresh(Path snapshot, Path source, LexiconConflictPolicy policy) {
+        if (!Files.isRegularFile(snapshot)) {
+            return false;
+        }
+        try {
+            Header header = readHeader(snapshot);
+            return header.policy.equals(policy.name()) && isFresh(snapshot, header, source);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Memory-maps a snapshot without checking its source.
+     * Complexity: O(p), where p is the number of phrases; words are not read.
+     *
+     * @param snapshot The snapshot file.
+     * @return The compiled lexicon, served from the mapping.
+     * @throws IOException If the snapshot cannot be mapped or is not a snapshot of this version.
+     */
+    static CompiledLexicon map(Path snapshot) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Lexicon snapshot is too large to map: " + snapshot);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            checkVersion(buffer.getInt(), buffer.getInt(), snapshot);
+            int sourceLength = buffer.getInt();
+            buffer.position(buffer.position() + 2 * sourceLength + 4 + 8 + 8);
+            int policyLength = Short.toUnsignedInt(buffer.getShort());
+            buffer.position(buffer.position() + policyLength);
+            LexiconTable words = new MappedLexiconTable(buffer);
+            PhraseAutomaton phrases = buffer.getInt() == 1 ? PhraseAutomaton.readFrom(buffer) : null;
+            return new CompiledLexicon(words, phrases);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt lexicon snapshot: " + snapshot, e);
+        }
+    }
+
+    private static boolean isFresh(Path snapshot, Header header, Path source) throws IOException {
+        if (!header.source.equals(normalise(source))) {
+            return false;
+        }
+        SourceFingerprint current = SourceFingerprint.of(source);
+        return current.matches(header.fingerprint)
+                && Files.getLastModifiedTime(snapshot).toMillis() >= current.lastModified;
+    }
+
+    private static Header readHeader(Path snapshot) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshot))) {
+            checkVersion(in.readInt(), in.readInt(), snapshot);
+            char[] source = new char[in.readInt()];
+            for (int i = 0; i < source.length; i++) {
+                source[i] = in.readChar();
+            }
+            SourceFingerprint fingerprint = new SourceFingerprint(in.readInt(), in.readLong(), in.readLong());
+            return new Header(new String(source), fingerprint, in.readUTF());
+        }
+    }
+
+    private static void checkVersion(int magic, int version, Path snapshot) throws IOException {
+        if (magic != MAGIC) {
+            throw new IOException("Not a lexicon snapshot: " + snapshot);
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported lexicon snapshot version " + version + ": " + snapshot);
+        }
+    }
+
+    private static String normalise(Path source) {
+        return source.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * The source information recorded at the start of a snapshot.
+     */
+    private static final class Header {
+        private final String source;
+        private final SourceFingerprint fingerprint;
+        private final String policy;
+
+        private Header(String source, SourceFingerprint fingerprint, String policy) {
+            this.source = source;
+            this.fingerprint = fingerprint;
+            this.policy = policy;
+        }
+    }
+}
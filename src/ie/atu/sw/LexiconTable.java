@@ -0,0 +1,67 @@
+package ie.atu.sw;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Read-only table of single-word lexicon entries and their scores, looked up by character range.
+ * Implementations keep the table either in heap arrays or in a memory-mapped lexicon snapshot.
+ */
+interface LexiconTable {
+
+    /**
+     * Finds the index of the word held in a character range.
+     *
+     * @param chars  The characters holding the word.
+     * @param offset The index of the first character of the word.
+     * @param length The number of characters in the word.
+     * @return The index of the word, or -1 if it is not in the table.
+     */
+    int indexOf(char[] chars, int offset, int length);
+
+    /**
+     * Finds the index of a word given as a CharSequence.
+     *
+     * @param word The word to find.
+     * @return The index of the word, or -1 if it is not in the table.
+     */
+    int indexOf(CharSequence word);
+
+    /**
+     * Returns the score of the word at an index.
+     *
+     * @param index An index returned by indexOf.
+     * @return The sentiment score of the word.
+     */
+    double scoreAt(int index);
+
+    /**
+     * Returns the word at an index.
+     *
+     * @param index An index between 0 and size() - 1.
+     * @return The word.
+     */
+    String wordAt(int index);
+
+    /**
+     * Returns the number of words in the table.
+     *
+     * @return The number of words.
+     */
+    int size();
+
+    /**
+     * Estimates the heap used by the table.
+     *
+     * @return The approximate number of heap bytes held by the table.
+     */
+    long estimatedBytes();
+
+    /**
+     * Writes the table in the lexicon snapshot layout: the {@link TokenTable} followed by the scores.
+     *
+     * @param out The snapshot stream.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    void writeTo(DataOutputStream out) throws IOException;
+}
@@ -0,0 +1,138 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cuts files of lines into byte ranges that end just after a line feed, so no line is split between ranges and
+ * every range can be memory-mapped and parsed on its own, and finds where lines end within a range.
+ * Lines end at a line feed, a carriage return or both, and a final empty line is dropped, exactly as
+ * BufferedReader.readLine splits them.
+ * Shared by the readers that parse large tweet and lexicon files in parallel chunks.
+ */
+final class LineRanges {
+    private static final int NEWLINE_SEARCH_BLOCK = 64 * 1024;
+
+    private LineRanges() {
+    }
+
+    /**
+     * Finds the range boundaries of a file: 0, the position after the first line feed at or beyond
+     * each multiple of the chunk size, and the file size.
+     * Complexity: O(c + l), where c is the number of ranges and l is the length of the lines crossing a chunk target.
+     *
+     * @param channel   The open file.
+     * @param chunkSize The target number of bytes per range; ranges are extended to the next line feed.
+     * @return The ascending boundaries; range i spans bounds[i] to bounds[i + 1].
+     * @throws IOException If the file cannot be read, or a single line is too long to map.
+     */
+    static long[] split(FileChannel channel, int chunkSize) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer block = ByteBuffer.allocate(NEWLINE_SEARCH_BLOCK);
+        long start = 0;
+        while (size - start > chunkSize) {
+            long newline = findNewline(channel, start + chunkSize - 1, block);
+            if (newline < 0 || newline + 1 >= size) {
+                break;
+            }
+            checkRangeLength(newline + 1 - start);
+            start = newline + 1;
+            bounds.add(start);
+        }
+        checkRangeLength(size - start);
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Checks whether a byte ends a line.
+     * Complexity: O(1).
+     *
+     * @param b The byte.
+     * @return true for a line feed or a carriage return.
+     */
+    static boolean isLineEnd(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    /**
+     * Checks whether a character ends a line.
+     * Complexity: O(1).
+     *
+     * @param c The character.
+     * @return true for a line feed or a carriage return.
+     */
+    static boolean isLineEnd(char c) {
+        return c == '\n' || c == '\r';
+    }
+
+    /**
+     * Returns where the next line starts, given the end of a line in a range of bytes.
+     * Complexity: O(1).
+     *
+     * @param bytes The range.
+     * @param end   The position of the line's line feed or carriage return, or the limit for the last line.
+     * @param limit The end of the range.
+     * @return The position after the line ending, counting a carriage return and line feed as one.
+     */
+    static int nextLineStart(ByteBuffer bytes, int end, int limit) {
+        if (end + 1 < limit && bytes.get(end) == '\r' && bytes.get(end + 1) == '\n') {
+            return end + 2;
+        }
+        return end + 1;
+    }
+
+    /**
+     * Returns where the next line starts, given the end of a line in decoded text.
+     * Complexity: O(1).
+     *
+     * @param text The text.
+     * @param end  The position of the line's line feed or carriage return, or the length for the last line.
+     * @return The position after the line ending, counting a carriage return and line feed as one.
+     */
+    static int nextLineStart(CharSequence text, int end) {
+        if (end + 1 < text.length() && text.charAt(end) == '\r' && text.charAt(end + 1) == '\n') {
+            return end + 2;
+        }
+        return end + 1;
+    }
+
+    /**
+     * Finds the first line feed at or after a position.
+     * Complexity: O(l), where l is the distance to the line feed.
+     *
+     * @return The position of the line feed, or -1 if there is none.
+     */
+    private static long findNewline(FileChannel channel, long position, ByteBuffer block) throws IOException {
+        long size = channel.size();
+        while (position < size) {
+            block.clear();
+            int read = channel.read(block, position);
+            if (read <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < read; i++) {
+                if (block.get(i) == '\n') {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks that a range can be mapped as a single buffer.
+     * Complexity: O(1).
+     */
+    private static void checkRangeLength(long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("A run of " + length + " bytes without a line feed is too long to map");
+        }
+    }
+}
@@ -14,6 +14,7 @@ public class MainMenu extends Menu {
     private OutputDirectory outputDirectory;
     private FilePathManager lexiconDirectory;
     private Options options;
+    private LexiconCache lexiconCache;
 
     /**
      * Constructor for MainMenu.
@@ -25,7 +26,10 @@ public class MainMenu extends Menu {
         this.inputDirectory = new FilePathManager(this.scanner);
         this.outputDirectory = new OutputDirectory(this.scanner);
         this.lexiconDirectory = new FilePathManager(this.scanner);
-        this.options = new Options(inputDirectory, outputDirectory, lexiconDirectory, this.scanner);
+        // Snapshots compiled from the options menu are merged the same way as the lexicons analyses load
+        LexiconLoader lexiconLoader = new LexiconLoader();
+        this.options = new Options(inputDirectory, outputDirectory, lexiconDirectory, lexiconLoader, this.scanner);
+        this.lexiconCache = new LexiconCache(lexiconLoader);
     }
 
     /**
@@ -201,8 +205,11 @@ public class MainMenu extends Menu {
         System.out.println("Lexicon path: " + lexiconPath);
         System.out.println("Tweet file path: " + tweetFilePath);
         System.out.println("Output file path: " + outputFilePath);
+        System.out.println("Output format: " + outputDirectory.getOutputFormat());
 
-        SentimentAnalysisManager analysisManager = new SentimentAnalysisManager();
+        SentimentAnalysisManager analysisManager = new SentimentAnalysisManager(lexiconCache);
+        analysisManager.setOutputFormat(outputDirectory.getOutputFormat());
+        analysisManager.setEcho(outputDirectory.isEchoTweets());
 
         try {
             analysisManager.performAnalysis(lexiconPath, tweetFilePath, outputFilePath);
@@ -212,11 +219,16 @@ public class MainMenu extends Menu {
     }
 
     /**
-     * Configures lexicon file paths.
-     * Complexity: O(1), as it delegates the task to FilePathManager.
+     * Configures lexicon file paths and starts loading the lexicon in the background,
+     * so it is usually ready by the time the analysis is executed.
+     * Complexity: O(1), as it delegates the task to FilePathManager and the lexicon cache.
      */
     private void configureLexicons() {
         inputDirectory.organiseInputDirectory("lexicon"); // Set lexicon file path
+        String lexiconPath = inputDirectory.getLexiconFilePath();
+        if (lexiconPath != null) {
+            lexiconCache.preload(lexiconPath);
+        }
     }
 
     /**
@@ -0,0 +1,178 @@
+package ie.atu.sw;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Lexicon table served straight from a memory-mapped lexicon snapshot.
+ * The buffers are views over the mapping, so opening a snapshot costs the same however many words it holds,
+ * and pages are only read from disk when a lookup touches them. Lookups use absolute reads and are thread-safe.
+ */
+final class MappedLexiconTable implements LexiconTable {
+    private final ByteBuffer section;
+    private final IntBuffer offsets;
+    private final IntBuffer slots;
+    private final IntBuffer slotHashes;
+    private final CharBuffer pool;
+    private final DoubleBuffer scores;
+    private final int size;
+    private final int mask;
+
+    /**
+     * Maps the table written by {@link LexiconTable#writeTo(DataOutputStream)}.
+     * Complexity: O(1) - only views are created; no entries are read.
+     *
+     * @param in The mapped snapshot, positioned at the table; left positioned after it.
+     */
+    MappedLexiconTable(ByteBuffer in) {
+        int start = in.position();
+        this.size = in.getInt();
+        int poolLength = in.getInt();
+        int capacity = in.getInt();
+        this.offsets = view(in, 4L * (size + 1)).asIntBuffer();
+        this.slots = view(in, 4L * capacity).asIntBuffer();
+        this.slotHashes = view(in, 4L * capacity).asIntBuffer();
+        this.pool = view(in, 2L * poolLength).asCharBuffer();
+        this.scores = view(in, 8L * size).asDoubleBuffer();
+        this.mask = capacity - 1;
+        this.section = in.slice(start, in.position() - start);
+    }
+
+    /**
+     * Finds the index of the word held in a character range.
+     * Complexity: O(k) on average, where k is the length of the word.
+     */
+    @Override
+    public int indexOf(char[] chars, int offset, int length) {
+        int hash = TokenTable.hash(chars, offset, length);
+        for (int slot = TokenTable.spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots.get(slot);
+            if (entry == 0) {
+                return -1;
+            }
+            if (slotHashes.get(slot) == hash && matches(entry - 1, chars, offset, length)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Finds the index of a word given as a CharSequence.
+     * Complexity: O(k) on average, where k is the length of the word.
+     */
+    @Override
+    public int indexOf(CharSequence word) {
+        int hash = TokenTable.hash(word);
+        for (int slot = TokenTable.spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots.get(slot);
+            if (entry == 0) {
+                return -1;
+            }
+            if (slotHashes.get(slot) == hash && matches(entry - 1, word)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the score of the word at an index.
+     * Complexity: O(1).
+     */
+    @Override
+    public double scoreAt(int index) {
+        return scores.get(index);
+    }
+
+    /**
+     * Returns the word at an index.
+     * Complexity: O(k), where k is the length of the word.
+     */
+    @Override
+    public String wordAt(int index) {
+        int start = offsets.get(index);
+        char[] word = new char[offsets.get(index + 1) - start];
+        pool.get(start, word);
+        return new String(word);
+    }
+
+    /**
+     * Returns the number of words in the table.
+     * Complexity: O(1).
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns zero, as the table lives in the mapped file rather than on the heap.
+     * Complexity: O(1).
+     */
+    @Override
+    public long estimatedBytes() {
+        return 0L;
+    }
+
+    /**
+     * Copies the mapped table section unchanged.
+     * Complexity: O(b), where b is the size of the section in bytes.
+     */
+    @Override
+    public void writeTo(DataOutputStream out) throws IOException {
+        byte[] chunk = new byte[64 * 1024];
+        ByteBuffer source = section.duplicate();
+        while (source.hasRemaining()) {
+            int length = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+    }
+
+    /**
+     * Compares the stored word with a character range.
+     * Complexity: O(k), where k is the length of the word.
+     */
+    private boolean matches(int index, char[] chars, int offset, int length) {
+        int start = offsets.get(index);
+        if (offsets.get(index + 1) - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (pool.get(start + i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the stored word with a CharSequence.
+     * Complexity: O(k), where k is the length of the word.
+     */
+    private boolean matches(int index, CharSequence word) {
+        int start = offsets.get(index);
+        if (offsets.get(index + 1) - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (pool.get(start + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Slices the next section of the snapshot and moves past it.
+     * Complexity: O(1).
+     */
+    private static ByteBuffer view(ByteBuffer in, long bytes) {
+        ByteBuffer slice = in.slice(in.position(), Math.toIntExact(bytes));
+        in.position(in.position() + slice.capacity());
+        return slice;
+    }
+}
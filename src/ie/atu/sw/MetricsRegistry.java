@@ -0,0 +1,169 @@
+package ie.atu.sw;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * In-process registry of the counters, timers and latency histograms of every stage of the pipeline, which can be
+ * dumped as one JSON object at the end of a run.
+ * Metrics are created on first use and looked up by name, e.g. "tweets" or "batch.score"; a name can only hold
+ * one kind of metric. Recording never locks, so every scoring thread records into the same metrics.
+ * Counters count things, timers add up the time a stage took over all its calls, and histograms keep the
+ * distribution of the time of each call, for percentiles.
+ */
+public final class MetricsRegistry {
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the counter with a name, creating it if needed.
+     * Complexity: O(1).
+     *
+     * @param name The name of the counter.
+     * @return The counter.
+     */
+    public LongAdder counter(String name) {
+        return lookup(counters, name, key -> new LongAdder());
+    }
+
+    /**
+     * Returns the timer with a name, creating it if needed.
+     * Complexity: O(1).
+     *
+     * @param name The name of the timer.
+     * @return The timer.
+     */
+    public Timer timer(String name) {
+        return lookup(timers, name, key -> new Timer());
+    }
+
+    /**
+     * Returns the latency histogram with a name, creating it if needed.
+     * Complexity: O(1).
+     *
+     * @param name The name of the histogram.
+     * @return The histogram, in nanoseconds.
+     */
+    public LatencyHistogram histogram(String name) {
+        return lookup(histograms, name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Formats every metric as one JSON object, with metrics sorted by name and times in milliseconds.
+     * Metrics recorded while the dump is made may or may not be included.
+     * Complexity: O(k log k + h*b), where k is the number of metrics, h is the number of histograms and b is
+     * the number of histogram buckets.
+     *
+     * @return The JSON object, with "counters", "timers" and "histograms" keyed by metric name.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"counters\":{");
+        String separator = "";
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+            json.append(separator).append(JsonLinesEncoder.quote(counter.getKey())).append(':')
+                    .append(counter.getValue().sum());
+            separator = ",";
+        }
+        json.append("},\"timers\":{");
+        separator = "";
+        for (Map.Entry<String, Timer> timer : new TreeMap<>(timers).entrySet()) {
+            Timer value = timer.getValue();
+            long count = value.count();
+            json.append(separator).append(JsonLinesEncoder.quote(timer.getKey())).append(String.format(Locale.ROOT,
+                    ":{\"count\":%d,\"totalMs\":%.3f,\"meanMs\":%.3f,\"maxMs\":%.3f}",
+                    count, value.totalNanos() / 1e6, count == 0 ? 0.0 : value.totalNanos() / 1e6 / count,
+                    value.maxNanos() / 1e6));
+            separator = ",";
+        }
+        json.append("},\"histograms\":{");
+        separator = "";
+        for (Map.Entry<String, LatencyHistogram> histogram : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram value = histogram.getValue();
+            json.append(separator).append(JsonLinesEncoder.quote(histogram.getKey())).append(String.format(Locale.ROOT,
+                    ":{\"count\":%d,\"meanMs\":%.3f,\"p50Ms\":%.3f,\"p90Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f}",
+                    value.count(), value.mean() / 1e6, value.percentile(50) / 1e6, value.percentile(90) / 1e6,
+                    value.percentile(99) / 1e6, value.percentile(100) / 1e6));
+            separator = ",";
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * Finds a metric, creating it if needed, after checking the name is not taken by another kind of metric.
+     * Complexity: O(1).
+     */
+    private <M> M lookup(Map<String, M> metrics, String name, Function<String, M> create) {
+        M metric = metrics.get(name);
+        if (metric != null) {
+            return metric;
+        }
+        int kinds = (counters.containsKey(name) ? 1 : 0) + (timers.containsKey(name) ? 1 : 0)
+                + (histograms.containsKey(name) ? 1 : 0);
+        if (kinds > 0) {
+            throw new IllegalArgumentException("Metric already registered as another kind: " + name);
+        }
+        return metrics.computeIfAbsent(name, create);
+    }
+
+    /**
+     * The total and longest time of the calls to one stage.
+     * Recording is a few atomic additions, so many threads can record at once.
+     */
+    public static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Timer() {
+        }
+
+        /**
+         * Records one call.
+         * Complexity: O(1).
+         *
+         * @param nanos The time the call took, in nanoseconds; negative values count as 0.
+         */
+        public void record(long nanos) {
+            long value = Math.max(0, nanos);
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+        }
+
+        /**
+         * Returns the number of calls recorded.
+         * Complexity: O(s), where s is the number of counter stripes.
+         *
+         * @return The number of calls.
+         */
+        public long count() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the time of all the calls recorded.
+         * Complexity: O(s), where s is the number of counter stripes.
+         *
+         * @return The total time in nanoseconds.
+         */
+        public long totalNanos() {
+            return total.sum();
+        }
+
+        /**
+         * Returns the time of the longest call recorded.
+         * Complexity: O(s), where s is the number of counter stripes.
+         *
+         * @return The longest time in nanoseconds, or 0 if nothing was recorded.
+         */
+        public long maxNanos() {
+            return max.get();
+        }
+    }
+}
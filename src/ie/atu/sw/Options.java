@@ -1,16 +1,21 @@
 package ie.atu.sw;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
  * Class responsible for managing extra options in the application.
- * This class allows users to view settings related to input, output, and lexicon paths.
+ * This class allows users to view settings related to input, output, and lexicon paths,
+ * to compile the configured lexicon into a snapshot that later runs load without parsing,
+ * to choose the format of the results file, and to turn the per-tweet console echo on for debugging.
  */
 public class Options {
     private Scanner scanner;
     private FilePathManager inputDirectory;
     private OutputDirectory outputDirectory;
     private FilePathManager lexiconDirectory;
+    private LexiconLoader lexiconLoader;
 
     /**
      * Constructor for Options.
@@ -20,13 +25,15 @@ public class Options {
      * @param inputDirectory   Manager for input directory paths.
      * @param outputDirectory  Manager for output directory paths.
      * @param lexiconDirectory Manager for lexicon directory paths.
+     * @param lexiconLoader    Loader the session's lexicons are loaded with, which compiles the snapshots.
      * @param scanner          Scanner used for user input.
      */
     public Options(FilePathManager inputDirectory, OutputDirectory outputDirectory,
-                   FilePathManager lexiconDirectory, Scanner scanner) {
+                   FilePathManager lexiconDirectory, LexiconLoader lexiconLoader, Scanner scanner) {
         this.inputDirectory = inputDirectory;
         this.outputDirectory = outputDirectory;
         this.lexiconDirectory = lexiconDirectory;
+        this.lexiconLoader = lexiconLoader;
         this.scanner = scanner;
     }
 
@@ -56,10 +63,13 @@ public class Options {
      * Complexity: O(1) - constant time as it prints content.
      */
     private void welcomeOptionsMessage() {
-        System.out.println("Pick one of the following options below from 1 or 2: ");
+        System.out.println("Pick one of the following options below from 1 to 5: ");
         System.out.println("");
         System.out.println(" 1. View Settings");
-        System.out.println(" 2. Return to Main Menu");
+        System.out.println(" 2. Compile Lexicon Snapshot");
+        System.out.println(" 3. Select Output Format");
+        System.out.println(" 4. Toggle Tweet Echo (debug)");
+        System.out.println(" 5. Return to Main Menu");
         System.out.println("");
     }
 
@@ -81,9 +91,18 @@ public class Options {
                         viewUserSettings();
                         break;
                     case 2:
+                        compileLexiconSnapshot();
+                        break;
+                    case 3:
+                        selectOutputFormat();
+                        break;
+                    case 4:
+                        toggleTweetEcho();
+                        break;
+                    case 5:
                         return;
                     default:
-                        System.out.println("Invalid option. Please choose between 1 and 2.");
+                        System.out.println("Invalid option. Please choose between 1 and 5.");
                         break;
                 }
             } catch (NumberFormatException e) {
@@ -105,7 +124,67 @@ public class Options {
         System.out.println(" Input directory: " + (inputPath != null ? inputPath : "Not set"));
         System.out.println(" Output directory: " + (outputPath != null ? outputPath : "Not set"));
         System.out.println(" Lexicon directory: " + (lexiconPath != null ? lexiconPath : "Not set"));
+        System.out.println(" Output format: " + outputDirectory.getOutputFormat());
+        System.out.println(" Tweet echo: " + (outputDirectory.isEchoTweets() ? "On" : "Off"));
+
+    }
+
+    /**
+     * Compiles the configured lexicon into a binary snapshot stored next to it.
+     * Later analyses memory-map the snapshot instead of parsing the lexicon, until the lexicon changes.
+     * Complexity: O(n), where n is the number of lines in the lexicon.
+     */
+    private void compileLexiconSnapshot() {
+        String lexiconPath = inputDirectory.getLexiconFilePath();
+        if (lexiconPath == null) {
+            System.err.println("Lexicon path is not set.");
+            return;
+        }
+
+        try {
+            Path snapshot = lexiconLoader.compileSnapshot(lexiconPath);
+            System.out.println(" Lexicon snapshot written to: " + snapshot);
+        } catch (IOException e) {
+            System.err.println("Error compiling lexicon snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Turns printing every scored tweet to the console on or off.
+     * Progress is always reported; the echo is meant for debugging small inputs, as it slows large runs down.
+     * Complexity: O(1) - constant time for setting a value.
+     */
+    private void toggleTweetEcho() {
+        outputDirectory.setEchoTweets(!outputDirectory.isEchoTweets());
+        System.out.println(" Tweet echo is now " + (outputDirectory.isEchoTweets() ? "On" : "Off"));
+    }
 
+    /**
+     * Lets the user choose the format of the results file.
+     * Complexity: O(n), where n is the number of times the user inputs a choice before a valid one is entered.
+     */
+    private void selectOutputFormat() {
+        OutputFormat[] formats = OutputFormat.values();
+        System.out.println(" Current output format: " + outputDirectory.getOutputFormat());
+        for (int i = 0; i < formats.length; i++) {
+            System.out.println(" " + (i + 1) + ". " + formats[i] + " (" + formats[i].fileName() + ")");
+        }
+
+        while (true) {
+            System.out.println("Please select a format from 1 to " + formats.length + ": ");
+            String input = scanner.nextLine();
+            try {
+                int choice = Integer.parseInt(input.trim());
+                if (choice >= 1 && choice <= formats.length) {
+                    outputDirectory.setOutputFormat(formats[choice - 1]);
+                    System.out.println(" Output format is set to: " + formats[choice - 1]);
+                    return;
+                }
+                System.out.println("Invalid option. Please choose between 1 and " + formats.length + ".");
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid input. Please enter a number.");
+            }
+        }
     }
 
 }
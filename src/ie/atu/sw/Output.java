@@ -1,5 +1,8 @@
 package ie.atu.sw;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -15,4 +18,79 @@ public interface Output {
      * @param outputDirectoryPath The path of the output directory where results will be stored.
      */
     void writeResults(Map<String, Double> data, String outputDirectoryPath);
+
+    /**
+     * Returns the format the results file is written in.
+     *
+     * @return The output format.
+     */
+    OutputFormat getFormat();
+
+    /**
+     * Sets the format the results file is written in.
+     *
+     * @param format The output format.
+     */
+    void setFormat(OutputFormat format);
+
+    /**
+     * Returns the names of the score columns of results scored against several lexicons.
+     *
+     * @return The name of each lexicon, or null for results with a single score.
+     */
+    List<String> getScoreNames();
+
+    /**
+     * Sets the names of the score columns of the results files opened afterwards.
+     *
+     * @param scoreNames The name of each lexicon, or null for results with a single score.
+     */
+    void setScoreNames(List<String> scoreNames);
+
+    /**
+     * Opens the results file of an output directory for streaming, replacing any previous results.
+     *
+     * @param outputDirectoryPath The path of the output directory where results will be stored.
+     * @return The single writer of the results file; the caller closes it.
+     * @throws IOException If the results file cannot be created.
+     */
+    ResultWriter openResults(String outputDirectoryPath) throws IOException;
+
+    /**
+     * Opens the results file of an output directory for streaming, keeping any previous results.
+     *
+     * @param outputDirectoryPath The path of the output directory where results will be stored.
+     * @return The single writer of the results file; the caller closes it.
+     * @throws IOException If the results file cannot be opened.
+     */
+    ResultWriter appendResults(String outputDirectoryPath) throws IOException;
+
+    /**
+     * Writes the aggregate statistics of an analysis as a summary report in the output directory.
+     *
+     * @param statistics          The overall and per-file statistics.
+     * @param outputDirectoryPath The path of the output directory where the report will be stored.
+     * @return The path of the report.
+     * @throws IOException If the report cannot be written.
+     */
+    Path writeSummary(AnalysisStatistics statistics, String outputDirectoryPath) throws IOException;
+
+    /**
+     * Writes the counters, timers and latency histograms of a run as a metrics dump in the output directory.
+     *
+     * @param metrics             The metrics of the run.
+     * @param outputDirectoryPath The path of the output directory where the dump will be stored.
+     * @return The path of the dump.
+     * @throws IOException If the dump cannot be written.
+     */
+    Path writeMetrics(MetricsRegistry metrics, String outputDirectoryPath) throws IOException;
+
+    /**
+     * Encodes the scored tweets of a batch and queues them for the results file.
+     *
+     * @param batch The scored tweets.
+     * @param part  The part of the results file that holds the batch's source.
+     * @throws IOException If the results cannot be written.
+     */
+    void writeBatch(TweetBatch batch, ResultWriter.Part part) throws IOException;
 }
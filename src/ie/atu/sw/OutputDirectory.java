@@ -11,6 +11,8 @@ public class OutputDirectory {
     private Scanner scanner = new Scanner(System.in);
     private boolean directoryCreationSuccessful = false;
     private String outputUserPath;
+    private OutputFormat outputFormat = OutputFormat.TEXT;
+    private boolean echoTweets;
 
     /**
      * Constructor for OutputDirectory.
@@ -43,6 +45,46 @@ public class OutputDirectory {
         this.outputUserPath = userPath;
     }
 
+    /**
+     * Getter for the format the results file is written in.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The output format.
+     */
+    public OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * Setter for the format the results file is written in.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param outputFormat The output format.
+     */
+    public void setOutputFormat(OutputFormat outputFormat) {
+        this.outputFormat = outputFormat;
+    }
+
+    /**
+     * Checks whether every scored tweet is printed to the console as well as written to the output file.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return true if tweets are echoed.
+     */
+    public boolean isEchoTweets() {
+        return echoTweets;
+    }
+
+    /**
+     * Setter for printing every scored tweet to the console, a debug mode that is off by default.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param echoTweets true to print every tweet.
+     */
+    public void setEchoTweets(boolean echoTweets) {
+        this.echoTweets = echoTweets;
+    }
+
     /**
      * Organises the output directory by allowing the user to select or confirm the path.
      * Complexity: O(n), where n is the number of user interactions to set the path.
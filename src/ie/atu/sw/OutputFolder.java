@@ -4,6 +4,13 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -11,6 +18,76 @@ import java.util.Map;
  * This class implements the Output interface, writing results to a specified file.
  */
 public class OutputFolder implements Output {
+    private static final String SUMMARY_FILE_NAME = "summary.json";
+    private static final String METRICS_FILE_NAME = "metrics.json";
+
+    private OutputFormat format = OutputFormat.TEXT;
+    private List<String> scoreNames;
+    private MetricsRegistry metrics;
+
+    /**
+     * Getter for the format the results file is written in.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The output format.
+     */
+    @Override
+    public OutputFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Setter for the format the results file is written in.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param format The output format.
+     */
+    @Override
+    public void setFormat(OutputFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Getter for the names of the score columns of results scored against several lexicons.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The name of each lexicon, or null for results with a single score.
+     */
+    @Override
+    public List<String> getScoreNames() {
+        return scoreNames;
+    }
+
+    /**
+     * Setter for the names of the score columns, written into the header of the results files opened afterwards.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param scoreNames The name of each lexicon, or null for results with a single score.
+     */
+    @Override
+    public void setScoreNames(List<String> scoreNames) {
+        this.scoreNames = scoreNames;
+    }
+
+    /**
+     * Getter for the registry the batches written are counted and timed in.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The metrics registry, or null if no metrics are kept.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Setter for the registry the batches written are counted and timed in.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param metrics The metrics registry, or null to keep no metrics.
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
 
     /**
      * Writes the sentiment analysis results to a specified output file.
@@ -33,6 +110,159 @@ public class OutputFolder implements Output {
         }
     }
 
+    /**
+     * Opens the output file of a directory for streaming, truncating any previous results,
+     * and writes the header of the output format.
+     * The file is named after the format, e.g. outputFile.txt for the text report.
+     * Complexity: O(1) - constant time complexity as it only opens the file.
+     *
+     * @param outputDirectoryPath The directory path where the output file will be written.
+     * @return The single writer of the output file.
+     * @throws IOException If the output file cannot be created.
+     */
+    @Override
+    public ResultWriter openResults(String outputDirectoryPath) throws IOException {
+        ResultWriter results = new ResultWriter(Paths.get(outputDirectoryPath, format.fileName()));
+        writeHeader(results);
+        return results;
+    }
+
+    /**
+     * Opens the output file of a directory for streaming, keeping any previous results.
+     * The header of the output format is only written if the file is new or empty.
+     * Complexity: O(1) - constant time complexity as it only opens the file.
+     *
+     * @param outputDirectoryPath The directory path where the output file will be written.
+     * @return The single writer of the output file.
+     * @throws IOException If the output file cannot be opened.
+     */
+    @Override
+    public ResultWriter appendResults(String outputDirectoryPath) throws IOException {
+        Path outputFile = Paths.get(outputDirectoryPath, format.fileName());
+        boolean empty = !Files.exists(outputFile) || Files.size(outputFile) == 0;
+        ResultWriter results = new ResultWriter(outputFile, ResultWriter.DEFAULT_QUEUE_CAPACITY, true);
+        if (empty) {
+            writeHeader(results);
+        }
+        return results;
+    }
+
+    /**
+     * Writes the aggregate statistics of an analysis to summary.json in the output directory, replacing any
+     * previous report.
+     * Complexity: O(f log f), where f is the number of tweet files in the report.
+     *
+     * @param statistics          The overall and per-file statistics.
+     * @param outputDirectoryPath The directory path where the report will be written.
+     * @return The path of the report.
+     * @throws IOException If the report cannot be written.
+     */
+    @Override
+    public Path writeSummary(AnalysisStatistics statistics, String outputDirectoryPath) throws IOException {
+        Path summaryFile = Paths.get(outputDirectoryPath, SUMMARY_FILE_NAME);
+        Files.writeString(summaryFile, statistics.toJson(), StandardCharsets.UTF_8);
+        return summaryFile;
+    }
+
+    /**
+     * Writes the metrics of a run to metrics.json in the output directory, replacing any previous dump.
+     * Complexity: O(k log k + h*b), where k is the number of metrics, h is the number of histograms and b is
+     * the number of histogram buckets.
+     *
+     * @param metrics             The counters, timers and histograms of the run.
+     * @param outputDirectoryPath The directory path where the dump will be written.
+     * @return The path of the dump.
+     * @throws IOException If the dump cannot be written.
+     */
+    @Override
+    public Path writeMetrics(MetricsRegistry metrics, String outputDirectoryPath) throws IOException {
+        Path metricsFile = Paths.get(outputDirectoryPath, METRICS_FILE_NAME);
+        Files.writeString(metricsFile, metrics.toJson(), StandardCharsets.UTF_8);
+        return metricsFile;
+    }
+
+    private void writeHeader(ResultWriter results) throws IOException {
+        byte[] header = format.encoder().header(scoreNames);
+        if (header.length > 0) {
+            try (ResultWriter.Part part = results.openPart("header")) {
+                part.write(ByteBuffer.wrap(header));
+            }
+        }
+    }
+
+    /**
+     * Encodes the scored tweets of a batch in line order, in the output format, and queues them for the output file.
+     * Encoding happens on the calling thread, so it runs in parallel, and writes into a recycled buffer
+     * without creating objects per tweet.
+     * The write is recorded as a {@link BatchWriteEvent} when the flight recorder is on, and counted and timed
+     * in the metrics registry if there is one.
+     * Complexity: O(n*m), where n is the number of tweets in the batch and m is the average length of a tweet.
+     *
+     * @param batch The scored tweets.
+     * @param part  The part of the output file that holds the batch's source.
+     * @throws IOException If the results cannot be written.
+     */
+    @Override
+    public void writeBatch(TweetBatch batch, ResultWriter.Part part) throws IOException {
+        BatchWriteEvent event = new BatchWriteEvent();
+        event.begin();
+        long start = metrics == null ? 0 : System.nanoTime();
+        ByteSink sink = new ByteSink(part.takeBuffer());
+        format.encoder().encode(batch, sink);
+        ByteBuffer encoded = sink.finish();
+        long bytes = encoded.remaining();
+        part.write(encoded);
+        if (metrics != null) {
+            metrics.histogram("batch.write").record(System.nanoTime() - start);
+            metrics.counter("outputBytes").add(bytes);
+        }
+        if (event.shouldCommit()) {
+            event.source = batch.source();
+            event.format = format.name().toLowerCase(Locale.ROOT);
+            event.tweets = batch.size();
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Formats every tweet of a batch, each followed by a line break.
+     * Complexity: O(n*m), where n is the number of tweets in the batch and m is the average length of a tweet.
+     *
+     * @param batch The scored tweets.
+     * @return The formatted tweets.
+     */
+    public static StringBuilder formatBatch(TweetBatch batch) {
+        StringBuilder text = new StringBuilder(batch.size() * 200);
+        List<String> names = batch.scoreNames();
+        for (int i = 0; i < batch.size(); i++) {
+            if (names == null) {
+                text.append(formatTweetSentiment(tweetKey(batch, i), batch.score(i))).append('\n');
+                continue;
+            }
+            text.append("\n Tweet: \"").append(tweetKey(batch, i)).append('"');
+            for (int column = 0; column < names.size(); column++) {
+                double score = batch.score(i, column);
+                text.append("\n Sentiment Score (").append(names.get(column)).append("): ").append(score)
+                        .append(" (").append(sentimentName(score)).append(')');
+            }
+            text.append("\n").append("_".repeat(80)).append('\n');
+        }
+        return text;
+    }
+
+    /**
+     * Builds the identifier printed for a tweet: its source, line number and text.
+     * Complexity: O(m), where m is the length of the tweet.
+     *
+     * @param batch The batch holding the tweet.
+     * @param index The position of the tweet in the batch.
+     * @return The tweet identifier, e.g. "tweets.txt_3: tweet text".
+     */
+    public static String tweetKey(TweetBatch batch, int index) {
+        return batch.source() + "_" + batch.lineNumber(index) + ": " + batch.tweet(index);
+    }
+
     /**
      * Formats a tweet sentiment and its score into a readable string.
      * Complexity: O(1) - constant time complexity as it's a formatting operation.
@@ -42,17 +272,22 @@ public class OutputFolder implements Output {
      * @return A formatted string representing the tweet and its sentiment score.
      */
     public static String formatTweetSentiment(String tweet, Double score) {
-        String sentiment;
+        return "\n" +
+                " Tweet: \"" + tweet + "\"\n Sentiment Score: " + score + " (" + sentimentName(score) + ")" +
+                "\n________________________________________________________________________________";
+    }
+
+    /**
+     * Names the class of a score.
+     * Complexity: O(1).
+     */
+    private static String sentimentName(double score) {
         if (score > 0) {
-            sentiment = "Positive";
+            return "Positive";
         } else if (score < 0) {
-            sentiment = "Negative";
-        } else {
-            sentiment = "Neutral";
+            return "Negative";
         }
-        return "\n" +
-                " Tweet: \"" + tweet + "\"\n Sentiment Score: " + score + " (" + sentiment + ")" +
-                "\n________________________________________________________________________________";
+        return "Neutral";
     }
 
 }
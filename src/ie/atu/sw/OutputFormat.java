@@ -0,0 +1,52 @@
+package ie.atu.sw;
+
+/**
+ * The formats the results file can be written in.
+ * TEXT is the readable report and the default; the others are compact formats for other tools to read.
+ */
+public enum OutputFormat {
+    /**
+     * The readable report: one decorated block per tweet with its source, line, text and score.
+     */
+    TEXT("outputFile.txt", new TextEncoder()),
+    /**
+     * Comma-separated values with source, line and score columns.
+     */
+    CSV("outputFile.csv", new CsvEncoder()),
+    /**
+     * One JSON object per line with source, line and score fields.
+     */
+    JSONL("outputFile.jsonl", new JsonLinesEncoder()),
+    /**
+     * Binary columnar blocks of line numbers, scores and classes.
+     */
+    BINARY("outputFile.bin", new ColumnarEncoder());
+
+    private final String fileName;
+    private final BatchEncoder encoder;
+
+    OutputFormat(String fileName, BatchEncoder encoder) {
+        this.fileName = fileName;
+        this.encoder = encoder;
+    }
+
+    /**
+     * Returns the name of the results file written in this format.
+     * Complexity: O(1).
+     *
+     * @return The file name within the output directory.
+     */
+    public String fileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns the encoder that writes this format.
+     * Complexity: O(1).
+     *
+     * @return The shared, stateless encoder.
+     */
+    BatchEncoder encoder() {
+        return encoder;
+    }
+}
@@ -0,0 +1,18 @@
+package ie.atu.sw;
+
+/**
+ * Decides how overlapping lexicon matches in a tweet are scored when the lexicon contains phrases.
+ */
+public enum OverlapPolicy {
+    /**
+     * Scans the tweet from left to right and takes the longest word or phrase starting at each token,
+     * then continues after it, so every token contributes to at most one match.
+     * For example, with the entries "not", "good" and "not good", the tweet "not good" scores only "not good".
+     */
+    LONGEST_MATCH,
+
+    /**
+     * Adds the score of every word and every phrase found in the tweet, even where they overlap.
+     */
+    ALL_MATCHES
+}
@@ -0,0 +1,437 @@
+package ie.atu.sw;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token-level Aho-Corasick automaton over the multi-word entries of a lexicon, such as "not good".
+ * Each phrase is a sequence of token ids; feeding the tokens of a tweet through {@link #next(int, int)}
+ * finds every phrase ending at every token in a single linear pass, however much the phrases overlap.
+ * The automaton is immutable after construction and can be shared by any number of threads.
+ */
+final class PhraseAutomaton {
+    static final int ROOT = 0;
+    private static final long EMPTY_KEY = -1L;
+
+    private final TokenTable vocabulary;
+    private final long[] transitionKeys;
+    private final int[] transitionTargets;
+    private final int transitionMask;
+    private final int[] failure;
+    private final int[] terminalPhrase;
+    private final int[] outputLink;
+    private final String[] phraseText;
+    private final int[] phraseLength;
+    private final double[] phraseScore;
+    private final int maxPhraseLength;
+
+    /**
+     * Builds the automaton from tokenised phrases.
+     * Complexity: O(t), where t is the total number of tokens over all phrases.
+     *
+     * @param phrases The phrases in lexicon order, each with its folded tokens and score.
+     */
+    private PhraseAutomaton(List<Phrase> phrases) {
+        Map<String, Integer> tokenIds = new LinkedHashMap<>();
+        List<Map<Integer, Integer>> children = new ArrayList<>();
+        List<Integer> terminals = new ArrayList<>();
+        children.add(new HashMap<>());
+        terminals.add(-1);
+
+        int phraseCount = phrases.size();
+        this.phraseText = new String[phraseCount];
+        this.phraseLength = new int[phraseCount];
+        this.phraseScore = new double[phraseCount];
+        int longest = 0;
+        int transitions = 0;
+
+        for (int p = 0; p < phraseCount; p++) {
+            Phrase phrase = phrases.get(p);
+            phraseText[p] = phrase.text;
+            phraseLength[p] = phrase.tokens.size();
+            phraseScore[p] = phrase.score;
+            longest = Math.max(longest, phrase.tokens.size());
+
+            int state = ROOT;
+            for (String token : phrase.tokens) {
+                int tokenId = tokenIds.computeIfAbsent(token, key -> tokenIds.size());
+                Integer child = children.get(state).get(tokenId);
+                if (child == null) {
+                    child = children.size();
+                    children.get(state).put(tokenId, child);
+                    children.add(new HashMap<>());
+                    terminals.add(-1);
+                    transitions++;
+                }
+                state = child;
+            }
+            terminals.set(state, p);
+        }
+
+        this.vocabulary = new TokenTable(tokenIds.keySet());
+        this.maxPhraseLength = longest;
+        int capacity = TokenTable.tableCapacity(transitions);
+        this.transitionKeys = new long[capacity];
+        this.transitionTargets = new int[capacity];
+        this.transitionMask = capacity - 1;
+        Arrays.fill(transitionKeys, EMPTY_KEY);
+
+        int states = children.size();
+        this.failure = new int[states];
+        this.terminalPhrase = new int[states];
+        this.outputLink = new int[states];
+        for (int state = 0; state < states; state++) {
+            terminalPhrase[state] = terminals.get(state);
+            for (Map.Entry<Integer, Integer> edge : children.get(state).entrySet()) {
+                putTransition(state, edge.getKey(), edge.getValue());
+            }
+        }
+        linkFailures(children);
+    }
+
+    /**
+     * Recreates an automaton from the arrays stored in a lexicon snapshot.
+     * Complexity: O(1) - the arrays are used as they are.
+     */
+    private PhraseAutomaton(TokenTable vocabulary, long[] transitionKeys, int[] transitionTargets, int[] failure,
+                            int[] terminalPhrase, int[] outputLink, String[] phraseText, int[] phraseLength,
+                            double[] phraseScore, int maxPhraseLength) {
+        this.vocabulary = vocabulary;
+        this.transitionKeys = transitionKeys;
+        this.transitionTargets = transitionTargets;
+        this.transitionMask = transitionKeys.length - 1;
+        this.failure = failure;
+        this.terminalPhrase = terminalPhrase;
+        this.outputLink = outputLink;
+        this.phraseText = phraseText;
+        this.phraseLength = phraseLength;
+        this.phraseScore = phraseScore;
+        this.maxPhraseLength = maxPhraseLength;
+    }
+
+    /**
+     * Builds an automaton from lexicon entries that contain more than one token.
+     * Phrase tokens are folded with the {@link TweetTokenizer}, so they match tweets regardless of case.
+     * When two entries fold to the same token sequence, the entry whose original key sorts first wins.
+     * Complexity: O(t log p), where t is the total number of phrase characters and p is the number of phrases.
+     *
+     * @param entries Phrase keys and their sentiment scores.
+     * @return The automaton, or null if there are no phrases.
+     */
+    static PhraseAutomaton build(Map<String, Double> entries) {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        TweetTokenizer tokenizer = new TweetTokenizer();
+        Map<List<String>, Phrase> unique = new HashMap<>();
+        List<String> keys = new ArrayList<>(entries.keySet());
+        keys.sort(null);
+        for (String key : keys) {
+            List<String> tokens = new ArrayList<>();
+            tokenizer.reset(key);
+            while (tokenizer.next()) {
+                if (tokenizer.tokenLength() > 0) {
+                    tokens.add(new String(tokenizer.token(), 0, tokenizer.tokenLength()));
+                }
+            }
+            unique.putIfAbsent(tokens, new Phrase(key, tokens, entries.get(key)));
+        }
+        List<Phrase> phrases = new ArrayList<>(unique.values());
+        phrases.sort((a, b) -> a.text.compareTo(b.text));
+        return new PhraseAutomaton(phrases);
+    }
+
+    /**
+     * Finds the id of a token that appears in at least one phrase.
+     * Complexity: O(k) on average, where k is the length of the token.
+     *
+     * @param chars  The characters holding the folded token.
+     * @param offset The index of the first character.
+     * @param length The number of characters.
+     * @return The token id, or -1 if no phrase contains the token.
+     */
+    int tokenId(char[] chars, int offset, int length) {
+        return vocabulary.indexOf(chars, offset, length);
+    }
+
+    /**
+     * Moves the automaton over one token, following failure links until a transition exists.
+     * Complexity: O(1) amortised over a tweet.
+     *
+     * @param state   The current state, starting from {@link #ROOT}.
+     * @param tokenId The id of the token, or -1 for a token that is in no phrase.
+     * @return The next state.
+     */
+    int next(int state, int tokenId) {
+        if (tokenId < 0) {
+            return ROOT;
+        }
+        while (true) {
+            int target = transition(state, tokenId);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = failure[state];
+        }
+    }
+
+    /**
+     * Returns the first state whose phrase ends at the current token, the longest such phrase.
+     * Complexity: O(1).
+     *
+     * @param state The state reached after the current token.
+     * @return A match state to pass to {@link #matchedPhrase(int)}, or -1 if no phrase ends here.
+     */
+    int firstMatch(int state) {
+        return terminalPhrase[state] >= 0 ? state : outputLink[state];
+    }
+
+    /**
+     * Returns the next, shorter phrase ending at the same token.
+     * Complexity: O(1).
+     *
+     * @param match A match state returned by firstMatch or nextMatch.
+     * @return The next match state, or -1 if there are no more.
+     */
+    int nextMatch(int match) {
+        return outputLink[match];
+    }
+
+    /**
+     * Returns the phrase recognised at a match state.
+     * Complexity: O(1).
+     *
+     * @param match A match state.
+     * @return The index of the phrase.
+     */
+    int matchedPhrase(int match) {
+        return terminalPhrase[match];
+    }
+
+    /**
+     * Returns the number of tokens in a phrase.
+     * Complexity: O(1).
+     *
+     * @param phrase The index of the phrase.
+     * @return The phrase length in tokens.
+     */
+    int phraseLength(int phrase) {
+        return phraseLength[phrase];
+    }
+
+    /**
+     * Returns the sentiment score of a phrase.
+     * Complexity: O(1).
+     *
+     * @param phrase The index of the phrase.
+     * @return The score from the lexicon.
+     */
+    double phraseScore(int phrase) {
+        return phraseScore[phrase];
+    }
+
+    /**
+     * Returns the lexicon key of a phrase.
+     * Complexity: O(1).
+     *
+     * @param phrase The index of the phrase.
+     * @return The phrase as written in the lexicon.
+     */
+    String phraseText(int phrase) {
+        return phraseText[phrase];
+    }
+
+    /**
+     * Returns the number of phrases.
+     * Complexity: O(1).
+     *
+     * @return The number of phrases.
+     */
+    int size() {
+        return phraseText.length;
+    }
+
+    /**
+     * Returns the number of tokens in the longest phrase.
+     * Complexity: O(1).
+     *
+     * @return The longest phrase length in tokens.
+     */
+    int maxPhraseLength() {
+        return maxPhraseLength;
+    }
+
+    /**
+     * Estimates the heap used by the automaton.
+     * Complexity: O(p), where p is the number of phrases.
+     *
+     * @return The approximate number of bytes held by the automaton.
+     */
+    long estimatedBytes() {
+        long bytes = vocabulary.estimatedBytes() + 12L * transitionKeys.length + 12L * failure.length + 16L * phraseText.length;
+        for (String text : phraseText) {
+            bytes += 40L + text.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the automaton to a lexicon snapshot.
+     * Complexity: O(s + t + p), where s is the number of states, t the number of transitions and p the number of phrases.
+     *
+     * @param out The snapshot stream.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(maxPhraseLength);
+        vocabulary.writeTo(out);
+        out.writeInt(transitionKeys.length);
+        for (int i = 0; i < transitionKeys.length; i++) {
+            out.writeLong(transitionKeys[i]);
+            out.writeInt(transitionTargets[i]);
+        }
+        out.writeInt(failure.length);
+        for (int state = 0; state < failure.length; state++) {
+            out.writeInt(failure[state]);
+            out.writeInt(terminalPhrase[state]);
+            out.writeInt(outputLink[state]);
+        }
+        out.writeInt(phraseText.length);
+        for (int phrase = 0; phrase < phraseText.length; phrase++) {
+            out.writeInt(phraseLength[phrase]);
+            out.writeDouble(phraseScore[phrase]);
+            out.writeInt(phraseText[phrase].length());
+            out.writeChars(phraseText[phrase]);
+        }
+    }
+
+    /**
+     * Reads an automaton written by {@link #writeTo(DataOutputStream)} into heap arrays.
+     * Complexity: O(s + t + p), where s is the number of states, t the number of transitions and p the number of phrases.
+     *
+     * @param in The snapshot buffer, positioned at the automaton; left positioned after it.
+     * @return The automaton.
+     */
+    static PhraseAutomaton readFrom(ByteBuffer in) {
+        int maxPhraseLength = in.getInt();
+        TokenTable vocabulary = TokenTable.readFrom(in);
+        int capacity = in.getInt();
+        long[] transitionKeys = new long[capacity];
+        int[] transitionTargets = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            transitionKeys[i] = in.getLong();
+            transitionTargets[i] = in.getInt();
+        }
+        int states = in.getInt();
+        int[] failure = new int[states];
+        int[] terminalPhrase = new int[states];
+        int[] outputLink = new int[states];
+        for (int state = 0; state < states; state++) {
+            failure[state] = in.getInt();
+            terminalPhrase[state] = in.getInt();
+            outputLink[state] = in.getInt();
+        }
+        int phrases = in.getInt();
+        String[] phraseText = new String[phrases];
+        int[] phraseLength = new int[phrases];
+        double[] phraseScore = new double[phrases];
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            phraseLength[phrase] = in.getInt();
+            phraseScore[phrase] = in.getDouble();
+            char[] text = new char[in.getInt()];
+            in.asCharBuffer().get(text);
+            in.position(in.position() + 2 * text.length);
+            phraseText[phrase] = new String(text);
+        }
+        return new PhraseAutomaton(vocabulary, transitionKeys, transitionTargets, failure, terminalPhrase,
+                outputLink, phraseText, phraseLength, phraseScore, maxPhraseLength);
+    }
+
+    /**
+     * Computes failure and output links breadth first, so every state's links point to shallower states.
+     * Complexity: O(s), where s is the number of states.
+     */
+    private void linkFailures(List<Map<Integer, Integer>> children) {
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        outputLink[ROOT] = -1;
+        for (int child : children.get(ROOT).values()) {
+            failure[child] = ROOT;
+            outputLink[child] = -1;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Integer, Integer> edge : children.get(state).entrySet()) {
+                int tokenId = edge.getKey();
+                int child = edge.getValue();
+                int fallback = failure[state];
+                while (fallback != ROOT && transition(fallback, tokenId) < 0) {
+                    fallback = failure[fallback];
+                }
+                int target = transition(fallback, tokenId);
+                failure[child] = target >= 0 ? target : ROOT;
+                int suffix = failure[child];
+                outputLink[child] = terminalPhrase[suffix] >= 0 ? suffix : outputLink[suffix];
+                queue.add(child);
+            }
+        }
+    }
+
+    private void putTransition(int state, int tokenId, int target) {
+        long key = transitionKey(state, tokenId);
+        int slot = slotOf(key);
+        while (transitionKeys[slot] != EMPTY_KEY) {
+            slot = (slot + 1) & transitionMask;
+        }
+        transitionKeys[slot] = key;
+        transitionTargets[slot] = target;
+    }
+
+    private int transition(int state, int tokenId) {
+        long key = transitionKey(state, tokenId);
+        for (int slot = slotOf(key); ; slot = (slot + 1) & transitionMask) {
+            long stored = transitionKeys[slot];
+            if (stored == key) {
+                return transitionTargets[slot];
+            }
+            if (stored == EMPTY_KEY) {
+                return -1;
+            }
+        }
+    }
+
+    private int slotOf(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & transitionMask;
+    }
+
+    private static long transitionKey(int state, int tokenId) {
+        return ((long) state << 32) | tokenId;
+    }
+
+    /**
+     * A phrase entry while the automaton is being built.
+     */
+    private static final class Phrase {
+        private final String text;
+        private final List<String> tokens;
+        private final double score;
+
+        private Phrase(String text, List<String> tokens, double score) {
+            this.text = text;
+            this.tokens = tokens;
+            this.score = score;
+        }
+    }
+}
@@ -1,16 +1,39 @@
 package ie.atu.sw;
 
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Processes tweets and calculates their sentiment scores.
  * This class extends TweetProcessor and provides an implementation for calculating sentiment based on a given lexicon.
+ * Tweets are split with a {@link TweetTokenizer}, one per thread, instead of a regular expression.
+ * Multi-word entries of a compiled lexicon are matched with its {@link PhraseAutomaton}, and overlapping
+ * matches are resolved by the configured {@link OverlapPolicy}.
+ * Against a {@link LexiconSet} of several lexicons, each token is looked up once in the combined table and fed
+ * through the combined automaton once, and its score vector is added to one running total per lexicon.
  */
 public class ProcessingTweets extends TweetProcessor {
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final OverlapPolicy overlapPolicy;
+
+    /**
+     * Creates a tweet processor where the longest overlapping lexicon match wins.
+     * Complexity: O(1).
+     */
+    public ProcessingTweets() {
+        this(OverlapPolicy.LONGEST_MATCH);
+    }
+
+    /**
+     * Creates a tweet processor with the given rule for overlapping phrase matches.
+     * Complexity: O(1).
+     *
+     * @param overlapPolicy How overlapping words and phrases are scored.
+     */
+    public ProcessingTweets(OverlapPolicy overlapPolicy) {
+        this.overlapPolicy = overlapPolicy;
+    }
 
     /**
      * Calculates the sentiment score of a given tweet based on a lexicon.
@@ -23,13 +46,358 @@ public class ProcessingTweets extends TweetProcessor {
      */
     @Override
     public double calculateSentiment(String tweet, Map<String, Double> lexicon) {
-        double sum = Stream.of(tweet.split("\\s+"))
-                .mapToDouble(word -> lexicon.getOrDefault(word.toLowerCase(), 0.0))
-                .sum();
+        Scratch scratch = SCRATCH.get();
+        TweetTokenizer tokenizer = scratch.tokenizer;
+        SentimentSum sum = scratch.sum;
+        tokenizer.reset(tweet);
+        sum.reset();
+
+        while (tokenizer.next()) {
+            Double score = lexicon.get(new String(tokenizer.token(), 0, tokenizer.tokenLength()));
+            sum.add(score != null ? score : 0.0);
+        }
+        return roundScore(sum.total());
+    }
+
+    /**
+     * Calculates the sentiment score of a given tweet based on a compiled lexicon.
+     * Tokens are looked up by character range, so scoring does not allocate.
+     * Phrases are found in the same pass over the tokens, so the cost stays linear in the tweet length.
+     * Complexity: O(n*k), where n is the number of words in the tweet, and k is the average word length.
+     *
+     * @param tweet   The tweet text whose sentiment is to be calculated.
+     * @param lexicon The compiled lexicon.
+     * @return The sentiment score of the tweet.
+     */
+    @Override
+    public double calculateSentiment(String tweet, CompiledLexicon lexicon) {
+        return calculateSentiment(tweet, lexicon, null);
+    }
+
+    /**
+     * Returns a checksum of the overlap policy, as scores of tweets with overlapping phrases depend on it.
+     * Complexity: O(1).
+     *
+     * @return The checksum of the overlap policy.
+     */
+    @Override
+    public long rulesHash() {
+        return overlapPolicy.name().hashCode();
+    }
+
+    /**
+     * Calculates the sentiment score of a given tweet based on a compiled lexicon, recording every word and
+     * phrase that is scored in a sketch. Words are identified by their index in the lexicon, and phrases by
+     * the number of words plus their index.
+     * Complexity: O(n*k + p*d), where n is the number of words in the tweet, k is the average word length,
+     * p is the number of terms scored and d is the sketch depth.
+     *
+     * @param tweet   The tweet text whose sentiment is to be calculated.
+     * @param lexicon The compiled lexicon.
+     * @param terms   The sketch the scored terms are recorded in, or null to record nothing.
+     * @return The sentiment score of the tweet.
+     */
+    @Override
+    public double calculateSentiment(String tweet, CompiledLexicon lexicon, TermSketch terms) {
+        Scratch scratch = SCRATCH.get();
+        TweetTokenizer tokenizer = scratch.tokenizer;
+        SentimentSum sum = scratch.sum;
+        tokenizer.reset(tweet);
+        sum.reset();
+
+        PhraseAutomaton phrases = lexicon.phrases();
+        if (phrases == null && terms == null) {
+            while (tokenizer.next()) {
+                sum.add(lexicon.score(tokenizer.token(), 0, tokenizer.tokenLength()));
+            }
+        } else if (phrases == null) {
+            while (tokenizer.next()) {
+                addWord(lexicon, lexicon.indexOf(tokenizer.token(), 0, tokenizer.tokenLength()), sum, terms);
+            }
+        } else if (overlapPolicy == OverlapPolicy.ALL_MATCHES) {
+            sumAllMatches(tokenizer, lexicon, phrases, sum, terms);
+        } else {
+            sumLongestMatches(tokenizer, lexicon, phrases, sum, scratch, terms);
+        }
+        return roundScore(sum.total());
+    }
+
+    /**
+     * Calculates the sentiment scores of a given tweet against every lexicon of a set in a single pass.
+     * Every lexicon adds its own words and phrases exactly as if it scored the tweet alone, including the
+     * overlap policy, which is applied to each lexicon's phrase matches separately, so the scores equal those
+     * of separate runs.
+     * Complexity: O(n*(k + l) + p*l), where n is the number of words in the tweet, k is the average word length,
+     * l is the number of lexicons and p is the number of phrase matches.
+     *
+     * @param tweet    The tweet text whose sentiment is to be calculated.
+     * @param lexicons The lexicons to score the tweet against.
+     * @param scores   Receives the score against each lexicon, in the order of the set.
+     */
+    @Override
+    public void calculateSentiments(String tweet, LexiconSet lexicons, double[] scores) {
+        int size = lexicons.size();
+        if (size == 1) {
+            scores[0] = calculateSentiment(tweet, lexicons.lexicon(0), null);
+            return;
+        }
+        Scratch scratch = SCRATCH.get();
+        TweetTokenizer tokenizer = scratch.tokenizer;
+        SentimentSum[] sums = scratch.ensureSums(size);
+        tokenizer.reset(tweet);
+        for (int column = 0; column < size; column++) {
+            sums[column].reset();
+        }
+
+        PhraseAutomaton phrases = lexicons.phrases();
+        boolean longest = phrases != null && overlapPolicy != OverlapPolicy.ALL_MATCHES;
+        int window = phrases == null ? 1 : phrases.maxPhraseLength();
+        scratch.ensureColumns(window, size);
+        int[] matchLength = scratch.columnMatchLength;
+        double[] matchScore = scratch.columnMatchScore;
+        int[] coveredUntil = scratch.coveredUntil;
+        Arrays.fill(coveredUntil, 0, size, 0);
+        double[] wordScores = lexicons.wordScores();
+        boolean[] wordPresent = lexicons.wordPresent();
+
+        int state = PhraseAutomaton.ROOT;
+        int position = 0;
+        while (tokenizer.next()) {
+            char[] token = tokenizer.token();
+            int length = tokenizer.tokenLength();
+            int word = lexicons.indexOf(token, 0, length) * size;
+            int slot = (position % window) * size;
+            for (int column = 0; column < size; column++) {
+                boolean present = word >= 0 && wordPresent[word + column];
+                double score = present ? wordScores[word + column] : 0.0;
+                if (longest && lexicons.hasPhrases(column)) {
+                    // Phrase matches are only decided once the longest phrase could have ended
+                    matchLength[slot + column] = present ? 1 : 0;
+                    matchScore[slot + column] = score;
+                } else {
+                    sums[column].add(score);
+                }
+            }
+
+            if (phrases != null) {
+                state = phrases.next(state, phrases.tokenId(token, 0, length));
+                addPhraseMatches(lexicons, phrases, state, position, window, longest, sums, matchLength, matchScore);
+                int decided = position - window + 1;
+                if (longest && decided >= 0) {
+                    takeMatches(lexicons, decided, window, sums, matchLength, matchScore, coveredUntil);
+                }
+            }
+            position++;
+        }
+        for (int decided = Math.max(0, position - window + 1); longest && decided < position; decided++) {
+            takeMatches(lexicons, decided, window, sums, matchLength, matchScore, coveredUntil);
+        }
+        for (int column = 0; column < size; column++) {
+            scores[column] = roundScore(sums[column].total());
+        }
+    }
+
+    /**
+     * Handles the phrases ending at the current token for every lexicon that has them: adds them straight away
+     * when all matches count, or keeps each as the candidate for its start token if it is the longest so far.
+     * Complexity: O(p*l), where p is the number of phrases ending at the token and l is the number of lexicons.
+     */
+    private static void addPhraseMatches(LexiconSet lexicons, PhraseAutomaton phrases, int state, int position,
+                                         int window, boolean longest, SentimentSum[] sums, int[] matchLength,
+                                         double[] matchScore) {
+        int size = lexicons.size();
+        double[] phraseScores = lexicons.phraseScores();
+        boolean[] phrasePresent = lexicons.phrasePresent();
+        for (int match = phrases.firstMatch(state); match >= 0; match = phrases.nextMatch(match)) {
+            int phrase = phrases.matchedPhrase(match);
+            int phraseLength = phrases.phraseLength(phrase);
+            int cell = phrase * size;
+            int start = ((position - phraseLength + 1) % window) * size;
+            for (int column = 0; column < size; column++) {
+                if (!phrasePresent[cell + column]) {
+                    continue;
+                }
+                if (!longest) {
+                    sums[column].add(phraseScores[cell + column]);
+                } else if (phraseLength > matchLength[start + column]) {
+                    matchLength[start + column] = phraseLength;
+                    matchScore[start + column] = phraseScores[cell + column];
+                }
+            }
+        }
+    }
+
+    /**
+     * Scores, for every lexicon with phrases, the longest match starting at a token unless an earlier match of
+     * that lexicon already covers the token.
+     * Complexity: O(l), where l is the number of lexicons.
+     */
+    private static void takeMatches(LexiconSet lexicons, int position, int window, SentimentSum[] sums,
+                                    int[] matchLength, double[] matchScore, int[] coveredUntil) {
+        int size = lexicons.size();
+        int slot = (position % window) * size;
+        for (int column = 0; column < size; column++) {
+            if (!lexicons.hasPhrases(column) || position < coveredUntil[column] || matchLength[slot + column] == 0) {
+                continue;
+            }
+            sums[column].add(matchScore[slot + column]);
+            coveredUntil[column] = position + matchLength[slot + column];
+        }
+    }
+
+    /**
+     * Adds every word and every phrase match, including overlapping ones.
+     * Complexity: O(n + p), where n is the number of tokens and p is the number of phrase matches.
+     */
+    private static void sumAllMatches(TweetTokenizer tokenizer, CompiledLexicon lexicon,
+                                      PhraseAutomaton phrases, SentimentSum sum, TermSketch terms) {
+        int state = PhraseAutomaton.ROOT;
+        while (tokenizer.next()) {
+            char[] token = tokenizer.token();
+            int length = tokenizer.tokenLength();
+            addWord(lexicon, lexicon.indexOf(token, 0, length), sum, terms);
+
+            state = phrases.next(state, phrases.tokenId(token, 0, length));
+            for (int match = phrases.firstMatch(state); match >= 0; match = phrases.nextMatch(match)) {
+                int phrase = phrases.matchedPhrase(match);
+                double score = phrases.phraseScore(phrase);
+                sum.add(score);
+                if (terms != null) {
+                    terms.record(lexicon.size() + phrase, score);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the score of a word, if it is in the lexicon, and records it.
+     * Complexity: O(d), where d is the sketch depth.
+     *
+     * @param word The index of the word in the lexicon, or -1 if it is not in it.
+     */
+    private static void addWord(CompiledLexicon lexicon, int word, SentimentSum sum, TermSketch terms) {
+        if (word < 0) {
+            sum.add(0.0);
+            return;
+        }
+        double score = lexicon.scoreAt(word);
+        sum.add(score);
+        if (terms != null) {
+            terms.record(word, score);
+        }
+    }
+
+    /**
+     * Adds the leftmost-longest, non-overlapping matches.
+     * The longest match starting at a token is only known once the longest phrase could have ended,
+     * so decisions trail the scan by the longest phrase length, kept in small ring buffers.
+     * Complexity: O(n + p), where n is the number of tokens and p is the number of phrase matches.
+     */
+    private static void sumLongestMatches(TweetTokenizer tokenizer, CompiledLexicon lexicon,
+                                          PhraseAutomaton phrases, SentimentSum sum, Scratch scratch,
+                                          TermSketch terms) {
+        int window = phrases.maxPhraseLength();
+        scratch.ensureWindow(window);
+        int[] matchLength = scratch.matchLength;
+        double[] matchScore = scratch.matchScore;
+        int[] matchTerm = scratch.matchTerm;
+
+        int state = PhraseAutomaton.ROOT;
+        int position = 0;
+        int coveredUntil = 0;
+        while (tokenizer.next()) {
+            char[] token = tokenizer.token();
+            int length = tokenizer.tokenLength();
+            int slot = position % window;
+            int word = lexicon.indexOf(token, 0, length);
+            matchLength[slot] = word >= 0 ? 1 : 0;
+            matchScore[slot] = word >= 0 ? lexicon.scoreAt(word) : 0.0;
+            matchTerm[slot] = word;
+
+            state = phrases.next(state, phrases.tokenId(token, 0, length));
+            for (int match = phrases.firstMatch(state); match >= 0; match = phrases.nextMatch(match)) {
+                int phrase = phrases.matchedPhrase(match);
+                int phraseLength = phrases.phraseLength(phrase);
+                int start = (position - phraseLength + 1) % window;
+                if (phraseLength > matchLength[start]) {
+                    matchLength[start] = phraseLength;
+                    matchScore[start] = phrases.phraseScore(phrase);
+                    matchTerm[start] = lexicon.size() + phrase;
+                }
+            }
+
+            int decided = position - window + 1;
+            if (decided >= 0) {
+                coveredUntil = takeMatch(decided, coveredUntil, matchLength, matchScore, matchTerm, window, sum, terms);
+            }
+            position++;
+        }
+        for (int decided = Math.max(0, position - window + 1); decided < position; decided++) {
+            coveredUntil = takeMatch(decided, coveredUntil, matchLength, matchScore, matchTerm, window, sum, terms);
+        }
+    }
+
+    /**
+     * Scores the longest match starting at a token, unless an earlier match already covers the token,
+     * and records its term.
+     * Complexity: O(1) without a sketch; O(d) with one, where d is the sketch depth.
+     *
+     * @return The position of the first token not covered by a taken match.
+     */
+    private static int takeMatch(int position, int coveredUntil, int[] matchLength, double[] matchScore,
+                                 int[] matchTerm, int window, SentimentSum sum, TermSketch terms) {
+        int slot = position % window;
+        if (position < coveredUntil || matchLength[slot] == 0) {
+            return coveredUntil;
+        }
+        sum.add(matchScore[slot]);
+        if (terms != null) {
+            terms.record(matchTerm[slot], matchScore[slot]);
+        }
+        return position + matchLength[slot];
+    }
+
+    /**
+     * Per-thread working state, reused between tweets.
+     */
+    private static final class Scratch {
+        private final TweetTokenizer tokenizer = new TweetTokenizer();
+        private final SentimentSum sum = new SentimentSum();
+        private int[] matchLength = new int[0];
+        private double[] matchScore = new double[0];
+        private int[] matchTerm = new int[0];
+        private SentimentSum[] sums = new SentimentSum[0];
+        private int[] columnMatchLength = new int[0];
+        private double[] columnMatchScore = new double[0];
+        private int[] coveredUntil = new int[0];
+
+        private void ensureWindow(int window) {
+            if (matchLength.length < window) {
+                matchLength = new int[window];
+                matchScore = new double[window];
+                matchTerm = new int[window];
+            }
+        }
+
+        private SentimentSum[] ensureSums(int columns) {
+            if (sums.length < columns) {
+                sums = new SentimentSum[columns];
+                for (int i = 0; i < columns; i++) {
+                    sums[i] = new SentimentSum();
+                }
+            }
+            return sums;
+        }
 
-        // Formatting the sum to one decimal place
-        String formattedSum = String.format("%.1f", sum);
-        return Double.parseDouble(formattedSum);
+        private void ensureColumns(int window, int columns) {
+            if (columnMatchLength.length < window * columns) {
+                columnMatchLength = new int[window * columns];
+                columnMatchScore = new double[window * columns];
+            }
+            if (coveredUntil.length < columns) {
+                coveredUntil = new int[columns];
+            }
+        }
     }
 
 }
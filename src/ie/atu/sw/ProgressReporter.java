@@ -0,0 +1,305 @@
+package ie.atu.sw;
+
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports the progress of an analysis on the console at a fixed interval instead of printing every tweet.
+ * Scoring threads only add to striped counters, so they never wait on the console; a background thread
+ * prints files done, tweets per second, the estimated time remaining and the positive/negative/neutral split.
+ * On a terminal the progress line is redrawn in place; otherwise a new line is printed at every interval.
+ * The estimate compares the UTF-8 bytes of the tweets scored so far with the total size of the files found;
+ * files reused from an earlier run count as found and done, but not toward the scoring rate.
+ * Without a stream nothing is printed, but the counts are still kept for the caller.
+ */
+public class ProgressReporter implements AutoCloseable {
+    private static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+    private final PrintStream out;
+    private final long intervalMillis;
+    private final boolean redraw;
+    private final long startNanos = System.nanoTime();
+    private final LongAdder tweets = new LongAdder();
+    private final LongAdder positive = new LongAdder();
+    private final LongAdder negative = new LongAdder();
+    private final LongAdder scoredBytes = new LongAdder();
+    private final LongAdder reusedBytes = new LongAdder();
+    private final AtomicInteger filesFound = new AtomicInteger();
+    private final AtomicInteger filesDone = new AtomicInteger();
+    private final AtomicInteger filesFailed = new AtomicInteger();
+    private final AtomicInteger filesReused = new AtomicInteger();
+    private final LongAdder totalBytes = new LongAdder();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final Thread reporterThread;
+
+    /**
+     * Starts reporting to a stream once a second.
+     * Complexity: O(1).
+     *
+     * @param out The stream progress is printed to, or null to only count.
+     */
+    public ProgressReporter(PrintStream out) {
+        this(out, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Starts reporting to a stream at the given interval.
+     * Complexity: O(1).
+     *
+     * @param out            The stream progress is printed to, or null to only count.
+     * @param intervalMillis The time between two progress lines, in milliseconds.
+     */
+    public ProgressReporter(PrintStream out, long intervalMillis) {
+        this.out = out;
+        this.intervalMillis = intervalMillis;
+        // Progress goes to standard output or standard error, and either is a terminal when there is a console
+        this.redraw = out != null && System.console() != null;
+        this.reporterThread = out == null ? null : Thread.ofVirtual().name("progress-reporter").start(this::report);
+    }
+
+    /**
+     * Records a tweet file found for the analysis.
+     * Complexity: O(1).
+     *
+     * @param bytes The size of the file.
+     */
+    public void fileFound(long bytes) {
+        filesFound.incrementAndGet();
+        totalBytes.add(bytes);
+    }
+
+    /**
+     * Records a tweet file whose tweets have all been scored.
+     * Complexity: O(1).
+     */
+    public void fileDone() {
+        filesDone.incrementAndGet();
+    }
+
+    /**
+     * Records a tweet file that could not be scored.
+     * Complexity: O(1).
+     */
+    public void fileFailed() {
+        filesFailed.incrementAndGet();
+    }
+
+    /**
+     * Records a tweet file whose results were reused from an earlier run instead of being scored.
+     * The file counts as found and done, and its stored tweets are counted with the scored ones,
+     * so a run that reuses every file still reports them.
+     * Complexity: O(1).
+     *
+     * @param stored The stored score statistics of the file.
+     * @param bytes  The size of the file.
+     */
+    public void fileReused(ScoreStatistics stored, long bytes) {
+        filesFound.incrementAndGet();
+        totalBytes.add(bytes);
+        reusedBytes.add(bytes);
+        filesReused.incrementAndGet();
+        tweets.add(stored.count());
+        positive.add(stored.positive());
+        negative.add(stored.negative());
+    }
+
+    /**
+     * Records the tweets of a scored batch.
+     * Complexity: O(c), where c is the number of characters in the batch.
+     *
+     * @param batch The scored tweets.
+     */
+    public void batchScored(TweetBatch batch) {
+        long batchBytes = 0;
+        int batchPositive = 0;
+        int batchNegative = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            batchBytes += utf8Length(batch.tweet(i)) + 1;
+            double score = batch.score(i);
+            if (score > 0) {
+                batchPositive++;
+            } else if (score < 0) {
+                batchNegative++;
+            }
+        }
+        tweets.add(batch.size());
+        positive.add(batchPositive);
+        negative.add(batchNegative);
+        scoredBytes.add(batchBytes);
+    }
+
+    /**
+     * Returns the number of tweets scored so far.
+     * Complexity: O(s), where s is the number of counter stripes.
+     *
+     * @return The number of tweets.
+     */
+    public long tweets() {
+        return tweets.sum();
+    }
+
+    /**
+     * Returns the number of tweets with a positive score so far.
+     * Complexity: O(s), where s is the number of counter stripes.
+     *
+     * @return The number of positive tweets.
+     */
+    public long positive() {
+        return positive.sum();
+    }
+
+    /**
+     * Returns the number of tweets with a negative score so far.
+     * Complexity: O(s), where s is the number of counter stripes.
+     *
+     * @return The number of negative tweets.
+     */
+    public long negative() {
+        return negative.sum();
+    }
+
+    /**
+     * Returns the number of tweets with a neutral score so far.
+     * Complexity: O(s), where s is the number of counter stripes.
+     *
+     * @return The number of neutral tweets.
+     */
+    public long neutral() {
+        return tweets() - positive() - negative();
+    }
+
+    /**
+     * Returns the number of tweet files completed so far.
+     * Complexity: O(1).
+     *
+     * @return The number of files done.
+     */
+    public int filesDone() {
+        return filesDone.get();
+    }
+
+    /**
+     * Returns the number of tweet files that could not be scored so far.
+     * Complexity: O(1).
+     *
+     * @return The number of failed files.
+     */
+    public int filesFailed() {
+        return filesFailed.get();
+    }
+
+    /**
+     * Returns the number of tweet files whose results were reused so far.
+     * Complexity: O(1).
+     *
+     * @return The number of reused files.
+     */
+    public int filesReused() {
+        return filesReused.get();
+    }
+
+    /**
+     * Stops reporting and prints the final totals.
+     * Complexity: O(1).
+     */
+    @Override
+    public void close() {
+        stopped.countDown();
+        if (reporterThread == null) {
+            return;
+        }
+        try {
+            reporterThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.println((redraw ? "\r" : "") + summaryLine());
+    }
+
+    /**
+     * Body of the reporter thread: prints a progress line at every interval until stopped.
+     * Complexity: O(t / i), where t is the duration of the analysis and i is the interval.
+     */
+    private void report() {
+        try {
+            while (!stopped.await(intervalMillis, TimeUnit.MILLISECONDS)) {
+                if (redraw) {
+                    out.print("\r" + progressLine());
+                    out.flush();
+                } else {
+                    out.println(progressLine());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Builds the progress line, e.g. "Files 3/10 | 120000 tweets | 45000 tweets/s | ETA 00:12 | Positive 48000 (40.0%) | ...".
+     * Complexity: O(s), where s is the number of counter stripes.
+     */
+    private String progressLine() {
+        double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        long scored = tweets.sum();
+        long scoredSoFar = scoredBytes.sum();
+        long done = scoredSoFar + reusedBytes.sum();
+        long total = totalBytes.sum();
+        String eta = "--:--";
+        if (scoredSoFar > 0 && total > done) {
+            long remaining = Math.round((total - done) / (scoredSoFar / seconds));
+            eta = String.format("%02d:%02d", remaining / 60, remaining % 60);
+        } else if (done > 0) {
+            eta = "00:00";
+        }
+        return String.format("Files %d/%d | %d tweets | %.0f tweets/s | ETA %s | %s",
+                filesDone.get() + filesReused.get(), filesFound.get(), scored, scored / seconds, eta, split(scored));
+    }
+
+    /**
+     * Builds the final line with the totals and the overall rate.
+     * Complexity: O(s), where s is the number of counter stripes.
+     */
+    private String summaryLine() {
+        double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        long scored = tweets.sum();
+        String reused = filesReused.get() > 0 ? " (" + filesReused.get() + " unchanged files reused)" : "";
+        return String.format("Scored %d tweets from %d files%s in %.1f s (%.0f tweets/s) | %s",
+                scored, filesDone.get(), reused, seconds, scored / seconds, split(scored));
+    }
+
+    /**
+     * Returns the number of bytes a tweet takes in UTF-8, the encoding the tweet files are read in,
+     * so the bytes scored can be compared with the file sizes.
+     * Complexity: O(m), where m is the length of the tweet.
+     */
+    private static int utf8Length(String tweet) {
+        int bytes = tweet.length();
+        for (int i = 0; i < tweet.length(); i++) {
+            char c = tweet.charAt(i);
+            if (c >= 0x800) {
+                // Three bytes, or four for a surrogate pair of two chars
+                bytes += Character.isSurrogate(c) ? 1 : 2;
+            } else if (c >= 0x80) {
+                bytes++;
+            }
+        }
+        return bytes;
+    }
+
+    private String split(long scored) {
+        if (scored == 0) {
+            return "Positive 0 | Negative 0 | Neutral 0";
+        }
+        long positiveTweets = positive.sum();
+        long negativeTweets = negative.sum();
+        long neutralTweets = scored - positiveTweets - negativeTweets;
+        return String.format("Positive %d (%.1f%%) | Negative %d (%.1f%%) | Neutral %d (%.1f%%)",
+                positiveTweets, 100.0 * positiveTweets / scored,
+                negativeTweets, 100.0 * negativeTweets / scored,
+                neutralTweets, 100.0 * neutralTweets / scored);
+    }
+}
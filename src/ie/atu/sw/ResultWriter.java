@@ -0,0 +1,496 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-writer output stage for a results file.
+ * Scoring threads hand encoded results to a bounded queue and carry on; one writer thread drains the queue in
+ * large batches and writes them through a buffered {@link FileChannel}. A full queue blocks the scoring threads,
+ * so a slow disk slows scoring down instead of filling the heap.
+ * <p>
+ * Every source of tweets writes through its own {@link Part}. Parts appear in the results file whole and in the
+ * order they were opened: the oldest unfinished part is written straight to the file, while later parts are
+ * spilled to temporary files next to it and appended once every part before them has finished.
+ * A spill file is only created when its part first writes, and is closed as soon as its part finishes, so open
+ * files are held by the parts being written rather than by every part queued.
+ * The buffer is flushed when it fills up, when the queue has been idle for the flush interval, and on close.
+ * Buffers that have been written are kept for reuse, so encoding the next batch does not allocate a new one.
+ * A part can also keep a copy of its results in a file of its own, and take in the contents of such a file,
+ * so the results of unchanged sources can be reused by later runs.
+ */
+public class ResultWriter implements AutoCloseable {
+    static final int DEFAULT_QUEUE_CAPACITY = 64;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long FLUSH_INTERVAL_MILLIS = 100;
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private final Path outputFile;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final BlockingQueue<Message> queue;
+    private final BlockingQueue<ByteBuffer> spareBuffers;
+    private final Thread writerThread;
+    private final List<PartState> parts = new ArrayList<>();
+    private int nextPart;
+    private int head;
+    private volatile IOException failure;
+
+    /**
+     * Creates a results file, replacing any previous one, and starts its writer thread.
+     * Complexity: O(1).
+     *
+     * @param outputFile The results file.
+     * @throws IOException If the file cannot be created.
+     */
+    public ResultWriter(Path outputFile) throws IOException {
+        this(outputFile, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates a results file with a queue of the given capacity, and starts its writer thread.
+     * Complexity: O(1).
+     *
+     * @param outputFile    The results file.
+     * @param queueCapacity The number of pending writes after which scoring threads wait for the writer.
+     * @throws IOException If the file cannot be created.
+     */
+    public ResultWriter(Path outputFile, int queueCapacity) throws IOException {
+        this(outputFile, queueCapacity, false);
+    }
+
+    /**
+     * Creates or opens a results file with a queue of the given capacity, and starts its writer thread.
+     * Complexity: O(1).
+     *
+     * @param outputFile    The results file.
+     * @param queueCapacity The number of pending writes after which scoring threads wait for the writer.
+     * @param append        true to add to the end of an existing file, false to replace it.
+     * @throws IOException If the file cannot be created or opened.
+     */
+    public ResultWriter(Path outputFile, int queueCapacity, boolean append) throws IOException {
+        this.outputFile = outputFile;
+        this.channel = FileChannel.open(outputFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.spareBuffers = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerThread = Thread.ofPlatform().name("result-writer").daemon().start(this::drain);
+    }
+
+    /**
+     * Returns the results file this writer writes.
+     * Complexity: O(1).
+     *
+     * @return The path of the results file.
+     */
+    public Path outputFile() {
+        return outputFile;
+    }
+
+    /**
+     * Opens the part of the results file that holds one source.
+     * Parts are written to the file in the order they are opened, whatever order they finish in.
+     * Complexity: O(1), unless the queue is full.
+     *
+     * @param source An identifier for the source of the tweets (e.g., filename).
+     * @return The part; close it once the source is complete.
+     * @throws IOException If the thread is interrupted while waiting for the queue.
+     */
+    public Part openPart(String source) throws IOException {
+        return openPart(source, null);
+    }
+
+    /**
+     * Opens the part of the results file that holds one source, also keeping a copy of the part in a file of
+     * its own, so the results of the source can be reused without scoring it again.
+     * The copy is written by the writer thread and is complete once the results file has been closed.
+     * Complexity: O(1), unless the queue is full.
+     *
+     * @param source   An identifier for the source of the tweets (e.g., filename).
+     * @param copyFile The file the part is copied to, replacing any previous contents, or null for no copy.
+     * @return The part; close it once the source is complete.
+     * @throws IOException If the thread is interrupted while waiting for the queue.
+     */
+    public synchronized Part openPart(String source, Path copyFile) throws IOException {
+        Part part = new Part(nextPart++, source);
+        enqueue(new Message(Message.OPEN, part.index, null, copyFile));
+        return part;
+    }
+
+    /**
+     * Waits for every queued write to reach the results file, then closes it.
+     * Parts that were never closed are written as they are.
+     * Complexity: O(b), where b is the number of bytes still queued or spilled.
+     *
+     * @throws IOException If any write failed, or the thread is interrupted while waiting.
+     */
+    @Override
+    public void close() throws IOException {
+        enqueue(new Message(Message.CLOSE, -1, null, null));
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing " + outputFile);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * The results of one source, written in order through the shared writer thread.
+     * A part may be used by one thread at a time.
+     */
+    public final class Part implements AutoCloseable {
+        private final int index;
+        private final String source;
+
+        private Part(int index, String source) {
+            this.index = index;
+            this.source = source;
+        }
+
+        /**
+         * Returns the identifier of the source this part holds.
+         * Complexity: O(1).
+         *
+         * @return The source identifier.
+         */
+        public String source() {
+            return source;
+        }
+
+        /**
+         * Returns an empty buffer to encode results into, reusing one the writer has finished with if possible.
+         * Complexity: O(1).
+         *
+         * @return A cleared buffer, positioned at 0.
+         */
+        public ByteBuffer takeBuffer() {
+            ByteBuffer spare = spareBuffers.poll();
+            return spare != null ? spare.clear() : ByteBuffer.allocate(BLOCK_SIZE);
+        }
+
+        /**
+         * Queues encoded results for the results file; waits while the queue is full.
+         * The buffer is handed over to the writer thread and must not be changed afterwards.
+         * Complexity: O(1), unless the queue is full.
+         *
+         * @param data The bytes to write, from its position to its limit.
+         * @throws IOException If an earlier write failed, or the thread is interrupted while waiting.
+         */
+        public void write(ByteBuffer data) throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            enqueue(new Message(Message.WRITE, index, data, null));
+        }
+
+        /**
+         * Queues the contents of a file, such as results kept from an earlier run, for this part.
+         * The writer thread transfers the file without copying it through the heap.
+         * Complexity: O(1), unless the queue is full.
+         *
+         * @param file The file whose bytes are added to the part.
+         * @throws IOException If an earlier write failed, or the thread is interrupted while waiting.
+         */
+        public void writeFile(Path file) throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            enqueue(new Message(Message.FILE, index, null, file));
+        }
+
+        /**
+         * Marks the source as complete, so the parts after it can be written to the results file.
+         * Complexity: O(1), unless the queue is full.
+         *
+         * @throws IOException If the thread is interrupted while waiting for the queue.
+         */
+        @Override
+        public void close() throws IOException {
+            enqueue(new Message(Message.COMPLETE, index, null, null));
+        }
+    }
+
+    private void enqueue(Message message) throws IOException {
+        try {
+            queue.put(message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing results for " + outputFile);
+        }
+    }
+
+    /**
+     * Body of the writer thread: drains the queue in batches until it is closed.
+     * After a failure the queue is still drained, so scoring threads never block on a dead writer.
+     * Complexity: O(b), where b is the number of bytes written.
+     */
+    private void drain() {
+        List<Message> batch = new ArrayList<>(queue.remainingCapacity());
+        boolean closed = false;
+        while (!closed) {
+            try {
+                Message first = queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (failure == null) {
+                        flush();
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                for (Message message : batch) {
+                    if (message.kind == Message.CLOSE) {
+                        closed = true;
+                    } else if (failure == null) {
+                        handle(message);
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                failure = new InterruptedIOException("Result writer for " + outputFile + " was interrupted");
+                closed = true;
+            }
+            batch.clear();
+        }
+        finish();
+    }
+
+    private void handle(Message message) throws IOException {
+        switch (message.kind) {
+            case Message.OPEN -> {
+                PartState state = new PartState();
+                state.copyFile = message.file;
+                parts.add(state);
+            }
+            case Message.WRITE -> {
+                PartState state = parts.get(message.part);
+                if (state.copyFile != null) {
+                    ByteBuffer copy = message.data.duplicate();
+                    FileChannel copyChannel = openCopy(state);
+                    while (copy.hasRemaining()) {
+                        copyChannel.write(copy);
+                    }
+                }
+                if (message.part == head) {
+                    append(message.data);
+                } else {
+                    FileChannel spill = openSpill(state);
+                    while (message.data.hasRemaining()) {
+                        spill.write(message.data);
+                    }
+                }
+                spareBuffers.offer(message.data);
+            }
+            case Message.FILE -> {
+                PartState state = parts.get(message.part);
+                if (message.part == head) {
+                    flush();
+                }
+                try (FileChannel source = FileChannel.open(message.file, StandardOpenOption.READ)) {
+                    FileChannel target = message.part == head ? channel : openSpill(state);
+                    long size = source.size();
+                    for (long position = 0; position < size; ) {
+                        position += source.transferTo(position, size - position, target);
+                    }
+                    if (state.copyFile != null) {
+                        FileChannel copyChannel = openCopy(state);
+                        for (long position = 0; position < size; ) {
+                            position += source.transferTo(position, size - position, copyChannel);
+                        }
+                    }
+                }
+            }
+            case Message.COMPLETE -> {
+                PartState state = parts.get(message.part);
+                state.complete = true;
+                if (state.copyFile != null) {
+                    // A part with no results still leaves an empty copy
+                    openCopy(state).close();
+                    state.copy = null;
+                    state.copyFile = null;
+                }
+                // The spill keeps its bytes on disk until the part reaches the head
+                closeQuietly(state.spill);
+                state.spill = null;
+                advanceHead();
+            }
+            default -> throw new IllegalStateException("Unknown message kind: " + message.kind);
+        }
+    }
+
+    /**
+     * Moves past finished parts, copying the spill of each new head into the results file.
+     * Complexity: O(s), where s is the number of spilled bytes copied.
+     */
+    private void advanceHead() throws IOException {
+        while (head < parts.size() && parts.get(head).complete) {
+            head++;
+            if (head < parts.size()) {
+                copySpill(parts.get(head));
+            }
+        }
+    }
+
+    private void copySpill(PartState state) throws IOException {
+        if (state.spillFile == null) {
+            return;
+        }
+        flush();
+        if (state.spill == null) {
+            state.spill = FileChannel.open(state.spillFile, StandardOpenOption.READ);
+        }
+        long size = state.spill.size();
+        for (long position = 0; position < size; ) {
+            position += state.spill.transferTo(position, size - position, channel);
+        }
+        state.spill.close();
+        state.spill = null;
+        Files.delete(state.spillFile);
+        state.spillFile = null;
+    }
+
+    /**
+     * Returns the open spill file of a part, creating it on the part's first write.
+     * Complexity: O(1).
+     */
+    private FileChannel openSpill(PartState state) throws IOException {
+        if (state.spill == null) {
+            state.spillFile = Files.createTempFile(outputFile.toAbsolutePath().getParent(),
+                    outputFile.getFileName().toString(), ".part");
+            state.spill = FileChannel.open(state.spillFile, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        }
+        return state.spill;
+    }
+
+    /**
+     * Returns the open copy file of a part, creating it on the part's first write.
+     * Complexity: O(1).
+     */
+    private static FileChannel openCopy(PartState state) throws IOException {
+        if (state.copy == null) {
+            state.copy = FileChannel.open(state.copyFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        return state.copy;
+    }
+
+    /**
+     * Adds bytes to the write buffer, writing large blocks straight to the channel.
+     * Complexity: O(n), where n is the number of bytes.
+     */
+    private void append(ByteBuffer data) throws IOException {
+        if (data.remaining() > buffer.remaining()) {
+            flush();
+        }
+        if (data.remaining() >= buffer.capacity()) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        } else {
+            buffer.put(data);
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes any parts left after close, in order, then closes every channel and deletes the spill files left.
+     * Complexity: O(s), where s is the number of spilled bytes copied.
+     */
+    private void finish() {
+        try {
+            if (failure == null) {
+                for (int i = head + 1; i < parts.size(); i++) {
+                    copySpill(parts.get(i));
+                }
+                flush();
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+        for (PartState state : parts) {
+            closeQuietly(state.spill);
+            closeQuietly(state.copy);
+            if (state.spillFile != null) {
+                try {
+                    Files.deleteIfExists(state.spillFile);
+                } catch (IOException e) {
+                    System.err.println("Error deleting temporary results file: " + e.getMessage());
+                }
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    private static void closeQuietly(FileChannel file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            System.err.println("Error closing temporary results file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writer-thread bookkeeping for one part.
+     */
+    private static final class PartState {
+        private Path spillFile;
+        private FileChannel spill;
+        private Path copyFile;
+        private FileChannel copy;
+        private boolean complete;
+    }
+
+    /**
+     * A request to the writer thread.
+     */
+    private static final class Message {
+        private static final int OPEN = 0;
+        private static final int WRITE = 1;
+        private static final int COMPLETE = 2;
+        private static final int CLOSE = 3;
+        private static final int FILE = 4;
+
+        private final int kind;
+        private final int part;
+        private final ByteBuffer data;
+        private final Path file;
+
+        private Message(int kind, int part, ByteBuffer data, Path file) {
+            this.kind = kind;
+            this.part = part;
+            this.data = data;
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package ie.atu.sw;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Scores tweets with VADER-style rules on top of the lexicon, instead of just summing word scores:
+ * <ul>
+ *     <li>Negation: a sentiment word within three tokens after a negation such as "not", or a token ending in
+ *     "n't", has its score multiplied by -0.74 for each such negation, so "not happy" scores as negative.</li>
+ *     <li>Boosters and dampeners: each of the three tokens before a sentiment word may move its score away from
+ *     zero ("very bad") or towards it ("slightly bad"), by its boost times 1, 0.95 or 0.9 with distance.</li>
+ *     <li>Capitals: a sentiment word written in capitals moves 0.733 further from zero, when the tweet also has
+ *     words that are not in capitals.</li>
+ *     <li>Contrast: once a contrast word such as "but" appears, the words before it count half and the words
+ *     after it one and a half times, so "the food was good but the service was awful" leans negative.</li>
+ * </ul>
+ * The modifier words come from {@link SentimentModifiers}; boosters, dampeners and contrast words add no score
+ * of their own. Multi-word entries of the lexicon are not matched, since the rules cover what they mostly encode.
+ * <p>
+ * Each tweet is scored in a single pass over its tokens. The rules only look back three tokens, so their state is
+ * a few local variables shifted along with the tokens; the weights that depend on the rest of the tweet are applied
+ * at the end by keeping a separate total for each clause and for the capitals bonus. Nothing is allocated per token.
+ * Against a {@link LexiconSet} of several lexicons, each token is looked up once in the combined table and the
+ * rules are tracked once, with one set of totals per lexicon. The terms that are scored can be recorded in a
+ * {@link TermSketch} with the weight the rules gave them.
+ */
+public class RuleBasedTweetProcessor extends TweetProcessor {
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    // Factor for 0, 1, 2 and 3 negations among the three tokens before a word
+    private static final double[] NEGATION_FACTORS = {1.0, -0.74, 0.74 * 0.74, -0.74 * 0.74 * 0.74};
+    private static final double CAPS_INCREMENT = 0.733;
+    private static final double SECOND_BOOST_DECAY = 0.95;
+    private static final double THIRD_BOOST_DECAY = 0.9;
+    private static final double BEFORE_CONTRAST_WEIGHT = 0.5;
+    private static final double AFTER_CONTRAST_WEIGHT = 1.5;
+
+    private final SentimentModifiers modifiers;
+
+    /**
+     * Creates a rule-based processor with the built-in modifier lists.
+     * Complexity: O(n*k), where n is the number of modifier words and k is their average length.
+     */
+    public RuleBasedTweetProcessor() {
+        this(SentimentModifiers.defaults());
+    }
+
+    /**
+     * Creates a rule-based processor with the given modifier lists.
+     * Complexity: O(1).
+     *
+     * @param modifiers The negations, boosters, dampeners and contrast words.
+     */
+    public RuleBasedTweetProcessor(SentimentModifiers modifiers) {
+        this.modifiers = modifiers;
+    }
+
+    /**
+     * Getter for the modifier lists.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The modifiers.
+     */
+    public SentimentModifiers getModifiers() {
+        return modifiers;
+    }
+
+    /**
+     * Calculates the sentiment score of a given tweet based on a lexicon, applying the rules.
+     * Complexity: O(n*m), where n is the number of words in the tweet, and m is the time taken for lexicon lookup per word.
+     *
+     * @param tweet   The tweet text whose sentiment is to be calculated.
+     * @param lexicon A map containing words and their associated sentiment scores.
+     * @return The sentiment score of the tweet.
+     */
+    @Override
+    public double calculateSentiment(String tweet, Map<String, Double> lexicon) {
+        double[] score = SCRATCH.get().score;
+        score(tweet, null, lexicon, null, null, score);
+        return score[0];
+    }
+
+    /**
+     * Calculates the sentiment score of a given tweet based on a compiled lexicon, applying the rules.
+     * Tokens and modifiers are looked up by character range, so scoring does not allocate.
+     * Complexity: O(n*k), where n is the number of words in the tweet, and k is the average word length.
+     *
+     * @param tweet   The tweet text whose sentiment is to be calculated.
+     * @param lexicon The compiled lexicon.
+     * @return The sentiment score of the tweet.
+     */
+    @Override
+    public double calculateSentiment(String tweet, CompiledLexicon lexicon) {
+        return calculateSentiment(tweet, lexicon, null);
+    }
+
+    /**
+     * Calculates the sentiment score of a given tweet based on a compiled lexicon, applying the rules and
+     * recording every word that is scored in a sketch, by its index in the lexicon, with its weight in the score.
+     * Complexity: O(n*k + w*d), where n is the number of words in the tweet, k is the average word length,
+     * w is the number of words scored and d is the sketch depth.
+     *
+     * @param tweet   The tweet text whose sentiment is to be calculated.
+     * @param lexicon The compiled lexicon.
+     * @param terms   The sketch the scored words are recorded in, or null to record nothing.
+     * @return The sentiment score of the tweet.
+     */
+    @Override
+    public double calculateSentiment(String tweet, CompiledLexicon lexicon, TermSketch terms) {
+        double[] score = SCRATCH.get().score;
+        score(tweet, lexicon, null, null, terms, score);
+        return score[0];
+    }
+
+    /**
+     * Calculates the sentiment scores of a given tweet against every lexicon of a set in a single pass, applying
+     * the rules. The tokens and modifiers are only scanned once, and the scores equal those of separate runs.
+     * Complexity: O(n*(k + l)), where n is the number of words in the tweet, k is the average word length and
+     * l is the number of lexicons.
+     *
+     * @param tweet    The tweet text whose sentiment is to be calculated.
+     * @param lexicons The lexicons to score the tweet against.
+     * @param scores   Receives the score against each lexicon, in the order of the set.
+     */
+    @Override
+    public void calculateSentiments(String tweet, LexiconSet lexicons, double[] scores) {
+        if (lexicons.size() == 1) {
+            score(tweet, lexicons.lexicon(0), null, null, null, scores);
+        } else {
+            score(tweet, null, null, lexicons, null, scores);
+        }
+    }
+
+    /**
+     * Returns a checksum of the modifier lists, as scores depend on them as well as on the lexicon.
+     * Complexity: O(1).
+     *
+     * @return The checksum of the modifiers.
+     */
+    @Override
+    public long rulesHash() {
+        return modifiers.contentHash();
+    }
+
+    /**
+     * Scores a tweet in one pass, with words looked up in a compiled lexicon, a map or every lexicon of a set.
+     * Complexity: O(n*(k + l) + w*d), where n is the number of words in the tweet, k is the average word length,
+     * l is the number of lexicons, w is the number of words recorded and d is the sketch depth.
+     *
+     * @param compiled The compiled lexicon, or null.
+     * @param map      The map lexicon, used if there is neither a compiled lexicon nor a set.
+     * @param lexicons The lexicons of a set, or null.
+     * @param terms    The sketch the scored words of a compiled lexicon are recorded in, or null.
+     * @param scores   Receives the score against each lexicon, or against the single lexicon.
+     */
+    private void score(String tweet, CompiledLexicon compiled, Map<String, Double> map, LexiconSet lexicons,
+                       TermSketch terms, double[] scores) {
+        int columns = lexicons == null ? 1 : lexicons.size();
+        Scratch scratch = SCRATCH.get();
+        scratch.ensureColumns(columns);
+        TweetTokenizer tokenizer = scratch.tokenizer;
+        SentimentSum[] words = scratch.words;
+        SentimentSum[] wordsAfterContrast = scratch.wordsAfterContrast;
+        SentimentSum[] caps = scratch.caps;
+        SentimentSum[] capsAfterContrast = scratch.capsAfterContrast;
+        tokenizer.reset(tweet);
+        for (int column = 0; column < columns; column++) {
+            words[column].reset();
+            wordsAfterContrast[column].reset();
+            caps[column].reset();
+            capsAfterContrast[column].reset();
+        }
+        scratch.matches = 0;
+        double[] wordScores = lexicons == null ? null : lexicons.wordScores();
+        boolean[] wordPresent = lexicons == null ? null : lexicons.wordPresent();
+
+        // Bit i of negations is set if the token i + 1 places back was a negation
+        int negations = 0;
+        double boost1 = 0.0;
+        double boost2 = 0.0;
+        double boost3 = 0.0;
+        boolean contrast = false;
+        boolean capsWord = false;
+        boolean otherWord = false;
+        while (tokenizer.next()) {
+            char[] token = tokenizer.token();
+            int length = tokenizer.tokenLength();
+            boolean allCaps = tokenizer.tokenAllCaps();
+            capsWord |= allCaps;
+            otherWord |= !allCaps;
+
+            int modifier = modifiers.indexOf(token, length);
+            int kind = modifier < 0 ? SentimentModifiers.NONE : modifiers.kindAt(modifier);
+            if (kind != SentimentModifiers.BOOSTER && kind != SentimentModifiers.CONTRAST) {
+                int word = lexicons != null ? lexicons.indexOf(token, 0, length)
+                        : compiled != null ? compiled.indexOf(token, 0, length) : -1;
+                double boost = boost1 + SECOND_BOOST_DECAY * boost2 + THIRD_BOOST_DECAY * boost3;
+                double negation = NEGATION_FACTORS[Integer.bitCount(negations)];
+                for (int column = 0; column < columns; column++) {
+                    double score;
+                    if (lexicons != null) {
+                        int cell = word * columns + column;
+                        score = word >= 0 && wordPresent[cell] ? wordScores[cell] : 0.0;
+                    } else if (compiled != null) {
+                        score = word >= 0 ? compiled.scoreAt(word) : 0.0;
+                    } else {
+                        score = mapScore(map, token, length);
+                    }
+                    if (score == 0.0) {
+                        continue;
+                    }
+                    double sign = score < 0.0 ? -1.0 : 1.0;
+                    double weighted = (score + sign * boost) * negation;
+                    double capsBonus = allCaps ? sign * CAPS_INCREMENT * negation : 0.0;
+                    (contrast ? wordsAfterContrast : words)[column].add(weighted);
+                    if (allCaps) {
+                        (contrast ? capsAfterContrast : caps)[column].add(capsBonus);
+                    }
+                    if (terms != null) {
+                        scratch.addMatch(word, weighted, capsBonus, contrast);
+                    }
+                }
+            }
+
+            boolean negates = kind == SentimentModifiers.NEGATION || endsWithNot(token, length);
+            negations = ((negations << 1) | (negates ? 1 : 0)) & 0b111;
+            boost3 = boost2;
+            boost2 = boost1;
+            boost1 = kind == SentimentModifiers.BOOSTER ? modifiers.boostAt(modifier) : 0.0;
+            contrast |= kind == SentimentModifiers.CONTRAST;
+        }
+
+        boolean capsCount = capsWord && otherWord;
+        for (int column = 0; column < columns; column++) {
+            double before = words[column].total() + (capsCount ? caps[column].total() : 0.0);
+            if (!contrast) {
+                scores[column] = roundScore(before);
+            } else {
+                double after = wordsAfterContrast[column].total()
+                        + (capsCount ? capsAfterContrast[column].total() : 0.0);
+                scores[column] = roundScore(BEFORE_CONTRAST_WEIGHT * before + AFTER_CONTRAST_WEIGHT * after);
+            }
+        }
+        if (terms != null) {
+            recordMatches(scratch, terms, capsCount, contrast);
+        }
+    }
+
+    /**
+     * Records the words scored in a tweet with their final weight, once the capitals bonus and the clause weights
+     * are known.
+     * Complexity: O(w*d), where w is the number of words scored and d is the sketch depth.
+     */
+    private static void recordMatches(Scratch scratch, TermSketch terms, boolean capsCount, boolean contrast) {
+        for (int i = 0; i < scratch.matches; i++) {
+            double weight = !contrast ? 1.0
+                    : scratch.matchAfterContrast[i] ? AFTER_CONTRAST_WEIGHT : BEFORE_CONTRAST_WEIGHT;
+            double contribution = scratch.matchScore[i] + (capsCount ? scratch.matchCapsBonus[i] : 0.0);
+            terms.record(scratch.matchTerm[i], weight * contribution);
+        }
+    }
+
+    /**
+     * Looks up the score of a token in a map, the slow path that creates a String per token.
+     * Complexity: O(k), where k is the length of the token.
+     */
+    private static double mapScore(Map<String, Double> lexicon, char[] token, int length) {
+        Double score = lexicon.get(new String(token, 0, length));
+        return score != null ? score : 0.0;
+    }
+
+    /**
+     * Checks whether a token is a contraction ending in "n't", such as "don't" or "isn't".
+     * Complexity: O(1).
+     */
+    private static boolean endsWithNot(char[] token, int length) {
+        return length >= 4 && token[length - 1] == 't' && token[length - 2] == '\'' && token[length - 3] == 'n';
+    }
+
+    /**
+     * Per-thread working state, reused between tweets.
+     */
+    private static final class Scratch {
+        private final TweetTokenizer tokenizer = new TweetTokenizer();
+        private final double[] score = new double[1];
+        private SentimentSum[] words = new SentimentSum[0];
+        private SentimentSum[] wordsAfterContrast = new SentimentSum[0];
+        private SentimentSum[] caps = new SentimentSum[0];
+        private SentimentSum[] capsAfterContrast = new SentimentSum[0];
+        // The words scored in the current tweet, kept until their weights are known
+        private int matches;
+        private int[] matchTerm = new int[16];
+        private double[] matchScore = new double[16];
+        private double[] matchCapsBonus = new double[16];
+        private boolean[] matchAfterContrast = new boolean[16];
+
+        private void ensureColumns(int columns) {
+            if (words.length < columns) {
+                words = newSums(columns);
+                wordsAfterContrast = newSums(columns);
+                caps = newSums(columns);
+                capsAfterContrast = newSums(columns);
+            }
+        }
+
+        private void addMatch(int term, double score, double capsBonus, boolean afterContrast) {
+            if (matches == matchTerm.length) {
+                int capacity = matches * 2;
+                matchTerm = Arrays.copyOf(matchTerm, capacity);
+                matchScore = Arrays.copyOf(matchScore, capacity);
+                matchCapsBonus = Arrays.copyOf(matchCapsBonus, capacity);
+                matchAfterContrast = Arrays.copyOf(matchAfterContrast, capacity);
+            }
+            matchTerm[matches] = term;
+            matchScore[matches] = score;
+            matchCapsBonus[matches] = capsBonus;
+            matchAfterContrast[matches] = afterContrast;
+            matches++;
+        }
+
+        private static SentimentSum[] newSums(int columns) {
+            SentimentSum[] sums = new SentimentSum[columns];
+            for (int i = 0; i < columns; i++) {
+                sums[i] = new SentimentSum();
+            }
+            return sums;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package ie.atu.sw;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Record of the tweet files scored into a results file, kept next to it so a repeated directory run only
+ * scores the files that are new or have changed.
+ * For every tweet file the manifest holds its size, modification time and CRC-32C checksum, and the name of the
+ * file in the results store (a directory next to the results file) that keeps that file's results, along with
+ * the statistics of its scores for the summary report. The manifest
+ * also records the checksum of the lexicon, how its files were merged, the output format and the number of top
+ * tweets tracked per file; if any of them differs, nothing is reused.
+ * A file is reused when its size and modification time are unchanged, or when only the modification time
+ * changed but the checksum still matches. The manifest is replaced as a whole once the run has finished, and
+ * results that are no longer listed are then deleted from the store.
+ * The results of a file being scored are written under a temporary name and only moved onto their stored name,
+ * which may still be listed by the previous manifest, once the file has been scored and the manifest is saved, so
+ * a run that fails or is interrupted never leaves the previous manifest pointing at partial results.
+ */
+final class RunManifest {
+    private static final String VERSION_LINE = "# sentiment-run-manifest 1";
+    private static final String LEXICON_PREFIX = "# lexicon ";
+    private static final String FORMAT_PREFIX = "# format ";
+    private static final String TOP_TWEETS_PREFIX = "# top ";
+    private static final String CONFLICT_PREFIX = "# conflict ";
+    private static final String STATISTICS_SUFFIX = ".stats";
+    private static final String PENDING_SUFFIX = ".tmp";
+
+    private final Path outputFile;
+    private final Path manifestFile;
+    private final Path storeDirectory;
+    private final long lexiconHash;
+    private final LexiconConflictPolicy conflictPolicy;
+    private final OutputFormat format;
+    private final int topTweets;
+    private final Map<Path, Entry> previous;
+    private final Map<Path, Entry> current = new HashMap<>();
+    // The stored names of the files scored by this run, whose results are still under their temporary names
+    private final Set<String> pending = new HashSet<>();
+
+    private RunManifest(Path outputFile, Path manifestFile, Path storeDirectory, long lexiconHash,
+                        LexiconConflictPolicy conflictPolicy, OutputFormat format, int topTweets,
+                        Map<Path, Entry> previous) {
+        this.outputFile = outputFile;
+        this.manifestFile = manifestFile;
+        this.storeDirectory = storeDirectory;
+        this.lexiconHash = lexiconHash;
+        this.conflictPolicy = conflictPolicy;
+        this.format = format;
+        this.topTweets = topTweets;
+        this.previous = previous;
+    }
+
+    /**
+     * Opens the manifest of a results file, creating its results store if needed.
+     * The entries of an earlier run are only kept if it used the same lexicon contents and conflict policy,
+     * output format and number of top tweets.
+     * Complexity: O(f), where f is the number of files in the earlier manifest.
+     *
+     * @param outputFile     The results file.
+     * @param lexiconHash    The checksum of the lexicon contents.
+     * @param conflictPolicy How the files of a lexicon directory were merged.
+     * @param format         The output format.
+     * @param topTweets      The number of most positive and most negative tweets tracked per file, or 0 for none.
+     * @return The manifest for this run.
+     * @throws IOException If the manifest cannot be read or the store cannot be created.
+     */
+    static RunManifest open(Path outputFile, long lexiconHash, LexiconConflictPolicy conflictPolicy,
+                            OutputFormat format, int topTweets) throws IOException {
+        Path absolute = outputFile.toAbsolutePath().normalize();
+        Path manifestFile = absolute.resolveSibling(absolute.getFileName() + ".manifest");
+        Path storeDirectory = absolute.resolveSibling(absolute.getFileName() + ".results");
+        Files.createDirectories(storeDirectory);
+        return new RunManifest(absolute, manifestFile, storeDirectory, lexiconHash, conflictPolicy, format,
+                topTweets, read(manifestFile, lexiconHash, conflictPolicy, format, topTweets));
+    }
+
+    /**
+     * Checks whether a path belongs to the results, the manifest or its results store, so a run does not score
+     * its own files when the output directory is inside the tweet directory.
+     * Complexity: O(d), where d is the depth of the path.
+     *
+     * @param path The path of a file found in the tweet directory.
+     * @return true if the path is the results file, the manifest or inside the results store.
+     */
+    boolean isOwnFile(Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        return absolute.equals(outputFile) || absolute.equals(manifestFile) || absolute.startsWith(storeDirectory);
+    }
+
+    /**
+     * Looks up stored results that can stand in for scoring a tweet file again, and keeps them for this run.
+     * Complexity: O(1) if the size and modification time are unchanged; O(b) if the file has to be
+     * checksummed, where b is the size of the file.
+     *
+     * @param file       The tweet file.
+     * @param attributes The current attributes of the file.
+     * @return The file holding the stored results, or null if the file has to be scored.
+     * @throws IOException If the file cannot be checksummed.
+     */
+    Path reusableResults(Path file, BasicFileAttributes attributes) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        Entry entry = previous.get(key);
+        if (entry == null || entry.size != attributes.size()) {
+            return null;
+        }
+        Path stored = storeDirectory.resolve(entry.storedName);
+        if (!Files.isRegularFile(stored) || !Files.isRegularFile(statisticsFile(stored))) {
+            return null;
+        }
+        long modified = attributes.lastModifiedTime().toMillis();
+        if (entry.modified != modified) {
+            if (SourceFingerprint.contentHash(file) != entry.contentHash) {
+                return null;
+            }
+            entry = new Entry(entry.size, modified, entry.contentHash, entry.storedName);
+        }
+        synchronized (this) {
+            current.put(key, entry);
+        }
+        return stored;
+    }
+
+    /**
+     * Starts the entry of a tweet file that is about to be scored.
+     * The entry is only added to the manifest by {@link #record(Path, Entry)} once the file has been scored.
+     * Complexity: O(p), where p is the length of the path.
+     *
+     * @param file       The tweet file.
+     * @param attributes The attributes of the file before scoring.
+     * @return The new entry, without its checksum yet.
+     */
+    Entry newEntry(Path file, BasicFileAttributes attributes) {
+        Path key = file.toAbsolutePath().normalize();
+        long modified = attributes.lastModifiedTime().toMillis();
+        String identity = key + "\n" + attributes.size() + "\n" + modified;
+        String storedName = UUID.nameUUIDFromBytes(identity.getBytes(StandardCharsets.UTF_8)) + ".result";
+        return new Entry(attributes.size(), modified, 0, storedName);
+    }
+
+    /**
+     * Returns the temporary file in the results store that the results of an entry are written to while its
+     * tweet file is scored; it is moved onto the entry's stored name when the manifest is saved.
+     * Complexity: O(1).
+     *
+     * @param entry The entry.
+     * @return The path the results are written to.
+     */
+    Path resultsFile(Entry entry) {
+        return storeDirectory.resolve(entry.storedName + PENDING_SUFFIX);
+    }
+
+    /**
+     * Stores the statistics of a tweet file's scores, and its top tweets if they are tracked, next to its results.
+     * Complexity: O(b + k), where b is the number of histogram buckets and k is the number of top tweets.
+     *
+     * @param entry      The entry of the tweet file.
+     * @param statistics The statistics of its scores.
+     * @param topTweets  Its most positive and most negative tweets, or null if they are not tracked.
+     * @throws IOException If the statistics cannot be written.
+     */
+    void writeStatistics(Entry entry, ScoreStatistics statistics, TopKTracker topTweets) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(statisticsFile(resultsFile(entry)))))) {
+            statistics.writeTo(out);
+            if (topTweets != null) {
+                topTweets.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Adds the statistics stored next to results returned by {@link #reusableResults(Path, BasicFileAttributes)}
+     * to the statistics of this run, as those of the tweet file.
+     * Complexity: O(b + k log k), where b is the number of histogram buckets and k is the number of top tweets.
+     *
+     * @param storedResults The file holding the stored results.
+     * @param file          The tweet file the results belong to.
+     * @param statistics    The statistics of this run.
+     * @return The stored score statistics of the tweet file.
+     * @throws IOException If the statistics cannot be read.
+     */
+    ScoreStatistics addStoredStatistics(Path storedResults, Path file, AnalysisStatistics statistics)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(statisticsFile(storedResults))))) {
+            ScoreStatistics scores = ScoreStatistics.readFrom(in);
+            statistics.fileCompleted(file.toString(), scores, topTweets > 0 ? TopKTracker.readFrom(in, file) : null);
+            return scores;
+        }
+    }
+
+    /**
+     * Checksums a tweet file before it is scored, so later changes to it are noticed by the next run.
+     * Complexity: O(b), where b is the size of the file.
+     *
+     * @param file  The tweet file.
+     * @param entry The entry started for it.
+     * @return The entry with its checksum.
+     * @throws IOException If the file cannot be read.
+     */
+    Entry withContentHash(Path file, Entry entry) throws IOException {
+        return new Entry(entry.size, entry.modified, SourceFingerprint.contentHash(file), entry.storedName);
+    }
+
+    /**
+     * Adds a tweet file that has been scored to the manifest.
+     * Its results are moved onto their stored name when the manifest is saved.
+     * Complexity: O(1).
+     *
+     * @param file  The tweet file.
+     * @param entry Its entry, with its checksum.
+     */
+    synchronized void record(Path file, Entry entry) {
+        current.put(file.toAbsolutePath().normalize(), entry);
+        pending.add(entry.storedName);
+    }
+
+    /**
+     * Moves the results of the files scored by this run onto their stored names, replaces the manifest with the
+     * files of this run, then deletes stored results that are no longer listed, including those of files whose
+     * scoring did not finish.
+     * Call once the results file has been closed, so every stored copy is complete.
+     * Complexity: O(f), where f is the number of files in the manifest and the store.
+     *
+     * @throws IOException If the results cannot be moved or the manifest cannot be written.
+     */
+    synchronized void save() throws IOException {
+        for (String storedName : pending) {
+            Path stored = storeDirectory.resolve(storedName);
+            Path written = storeDirectory.resolve(storedName + PENDING_SUFFIX);
+            Files.move(statisticsFile(written), statisticsFile(stored), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            Files.move(written, stored, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        pending.clear();
+
+        Path temporary = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writer.write(VERSION_LINE + "\n");
+            writer.write(LEXICON_PREFIX + Long.toHexString(lexiconHash) + "\n");
+            writer.write(CONFLICT_PREFIX + conflictPolicy.name() + "\n");
+            writer.write(FORMAT_PREFIX + format.name() + "\n");
+            writer.write(TOP_TWEETS_PREFIX + topTweets + "\n");
+            for (Map.Entry<Path, Entry> mapEntry : current.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                writer.write(entry.size + "\t" + entry.modified + "\t" + Long.toHexString(entry.contentHash) + "\t"
+                        + entry.storedName + "\t" + mapEntry.getKey() + "\n");
+            }
+        }
+        Files.move(temporary, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Set<String> listed = new HashSet<>();
+        for (Entry entry : current.values()) {
+            listed.add(entry.storedName);
+            listed.add(entry.storedName + STATISTICS_SUFFIX);
+        }
+        try (Stream<Path> stored = Files.list(storeDirectory)) {
+            for (Path path : (Iterable<Path>) stored::iterator) {
+                if (!listed.contains(path.getFileName().toString())) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static Path statisticsFile(Path storedResults) {
+        return storedResults.resolveSibling(storedResults.getFileName() + STATISTICS_SUFFIX);
+    }
+
+    /**
+     * Reads the entries of an earlier run, if it used the same lexicon, conflict policy, format and number of
+     * top tweets.
+     * Complexity: O(f), where f is the number of files in the manifest.
+     */
+    private static Map<Path, Entry> read(Path manifestFile, long lexiconHash, LexiconConflictPolicy conflictPolicy,
+                                         OutputFormat format, int topTweets) throws IOException {
+        Map<Path, Entry> entries = new HashMap<>();
+        if (!Files.exists(manifestFile)) {
+            return entries;
+        }
+        boolean sameVersion = false;
+        boolean sameLexicon = false;
+        boolean sameConflictPolicy = false;
+        boolean sameFormat = false;
+        boolean sameTopTweets = false;
+        for (String line : Files.readAllLines(manifestFile, StandardCharsets.UTF_8)) {
+            if (line.equals(VERSION_LINE)) {
+                sameVersion = true;
+            } else if (line.startsWith(LEXICON_PREFIX)) {
+                sameLexicon = line.substring(LEXICON_PREFIX.length()).equals(Long.toHexString(lexiconHash));
+            } else if (line.startsWith(CONFLICT_PREFIX)) {
+                sameConflictPolicy = line.substring(CONFLICT_PREFIX.length()).equals(conflictPolicy.name());
+            } else if (line.startsWith(FORMAT_PREFIX)) {
+                sameFormat = line.substring(FORMAT_PREFIX.length()).equals(format.name());
+            } else if (line.startsWith(TOP_TWEETS_PREFIX)) {
+                sameTopTweets = line.substring(TOP_TWEETS_PREFIX.length()).equals(Integer.toString(topTweets));
+            } else if (!line.isBlank()) {
+                String[] fields = line.split("\t", 5);
+                if (fields.length != 5) {
+                    System.err.println("Error in manifest " + manifestFile + ": ignoring line: " + line);
+                    continue;
+                }
+                try {
+                    entries.put(Path.of(fields[4]), new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                            Long.parseUnsignedLong(fields[2], 16), fields[3]));
+                } catch (NumberFormatException e) {
+                    System.err.println("Error in manifest " + manifestFile + ": ignoring line: " + line);
+                }
+            }
+        }
+        return sameVersion && sameLexicon && sameConflictPolicy && sameFormat && sameTopTweets ? entries : new HashMap<>();
+    }
+
+    /**
+     * What the manifest knows about one tweet file.
+     */
+    static final class Entry {
+        private final long size;
+        private final long modified;
+        private final long contentHash;
+        private final String storedName;
+
+        private Entry(long size, long modified, long contentHash, String storedName) {
+            this.size = size;
+            this.modified = modified;
+            this.contentHash = contentHash;
+            this.storedName = storedName;
+        }
+    }
+}
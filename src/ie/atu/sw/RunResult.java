@@ -0,0 +1,199 @@
+package ie.atu.sw;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records what happened to every file of a run: which files succeeded, were reused, failed or were skipped,
+ * and how the run as a whole ended.
+ * A file is recorded as skipped when it is listed, and keeps that outcome unless its task runs to the end,
+ * so files that were never started, or were cancelled part way, are reported as skipped.
+ * Files are kept in the order they were listed. All methods are thread-safe.
+ */
+public final class RunResult {
+    /**
+     * What happened to one file of the run.
+     */
+    public enum Outcome {
+        /**
+         * The file was processed completely.
+         */
+        SUCCEEDED,
+        /**
+         * The stored results of the unchanged file were reused instead of processing it again.
+         */
+        REUSED,
+        /**
+         * The file could not be processed.
+         */
+        FAILED,
+        /**
+         * The file was not processed, or not completely, because the run stopped first.
+         */
+        SKIPPED
+    }
+
+    /**
+     * How the run as a whole ended.
+     */
+    public enum Status {
+        /**
+         * Every file was attempted; some may still have failed under the collect-all policy.
+         */
+        COMPLETED,
+        /**
+         * A file failed under the fail-fast policy, and the rest of the run was cancelled.
+         */
+        FAILED,
+        /**
+         * The deadline of the run passed, and the rest of the run was cancelled.
+         */
+        TIMED_OUT,
+        /**
+         * The run was interrupted, and the rest of the run was cancelled.
+         */
+        CANCELLED
+    }
+
+    private final Map<Path, Outcome> outcomes = new LinkedHashMap<>();
+    private final Map<Path, String> errors = new LinkedHashMap<>();
+    private Status status = Status.COMPLETED;
+
+    /**
+     * Records the outcome of a file, replacing any outcome recorded before.
+     * Complexity: O(1).
+     *
+     * @param file    The file.
+     * @param outcome What happened to it.
+     */
+    public synchronized void record(Path file, Outcome outcome) {
+        outcomes.put(file, outcome);
+    }
+
+    /**
+     * Records a file that could not be processed, with the reason.
+     * Complexity: O(1).
+     *
+     * @param file  The file.
+     * @param error The reason it failed.
+     */
+    public synchronized void fail(Path file, String error) {
+        outcomes.put(file, Outcome.FAILED);
+        errors.put(file, error);
+    }
+
+    /**
+     * Records how the run ended, unless an earlier call already stopped it.
+     * Complexity: O(1).
+     *
+     * @param status The reason the run stopped.
+     * @return true if this call set the status, false if the run had already stopped.
+     */
+    public synchronized boolean stop(Status status) {
+        if (this.status != Status.COMPLETED) {
+            return false;
+        }
+        this.status = status;
+        return true;
+    }
+
+    /**
+     * Returns how the run ended.
+     * Complexity: O(1).
+     *
+     * @return The status of the run.
+     */
+    public synchronized Status status() {
+        return status;
+    }
+
+    /**
+     * Returns the files with an outcome, in the order they were listed.
+     * Complexity: O(f), where f is the number of files in the run.
+     *
+     * @param outcome The outcome.
+     * @return The files with that outcome.
+     */
+    public synchronized List<Path> files(Outcome outcome) {
+        List<Path> files = new ArrayList<>();
+        for (Map.Entry<Path, Outcome> entry : outcomes.entrySet()) {
+            if (entry.getValue() == outcome) {
+                files.add(entry.getKey());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Returns the number of files with an outcome.
+     * Complexity: O(f), where f is the number of files in the run.
+     *
+     * @param outcome The outcome.
+     * @return The number of files with that outcome.
+     */
+    public synchronized int count(Outcome outcome) {
+        int count = 0;
+        for (Outcome recorded : outcomes.values()) {
+            if (recorded == outcome) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the failed files with the reason each one failed, in the order they were listed.
+     * Complexity: O(e), where e is the number of failed files.
+     *
+     * @return The reasons, keyed by file.
+     */
+    public synchronized Map<Path, String> failures() {
+        return new LinkedHashMap<>(errors);
+    }
+
+    /**
+     * Checks whether every file of the run succeeded or was reused.
+     * Complexity: O(f), where f is the number of files in the run.
+     *
+     * @return true if the run completed without a failed or skipped file.
+     */
+    public synchronized boolean isSuccessful() {
+        return status == Status.COMPLETED && !outcomes.containsValue(Outcome.FAILED)
+                && !outcomes.containsValue(Outcome.SKIPPED);
+    }
+
+    /**
+     * Returns the status of the run as a word for reports: "ok" when every file succeeded or was reused,
+     * "partial" when the run completed with failed or skipped files, and otherwise "failed", "timed-out" or
+     * "cancelled".
+     * Complexity: O(f), where f is the number of files in the run.
+     *
+     * @return The status word.
+     */
+    public synchronized String statusName() {
+        if (status == Status.COMPLETED) {
+            return isSuccessful() ? "ok" : "partial";
+        }
+        return status.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Formats the failed files as a JSON array of objects with the file and the reason it failed.
+     * Complexity: O(e), where e is the number of failed files.
+     *
+     * @return The JSON array.
+     */
+    public synchronized String failuresToJson() {
+        StringBuilder json = new StringBuilder("[");
+        for (Map.Entry<Path, String> error : errors.entrySet()) {
+            json.append(json.length() == 1 ? "" : ",")
+                    .append("{\"file\":").append(JsonLinesEncoder.quote(error.getKey().toString()))
+                    .append(",\"error\":").append(JsonLinesEncoder.quote(error.getValue())).append('}');
+        }
+        return json.append(']').toString();
+    }
+}
@@ -8,14 +8,18 @@ public class Runner {
 
     /**
      * Main method to start the Sentiment Analysis application.
-     * Initialises and displays the main menu of the application.
+     * Without arguments, initialises and displays the main menu of the application.
+     * With arguments, runs a single analysis without the menu and exits with its exit code.
      * Complexity: O(1) - constant time for method invocation, but the actual complexity depends
-     * on the menu.
+     * on the menu or the analysis.
      *
-     * @param args Command line arguments (not used in this application).
+     * @param args Command line arguments; see CommandLineRunner for the options.
      * @throws Exception Exceptions that may occur during the execution of the application.
      */
     public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            System.exit(new CommandLineRunner(System.out, System.err).run(args));
+        }
         new MainMenu().startMenu();
     }
 
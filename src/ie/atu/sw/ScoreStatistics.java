@@ -0,0 +1,273 @@
+package ie.atu.sw;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Running statistics of sentiment scores: counts by class, mean, variance, minimum, maximum and a histogram
+ * with fixed buckets of {@value #BUCKET_WIDTH} from {@value #HISTOGRAM_MIN} to {@value #HISTOGRAM_MAX}, plus one
+ * bucket for lower and one for higher scores.
+ * Scores are added one at a time with Welford's method, so no score is kept and the variance stays accurate
+ * for long runs. Statistics gathered separately, e.g. one per tweet file, are combined with
+ * {@link #merge(ScoreStatistics)} using the pairwise formula of Chan et al.
+ * Instances are not thread-safe: each is filled by one thread and merged once that thread is done.
+ */
+public final class ScoreStatistics {
+    /**
+     * Lower bound of the first regular histogram bucket.
+     */
+    public static final double HISTOGRAM_MIN = -5.0;
+    /**
+     * Upper bound of the last regular histogram bucket.
+     */
+    public static final double HISTOGRAM_MAX = 5.0;
+    /**
+     * Width of a histogram bucket.
+     */
+    public static final double BUCKET_WIDTH = 0.5;
+
+    private static final int REGULAR_BUCKETS = (int) Math.round((HISTOGRAM_MAX - HISTOGRAM_MIN) / BUCKET_WIDTH);
+
+    private long count;
+    private long positive;
+    private long negative;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private final long[] histogram = new long[REGULAR_BUCKETS + 2];
+
+    /**
+     * Adds a score.
+     * Complexity: O(1).
+     *
+     * @param score The sentiment score of one tweet.
+     */
+    public void add(double score) {
+        count++;
+        switch (BatchEncoder.sentimentClass(score)) {
+            case 1 -> positive++;
+            case -1 -> negative++;
+            default -> { }
+        }
+        double delta = score - mean;
+        mean += delta / count;
+        m2 += delta * (score - mean);
+        min = Math.min(min, score);
+        max = Math.max(max, score);
+        histogram[bucketOf(score)]++;
+    }
+
+    /**
+     * Adds the scores of a batch.
+     * Complexity: O(n), where n is the number of tweets in the batch.
+     *
+     * @param batch The scored tweets.
+     */
+    public void addAll(TweetBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            add(batch.score(i));
+        }
+    }
+
+    /**
+     * Adds statistics gathered separately, as if their scores had been added here.
+     * Complexity: O(b), where b is the number of histogram buckets.
+     *
+     * @param other The statistics to merge in; left unchanged.
+     */
+    public void merge(ScoreStatistics other) {
+        if (other.count == 0) {
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        mean += delta * other.count / total;
+        count = total;
+        positive += other.positive;
+        negative += other.negative;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+    }
+
+    /**
+     * Returns the number of scores added.
+     * Complexity: O(1).
+     *
+     * @return The number of tweets.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the number of positive scores.
+     * Complexity: O(1).
+     *
+     * @return The number of positive tweets.
+     */
+    public long positive() {
+        return positive;
+    }
+
+    /**
+     * Returns the number of negative scores.
+     * Complexity: O(1).
+     *
+     * @return The number of negative tweets.
+     */
+    public long negative() {
+        return negative;
+    }
+
+    /**
+     * Returns the number of neutral scores.
+     * Complexity: O(1).
+     *
+     * @return The number of neutral tweets.
+     */
+    public long neutral() {
+        return count - positive - negative;
+    }
+
+    /**
+     * Returns the mean score.
+     * Complexity: O(1).
+     *
+     * @return The mean, or 0 if no score was added.
+     */
+    public double mean() {
+        return mean;
+    }
+
+    /**
+     * Returns the population variance of the scores.
+     * Complexity: O(1).
+     *
+     * @return The variance, or 0 if no score was added.
+     */
+    public double variance() {
+        return count == 0 ? 0.0 : m2 / count;
+    }
+
+    /**
+     * Returns the lowest score.
+     * Complexity: O(1).
+     *
+     * @return The minimum, or positive infinity if no score was added.
+     */
+    public double min() {
+        return min;
+    }
+
+    /**
+     * Returns the highest score.
+     * Complexity: O(1).
+     *
+     * @return The maximum, or negative infinity if no score was added.
+     */
+    public double max() {
+        return max;
+    }
+
+    /**
+     * Returns the histogram counts: scores below {@value #HISTOGRAM_MIN} first, then one count per bucket, then
+     * scores of {@value #HISTOGRAM_MAX} and above.
+     * Complexity: O(b), where b is the number of buckets.
+     *
+     * @return A copy of the counts.
+     */
+    public long[] histogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Formats the statistics as a JSON object.
+     * Complexity: O(b), where b is the number of histogram buckets.
+     *
+     * @return The JSON object.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(256);
+        json.append(String.format(Locale.ROOT,
+                "{\"tweets\":%d,\"positive\":%d,\"negative\":%d,\"neutral\":%d,\"mean\":%s,\"variance\":%s,"
+                        + "\"stdDev\":%s,\"min\":%s,\"max\":%s,",
+                count, positive, negative, neutral(), number(mean), number(variance()),
+                number(Math.sqrt(variance())), count == 0 ? "null" : number(min), count == 0 ? "null" : number(max)));
+        json.append(String.format(Locale.ROOT, "\"histogram\":{\"min\":%s,\"max\":%s,\"bucketWidth\":%s,\"counts\":[",
+                HISTOGRAM_MIN, HISTOGRAM_MAX, BUCKET_WIDTH));
+        for (int i = 0; i < histogram.length; i++) {
+            json.append(i == 0 ? "" : ",").append(histogram[i]);
+        }
+        return json.append("]}}").toString();
+    }
+
+    /**
+     * Writes the statistics in binary, to be read back with {@link #readFrom(DataInput)}.
+     * Complexity: O(b), where b is the number of histogram buckets.
+     *
+     * @param out The output.
+     * @throws IOException If the output cannot be written.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(histogram.length);
+        out.writeLong(count);
+        out.writeLong(positive);
+        out.writeLong(negative);
+        out.writeDouble(mean);
+        out.writeDouble(m2);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        for (long bucket : histogram) {
+            out.writeLong(bucket);
+        }
+    }
+
+    /**
+     * Reads statistics written by {@link #writeTo(DataOutput)}.
+     * Complexity: O(b), where b is the number of histogram buckets.
+     *
+     * @param in The input.
+     * @return The statistics.
+     * @throws IOException If the input cannot be read or was written with different buckets.
+     */
+    public static ScoreStatistics readFrom(DataInput in) throws IOException {
+        ScoreStatistics statistics = new ScoreStatistics();
+        int buckets = in.readInt();
+        if (buckets != statistics.histogram.length) {
+            throw new IOException("Statistics have " + buckets + " histogram buckets, expected "
+                    + statistics.histogram.length);
+        }
+        statistics.count = in.readLong();
+        statistics.positive = in.readLong();
+        statistics.negative = in.readLong();
+        statistics.mean = in.readDouble();
+        statistics.m2 = in.readDouble();
+        statistics.min = in.readDouble();
+        statistics.max = in.readDouble();
+        for (int i = 0; i < buckets; i++) {
+            statistics.histogram[i] = in.readLong();
+        }
+        return statistics;
+    }
+
+    private static int bucketOf(double score) {
+        if (score < HISTOGRAM_MIN) {
+            return 0;
+        }
+        if (score >= HISTOGRAM_MAX || Double.isNaN(score)) {
+            return REGULAR_BUCKETS + 1;
+        }
+        return 1 + Math.min(REGULAR_BUCKETS - 1, (int) ((score - HISTOGRAM_MIN) / BUCKET_WIDTH));
+    }
+
+    private static String number(double value) {
+        return Double.isFinite(value) ? Double.toString(value) : "null";
+    }
+}
@@ -0,0 +1,321 @@
+package ie.atu.sw;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Long-running HTTP server that scores tweets against a lexicon loaded once at start-up.
+ * Built on the JDK's HTTP server, with every exchange handled on its own virtual thread. Connections are kept
+ * alive between requests, so clients that reuse a connection pay for neither a JVM start nor a TCP handshake.
+ * <ul>
+ *     <li>POST /score - scores the request body as one tweet (GET /score?text=... also works).</li>
+ *     <li>POST /score/batch - scores one tweet per line of the body and streams the results back as they are
+ *     scored, in JSON Lines by default or in any {@link OutputFormat} given with ?format=.</li>
+ *     <li>GET /metrics - request counts and latency percentiles for each scoring endpoint.</li>
+ *     <li>GET /health - whether the server is up, and the size of its lexicon.</li>
+ * </ul>
+ */
+public class ScoringServer implements AutoCloseable {
+    private static final int BATCH_SIZE = 256;
+    private static final String JSON = "application/json";
+
+    static {
+        // Small responses are written as headers then body; without TCP_NODELAY, Nagle's algorithm holds the body
+        // back until the client's delayed ACK, adding about 40 ms to every request on a kept-alive connection.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final CompiledLexicon lexicon;
+    private final TweetProcessor tweetProcessor;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LatencyHistogram scoreLatency = new LatencyHistogram();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private final LongAdder tweetsScored = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final long startMillis = System.currentTimeMillis();
+
+    /**
+     * Creates a server for a compiled lexicon, bound to an address but not yet started.
+     * Complexity: O(1).
+     *
+     * @param lexicon The lexicon tweets are scored against.
+     * @param address The address to listen on; port 0 picks a free port.
+     * @throws IOException If the address cannot be bound.
+     */
+    public ScoringServer(CompiledLexicon lexicon, InetSocketAddress address) throws IOException {
+        this(lexicon, address, new ProcessingTweets());
+    }
+
+    /**
+     * Creates a server for a compiled lexicon that scores tweets with the given processor, bound to an address
+     * but not yet started.
+     * Complexity: O(1).
+     *
+     * @param lexicon        The lexicon tweets are scored against.
+     * @param address        The address to listen on; port 0 picks a free port.
+     * @param tweetProcessor The processor that scores each tweet.
+     * @throws IOException If the address cannot be bound.
+     */
+    public ScoringServer(CompiledLexicon lexicon, InetSocketAddress address, TweetProcessor tweetProcessor)
+            throws IOException {
+        this.lexicon = lexicon;
+        this.tweetProcessor = tweetProcessor;
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/score", timed(scoreLatency, this::handleScore));
+        server.createContext("/score/batch", timed(batchLatency, this::handleBatch));
+        server.createContext("/metrics", this::handleMetrics);
+        server.createContext("/health", this::handleHealth);
+    }
+
+    /**
+     * Starts accepting requests.
+     * Complexity: O(1).
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the address the server listens on, including the port picked when 0 was given.
+     * Complexity: O(1).
+     *
+     * @return The bound address.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops accepting requests, waits up to a second for requests in progress, and stops the request threads.
+     * Complexity: O(1).
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Scores a single tweet.
+     * Complexity: O(n*k), where n is the number of words in the tweet, and k is the average word length.
+     */
+    private void handleScore(HttpExchange exchange) throws IOException {
+        if (!exactPath(exchange, "/score")) {
+            return;
+        }
+        String tweet;
+        switch (exchange.getRequestMethod()) {
+            case "POST" -> tweet = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            case "GET" -> tweet = queryParameter(exchange, "text");
+            default -> {
+                sendError(exchange, 405, "Use GET or POST");
+                return;
+            }
+        }
+        if (tweet == null) {
+            sendError(exchange, 400, "Missing tweet: POST it as the body or GET with ?text=");
+            return;
+        }
+
+        double score = tweetProcessor.calculateSentiment(tweet, lexicon);
+        tweetsScored.increment();
+        ByteSink sink = new ByteSink(ByteBuffer.allocate(64));
+        sink.put(bytes("{\"score\":"));
+        if (Double.isFinite(score)) {
+            sink.putScore(score);
+        } else {
+            sink.put(bytes("null"));
+        }
+        sink.put(bytes(",\"sentiment\":\"" + sentimentName(score) + "\"}\n"));
+        ByteBuffer response = sink.finish();
+        send(exchange, 200, JSON, response.array(), response.limit());
+    }
+
+    /**
+     * Scores one tweet per line of the request body, streaming the encoded results back batch by batch.
+     * Complexity: O(n*m), where n is the number of tweets and m is the average length of a tweet.
+     */
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        if (!exactPath(exchange, "/score/batch")) {
+            return;
+        }
+        if (!exchange.getRequestMethod().equals("POST")) {
+            sendError(exchange, 405, "POST one tweet per line");
+            return;
+        }
+        OutputFormat format;
+        try {
+            String formatName = queryParameter(exchange, "format");
+            format = formatName == null ? OutputFormat.JSONL : OutputFormat.valueOf(formatName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, "Unknown format; use text, csv, jsonl or binary");
+            return;
+        }
+
+        BatchEncoder encoder = format.encoder();
+        exchange.getResponseHeaders().set("Content-Type", format == OutputFormat.JSONL ? "application/x-ndjson"
+                : format == OutputFormat.BINARY ? "application/octet-stream" : "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+             OutputStream body = exchange.getResponseBody()) {
+            body.write(encoder.header(null));
+            TweetBatch batch = new TweetBatch("request", BATCH_SIZE);
+            ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+            while (batch.fill(reader)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.setScore(i, tweetProcessor.calculateSentiment(batch.tweet(i), lexicon));
+                }
+                tweetsScored.add(batch.size());
+                ByteSink sink = new ByteSink(buffer.clear());
+                encoder.encode(batch, sink);
+                buffer = sink.finish();
+                body.write(buffer.array(), 0, buffer.limit());
+                body.flush();
+            }
+        }
+    }
+
+    /**
+     * Reports request counts and latency percentiles, in microseconds.
+     * Complexity: O(b), where b is the number of histogram buckets.
+     */
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!exactPath(exchange, "/metrics")) {
+            return;
+        }
+        String metrics = String.format(Locale.ROOT,
+                "{\"uptimeSeconds\":%d,\"tweetsScored\":%d,\"errors\":%d,\"score\":%s,\"batch\":%s}\n",
+                (System.currentTimeMillis() - startMillis) / 1000, tweetsScored.sum(), errors.sum(),
+                latencyJson(scoreLatency), latencyJson(batchLatency));
+        byte[] response = bytes(metrics);
+        send(exchange, 200, JSON, response, response.length);
+    }
+
+    /**
+     * Reports that the server is up.
+     * Complexity: O(1).
+     */
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        if (!exactPath(exchange, "/health")) {
+            return;
+        }
+        byte[] response = bytes("{\"status\":\"ok\",\"words\":" + lexicon.size()
+                + ",\"phrases\":" + lexicon.phraseCount() + "}\n");
+        send(exchange, 200, JSON, response, response.length);
+    }
+
+    /**
+     * Wraps a handler so the time from reading the request to finishing the response is recorded.
+     * Errors are reported on the console and answered with a 500 response if nothing was sent yet.
+     * Complexity: O(1) on top of the handler.
+     */
+    private HttpHandler timed(LatencyHistogram histogram, HttpHandler handler) {
+        return exchange -> {
+            long start = System.nanoTime();
+            try {
+                handler.handle(exchange);
+                histogram.record(System.nanoTime() - start);
+            } catch (IOException | RuntimeException e) {
+                errors.increment();
+                System.err.println("Error handling " + exchange.getRequestURI() + ": " + e.getMessage());
+                if (exchange.getResponseCode() == -1) {
+                    sendError(exchange, 500, "Internal error");
+                }
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    /**
+     * Answers 404 unless the request is for exactly the given path, since contexts also match longer paths.
+     * Complexity: O(p), where p is the length of the path.
+     */
+    private boolean exactPath(HttpExchange exchange, String path) throws IOException {
+        if (exchange.getRequestURI().getPath().equals(path)) {
+            return true;
+        }
+        sendError(exchange, 404, "Not found");
+        return false;
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (status >= 500) {
+            errors.increment();
+        }
+        byte[] response = bytes("{\"error\":" + JsonLinesEncoder.quote(message) + "}\n");
+        send(exchange, status, JSON, response, response.length);
+    }
+
+    /**
+     * Sends a complete response with a known length, after reading any unread request body,
+     * so the connection can be reused for the next request.
+     * Complexity: O(n), where n is the size of the request and the response.
+     */
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] response, int length)
+            throws IOException {
+        try (InputStream request = exchange.getRequestBody()) {
+            request.transferTo(OutputStream.nullOutputStream());
+        }
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(response, 0, length);
+        }
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            if (URLDecoder.decode(key, StandardCharsets.UTF_8).equals(name)) {
+                return equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static String latencyJson(LatencyHistogram histogram) {
+        return String.format(Locale.ROOT,
+                "{\"requests\":%d,\"meanUs\":%.1f,\"p50Us\":%.1f,\"p90Us\":%.1f,\"p99Us\":%.1f,\"p999Us\":%.1f,\"maxUs\":%.1f}",
+                histogram.count(), histogram.mean() / 1e3, histogram.percentile(50) / 1e3,
+                histogram.percentile(90) / 1e3, histogram.percentile(99) / 1e3,
+                histogram.percentile(99.9) / 1e3, histogram.percentile(100) / 1e3);
+    }
+
+    private static String sentimentName(double score) {
+        return switch (BatchEncoder.sentimentClass(score)) {
+            case 1 -> "positive";
+            case -1 -> "negative";
+            default -> "neutral";
+        };
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,59 +1,507 @@
 package ie.atu.sw;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Manages the process of sentiment analysis including parsing lexicons, processing tweets, and outputting results.
  */
 public class SentimentAnalysisManager {
-    private LexiconParser lexiconParser;
-    private ProcessingTweets processingTweets;
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    private static final long DEFAULT_CHUNK_THRESHOLD = 8L << 20;
+    private static final Duration DEFAULT_DEADLINE = Duration.ofHours(1);
+    private static final int DEFAULT_MAX_OPEN_FILES = 64;
+    private static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 256L << 20;
+    // The largest byte array the JVM can allocate
+    private static final long MAX_IN_MEMORY_FILE = Integer.MAX_VALUE - 8;
+
+    private LexiconCache lexiconCache;
+    private TweetProcessor tweetProcessor;
     private OutputFolder outputFolder;
+    private Supplier<ExecutorService> executorFactory;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private long chunkThreshold = DEFAULT_CHUNK_THRESHOLD;
+    private ChunkedTweetScorer chunkedScorer = new ChunkedTweetScorer(DEFAULT_CHUNK_SIZE);
+    private boolean echo;
+    private boolean incremental;
+    private boolean summaryOnly;
+    private int topTweets;
+    private int termReportSize;
+    private PrintStream progressOutput = System.out;
+    private ErrorPolicy errorPolicy = ErrorPolicy.COLLECT_ALL;
+    private Duration deadline = DEFAULT_DEADLINE;
+    private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+    private long maxInFlightBytes = DEFAULT_MAX_IN_FLIGHT_BYTES;
+    private FileOrder fileOrder = FileOrder.PATH;
+    private MetricsRegistry metrics;
 
     /**
      * Constructor for SentimentAnalysisManager.
      * Initialises the components necessary for sentiment analysis.
+     * Tweet directories are processed with one virtual thread per file.
      * Complexity: O(1) - constant time complexity for initialising objects.
      */
     public SentimentAnalysisManager() {
-        this.lexiconParser = new LexiconParser();
-        this.processingTweets = new ProcessingTweets();
+        this(new LexiconCache(), Executors::newVirtualThreadPerTaskExecutor);
+    }
+
+    /**
+     * Constructor for SentimentAnalysisManager that shares a lexicon cache with other analyses.
+     * Tweet directories are processed with one virtual thread per file.
+     * Complexity: O(1) - constant time complexity for initialising objects.
+     *
+     * @param lexiconCache The session cache the lexicon is taken from.
+     */
+    public SentimentAnalysisManager(LexiconCache lexiconCache) {
+        this(lexiconCache, Executors::newVirtualThreadPerTaskExecutor);
+    }
+
+    /**
+     * Constructor for SentimentAnalysisManager with a custom executor for tweet directories.
+     * Allows the benchmarks to compare virtual threads against platform thread pools.
+     * Complexity: O(1) - constant time complexity for initialising objects.
+     *
+     * @param executorFactory Creates the executor used to process the files of a tweet directory.
+     */
+    public SentimentAnalysisManager(Supplier<ExecutorService> executorFactory) {
+        this(new LexiconCache(), executorFactory);
+    }
+
+    /**
+     * Constructor for SentimentAnalysisManager with a shared lexicon cache and a custom executor for tweet directories.
+     * Complexity: O(1) - constant time complexity for initialising objects.
+     *
+     * @param lexiconCache    The session cache the lexicon is taken from.
+     * @param executorFactory Creates the executor used to process the files of a tweet directory.
+     */
+    public SentimentAnalysisManager(LexiconCache lexiconCache, Supplier<ExecutorService> executorFactory) {
+        this.lexiconCache = lexiconCache;
+        this.tweetProcessor = new ProcessingTweets();
         this.outputFolder = new OutputFolder();
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * Getter for the number of tweets read, scored and written at a time.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The batch size.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Setter for the number of tweets read, scored and written at a time.
+     * Memory used per tweet file is bounded by this many tweets, whatever the size of the file.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param batchSize The batch size, at least 1.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Getter for the file size from which a single tweet file is split into chunks scored in parallel.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The chunking threshold in bytes.
+     */
+    public long getChunkThreshold() {
+        return chunkThreshold;
+    }
+
+    /**
+     * Setter for the file size from which a single tweet file is split into chunks scored in parallel.
+     * Smaller files are streamed by one thread, as splitting them costs more than it saves.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param chunkThreshold The chunking threshold in bytes; Long.MAX_VALUE turns chunking off.
+     */
+    public void setChunkThreshold(long chunkThreshold) {
+        this.chunkThreshold = chunkThreshold;
+    }
+
+    /**
+     * Getter for the format the results file is written in.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The output format.
+     */
+    public OutputFormat getOutputFormat() {
+        return outputFolder.getFormat();
+    }
+
+    /**
+     * Setter for the format the results file is written in; the text report is the default.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param outputFormat The output format.
+     */
+    public void setOutputFormat(OutputFormat outputFormat) {
+        outputFolder.setFormat(outputFormat);
+    }
+
+    /**
+     * Getter for the processor that scores each tweet.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The tweet processor.
+     */
+    public TweetProcessor getTweetProcessor() {
+        return tweetProcessor;
+    }
+
+    /**
+     * Setter for the processor that scores each tweet; plain summing of word scores is the default.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param tweetProcessor The tweet processor, e.g. a {@link RuleBasedTweetProcessor}.
+     */
+    public void setTweetProcessor(TweetProcessor tweetProcessor) {
+        this.tweetProcessor = tweetProcessor;
+    }
+
+    /**
+     * Checks whether every scored tweet is printed to the console.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return true if tweets are echoed.
+     */
+    public boolean isEcho() {
+        return echo;
+    }
+
+    /**
+     * Setter for printing every scored tweet to the console, a debug mode that is off by default.
+     * Printing each tweet serialises the scoring threads on the console and slows large runs down considerably.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param echo true to print every tweet.
+     */
+    public void setEcho(boolean echo) {
+        this.echo = echo;
+    }
+
+    /**
+     * Checks whether directory runs reuse the stored results of unchanged tweet files.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return true if directory runs are incremental.
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Setter for incremental directory runs, off by default.
+     * When on, a manifest and a store of per-file results are kept next to the results file, and a repeated
+     * run with the same lexicon and output format only scores the tweet files that are new or have changed.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param incremental true to reuse the results of unchanged files.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Checks whether only the summary report is written, without the per-tweet results file.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return true if only the summary is written.
+     */
+    public boolean isSummaryOnly() {
+        return summaryOnly;
+    }
+
+    /**
+     * Setter for writing only the summary report of an analysis, off by default.
+     * Tweets are still scored batch by batch, but their scores are only counted into the aggregate statistics,
+     * so neither memory nor disk use grows with the number of tweets. Incremental runs need the per-tweet
+     * results, so they are not incremental in this mode.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param summaryOnly true to skip the per-tweet results file.
+     */
+    public void setSummaryOnly(boolean summaryOnly) {
+        this.summaryOnly = summaryOnly;
+    }
+
+    /**
+     * Getter for the number of most positive and most negative tweets reported per tweet file and overall.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The number of top tweets, or 0 if they are not reported.
+     */
+    public int getTopTweets() {
+        return topTweets;
+    }
+
+    /**
+     * Setter for the number of most positive and most negative tweets reported in the summary, 0 (none) by default.
+     * Only the source, line number and score of the current top tweets are kept while scoring, in bounded heaps
+     * per tweet file that are merged for the overall list; the text is read back from the tweet files for the
+     * final tweets only.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param topTweets The number of top tweets, or 0 for none.
+     */
+    public void setTopTweets(int topTweets) {
+        if (topTweets < 0) {
+            throw new IllegalArgumentException("The number of top tweets cannot be negative: " + topTweets);
+        }
+        this.topTweets = topTweets;
+    }
+
+    /**
+     * Getter for the number of lexicon terms in each ranking of the term analytics.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The number of terms, or 0 if term analytics are off.
+     */
+    public int getTermReportSize() {
+        return termReportSize;
+    }
+
+    /**
+     * Setter for term analytics, off (0) by default.
+     * When on, the summary also ranks the lexicon terms that matched most often and that contributed the most
+     * positive and most negative weight across the run. Matches are recorded in fixed-size sketches borrowed by
+     * the scoring threads, so memory does not grow with the lexicon or the number of tweets.
+     * Only scored files contribute matches, so incremental runs score every file while term analytics are on.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param termReportSize The number of terms in each ranking, or 0 for no term analytics.
+     */
+    public void setTermReportSize(int termReportSize) {
+        if (termReportSize < 0) {
+            throw new IllegalArgumentException("The number of terms cannot be negative: " + termReportSize);
+        }
+        this.termReportSize = termReportSize;
+    }
+
+    /**
+     * Getter for what happens to the rest of a tweet directory when one of its files cannot be scored.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The error policy.
+     */
+    public ErrorPolicy getErrorPolicy() {
+        return errorPolicy;
+    }
+
+    /**
+     * Setter for what happens to the rest of a tweet directory when one of its files cannot be scored.
+     * By default every failure is collected and the other files are still scored; with fail-fast, the first
+     * failure cancels the files in progress and skips the rest.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param errorPolicy The error policy.
+     */
+    public void setErrorPolicy(ErrorPolicy errorPolicy) {
+        this.errorPolicy = errorPolicy;
+    }
+
+    /**
+     * Getter for how long the tweet files of an analysis may take to score.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The deadline, or null for no limit.
+     */
+    public Duration getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Setter for how long the tweet files of an analysis may take to score, one hour by default.
+     * Once it has passed, the files in progress are cancelled, the rest are skipped, and the analysis returns
+     * with what was scored so far. Watching a directory has no deadline.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param deadline The deadline, or null for no limit.
+     */
+    public void setDeadline(Duration deadline) {
+        if (deadline != null && (deadline.isNegative() || deadline.isZero())) {
+            throw new IllegalArgumentException("Deadline must be positive: " + deadline);
+        }
+        this.deadline = deadline;
+    }
+
+    /**
+     * Getter for the number of files a directory run may have open at once.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The limit on open files.
+     */
+    public int getMaxOpenFiles() {
+        return maxOpenFiles;
+    }
+
+    /**
+     * Setter for the number of files a directory run may have open at once, 64 by default.
+     * Each tweet file being scored counts with the spill and copy files its results may need. Every file still
+     * gets its own thread, but only this many files are open at a time, so a directory of any size stays within
+     * the file descriptor limit and the disk is not swamped with random reads.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param maxOpenFiles The limit on open files, at least 1.
+     */
+    public void setMaxOpenFiles(int maxOpenFiles) {
+        if (maxOpenFiles < 1) {
+            throw new IllegalArgumentException("Open files must be at least 1: " + maxOpenFiles);
+        }
+        this.maxOpenFiles = maxOpenFiles;
+    }
+
+    /**
+     * Getter for the number of bytes of tweet files that may be read into memory and not yet scored.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The limit on bytes in flight.
+     */
+    public long getMaxInFlightBytes() {
+        return maxInFlightBytes;
+    }
+
+    /**
+     * Setter for the number of bytes of tweet files that may be read into memory and not yet scored, 256 MB by default.
+     * A tweet file of a directory that fits, and is smaller than 2 GB, is read whole and closed before it is
+     * scored, so scoring does not hold a file open; larger files are streamed while open.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param maxInFlightBytes The limit on bytes in flight, at least 1.
+     */
+    public void setMaxInFlightBytes(long maxInFlightBytes) {
+        if (maxInFlightBytes < 1) {
+            throw new IllegalArgumentException("Bytes in flight must be at least 1: " + maxInFlightBytes);
+        }
+        this.maxInFlightBytes = maxInFlightBytes;
+    }
+
+    /**
+     * Getter for the order in which the tweet files of a directory are read.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The file order.
+     */
+    public FileOrder getFileOrder() {
+        return fileOrder;
+    }
+
+    /**
+     * Setter for the order in which the tweet files of a directory are read and written to the results file,
+     * path order by default.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param fileOrder The file order.
+     */
+    public void setFileOrder(FileOrder fileOrder) {
+        this.fileOrder = fileOrder;
+    }
+
+    /**
+     * Getter for the registry the stages of an analysis are counted and timed in.
+     * Complexity: O(1) - constant time for returning a field value.
+     *
+     * @return The metrics registry, or null if no metrics are kept.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Setter for the registry the stages of an analysis are counted and timed in, shared with the output.
+     * With a registry, every run also dumps it to metrics.json next to the summary report; the registry is not
+     * reset between runs, so the dump covers every run of the manager so far. Without one, which is the default,
+     * no metrics are kept and tweets are not counted into tokens.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param metrics The metrics registry, or null to keep no metrics.
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+        outputFolder.setMetrics(metrics);
+    }
+
+    /**
+     * Setter for the stream the progress of an analysis is reported to.
+     * Complexity: O(1) - constant time for setting a field value.
+     *
+     * @param progressOutput The stream to report to, System.out by default, or null to report nothing.
+     */
+    public void setProgressOutput(PrintStream progressOutput) {
+        this.progressOutput = progressOutput;
     }
 
     /**
      * Performs sentiment analysis on a set of tweets using a specified lexicon and outputs the results.
+     * Tweets are streamed in batches, so files of any size are processed with bounded memory.
+     * Progress is reported at a fixed interval rather than per tweet.
+     * In incremental mode, a tweet directory only has its new and changed files scored.
+     * Aggregate statistics, overall and per tweet file, are written to a summary report next to the results.
+     * A tweet directory is scored under the deadline and error policy; if the analysis stops early, or the
+     * calling thread is interrupted, it returns with what was scored so far and the outcome of every file.
      * Complexity: O(n*m), where n is the number of tweets, m is the average length of a tweet.
      *
-     * @param lexiconPath    The path to the lexicon file or directory.
+     * @param lexiconPath    The path to the lexicon file, directory or snapshot.
      * @param tweetPath      The path to the tweet file or directory.
      * @param outputFilePath The path to the output file.
+     * @return A summary of the tweets scored and the time taken by each stage.
      * @throws IOException If there is an issue in reading files or writing output.
      */
-    public void performAnalysis(String lexiconPath, String tweetPath, String outputFilePath) throws IOException {
-        // Check if the lexiconPath is valid
-        Path lexiconPathObj = Paths.get(lexiconPath);
-        if (!Files.exists(lexiconPathObj)) {
-            throw new IOException("Lexicon path does not exist: " + lexiconPath);
-        }
+    public AnalysisSummary performAnalysis(String lexiconPath, String tweetPath, String outputFilePath) throws IOException {
+        return performAnalysis(List.of(lexiconPath), tweetPath, outputFilePath);
+    }
 
-        // Determine if lexiconPath is a file or a directory
-        Map<String, Double> lexicon;
-        if (Files.isDirectory(lexiconPathObj)) {
-            lexicon = lexiconParser.parseLexiconDirectory(lexiconPath);
-        } else {
-            lexicon = lexiconParser.parseFile(lexiconPath);
-        }
+    /**
+     * Performs sentiment analysis on a set of tweets against one or more lexicons and outputs the results.
+     * With several lexicons, every tweet is read and tokenised once and scored against all of them in the same
+     * pass, and the results have one score column per lexicon, named after its file. The summary statistics,
+     * progress counts and top tweets then describe the first lexicon; incremental runs and term analytics need
+     * a single lexicon and are skipped otherwise.
+     * Complexity: O(n*(m + l)), where n is the number of tweets, m is the average length of a tweet and l is the
+     * number of lexicons.
+     *
+     * @param lexiconPaths   The paths to the lexicon files, directories or snapshots, in column order.
+     * @param tweetPath      The path to the tweet file or directory.
+     * @param outputFilePath The path to the output file.
+     * @return A summary of the tweets scored and the time taken by each stage.
+     * @throws IOException If there is an issue in reading files or writing output.
+     */
+    public AnalysisSummary performAnalysis(List<String> lexiconPaths, String tweetPath, String outputFilePath)
+            throws IOException {
+        long start = System.nanoTime();
+
+        // Take each lexicon file, directory or snapshot from the cache, loading it only if it changed
+        LexiconSet lexicons = loadLexicons(lexiconPaths);
+        long lexiconLoaded = System.nanoTime();
 
         // Check if the tweetPath is valid
         Path tweetPathObj = Paths.get(tweetPath);
@@ -61,95 +509,706 @@ public class SentimentAnalysisManager {
             throw new IOException("Tweet path does not exist: " + tweetPath);
         }
 
-        // Process tweets
-        if (Files.isDirectory(tweetPathObj)) {
-            processTweetDirectory(tweetPath, lexicon, outputFilePath);
-        } else {
-            List<String> tweets = loadTweets(tweetPath);
-            String sourceIdentifier = Paths.get(tweetPath).getFileName().toString();
-            processAndOutputTweets(tweets, lexicon, outputFilePath, sourceIdentifier);
+        // Process tweets, streaming the results through a single writer into one output file
+        // In summary-only mode there is no results file, and no part for any tweet file
+        try (ProgressReporter progress = new ProgressReporter(progressOutput)) {
+            AnalysisStatistics statistics = newStatistics(lexicons);
+            outputFolder.setScoreNames(lexicons.scoreNames());
+            ResultWriter results = summaryOnly ? null : outputFolder.openResults(outputFilePath);
+            RunManifest manifest = null;
+            RunResult run = new RunResult();
+            FileAdmission admission = null;
+            long scored;
+            boolean interrupted;
+            try (results) {
+                if (Files.isDirectory(tweetPathObj)) {
+                    if (incremental && results != null && termReportSize == 0 && lexicons.size() == 1) {
+                        // Scoring rules are part of the lexicon checksum, so results scored under other rules are redone
+                        long lexiconHash = SourceFingerprint.contentHash(Paths.get(lexiconPaths.get(0)))
+                                ^ tweetProcessor.rulesHash();
+                        manifest = RunManifest.open(results.outputFile(), lexiconHash,
+                                lexiconCache.getConflictPolicy(), outputFolder.getFormat(), topTweets);
+                    }
+                    admission = new FileAdmission(maxOpenFiles, maxInFlightBytes);
+                    processTweetDirectory(tweetPathObj, lexicons, results, progress, statistics, manifest, run,
+                            admission);
+                } else {
+                    progress.fileFound(Files.size(tweetPathObj));
+                    try (ResultWriter.Part part = openPart(results, tweetPathObj, null)) {
+                        TopKTracker fileTopTweets = newTopKTracker(tweetPathObj);
+                        statistics.fileCompleted(tweetPathObj.toString(),
+                                processTweetFile(tweetPathObj, lexicons, part, progress, fileTopTweets, statistics.terms(),
+                                        null),
+                                fileTopTweets);
+                    }
+                    progress.fileDone();
+                    run.record(tweetPathObj, RunResult.Outcome.SUCCEEDED);
+                }
+                scored = System.nanoTime();
+                // Let the writer drain what was scored before a cancelled run returns
+                interrupted = Thread.interrupted();
+            }
+            if (manifest != null) {
+                // Only now is every stored copy complete
+                manifest.save();
+            }
+            Path summaryFile = outputFolder.writeSummary(statistics, outputFilePath);
+            long written = System.nanoTime();
+            recordStages(lexiconLoaded - start, scored - lexiconLoaded, written - scored, outputFilePath);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            return new AnalysisSummary(progress.filesDone(), progress.filesReused(), progress.filesFailed(),
+                    progress.tweets(), progress.positive(), progress.negative(),
+                    lexiconLoaded - start, scored - lexiconLoaded, written - scored,
+                    results != null ? results.outputFile() : summaryFile, run,
+                    admission == null ? null : admission.waits());
         }
     }
 
     /**
      * Processes tweets from a directory and writes the sentiment results to an output file.
-     * Uses virtual threads for efficient processing of multiple files.
+     * The files are listed first and sorted by the file order. Every file is scored as a task of one
+     * {@link FileTaskScope}, on a virtual thread by default, and the scope is joined before returning, so no task
+     * outlives the run. The scope stops at the deadline, at the first failure under the fail-fast policy, or when
+     * the calling thread is interrupted; files not submitted by then are recorded as skipped without being opened.
+     * Admission tickets are reserved in the same order as the files are submitted, so tasks are admitted to read
+     * their files in that order, within the limits on open files and bytes in flight.
+     * Each file gets its own part of the output file, opened in that order, so the results of every file
+     * are kept together and in the same order however the threads finish.
      * Complexity: O(n*m), where n is the number of tweet files in the directory, and m is the average number of tweets per file.
      *
-     * @param tweetDirectoryPath The path to the directory containing tweet files.
-     * @param lexicon            The lexicon map used for sentiment analysis.
-     * @param outputFilePath     The path to the output file.
-     * @throws IOException If there is an issue in reading tweet files or writing output.
+     * @param tweetDirectory The directory containing tweet files.
+     * @param lexicons       The lexicons used for sentiment analysis, one score column each.
+     * @param results        The writer of the output file shared by all tweet files, or null for none.
+     * @param progress       The reporter of the analysis progress.
+     * @param statistics     The aggregate statistics each file is added to.
+     * @param manifest       The manifest of an incremental run, or null to score every file.
+     * @param run            The record of the outcome of every file and of the run.
+     * @param admission      The admission control for reading the tweet files.
+     * @throws IOException If there is an issue in listing the tweet files.
+     */
+    private void processTweetDirectory(Path tweetDirectory, LexiconSet lexicons, ResultWriter results,
+                                       ProgressReporter progress, AnalysisStatistics statistics,
+                                       RunManifest manifest, RunResult run, FileAdmission admission)
+            throws IOException {
+        long listStart = System.nanoTime();
+        List<ListedFile> files = listTweetFiles(tweetDirectory, manifest);
+        if (metrics != null) {
+            metrics.timer("stage.list").record(System.nanoTime() - listStart);
+        }
+        try (FileTaskScope scope = new FileTaskScope(executorFactory.get(), errorPolicy, deadline, run)) {
+            try {
+                for (ListedFile file : files) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        scope.shutdown(RunResult.Status.CANCELLED);
+                    }
+                    if (scope.isShutdown()) {
+                        run.record(file.path(), RunResult.Outcome.SKIPPED);
+                        continue;
+                    }
+                    submitTweetFile(scope, file.path(), file.attributes(), admission, lexicons, results, progress,
+                            statistics, manifest, run, done -> { });
+                }
+            } finally {
+                join(scope);
+            }
+        }
+    }
+
+    /**
+     * Lists the tweet files of a directory with their attributes, sorted by the file order.
+     * Complexity: O(f log f), where f is the number of files in the directory.
+     *
+     * @param tweetDirectory The directory containing tweet files.
+     * @param manifest       The manifest of an incremental run, whose own files are left out, or null.
+     * @return The tweet files in the order they are read.
+     * @throws IOException If the directory cannot be listed or the attributes of a file cannot be read.
+     */
+    private List<ListedFile> listTweetFiles(Path tweetDirectory, RunManifest manifest) throws IOException {
+        List<ListedFile> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(tweetDirectory)) {
+            for (Path filePath : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                if (manifest == null || !manifest.isOwnFile(filePath)) {
+                    files.add(new ListedFile(filePath, Files.readAttributes(filePath, BasicFileAttributes.class)));
+                }
+            }
+        }
+        Comparator<ListedFile> byPath = Comparator.comparing(ListedFile::path);
+        files.sort(switch (fileOrder) {
+            case PATH -> byPath;
+            case SIZE -> Comparator.comparingLong((ListedFile file) -> file.attributes().size()).reversed()
+                    .thenComparing(byPath);
+        });
+        return files;
+    }
+
+    /**
+     * Watches a landing directory and scores each new tweet file once it is fully written, appending the
+     * results to the output file, until the calling thread is interrupted.
+     * The summary report written at the end covers the files scored while watching.
+     * The lexicon is loaded once. Every file is scored as a task of one {@link FileTaskScope}, and its
+     * path is then recorded in a ".processed" file next to the results, so no file is scored twice,
+     * even across restarts. Files already in the directory that are not recorded are scored first.
+     * When interrupted, stops watching, waits for the files being scored and returns with the interrupt status set.
+     * The error policy applies, but there is no deadline.
+     * Complexity: O(n*m), where n is the number of new tweets and m is the average length of a tweet.
+     *
+     * @param lexiconPath    The path to the lexicon file, directory or snapshot.
+     * @param tweetDirectory The landing directory that tweet files are written to.
+     * @param outputFilePath The path to the output directory.
+     * @param settleMillis   How long a file must stay unchanged before it is scored, in milliseconds.
+     * @return A summary of the tweets scored while watching.
+     * @throws IOException If the lexicon or directory cannot be read, or the output cannot be written.
      */
-    private void processTweetDirectory(String tweetDirectoryPath, Map<String, Double> lexicon, String outputFilePath) throws IOException {
-        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    public AnalysisSummary watchTweetDirectory(String lexiconPath, String tweetDirectory, String outputFilePath,
+                                               long settleMillis) throws IOException {
+        long start = System.nanoTime();
+        LexiconSet lexicons = LexiconSet.of(lexiconCache.get(lexiconPath));
+        long lexiconLoaded = System.nanoTime();
 
-        Files.walk(Paths.get(tweetDirectoryPath))
-                .filter(Files::isRegularFile)
-                .forEach(filePath -> executor.submit(() -> {
+        Path tweetDirectoryObj = Paths.get(tweetDirectory);
+        if (!Files.isDirectory(tweetDirectoryObj)) {
+            throw new IOException("Tweet directory does not exist: " + tweetDirectory);
+        }
+
+        try (ProgressReporter progress = new ProgressReporter(progressOutput)) {
+            AnalysisStatistics statistics = newStatistics(lexicons);
+            outputFolder.setScoreNames(lexicons.scoreNames());
+            ResultWriter results = outputFolder.appendResults(outputFilePath);
+            RunResult run = new RunResult();
+            FileAdmission admission = new FileAdmission(maxOpenFiles, maxInFlightBytes);
+            long scored;
+            boolean interrupted;
+            try (results) {
+                Path outputFile = results.outputFile().toAbsolutePath().normalize();
+                Path ledger = outputFile.resolveSibling(outputFile.getFileName() + ".processed");
+                Set<Path> processed = readProcessedFiles(ledger);
+                try (FileTaskScope scope = new FileTaskScope(executorFactory.get(), errorPolicy, null, run);
+                     TweetDirectoryWatcher watcher = new TweetDirectoryWatcher(tweetDirectoryObj, settleMillis,
+                             processed, Set.of(outputFile, ledger))) {
+                    // A failure under the fail-fast policy stops the watch
+                    Thread watching = Thread.currentThread();
+                    scope.onShutdown(watching::interrupt);
                     try {
-                        List<String> tweets = loadTweets(filePath.toString());
-                        String sourceIdentifier = filePath.getFileName().toString();
-                        processAndOutputTweets(tweets, lexicon, outputFilePath, sourceIdentifier);
-                    } catch (IOException e) {
-                        System.err.println("Error processing tweets from file: " + filePath + ". Error: " + e.getMessage());
+                        watcher.watch(file -> submitTweetFile(scope, file,
+                                Files.readAttributes(file, BasicFileAttributes.class), admission, lexicons, results,
+                                progress, statistics, null, run, done -> recordProcessedFile(ledger, done)));
+                    } finally {
+                        // Let the files being scored finish before stopping
+                        interrupted = Thread.interrupted() && run.status() != RunResult.Status.FAILED;
+                        join(scope);
+                        interrupted |= Thread.interrupted();
                     }
-                }));
+                }
+                scored = System.nanoTime();
+            }
+            outputFolder.writeSummary(statistics, outputFilePath);
+            long written = System.nanoTime();
+            recordStages(lexiconLoaded - start, scored - lexiconLoaded, written - scored, outputFilePath);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            return new AnalysisSummary(progress.filesDone(), progress.filesReused(), progress.filesFailed(),
+                    progress.tweets(), progress.positive(), progress.negative(),
+                    lexiconLoaded - start, scored - lexiconLoaded, written - scored, results.outputFile(), run,
+                    admission.waits());
+        }
+    }
+
+    /**
+     * Gives a tweet file its own part of the output file, in submission order, and scores it as a task of the scope.
+     * In an incremental run, the stored results of an unchanged file are copied into its part instead, and the
+     * results of a scored file are also stored for the next run.
+     * A file that fails is reported on the console; one cancelled by the scope is only recorded as skipped.
+     * The file's admission ticket is reserved here, on the thread that submits the files, so files are admitted in
+     * submission order whatever order their tasks start in.
+     * Complexity: O(1) for the caller, unless an unchanged file has to be checksummed; the file is scored in the
+     * background.
+     *
+     * @param scope      The scope the file is scored in.
+     * @param filePath   The tweet file.
+     * @param attributes The attributes of the tweet file, read when it was found.
+     * @param admission  The admission control for reading the file.
+     * @param lexicons   The lexicons used for sentiment analysis, one score column each.
+     * @param results    The writer of the output file, or null for none.
+     * @param progress   The reporter of the analysis progress.
+     * @param statistics The aggregate statistics the file is added to.
+     * @param manifest   The manifest of an incremental run, or null to always score the file.
+     * @param run        The record the outcome of a reused file is added to.
+     * @param onDone     Called with the file once all its tweets have been scored.
+     * @throws IOException If the file attributes cannot be read or the part cannot be opened.
+     */
+    private void submitTweetFile(FileTaskScope scope, Path filePath, BasicFileAttributes attributes,
+                                 FileAdmission admission, LexiconSet lexicons, ResultWriter results,
+                                 ProgressReporter progress, AnalysisStatistics statistics, RunManifest manifest,
+                                 RunResult run, Consumer<Path> onDone) throws IOException {
+        RunManifest.Entry entry = null;
+        if (manifest != null) {
+            Path stored = manifest.reusableResults(filePath, attributes);
+            if (stored != null) {
+                try (ResultWriter.Part part = openPart(results, filePath, null)) {
+                    part.writeFile(stored);
+                }
+                progress.fileReused(manifest.addStoredStatistics(stored, filePath, statistics), attributes.size());
+                run.record(filePath, RunResult.Outcome.REUSED);
+                onDone.accept(filePath);
+                return;
+            }
+            entry = manifest.newEntry(filePath, attributes);
+        }
 
-        executor.shutdown();
+        progress.fileFound(attributes.size());
+        RunManifest.Entry newEntry = entry;
+        ResultWriter.Part part = openPart(results, filePath, newEntry == null ? null : manifest.resultsFile(newEntry));
+        // The results may need a spill file and a copy for the next run while the file is scored
+        int files = 1 + (part == null ? 0 : 1) + (newEntry == null ? 0 : 1);
+        FileAdmission.Ticket ticket;
         try {
-            if (!executor.awaitTermination(1, TimeUnit.HOURS)) {
-                executor.shutdownNow();
+            ticket = admission.reserve(inMemoryBytes(attributes.size(), admission), files);
+        } catch (RuntimeException e) {
+            closeUnstarted(part, null);
+            throw e;
+        }
+        boolean forked = scope.fork(filePath, () -> {
+            // The part is closed before the ticket, so the writer is told to release its files first
+            try (ticket; part) {
+                // Checksum before scoring, so changes made while scoring are noticed by the next run
+                RunManifest.Entry hashed = newEntry == null ? null : manifest.withContentHash(filePath, newEntry);
+                TopKTracker fileTopTweets = newTopKTracker(filePath);
+                ScoreStatistics fileStatistics = processTweetFile(filePath, lexicons, part, progress, fileTopTweets,
+                        statistics.terms(), ticket);
+                statistics.fileCompleted(filePath.toString(), fileStatistics, fileTopTweets);
+                progress.fileDone();
+                if (hashed != null) {
+                    manifest.writeStatistics(hashed, fileStatistics, fileTopTweets);
+                    manifest.record(filePath, hashed);
+                }
+                onDone.accept(filePath);
+            } catch (IOException | RuntimeException e) {
+                if (!scope.isShutdown()) {
+                    progress.fileFailed();
+                    System.err.println("Error processing tweets from file: " + filePath + ". Error: " + e.getMessage());
+                }
+                throw e;
             }
+        });
+        if (!forked) {
+            closeUnstarted(part, ticket);
+        }
+    }
+
+    /**
+     * Closes the part and ticket of a tweet file whose task was never started, so the parts after it can be
+     * written and the files behind it in line be admitted.
+     * Complexity: O(1), unless the writer's queue is full.
+     *
+     * @param part   The part of the output file for the file, or null for none.
+     * @param ticket The file's place in line for admission, or null if it has none.
+     * @throws IOException If the thread is interrupted while waiting for the writer's queue.
+     */
+    private static void closeUnstarted(ResultWriter.Part part, FileAdmission.Ticket ticket) throws IOException {
+        try {
+            if (part != null) {
+                part.close();
+            }
+        } finally {
+            if (ticket != null) {
+                ticket.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the bytes a tweet file holds in memory while it is scored: its size if it is read whole, or 0 if it
+     * is streamed or split into chunks.
+     * A file is read whole if it fits in the limit on bytes in flight and in one byte array.
+     * Complexity: O(1).
+     *
+     * @param size      The size of the file.
+     * @param admission The admission control for reading the file.
+     * @return The bytes to reserve for the file.
+     */
+    private long inMemoryBytes(long size, FileAdmission admission) {
+        boolean whole = size > 0 && size <= Math.min(admission.maxBytes(), MAX_IN_MEMORY_FILE) && !isChunked(size);
+        return whole ? size : 0;
+    }
+
+    /**
+     * Checks whether a tweet file is split into chunks scored in parallel.
+     * Complexity: O(1).
+     *
+     * @param size The size of the file.
+     * @return true for a file at or above the chunking threshold on a machine with several CPUs.
+     */
+    private boolean isChunked(long size) {
+        return size >= chunkThreshold && Runtime.getRuntime().availableProcessors() > 1;
+    }
+
+    /**
+     * Records the time of each stage of a run in the metrics registry, if there is one, and dumps the registry
+     * next to the summary report.
+     * Complexity: O(k log k + h*b), where k is the number of metrics, h is the number of histograms and b is
+     * the number of histogram buckets.
+     *
+     * @param lexiconLoadNanos    The time taken to load the lexicons.
+     * @param scoringNanos        The time taken to read and score the tweets.
+     * @param writeNanos          The time taken to finish writing the results after scoring.
+     * @param outputDirectoryPath The output directory.
+     * @throws IOException If the dump cannot be written.
+     */
+    private void recordStages(long lexiconLoadNanos, long scoringNanos, long writeNanos, String outputDirectoryPath)
+            throws IOException {
+        if (metrics == null) {
+            return;
+        }
+        metrics.timer("stage.lexiconLoad").record(lexiconLoadNanos);
+        metrics.timer("stage.scoring").record(scoringNanos);
+        metrics.timer("stage.write").record(writeNanos);
+        outputFolder.writeMetrics(metrics, outputDirectoryPath);
+    }
+
+    /**
+     * Creates the statistics of a run, with term analytics if they are reported and there is a single lexicon.
+     * Complexity: O(1).
+     *
+     * @param lexicons The lexicons used for sentiment analysis.
+     * @return The empty statistics.
+     */
+    private AnalysisStatistics newStatistics(LexiconSet lexicons) {
+        return new AnalysisStatistics(termReportSize > 0 && lexicons.size() == 1
+                ? new TermAnalytics(lexicons.lexicon(0), termReportSize) : null);
+    }
+
+    /**
+     * Takes every lexicon from the cache and combines several into one set, each named after its file or
+     * directory without the extension; a name already taken gets the lexicon's position appended.
+     * Complexity: O(f) for cached lexicons, where f is the number of source files checked for changes, plus
+     * O(n) to combine several, where n is the total number of lexicon entries.
+     *
+     * @param lexiconPaths The paths to the lexicon files, directories or snapshots, in column order.
+     * @return The lexicons.
+     * @throws IOException If a lexicon cannot be read.
+     */
+    private LexiconSet loadLexicons(List<String> lexiconPaths) throws IOException {
+        if (lexiconPaths.isEmpty()) {
+            throw new IllegalArgumentException("At least one lexicon is needed");
+        }
+        if (lexiconPaths.size() == 1) {
+            return LexiconSet.of(lexiconCache.get(lexiconPaths.get(0)));
+        }
+        List<String> names = new ArrayList<>(lexiconPaths.size());
+        List<CompiledLexicon> lexicons = new ArrayList<>(lexiconPaths.size());
+        for (String lexiconPath : lexiconPaths) {
+            String name = lexiconName(Paths.get(lexiconPath));
+            names.add(names.contains(name) ? name + "_" + (names.size() + 1) : name);
+            lexicons.add(lexiconCache.get(lexiconPath));
+        }
+        return LexiconSet.combine(names, lexicons);
+    }
+
+    /**
+     * Names a lexicon after its file or directory, without the extension.
+     * Complexity: O(k), where k is the length of the name.
+     */
+    private static String lexiconName(Path lexiconPath) {
+        Path fileName = lexiconPath.toAbsolutePath().normalize().getFileName();
+        String name = fileName == null ? "lexicon" : fileName.toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * Creates the tracker of the top tweets of a tweet file, if they are reported.
+     * Complexity: O(k), where k is the number of top tweets.
+     *
+     * @param filePath The tweet file.
+     * @return The tracker, or null if top tweets are not reported.
+     */
+    private TopKTracker newTopKTracker(Path filePath) {
+        return topTweets > 0 ? new TopKTracker(topTweets, filePath) : null;
+    }
+
+    /**
+     * Opens the part of the output file for a tweet file, unless there is no output file.
+     * Complexity: O(1), unless the queue of the writer is full.
+     *
+     * @param results  The writer of the output file, or null for none.
+     * @param filePath The tweet file.
+     * @param copyFile The file the part is also copied to, or null for no copy.
+     * @return The part, or null if there is no output file.
+     * @throws IOException If the part cannot be opened.
+     */
+    private static ResultWriter.Part openPart(ResultWriter results, Path filePath, Path copyFile) throws IOException {
+        return results == null ? null : results.openPart(filePath.getFileName().toString(), copyFile);
+    }
+
+    /**
+     * Waits for the tasks of a scope, which is shut down as cancelled if the calling thread is interrupted;
+     * the interrupt status is kept for the caller.
+     * Complexity: O(1) for the call; waits for the remaining tasks.
+     *
+     * @param scope The scope to join.
+     */
+    private static void join(FileTaskScope scope) {
+        try {
+            scope.join();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            executor.shutdownNow();
         }
     }
 
+    /**
+     * Reads the tweet files recorded as scored by earlier watch runs.
+     * Complexity: O(p), where p is the number of recorded files.
+     *
+     * @param ledger The file listing one absolute path per line.
+     * @return The recorded paths, empty if the ledger does not exist yet.
+     * @throws IOException If the ledger cannot be read.
+     */
+    private static Set<Path> readProcessedFiles(Path ledger) throws IOException {
+        Set<Path> processed = new HashSet<>();
+        if (Files.exists(ledger)) {
+            for (String line : Files.readAllLines(ledger, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    processed.add(Paths.get(line));
+                }
+            }
+        }
+        return processed;
+    }
 
     /**
-     * Processes a list of tweets and outputs their sentiment scores.
-     * Each tweet is processed to calculate its sentiment score, and results are written to an output file.
-     * Complexity: O(n*m), where n is the number of tweets and m is the average length of a tweet.
+     * Appends a scored tweet file to the ledger of a watch run.
+     * Complexity: O(1).
      *
-     * @param tweets           List of tweets to be processed.
-     * @param lexicon          Map containing the lexicon for sentiment analysis.
-     * @param outputFilePath   Path where the output should be written.
-     * @param sourceIdentifier An identifier for the source of tweets (e.g., filename).
-     * @throws IOException If an I/O error occurs during output writing.
+     * @param ledger The file listing one absolute path per line.
+     * @param file   The tweet file that has been scored.
      */
-    private void processAndOutputTweets(List<String> tweets, Map<String, Double> lexicon, String outputFilePath, String sourceIdentifier) throws IOException {
-        ConcurrentHashMap<String, Double> tweetSentiments = new ConcurrentHashMap<>();
+    private static synchronized void recordProcessedFile(Path ledger, Path file) {
+        try {
+            Files.writeString(ledger, file + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Error recording processed file: " + file + ". Error: " + e.getMessage());
+        }
+    }
 
-        int lineNum = 1;
-        for (String tweet : tweets) {
-            // Create a unique key for each tweet by combining it with the source identifier and line number
-            String uniqueKey = sourceIdentifier + "_" + lineNum + ": " + tweet;
-            double sentimentScore = processingTweets.calculateSentiment(tweet, lexicon);
-            tweetSentiments.put(uniqueKey, sentimentScore);
-            lineNum++; // Increment the line number for the next tweet
+    /**
+     * Streams the tweets of a file through scoring and output one batch at a time.
+     * Only one batch of tweets is held in memory, so the heap needed does not grow with the file.
+     * On machines with several CPUs, files at or above the chunking threshold are instead split into
+     * memory-mapped chunks scored in parallel, which are written back in line order.
+     * With admission control, the file first waits for its turn to be opened. A file within the limit on bytes in
+     * flight, and small enough for one byte array, is then read whole and closed, and scored from memory; other
+     * files are held open while scored.
+     * A file scored to the end is recorded as a {@link TweetFileEvent} when the flight recorder is on, and
+     * counted and timed in the metrics registry if there is one.
+     * Complexity: O(n*m), where n is the number of tweets in the file and m is the average length of a tweet.
+     *
+     * @param tweetFile The file containing one tweet per line.
+     * @param lexicons  The lexicons for sentiment analysis, one score column each.
+     * @param part      The part of the output file that holds this file's results, or null for none.
+     * @param progress  The reporter of the analysis progress.
+     * @param topTweets The tracker of the file's top tweets, or null if they are not reported.
+     * @param terms     The analytics the scored terms are recorded in, or null if they are not reported.
+     * @param ticket    The admission of the file, reserved in listing order and closed by the caller, or null to
+     *                  read it straight away.
+     * @return The statistics of the file's scores, gathered by the calling thread alone.
+     * @throws IOException If the file cannot be read or the results cannot be written.
+     */
+    private ScoreStatistics processTweetFile(Path tweetFile, LexiconSet lexicons, ResultWriter.Part part,
+                                             ProgressReporter progress, TopKTracker topTweets,
+                                             TermAnalytics terms, FileAdmission.Ticket ticket) throws IOException {
+        TweetFileEvent fileEvent = new TweetFileEvent();
+        fileEvent.begin();
+        long start = System.nanoTime();
+        ScoreStatistics fileStatistics = new ScoreStatistics();
+        long size = Files.size(tweetFile);
+        if (ticket != null) {
+            ticket.await();
+        }
+        if (isChunked(size)) {
+            // Chunks are scored in parallel but handed over in order on this thread, while the file stays open
+            try {
+                chunkedScorer.process(tweetFile, tweetProcessor, lexicons, terms, metrics,
+                        batch -> outputBatch(batch, part, progress, fileStatistics, topTweets, fileEvent));
+            } finally {
+                if (ticket != null) {
+                    ticket.fileClosed();
+                }
+            }
+            fileScored(fileEvent, tweetFile, "chunked", size, ticket, start);
+            return fileStatistics;
         }
 
-        tweetSentiments.forEach((key, sentiment) -> {
-            String formattedOutput = OutputFolder.formatTweetSentiment(key, sentiment);
-            System.out.println(formattedOutput);
-        });
+        // A file that grew since its bytes were reserved is streamed
+        boolean inMemory = ticket != null && size > 0 && size <= ticket.bytes();
+        TweetBatch batch = new TweetBatch(tweetFile.getFileName().toString(), batchSize, lexicons.scoreNames());
+        try (BufferedReader reader = inMemory ? readWhole(tweetFile, ticket)
+                : Files.newBufferedReader(tweetFile, StandardCharsets.UTF_8)) {
+            while (batch.fill(reader)) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Scoring cancelled: " + tweetFile);
+                }
+                processAndOutputBatch(batch, lexicons, part, progress, fileStatistics, topTweets, terms, fileEvent);
+            }
+        } finally {
+            if (ticket != null) {
+                ticket.fileClosed();
+            }
+        }
+        fileScored(fileEvent, tweetFile, inMemory ? "in-memory" : "streamed", size, ticket, start);
+        return fileStatistics;
+    }
+
+    /**
+     * Records a tweet file scored to the end in the metrics registry, if there is one, and commits its event.
+     * Complexity: O(1).
+     *
+     * @param fileEvent The event of the file, holding the tweets and tokens of its batches.
+     * @param tweetFile The tweet file.
+     * @param mode      How the file was read: chunked, in-memory or streamed.
+     * @param size      The size of the file in bytes.
+     * @param ticket    The admission of the file, or null if it was read straight away.
+     * @param start     When the file was started, from System.nanoTime.
+     */
+    private void fileScored(TweetFileEvent fileEvent, Path tweetFile, String mode, long size,
+                            FileAdmission.Ticket ticket, long start) {
+        long waited = ticket == null ? 0 : ticket.waitNanos();
+        if (metrics != null) {
+            metrics.histogram("file.score").record(System.nanoTime() - start);
+            metrics.counter("tweetFiles").increment();
+            metrics.counter("tweetBytes").add(size);
+            if (ticket != null) {
+                metrics.histogram("file.admissionWait").record(waited);
+            }
+        }
+        if (fileEvent.shouldCommit()) {
+            fileEvent.path = tweetFile.toString();
+            fileEvent.mode = mode;
+            fileEvent.bytes = size;
+            fileEvent.admissionWait = waited;
+            fileEvent.commit();
+        }
+    }
+
+    /**
+     * Reads a whole tweet file and closes it, releasing its open file while keeping its bytes admitted.
+     * Input that is not valid UTF-8 is rejected when the lines are read, as with Files.newBufferedReader.
+     * Complexity: O(b), where b is the size of the file.
+     *
+     * @param tweetFile The file containing one tweet per line.
+     * @param ticket    The admission of the file.
+     * @return A reader of the file's contents in memory.
+     * @throws IOException If the file cannot be read.
+     */
+    private static BufferedReader readWhole(Path tweetFile, FileAdmission.Ticket ticket) throws IOException {
+        byte[] contents;
+        try {
+            contents = Files.readAllBytes(tweetFile);
+        } finally {
+            ticket.fileClosed();
+        }
+        return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(contents),
+                StandardCharsets.UTF_8.newDecoder()));
+    }
 
-        outputFolder.writeResults(tweetSentiments, outputFilePath);
+    /**
+     * A tweet file found in a directory, with its attributes.
+     *
+     * @param path       The tweet file.
+     * @param attributes Its size and modification time when it was listed.
+     */
+    private record ListedFile(Path path, BasicFileAttributes attributes) {
     }
 
     /**
-     * Loads tweets from a file path into a list.
-     * Reads each line from the file assuming each line represents a tweet.
-     * Complexity: O(n), where n is the number of lines (tweets) in the file.
+     * Scores a batch of tweets and outputs their sentiment scores.
+     * The scoring is recorded as a {@link TweetBatchEvent} when the flight recorder is on, and timed in the
+     * metrics registry if there is one.
+     * Complexity: O(n*m), where n is the number of tweets in the batch and m is the average length of a tweet.
      *
-     * @param tweetFilePath Path to the file containing tweets.
-     * @return A list of tweets.
-     * @throws IOException If an I/O error occurs while reading the file.
+     * @param batch      The tweets to be processed.
+     * @param lexicons   The lexicons for sentiment analysis, one score column each.
+     * @param part       The part of the output file that holds the batch's source, or null for none.
+     * @param progress   The reporter of the analysis progress.
+     * @param statistics The statistics of the batch's source.
+     * @param topTweets  The tracker of the top tweets of the batch's source, or null if they are not reported.
+     * @param terms      The analytics the scored terms are recorded in, or null if they are not reported.
+     * @param fileEvent  The event of the batch's source, which the batch's tweets and tokens are added to.
+     * @throws IOException If an I/O error occurs during output writing.
      */
-    private List<String> loadTweets(String tweetFilePath) throws IOException {
-        return Files.lines(Paths.get(tweetFilePath)).collect(Collectors.toList());
+    private void processAndOutputBatch(TweetBatch batch, LexiconSet lexicons, ResultWriter.Part part,
+                                       ProgressReporter progress, ScoreStatistics statistics,
+                                       TopKTracker topTweets, TermAnalytics terms, TweetFileEvent fileEvent)
+            throws IOException {
+        TweetBatchEvent event = new TweetBatchEvent();
+        event.begin();
+        long start = metrics == null ? 0 : System.nanoTime();
+        // The sketch is only held while scoring, which never blocks, so there are about as many as CPUs
+        TermSketch sketch = terms == null ? null : terms.acquire();
+        try {
+            tweetProcessor.scoreBatch(batch, lexicons, sketch);
+        } finally {
+            if (sketch != null) {
+                terms.release(sketch);
+            }
+        }
+        event.end();
+        if (metrics != null) {
+            metrics.histogram("batch.score").record(System.nanoTime() - start);
+        }
+        if (event.shouldCommit()) {
+            event.source = batch.source();
+            event.firstLine = batch.lineNumber(0);
+            event.tweets = batch.size();
+            event.tokens = batch.tokenCount();
+            event.commit();
+        }
+        outputBatch(batch, part, progress, statistics, topTweets, fileEvent);
     }
 
+    /**
+     * Queues the sentiment scores of a scored batch for the output file, and records them in the progress and
+     * in the statistics and top tweets of the batch's source.
+     * In echo mode the batch is also printed as one block, so batches from files processed in parallel do not interleave.
+     * The tweets are only counted into tokens when there is a metrics registry or the file event is recorded.
+     * Complexity: O(n*m), where n is the number of tweets in the batch and m is the average length of a tweet.
+     *
+     * @param batch      The scored tweets.
+     * @param part       The part of the output file that holds the batch's source, or null for none.
+     * @param progress   The reporter of the analysis progress.
+     * @param statistics The statistics of the batch's source.
+     * @param topTweets  The tracker of the top tweets of the batch's source, or null if they are not reported.
+     * @param fileEvent  The event of the batch's source, which the batch's tweets and tokens are added to.
+     * @throws IOException If an I/O error occurs during output writing.
+     */
+    private void outputBatch(TweetBatch batch, ResultWriter.Part part, ProgressReporter progress,
+                             ScoreStatistics statistics, TopKTracker topTweets, TweetFileEvent fileEvent)
+            throws IOException {
+        if (metrics != null || fileEvent.isEnabled()) {
+            long tokens = batch.tokenCount();
+            fileEvent.tweets += batch.size();
+            fileEvent.tokens += tokens;
+            if (metrics != null) {
+                metrics.counter("tweets").add(batch.size());
+                metrics.counter("tokens").add(tokens);
+                metrics.counter("batches").increment();
+            }
+        }
+        if (echo) {
+            System.out.print(OutputFolder.formatBatch(batch));
+        }
+        if (part != null) {
+            outputFolder.writeBatch(batch, part);
+        }
+        statistics.addAll(batch);
+        if (topTweets != null) {
+            topTweets.addAll(batch);
+        }
+        progress.batchScored(batch);
+    }
 }
@@ -0,0 +1,267 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * The words that change the score of the sentiment words around them, for {@link RuleBasedTweetProcessor}:
+ * negations such as "not", boosters such as "very", dampeners such as "slightly", and contrast words such as "but".
+ * <p>
+ * The lists are kept in a file next to the lexicon, named after it with the modifiers extension
+ * (e.g. "afinn.txt.modifiers"), with one "kind,word" or "kind,word,value" line per word and '#' comments.
+ * The kinds are negation, booster, dampener and contrast; the value of a booster or dampener is how much it moves
+ * the score of the next sentiment word away from or towards zero (default 0.293). A file replaces the built-in lists,
+ * which follow VADER's.
+ * <p>
+ * Modifiers are found by character range in a {@link TokenTable}, behind a filter on the first character and the
+ * length of the token that turns away almost every other token without hashing it.
+ * Instances are read-only and can be shared by any number of threads without synchronisation.
+ */
+public final class SentimentModifiers {
+    /**
+     * File name extension of modifier lists.
+     */
+    public static final String EXTENSION = ".modifiers";
+
+    /**
+     * Kind of a word that is not a modifier.
+     */
+    static final int NONE = 0;
+    /**
+     * Kind of a word that flips the score of the sentiment words just after it.
+     */
+    static final int NEGATION = 1;
+    /**
+     * Kind of a booster or dampener, which moves the score of the sentiment words just after it.
+     */
+    static final int BOOSTER = 2;
+    /**
+     * Kind of a word that shifts the weight of a tweet to the clause after it.
+     */
+    static final int CONTRAST = 3;
+
+    private static final double DEFAULT_BOOST = 0.293;
+    private static final int MAX_FILTER_LENGTH = 63;
+
+    private static final List<String> DEFAULT_NEGATIONS = List.of(
+            "not", "no", "never", "none", "nobody", "nothing", "neither", "nor", "nowhere", "cannot", "without",
+            "aint", "arent", "cant", "couldnt", "didnt", "doesnt", "dont", "hadnt", "hasnt", "havent", "isnt",
+            "mightnt", "mustnt", "neednt", "shant", "shouldnt", "wasnt", "werent", "wont", "wouldnt",
+            "rarely", "seldom", "despite");
+    private static final List<String> DEFAULT_BOOSTERS = List.of(
+            "absolutely", "amazingly", "awfully", "completely", "considerably", "decidedly", "deeply", "enormously",
+            "entirely", "especially", "exceptionally", "extremely", "fabulously", "greatly", "highly", "hugely",
+            "incredibly", "intensely", "majorly", "more", "most", "particularly", "purely", "quite", "really",
+            "remarkably", "so", "substantially", "thoroughly", "totally", "tremendously", "truly", "unbelievably",
+            "utterly", "very");
+    private static final List<String> DEFAULT_DAMPENERS = List.of(
+            "almost", "barely", "hardly", "kinda", "less", "little", "marginally", "occasionally", "partly",
+            "scarcely", "slightly", "somewhat", "sorta");
+    private static final List<String> DEFAULT_CONTRASTS = List.of("but");
+
+    private final TokenTable words;
+    private final byte[] kinds;
+    private final double[] boosts;
+    // Bit l of the mask at (c & 127) is set if some modifier starts with c and has length l (lengths from 63 share bit 63)
+    private final long[] lengthMasks = new long[128];
+    private final long contentHash;
+
+    /**
+     * Builds the lists from each modifier word with its kind and, for boosters and dampeners, its boost.
+     * Complexity: O(n*k), where n is the number of words and k is the average word length.
+     *
+     * @param entries The kind and boost of every word, in the order they were defined.
+     */
+    private SentimentModifiers(Map<String, double[]> entries) {
+        this.words = new TokenTable(entries.keySet());
+        this.kinds = new byte[entries.size()];
+        this.boosts = new double[entries.size()];
+        CRC32C checksum = new CRC32C();
+        int ordinal = 0;
+        for (Map.Entry<String, double[]> entry : entries.entrySet()) {
+            String word = entry.getKey();
+            kinds[ordinal] = (byte) entry.getValue()[0];
+            boosts[ordinal] = entry.getValue()[1];
+            lengthMasks[word.charAt(0) & 127] |= 1L << Math.min(word.length(), MAX_FILTER_LENGTH);
+            checksum.update((kinds[ordinal] + "," + word + "," + boosts[ordinal] + "\n").getBytes(StandardCharsets.UTF_8));
+            ordinal++;
+        }
+        this.contentHash = checksum.getValue();
+    }
+
+    /**
+     * Returns the built-in lists, which follow VADER's negations, boosters, dampeners and "but".
+     * Complexity: O(n*k), where n is the number of words and k is the average word length.
+     *
+     * @return The built-in modifiers.
+     */
+    public static SentimentModifiers defaults() {
+        Map<String, double[]> entries = new LinkedHashMap<>();
+        DEFAULT_NEGATIONS.forEach(word -> entries.put(word, new double[]{NEGATION, 0.0}));
+        DEFAULT_BOOSTERS.forEach(word -> entries.put(word, new double[]{BOOSTER, DEFAULT_BOOST}));
+        DEFAULT_DAMPENERS.forEach(word -> entries.put(word, new double[]{BOOSTER, -DEFAULT_BOOST}));
+        DEFAULT_CONTRASTS.forEach(word -> entries.put(word, new double[]{CONTRAST, 0.0}));
+        return new SentimentModifiers(entries);
+    }
+
+    /**
+     * Reads modifier lists from a file of "kind,word" and "kind,word,value" lines.
+     * Lines that cannot be read are reported and ignored, as in lexicon files; a later line for the same word
+     * replaces an earlier one.
+     * Complexity: O(n*k), where n is the number of lines and k is the average line length.
+     *
+     * @param file The modifiers file.
+     * @return The modifiers defined in the file.
+     * @throws IOException If an I/O error occurs reading from the file.
+     */
+    public static SentimentModifiers load(Path file) throws IOException {
+        Map<String, double[]> entries = new LinkedHashMap<>();
+        try (Stream<String> lines = Files.lines(file)) {
+            lines.forEach(line -> {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    return;
+                }
+                String[] parts = trimmed.split(",");
+                String word = parts.length >= 2 ? parts[1].trim().toLowerCase() : "";
+                int kind = parts.length >= 2 ? kind(parts[0].trim()) : NONE;
+                if (kind == NONE || word.isEmpty() || hasSeparator(word) || parts.length > 3
+                        || (parts.length == 3 && kind != BOOSTER)) {
+                    System.err.println("Unusual modifier line (ignored): " + line);
+                    return;
+                }
+                try {
+                    double boost = kind != BOOSTER ? 0.0 : parts.length == 3 ? Double.parseDouble(parts[2].trim())
+                            : DEFAULT_BOOST;
+                    boolean dampener = parts[0].trim().equalsIgnoreCase("dampener");
+                    entries.put(word, new double[]{kind, dampener ? -Math.abs(boost) : boost});
+                } catch (NumberFormatException e) {
+                    System.err.println("Error parsing value for modifier line: " + line + ".\nError: " + e.getMessage());
+                }
+            });
+        }
+        return new SentimentModifiers(entries);
+    }
+
+    /**
+     * Loads the modifiers kept next to a lexicon, or the built-in lists if there is no modifiers file.
+     * Complexity: O(n*k), where n is the number of words and k is the average word length.
+     *
+     * @param lexiconPath The lexicon file, directory or snapshot.
+     * @return The modifiers for the lexicon.
+     * @throws IOException If the modifiers file exists but cannot be read.
+     */
+    public static SentimentModifiers forLexicon(String lexiconPath) throws IOException {
+        Path file = modifiersPathFor(Paths.get(lexiconPath));
+        return Files.isRegularFile(file) ? load(file) : defaults();
+    }
+
+    /**
+     * Returns where the modifiers of a lexicon are kept: next to it, with the modifiers extension.
+     * The modifiers of a snapshot are those of the lexicon it was compiled from.
+     * Complexity: O(1).
+     *
+     * @param lexiconPath The lexicon file, directory or snapshot.
+     * @return The modifiers path.
+     */
+    public static Path modifiersPathFor(Path lexiconPath) {
+        Path absolute = lexiconPath.toAbsolutePath().normalize();
+        String name = absolute.getFileName().toString();
+        if (LexiconSnapshot.isSnapshot(absolute)) {
+            name = name.substring(0, name.length() - LexiconSnapshot.EXTENSION.length());
+        }
+        return absolute.resolveSibling(name + EXTENSION);
+    }
+
+    /**
+     * Returns the number of modifier words.
+     * Complexity: O(1).
+     *
+     * @return The number of words.
+     */
+    public int size() {
+        return kinds.length;
+    }
+
+    /**
+     * Finds the modifier held in a character range.
+     * Complexity: O(1) for most tokens, which fail the filter; O(k) on average otherwise, where k is the length
+     * of the token.
+     *
+     * @param chars  The characters holding the lower-case token, starting at index 0.
+     * @param length The number of characters in the token.
+     * @return The index of the modifier, or -1 if the token is not one.
+     */
+    int indexOf(char[] chars, int length) {
+        if (length == 0 || (lengthMasks[chars[0] & 127] & (1L << Math.min(length, MAX_FILTER_LENGTH))) == 0) {
+            return -1;
+        }
+        return words.indexOf(chars, 0, length);
+    }
+
+    /**
+     * Returns the kind of a modifier.
+     * Complexity: O(1).
+     *
+     * @param index The index of the modifier.
+     * @return NEGATION, BOOSTER or CONTRAST.
+     */
+    int kindAt(int index) {
+        return kinds[index];
+    }
+
+    /**
+     * Returns how much a booster or dampener moves the next sentiment scores away from zero.
+     * Complexity: O(1).
+     *
+     * @param index The index of the modifier.
+     * @return The boost; negative for a dampener, and 0.0 for other kinds.
+     */
+    double boostAt(int index) {
+        return boosts[index];
+    }
+
+    /**
+     * Returns a checksum of the words, kinds and boosts, so results scored with other modifiers are not reused.
+     * Complexity: O(1).
+     *
+     * @return The CRC-32C checksum of the definition.
+     */
+    long contentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Reads the kind of a modifier line.
+     * Complexity: O(1).
+     */
+    private static int kind(String name) {
+        return switch (name.toLowerCase()) {
+            case "negation" -> NEGATION;
+            case "booster", "dampener" -> BOOSTER;
+            case "contrast" -> CONTRAST;
+            default -> NONE;
+        };
+    }
+
+    /**
+     * Checks whether a word contains a token separator, so it could never match a single token.
+     * Complexity: O(k), where k is the length of the word.
+     */
+    private static boolean hasSeparator(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (TweetTokenizer.isSeparator(word.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
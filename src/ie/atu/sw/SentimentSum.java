@@ -0,0 +1,50 @@
+package ie.atu.sw;
+
+/**
+ * Mutable running total of word scores for one tweet.
+ * Uses the same compensated (Kahan) summation as DoubleStream.sum, so totals are identical to summing a stream.
+ * Instances are reused between tweets and are not thread-safe.
+ */
+final class SentimentSum {
+    private double sum;
+    private double compensation;
+    private double simpleSum;
+
+    /**
+     * Clears the total before the next tweet.
+     * Complexity: O(1).
+     */
+    void reset() {
+        sum = 0.0;
+        compensation = 0.0;
+        simpleSum = 0.0;
+    }
+
+    /**
+     * Adds a score to the total, as in Collectors.sumWithCompensation.
+     * Complexity: O(1).
+     *
+     * @param value The score to add.
+     */
+    void add(double value) {
+        double corrected = value - compensation;
+        double total = sum + corrected;
+        compensation = (total - sum) - corrected;
+        sum = total;
+        simpleSum += value;
+    }
+
+    /**
+     * Returns the total, as in Collectors.computeFinalSum.
+     * Complexity: O(1).
+     *
+     * @return The compensated sum of all added scores.
+     */
+    double total() {
+        double result = sum - compensation;
+        if (Double.isNaN(result) && Double.isInfinite(simpleSum)) {
+            return simpleSum;
+        }
+        return result;
+    }
+}
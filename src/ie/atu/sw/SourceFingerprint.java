@@ -0,0 +1,109 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.stream.Stream;
+
+/**
+ * Cheap summary of a lexicon file or directory, used to tell whether a compiled copy is still current.
+ * Records the number of source files, their total size and the latest modification time.
+ * A checksum of the contents is available separately for when the cheap summary changes.
+ */
+final class SourceFingerprint {
+    final int files;
+    final long bytes;
+    final long lastModified;
+
+    /**
+     * Creates a fingerprint from its recorded values.
+     * Complexity: O(1).
+     *
+     * @param files        The number of source files.
+     * @param bytes        The total size of the source files.
+     * @param lastModified The latest modification time of the source files, in milliseconds.
+     */
+    SourceFingerprint(int files, long bytes, long lastModified) {
+        this.files = files;
+        this.bytes = bytes;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Takes the fingerprint of a lexicon file or directory, ignoring lexicon snapshots inside it.
+     * Complexity: O(n), where n is the number of files under the path.
+     *
+     * @param source The lexicon file or directory.
+     * @return The fingerprint of the source.
+     * @throws IOException If the source cannot be read.
+     */
+    static SourceFingerprint of(Path source) throws IOException {
+        if (!Files.isDirectory(source)) {
+            return new SourceFingerprint(1, Files.size(source), Files.getLastModifiedTime(source).toMillis());
+        }
+        List<Path> files = sourceFiles(source);
+        long bytes = 0;
+        long lastModified = Files.getLastModifiedTime(source).toMillis();
+        for (Path file : files) {
+            bytes += Files.size(file);
+            lastModified = Math.max(lastModified, Files.getLastModifiedTime(file).toMillis());
+        }
+        return new SourceFingerprint(files.size(), bytes, lastModified);
+    }
+
+    /**
+     * Computes a CRC-32C checksum over the contents of a lexicon file or of every file in a directory.
+     * Directory files are visited in path order, and their relative names are included,
+     * so renaming or moving a file changes the checksum too.
+     * Complexity: O(b), where b is the total number of bytes in the source files.
+     *
+     * @param source The lexicon file or directory.
+     * @return The checksum of the contents.
+     * @throws IOException If a source file cannot be read.
+     */
+    static long contentHash(Path source) throws IOException {
+        CRC32C checksum = new CRC32C();
+        byte[] buffer = new byte[64 * 1024];
+        List<Path> files = Files.isDirectory(source) ? sourceFiles(source) : List.of(source);
+        for (Path file : files) {
+            if (Files.isDirectory(source)) {
+                checksum.update(source.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+            }
+            try (InputStream in = Files.newInputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    checksum.update(buffer, 0, read);
+                }
+            }
+        }
+        return checksum.getValue();
+    }
+
+    /**
+     * Checks whether two fingerprints record the same source state.
+     * Complexity: O(1).
+     *
+     * @param other The fingerprint to compare with.
+     * @return true if the file count, size and modification time are all equal.
+     */
+    boolean matches(SourceFingerprint other) {
+        return files == other.files && bytes == other.bytes && lastModified == other.lastModified;
+    }
+
+    /**
+     * Lists the regular files of a lexicon directory in path order, without lexicon snapshots.
+     * Complexity: O(n log n), where n is the number of files under the directory.
+     */
+    private static List<Path> sourceFiles(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> !LexiconSnapshot.isSnapshot(path))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package ie.atu.sw;
+
+import java.util.Arrays;
+
+/**
+ * Space-Saving summary of the heaviest keys of a weighted stream, in a fixed number of counters.
+ * While fewer keys than counters have been seen, every key is counted exactly. After that, a new key takes over
+ * the counter with the lowest weight and adds to it, so each counter may overestimate its key by at most the
+ * weight it took over; any key heavier than the total weight divided by the capacity is guaranteed to be kept.
+ * Counters sit in a binary min-heap, located through an open-addressing table of keys, so an update takes
+ * O(log m) time and no allocation.
+ * Instances are not thread-safe.
+ */
+final class SpaceSavingSummary {
+    private static final int EMPTY = -1;
+
+    private final int capacity;
+    private final int[] heapKeys;
+    private final double[] heapWeights;
+    private int size;
+    // Open-addressing table from key to heap position, at most half full
+    private final int[] tableKeys;
+    private final int[] tablePositions;
+    private final int tableMask;
+
+    /**
+     * Creates an empty summary.
+     * Complexity: O(m), where m is the capacity.
+     *
+     * @param capacity The number of counters.
+     */
+    SpaceSavingSummary(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.heapKeys = new int[capacity];
+        this.heapWeights = new double[capacity];
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        this.tableKeys = new int[tableSize];
+        this.tablePositions = new int[tableSize];
+        this.tableMask = tableSize - 1;
+        Arrays.fill(tableKeys, EMPTY);
+    }
+
+    /**
+     * Adds weight to a key.
+     * Complexity: O(log m), where m is the capacity.
+     *
+     * @param key    A non-negative key.
+     * @param weight A non-negative weight.
+     */
+    void add(int key, double weight) {
+        int slot = slotOf(key);
+        if (tableKeys[slot] == key) {
+            int position = tablePositions[slot];
+            heapWeights[position] += weight;
+            siftDown(position);
+        } else if (size < capacity) {
+            tableKeys[slot] = key;
+            heapKeys[size] = key;
+            heapWeights[size] = weight;
+            tablePositions[slot] = size;
+            siftUp(size++);
+        } else {
+            // The lightest key hands its counter over to the new one
+            remove(heapKeys[0]);
+            slot = slotOf(key);
+            tableKeys[slot] = key;
+            tablePositions[slot] = 0;
+            heapKeys[0] = key;
+            heapWeights[0] += weight;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Adds the counters of another summary with the same capacity, keeping the heaviest keys of both.
+     * A key missing from a full summary may have had up to its lowest weight there, which is added to the key.
+     * Complexity: O(m log m), where m is the capacity.
+     *
+     * @param other The summary to merge in; left unchanged.
+     */
+    void merge(SpaceSavingSummary other) {
+        double missingHere = size < capacity ? 0.0 : heapWeights[0];
+        double missingThere = other.size < other.capacity ? 0.0 : other.heapWeights[0];
+        int[] keys = new int[size + other.size];
+        double[] weights = new double[keys.length];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int theirs = other.find(heapKeys[i]);
+            keys[count] = heapKeys[i];
+            weights[count++] = heapWeights[i] + (theirs >= 0 ? other.heapWeights[theirs] : missingThere);
+        }
+        for (int i = 0; i < other.size; i++) {
+            if (find(other.heapKeys[i]) < 0) {
+                keys[count] = other.heapKeys[i];
+                weights[count++] = other.heapWeights[i] + missingHere;
+            }
+        }
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> a.equals(b) ? 0
+                : weights[a] != weights[b] ? Double.compare(weights[b], weights[a]) : Integer.compare(keys[a], keys[b]));
+        Arrays.fill(tableKeys, EMPTY);
+        size = 0;
+        for (int i = 0; i < Math.min(count, capacity); i++) {
+            int key = keys[order[i]];
+            int slot = slotOf(key);
+            tableKeys[slot] = key;
+            tablePositions[slot] = size;
+            heapKeys[size] = key;
+            heapWeights[size] = weights[order[i]];
+            siftUp(size++);
+        }
+    }
+
+    /**
+     * Returns the keys currently kept, in no particular order.
+     * Complexity: O(m), where m is the capacity.
+     *
+     * @return A copy of the keys.
+     */
+    int[] keys() {
+        return Arrays.copyOf(heapKeys, size);
+    }
+
+    /**
+     * Returns the number of counters.
+     * Complexity: O(1).
+     *
+     * @return The capacity.
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the heap position of a key.
+     * Complexity: O(1) expected.
+     *
+     * @return The position, or -1 if the key is not kept.
+     */
+    private int find(int key) {
+        int slot = slotOf(key);
+        return tableKeys[slot] == key ? tablePositions[slot] : -1;
+    }
+
+    /**
+     * Returns the table slot that holds a key, or the empty slot where it would go.
+     * Complexity: O(1) expected.
+     */
+    private int slotOf(int key) {
+        int slot = TokenTable.spread(key) & tableMask;
+        while (tableKeys[slot] != EMPTY && tableKeys[slot] != key) {
+            slot = (slot + 1) & tableMask;
+        }
+        return slot;
+    }
+
+    /**
+     * Removes a key from the table, shifting later keys of its probe run back so lookups still find them.
+     * Complexity: O(1) expected.
+     */
+    private void remove(int key) {
+        int hole = slotOf(key);
+        tableKeys[hole] = EMPTY;
+        for (int slot = (hole + 1) & tableMask; tableKeys[slot] != EMPTY; slot = (slot + 1) & tableMask) {
+            int home = TokenTable.spread(tableKeys[slot]) & tableMask;
+            // Move the key into the hole unless its home lies cyclically between the hole and its slot
+            if (((slot - home) & tableMask) >= ((slot - hole) & tableMask)) {
+                tableKeys[hole] = tableKeys[slot];
+                tablePositions[hole] = tablePositions[slot];
+                tableKeys[slot] = EMPTY;
+                hole = slot;
+            }
+        }
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heapWeights[parent] <= heapWeights[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            if (left < size && heapWeights[left] < heapWeights[smallest]) {
+                smallest = left;
+            }
+            if (left + 1 < size && heapWeights[left + 1] < heapWeights[smallest]) {
+                smallest = left + 1;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int key = heapKeys[a];
+        heapKeys[a] = heapKeys[b];
+        heapKeys[b] = key;
+        double weight = heapWeights[a];
+        heapWeights[a] = heapWeights[b];
+        heapWeights[b] = weight;
+        tablePositions[slotOf(heapKeys[a])] = a;
+        tablePositions[slotOf(heapKeys[b])] = b;
+    }
+}
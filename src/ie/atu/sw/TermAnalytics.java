@@ -0,0 +1,173 @@
+package ie.atu.sw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Run-wide analytics of which lexicon terms matched most often and contributed the most positive and most
+ * negative weight.
+ * Scoring threads borrow a {@link TermSketch} for each batch of tweets and give it back afterwards, so a sketch
+ * is only ever filled by one thread at a time and the number of sketches stays at the number of batches scored
+ * at once, however many tweet files there are. The sketches are merged when the report is made.
+ */
+public class TermAnalytics {
+    /**
+     * Default number of counters per sketch row.
+     */
+    public static final int DEFAULT_WIDTH = 1 << 13;
+    /**
+     * Default number of sketch rows.
+     */
+    public static final int DEFAULT_DEPTH = 4;
+    /**
+     * Default number of candidate terms kept for each ranking.
+     */
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private final CompiledLexicon lexicon;
+    private final int reportSize;
+    private final int width;
+    private final int depth;
+    private final int capacity;
+    private final ConcurrentLinkedQueue<TermSketch> idle = new ConcurrentLinkedQueue<>();
+    private final List<TermSketch> sketches = new ArrayList<>();
+
+    /**
+     * Creates the analytics of a run with the default sketch dimensions.
+     * Complexity: O(1).
+     *
+     * @param lexicon    The lexicon the terms come from.
+     * @param reportSize The number of terms in each ranking of the report.
+     */
+    public TermAnalytics(CompiledLexicon lexicon, int reportSize) {
+        this(lexicon, reportSize, DEFAULT_WIDTH, DEFAULT_DEPTH, Math.max(DEFAULT_CAPACITY, reportSize * 4));
+    }
+
+    /**
+     * Creates the analytics of a run.
+     * Complexity: O(1).
+     *
+     * @param lexicon    The lexicon the terms come from.
+     * @param reportSize The number of terms in each ranking of the report.
+     * @param width      The number of counters per sketch row, a power of two.
+     * @param depth      The number of sketch rows.
+     * @param capacity   The number of candidate terms kept for each ranking, at least the report size.
+     */
+    public TermAnalytics(CompiledLexicon lexicon, int reportSize, int width, int depth, int capacity) {
+        if (reportSize < 1 || capacity < reportSize) {
+            throw new IllegalArgumentException("Report size must be from 1 to the capacity " + capacity + ": " + reportSize);
+        }
+        this.lexicon = lexicon;
+        this.reportSize = reportSize;
+        this.width = width;
+        this.depth = depth;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Borrows a sketch to record the matches of a batch of tweets in; give it back with {@link #release(TermSketch)}.
+     * Complexity: O(1) if an idle sketch is available; O(w*d + m) to create one otherwise.
+     *
+     * @return A sketch no other thread is using.
+     */
+    public TermSketch acquire() {
+        TermSketch sketch = idle.poll();
+        if (sketch == null) {
+            sketch = new TermSketch(width, depth, capacity);
+            synchronized (sketches) {
+                sketches.add(sketch);
+            }
+        }
+        return sketch;
+    }
+
+    /**
+     * Gives back a sketch borrowed with {@link #acquire()}.
+     * Complexity: O(1).
+     *
+     * @param sketch The sketch, which the caller must no longer use.
+     */
+    public void release(TermSketch sketch) {
+        idle.offer(sketch);
+    }
+
+    /**
+     * Merges every sketch of the run; call once no sketch is borrowed.
+     * Complexity: O(s*(w*d + m log m)), where s is the number of sketches.
+     *
+     * @return The combined sketch.
+     */
+    public TermSketch merged() {
+        TermSketch merged = new TermSketch(width, depth, capacity);
+        synchronized (sketches) {
+            for (TermSketch sketch : sketches) {
+                merged.merge(sketch);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the text of a term.
+     * Complexity: O(k), where k is the length of the term.
+     *
+     * @param term A word index, or the number of words plus a phrase index.
+     * @return The word or phrase.
+     */
+    public String termAt(int term) {
+        return term < lexicon.size() ? lexicon.wordAt(term) : lexicon.phrases().phraseText(term - lexicon.size());
+    }
+
+    /**
+     * Formats the report as a JSON object: the number of matches, the sketch dimensions, and the most frequent,
+     * most positive and most negative terms with their estimated counts and weights.
+     * Estimates are upper bounds; see {@link TermSketch}.
+     * Complexity: O(s*(w*d + m log m) + m*d), where s is the number of sketches.
+     *
+     * @return The JSON report.
+     */
+    public String toJson() {
+        TermSketch merged = merged();
+        StringBuilder json = new StringBuilder(256 + 192 * reportSize);
+        json.append("{\"matches\":").append(merged.matches())
+                .append(",\"sketch\":{\"width\":").append(width)
+                .append(",\"depth\":").append(depth)
+                .append(",\"candidates\":").append(capacity).append('}');
+        appendRanking(json.append(",\"mostFrequent\":"), merged, merged.frequentCandidates(),
+                term -> merged.estimateCount(term), 0.0);
+        appendRanking(json.append(",\"mostPositive\":"), merged, merged.positiveCandidates(),
+                merged::estimatePositiveWeight, 1.0);
+        appendRanking(json.append(",\"mostNegative\":"), merged, merged.negativeCandidates(),
+                merged::estimateNegativeWeight, -1.0);
+        return json.append('}').toString();
+    }
+
+    /**
+     * Appends the top candidates of a ranking as a JSON array, heaviest first.
+     * Complexity: O(m log m + m*d), where m is the number of candidates and d is the sketch depth.
+     *
+     * @param sign The sign of the reported weight, or 0 to report counts only.
+     */
+    private void appendRanking(StringBuilder json, TermSketch merged, int[] candidates,
+                               IntToDoubleFunction estimate, double sign) {
+        Integer[] ranked = Arrays.stream(candidates).boxed().toArray(Integer[]::new);
+        Arrays.sort(ranked, Comparator.comparingDouble((Integer term) -> estimate.applyAsDouble(term)).reversed()
+                .thenComparing(this::termAt));
+        json.append('[');
+        for (int i = 0; i < Math.min(reportSize, ranked.length); i++) {
+            int term = ranked[i];
+            json.append(i == 0 ? "{" : ",{")
+                    .append("\"term\":").append(JsonLinesEncoder.quote(termAt(term)))
+                    .append(",\"count\":").append(merged.estimateCount(term));
+            if (sign != 0.0) {
+                json.append(",\"weight\":").append(TweetProcessor.roundScore(sign * estimate.applyAsDouble(term)));
+            }
+            json.append('}');
+        }
+        json.append(']');
+    }
+}
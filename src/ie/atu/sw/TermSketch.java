@@ -0,0 +1,197 @@
+package ie.atu.sw;
+
+/**
+ * Fixed-size summary of how often lexicon terms matched and how much weight they contributed to tweet scores.
+ * A Count-Min sketch estimates, for any term, its number of matches and its total positive and negative weight;
+ * estimates never fall below the true value and exceed it by at most e/width of the total with probability
+ * 1 - e^-depth. Three {@link SpaceSavingSummary Space-Saving summaries} keep the candidates for the most frequent,
+ * most positive and most negative terms, since a sketch alone cannot list its heaviest keys.
+ * Memory depends only on the width, depth and capacity, not on the size of the lexicon or the number of tweets.
+ * Sketches with the same dimensions are combined with {@link #merge(TermSketch)}.
+ * Instances are not thread-safe: each is filled by one thread at a time.
+ */
+public final class TermSketch {
+    // Odd multipliers of the multiply-shift hash of each row; shared by every sketch so sketches can be merged
+    private static final long[] ROW_SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L
+    };
+
+    private final int depth;
+    private final int widthBits;
+    private final long[] counts;
+    private final double[] positiveWeights;
+    private final double[] negativeWeights;
+    private final SpaceSavingSummary frequent;
+    private final SpaceSavingSummary positive;
+    private final SpaceSavingSummary negative;
+    private long matches;
+
+    /**
+     * Creates an empty sketch.
+     * Complexity: O(w*d + m), where w is the width, d is the depth and m is the capacity.
+     *
+     * @param width    The number of counters per row, a power of two.
+     * @param depth    The number of rows, from 1 to 8.
+     * @param capacity The number of candidate terms kept for each ranking.
+     */
+    public TermSketch(int width, int depth, int capacity) {
+        if (width < 2 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Sketch width must be a power of two: " + width);
+        }
+        if (depth < 1 || depth > ROW_SEEDS.length) {
+            throw new IllegalArgumentException("Sketch depth must be from 1 to " + ROW_SEEDS.length + ": " + depth);
+        }
+        this.depth = depth;
+        this.widthBits = Integer.numberOfTrailingZeros(width);
+        this.counts = new long[width * depth];
+        this.positiveWeights = new double[width * depth];
+        this.negativeWeights = new double[width * depth];
+        this.frequent = new SpaceSavingSummary(capacity);
+        this.positive = new SpaceSavingSummary(capacity);
+        this.negative = new SpaceSavingSummary(capacity);
+    }
+
+    /**
+     * Records one match of a term and its contribution to a tweet score.
+     * Complexity: O(d + log m), where d is the depth and m is the capacity.
+     *
+     * @param term         The term's identifier: a word index, or the number of words plus a phrase index.
+     * @param contribution The weight the match added to the score.
+     */
+    public void record(int term, double contribution) {
+        matches++;
+        for (int row = 0; row < depth; row++) {
+            int cell = cell(row, term);
+            counts[cell]++;
+            if (contribution > 0) {
+                positiveWeights[cell] += contribution;
+            } else if (contribution < 0) {
+                negativeWeights[cell] -= contribution;
+            }
+        }
+        frequent.add(term, 1.0);
+        if (contribution > 0) {
+            positive.add(term, contribution);
+        } else if (contribution < 0) {
+            negative.add(term, -contribution);
+        }
+    }
+
+    /**
+     * Adds the matches recorded by another sketch with the same dimensions.
+     * Complexity: O(w*d + m log m), where w is the width, d is the depth and m is the capacity.
+     *
+     * @param other The sketch to merge in; left unchanged.
+     */
+    public void merge(TermSketch other) {
+        if (other.counts.length != counts.length || other.depth != depth
+                || other.frequent.capacity() != frequent.capacity()) {
+            throw new IllegalArgumentException("Only sketches with the same dimensions can be merged");
+        }
+        matches += other.matches;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+            positiveWeights[i] += other.positiveWeights[i];
+            negativeWeights[i] += other.negativeWeights[i];
+        }
+        frequent.merge(other.frequent);
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+    }
+
+    /**
+     * Returns the total number of matches recorded.
+     * Complexity: O(1).
+     *
+     * @return The exact number of matches.
+     */
+    public long matches() {
+        return matches;
+    }
+
+    /**
+     * Estimates the number of matches of a term.
+     * Complexity: O(d), where d is the depth.
+     *
+     * @param term The term's identifier.
+     * @return An estimate that is never below the true count.
+     */
+    public long estimateCount(int term) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts[cell(row, term)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Estimates the total positive weight a term contributed.
+     * Complexity: O(d), where d is the depth.
+     *
+     * @param term The term's identifier.
+     * @return An estimate that is never below the true weight.
+     */
+    public double estimatePositiveWeight(int term) {
+        double estimate = Double.POSITIVE_INFINITY;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, positiveWeights[cell(row, term)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Estimates the total negative weight a term contributed, as a positive number.
+     * Complexity: O(d), where d is the depth.
+     *
+     * @param term The term's identifier.
+     * @return An estimate that is never below the true magnitude of the weight.
+     */
+    public double estimateNegativeWeight(int term) {
+        double estimate = Double.POSITIVE_INFINITY;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, negativeWeights[cell(row, term)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the candidates for the most frequently matched terms.
+     * Complexity: O(m), where m is the capacity.
+     *
+     * @return The term identifiers, in no particular order.
+     */
+    public int[] frequentCandidates() {
+        return frequent.keys();
+    }
+
+    /**
+     * Returns the candidates for the terms that contributed the most positive weight.
+     * Complexity: O(m), where m is the capacity.
+     *
+     * @return The term identifiers, in no particular order.
+     */
+    public int[] positiveCandidates() {
+        return positive.keys();
+    }
+
+    /**
+     * Returns the candidates for the terms that contributed the most negative weight.
+     * Complexity: O(m), where m is the capacity.
+     *
+     * @return The term identifiers, in no particular order.
+     */
+    public int[] negativeCandidates() {
+        return negative.keys();
+    }
+
+    /**
+     * Returns the counter of a term in a row.
+     * Complexity: O(1).
+     */
+    private int cell(int row, int term) {
+        long hash = (term + 1L) * ROW_SEEDS[row];
+        hash = (hash ^ (hash >>> 29)) * ROW_SEEDS[ROW_SEEDS.length - 1 - row];
+        return (row << widthBits) + (int) (hash >>> (64 - widthBits));
+    }
+}
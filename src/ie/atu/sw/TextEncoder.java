@@ -0,0 +1,97 @@
+package ie.atu.sw;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Encodes results in the readable text report: one block per tweet with its source, line, text and score.
+ * Against several lexicons, the block has one "Sentiment Score (name)" line per lexicon.
+ * The bytes are identical to {@link OutputFolder#formatBatch(TweetBatch)}, but no Strings are built per tweet.
+ */
+final class TextEncoder implements BatchEncoder {
+    private static final byte[] TWEET = bytes("\n Tweet: \"");
+    private static final byte[] SCORE = bytes("\"\n Sentiment Score: ");
+    private static final byte[] END_TWEET = bytes("\"");
+    private static final byte[] POSITIVE = bytes(" (Positive)");
+    private static final byte[] NEGATIVE = bytes(" (Negative)");
+    private static final byte[] NEUTRAL = bytes(" (Neutral)");
+    private static final byte[] SEPARATOR = bytes("\n" + "_".repeat(80) + "\n");
+
+    /**
+     * The text report has no header.
+     * Complexity: O(1).
+     *
+     * @param scoreNames The name of each score column, or null for a single score.
+     * @return An empty array.
+     */
+    @Override
+    public byte[] header(List<String> scoreNames) {
+        return new byte[0];
+    }
+
+    /**
+     * Appends a report block for every tweet of a batch.
+     * Complexity: O(n*(m + l)), where n is the number of tweets in the batch, m is the average length of a tweet
+     * and l is the number of score columns.
+     *
+     * @param batch The scored tweets.
+     * @param sink  The sink to append to.
+     */
+    @Override
+    public void encode(TweetBatch batch, ByteSink sink) {
+        byte[] source = batch.source().getBytes(StandardCharsets.UTF_8);
+        byte[][] labels = scoreLabels(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            sink.put(TWEET);
+            sink.put(source);
+            sink.put((byte) '_');
+            sink.putDecimal(batch.lineNumber(i));
+            sink.put((byte) ':');
+            sink.put((byte) ' ');
+            sink.putUtf8(batch.tweet(i));
+            if (labels == null) {
+                sink.put(SCORE);
+                putScore(batch.score(i), sink);
+            } else {
+                sink.put(END_TWEET);
+                for (int column = 0; column < labels.length; column++) {
+                    sink.put(labels[column]);
+                    putScore(batch.score(i, column), sink);
+                }
+            }
+            sink.put(SEPARATOR);
+        }
+    }
+
+    /**
+     * Appends a score followed by its class.
+     * Complexity: O(1).
+     */
+    private static void putScore(double score, ByteSink sink) {
+        sink.putScore(score);
+        int sentiment = BatchEncoder.sentimentClass(score);
+        sink.put(sentiment > 0 ? POSITIVE : sentiment < 0 ? NEGATIVE : NEUTRAL);
+    }
+
+    /**
+     * Builds the label line of each score column of a batch.
+     * Complexity: O(l), where l is the number of score columns.
+     *
+     * @return The labels, or null for a batch with a single score.
+     */
+    private static byte[][] scoreLabels(TweetBatch batch) {
+        List<String> names = batch.scoreNames();
+        if (names == null) {
+            return null;
+        }
+        byte[][] labels = new byte[names.size()][];
+        for (int column = 0; column < labels.length; column++) {
+            labels[column] = bytes("\n Sentiment Score (" + names.get(column) + "): ");
+        }
+        return labels;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,305 @@
+package ie.atu.sw;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Immutable open-addressing hash table that maps words to ordinals 0..n-1.
+ * All words are stored back to back in a single char pool, and every slot keeps the precomputed hash of its word,
+ * so a lookup by character range compares hashes first and never creates a String.
+ * The table is read-only after construction and can be shared by any number of threads.
+ */
+final class TokenTable {
+    private static final int EMPTY = 0;
+
+    private final char[] pool;
+    private final int[] offsets;
+    private final int[] slots;
+    private final int[] slotHashes;
+    private final int mask;
+
+    /**
+     * Builds a table from distinct words; the ordinal of a word is its position in iteration order.
+     * Complexity: O(n*k), where n is the number of words and k is the average word length.
+     *
+     * @param words The distinct words to store.
+     */
+    TokenTable(Collection<String> words) {
+        int size = words.size();
+        long poolSize = 0;
+        for (String word : words) {
+            poolSize += word.length();
+        }
+        if (poolSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Lexicon words exceed the maximum pool size: " + poolSize);
+        }
+
+        this.pool = new char[(int) poolSize];
+        this.offsets = new int[size + 1];
+        int capacity = tableCapacity(size);
+        this.slots = new int[capacity];
+        this.slotHashes = new int[capacity];
+        this.mask = capacity - 1;
+
+        int ordinal = 0;
+        int offset = 0;
+        for (String word : words) {
+            word.getChars(0, word.length(), pool, offset);
+            offsets[ordinal] = offset;
+            offset += word.length();
+            offsets[ordinal + 1] = offset;
+            insert(ordinal, hash(pool, offsets[ordinal], word.length()));
+            ordinal++;
+        }
+    }
+
+    /**
+     * Recreates a table from the arrays of a previously built table, as stored in a lexicon snapshot.
+     * Complexity: O(1) - the arrays are used as they are.
+     *
+     * @param pool       The characters of all words, back to back.
+     * @param offsets    The start of every word in the pool, followed by the pool length.
+     * @param slots      The hash slots, holding ordinal + 1 or 0 when empty.
+     * @param slotHashes The hash of the word in every slot.
+     */
+    private TokenTable(char[] pool, int[] offsets, int[] slots, int[] slotHashes) {
+        this.pool = pool;
+        this.offsets = offsets;
+        this.slots = slots;
+        this.slotHashes = slotHashes;
+        this.mask = slots.length - 1;
+    }
+
+    /**
+     * Finds the ordinal of the word held in a character range.
+     * Complexity: O(k) on average, where k is the length of the word.
+     *
+     * @param chars  The characters holding the word.
+     * @param offset The index of the first character of the word.
+     * @param length The number of characters in the word.
+     * @return The ordinal of the word, or -1 if it is not in the table.
+     */
+    int indexOf(char[] chars, int offset, int length) {
+        int hash = hash(chars, offset, length);
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (slotHashes[slot] == hash && matches(entry - 1, chars, offset, length)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Finds the ordinal of a word given as a CharSequence.
+     * Complexity: O(k) on average, where k is the length of the word.
+     *
+     * @param word The word to find.
+     * @return The ordinal of the word, or -1 if it is not in the table.
+     */
+    int indexOf(CharSequence word) {
+        int hash = hash(word);
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (slotHashes[slot] == hash && matches(entry - 1, word)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the word with the given ordinal.
+     * Complexity: O(k), where k is the length of the word.
+     *
+     * @param ordinal The ordinal of the word.
+     * @return The word as a new String.
+     */
+    String wordAt(int ordinal) {
+        return new String(pool, offsets[ordinal], offsets[ordinal + 1] - offsets[ordinal]);
+    }
+
+    /**
+     * Returns the number of words in the table.
+     * Complexity: O(1).
+     *
+     * @return The number of words.
+     */
+    int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Estimates the heap used by the table.
+     * Complexity: O(1).
+     *
+     * @return The approximate number of bytes held by the table's arrays.
+     */
+    long estimatedBytes() {
+        return 2L * pool.length + 4L * offsets.length + 8L * slots.length;
+    }
+
+    /**
+     * Writes the table to a lexicon snapshot: the word count, pool length and capacity,
+     * followed by the offsets, slots, slot hashes and character pool.
+     * Complexity: O(n + c + p), where n is the number of words, c the capacity and p the pool length.
+     *
+     * @param out The snapshot stream.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size());
+        out.writeInt(pool.length);
+        out.writeInt(slots.length);
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+        for (int slot : slots) {
+            out.writeInt(slot);
+        }
+        for (int slotHash : slotHashes) {
+            out.writeInt(slotHash);
+        }
+        for (char c : pool) {
+            out.writeChar(c);
+        }
+    }
+
+    /**
+     * Reads a table written by {@link #writeTo(DataOutputStream)} into heap arrays.
+     * Complexity: O(n + c + p), where n is the number of words, c the capacity and p the pool length.
+     *
+     * @param in The snapshot buffer, positioned at the table; left positioned after it.
+     * @return The table.
+     */
+    static TokenTable readFrom(ByteBuffer in) {
+        int size = in.getInt();
+        int poolLength = in.getInt();
+        int capacity = in.getInt();
+        int[] offsets = new int[size + 1];
+        int[] slots = new int[capacity];
+        int[] slotHashes = new int[capacity];
+        char[] pool = new char[poolLength];
+        in.asIntBuffer().get(offsets);
+        in.position(in.position() + 4 * offsets.length);
+        in.asIntBuffer().get(slots);
+        in.position(in.position() + 4 * capacity);
+        in.asIntBuffer().get(slotHashes);
+        in.position(in.position() + 4 * capacity);
+        in.asCharBuffer().get(pool);
+        in.position(in.position() + 2 * poolLength);
+        return new TokenTable(pool, offsets, slots, slotHashes);
+    }
+
+    /**
+     * Hashes a character range with the same formula as String.hashCode.
+     * Complexity: O(k), where k is the length of the range.
+     *
+     * @param chars  The characters to hash.
+     * @param offset The index of the first character.
+     * @param length The number of characters.
+     * @return The hash of the range.
+     */
+    static int hash(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes a CharSequence with the same formula as String.hashCode.
+     * Complexity: O(k), where k is the length of the sequence.
+     *
+     * @param word The characters to hash.
+     * @return The hash of the sequence.
+     */
+    static int hash(CharSequence word) {
+        int hash = 0;
+        for (int i = 0; i < word.length(); i++) {
+            hash = 31 * hash + word.charAt(i);
+        }
+        return hash;
+    }
+
+    /**
+     * Places an ordinal in the first free slot of its probe sequence.
+     * Complexity: O(1) on average.
+     */
+    private void insert(int ordinal, int hash) {
+        int slot = spread(hash) & mask;
+        while (slots[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = ordinal + 1;
+        slotHashes[slot] = hash;
+    }
+
+    /**
+     * Compares the stored word with a character range.
+     * Complexity: O(k), where k is the length of the word.
+     */
+    private boolean matches(int ordinal, char[] chars, int offset, int length) {
+        int start = offsets[ordinal];
+        if (offsets[ordinal + 1] - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (pool[start + i] != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the stored word with a CharSequence.
+     * Complexity: O(k), where k is the length of the word.
+     */
+    private boolean matches(int ordinal, CharSequence word) {
+        int start = offsets[ordinal];
+        if (offsets[ordinal + 1] - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (pool[start + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Mixes the high bits of a String-style hash into the low bits used to pick a slot.
+     * Complexity: O(1).
+     *
+     * @param hash A String-style hash.
+     * @return The mixed hash.
+     */
+    static int spread(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+
+    /**
+     * Chooses a power-of-two capacity that keeps the load factor at or below one half.
+     * Complexity: O(1).
+     *
+     * @param size The number of entries.
+     * @return The table capacity.
+     */
+    static int tableCapacity(int size) {
+        int capacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Lexicon is too large to compile: " + size + " words");
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,231 @@
+package ie.atu.sw;
+
+import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Keeps the k most positive and the k most negative tweets seen, in two bounded heaps.
+ * Only the source file, line number and score of a tweet are kept, so a tracker takes O(k) memory however many
+ * tweets are offered, and each offer takes O(log k) time. The text of the final tweets is read back from their
+ * sources with {@link #readTweets(Path, Collection)}.
+ * Trackers filled separately, e.g. one per tweet file, are combined with {@link #merge(TopKTracker)}.
+ * Among tweets with the same score, the one offered first is kept.
+ * Instances are not thread-safe: each is filled by one thread and merged once that thread is done.
+ */
+public final class TopKTracker {
+    /**
+     * Orders tweets by score, then by source and line, so lists of tweets come out the same on every run.
+     */
+    private static final Comparator<Entry> BY_SCORE = Comparator.comparingDouble(Entry::score)
+            .thenComparing(Entry::source)
+            .thenComparingLong(Entry::line);
+
+    private final int k;
+    private final Path source;
+    // Head is the least positive of the most positive tweets, the first to be evicted
+    private final PriorityQueue<Entry> mostPositive;
+    // Head is the least negative of the most negative tweets
+    private final PriorityQueue<Entry> mostNegative;
+
+    /**
+     * A tweet kept by a tracker.
+     *
+     * @param source The tweet file it was read from.
+     * @param line   Its line number in the file, starting at 1.
+     * @param score  Its sentiment score.
+     */
+    public record Entry(Path source, long line, double score) {
+    }
+
+    /**
+     * Creates an empty tracker.
+     * Complexity: O(k).
+     *
+     * @param k      The number of most positive, and of most negative, tweets to keep.
+     * @param source The tweet file batches are added from, or null for a tracker that only merges others.
+     */
+    public TopKTracker(int k, Path source) {
+        if (k < 1) {
+            throw new IllegalArgumentException("The number of tweets to keep must be at least 1: " + k);
+        }
+        this.k = k;
+        this.source = source;
+        this.mostPositive = new PriorityQueue<>(k + 1,
+                Comparator.comparingDouble(Entry::score).thenComparing(BY_SCORE.reversed()));
+        this.mostNegative = new PriorityQueue<>(k + 1,
+                Comparator.comparingDouble(Entry::score).reversed().thenComparing(BY_SCORE.reversed()));
+    }
+
+    /**
+     * Returns the number of most positive, and of most negative, tweets kept.
+     * Complexity: O(1).
+     *
+     * @return k.
+     */
+    public int k() {
+        return k;
+    }
+
+    /**
+     * Offers a tweet; it is kept if it is among the k most positive or the k most negative so far.
+     * Complexity: O(log k); O(1) if the tweet is in neither.
+     *
+     * @param source The tweet file.
+     * @param line   The line number of the tweet.
+     * @param score  The sentiment score of the tweet.
+     */
+    public void offer(Path source, long line, double score) {
+        if (Double.isNaN(score)) {
+            return;
+        }
+        Entry entry = null;
+        if (score > 0 && (mostPositive.size() < k || score > mostPositive.peek().score())) {
+            entry = new Entry(source, line, score);
+            mostPositive.add(entry);
+            if (mostPositive.size() > k) {
+                mostPositive.poll();
+            }
+        }
+        if (score < 0 && (mostNegative.size() < k || score < mostNegative.peek().score())) {
+            entry = entry != null ? entry : new Entry(source, line, score);
+            mostNegative.add(entry);
+            if (mostNegative.size() > k) {
+                mostNegative.poll();
+            }
+        }
+    }
+
+    /**
+     * Offers every tweet of a scored batch from the source of this tracker.
+     * Complexity: O(n log k), where n is the number of tweets in the batch.
+     *
+     * @param batch The scored tweets.
+     */
+    public void addAll(TweetBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            offer(source, batch.lineNumber(i), batch.score(i));
+        }
+    }
+
+    /**
+     * Offers the tweets kept by another tracker, most extreme first.
+     * Complexity: O(k log k).
+     *
+     * @param other The tracker to merge in; left unchanged.
+     */
+    public void merge(TopKTracker other) {
+        for (Entry entry : other.mostPositive()) {
+            offer(entry.source(), entry.line(), entry.score());
+        }
+        for (Entry entry : other.mostNegative()) {
+            offer(entry.source(), entry.line(), entry.score());
+        }
+    }
+
+    /**
+     * Returns the most positive tweets, highest score first.
+     * Only tweets with a positive score are included, so there may be fewer than k.
+     * Complexity: O(k log k).
+     *
+     * @return The tweets.
+     */
+    public List<Entry> mostPositive() {
+        List<Entry> sorted = new ArrayList<>(mostPositive);
+        sorted.sort(Comparator.comparingDouble(Entry::score).reversed()
+                .thenComparing(Entry::source).thenComparingLong(Entry::line));
+        return sorted;
+    }
+
+    /**
+     * Returns the most negative tweets, lowest score first.
+     * Only tweets with a negative score are included, so there may be fewer than k.
+     * Complexity: O(k log k).
+     *
+     * @return The tweets.
+     */
+    public List<Entry> mostNegative() {
+        List<Entry> sorted = new ArrayList<>(mostNegative);
+        sorted.sort(BY_SCORE);
+        return sorted;
+    }
+
+    /**
+     * Writes the kept tweets in binary, without their source, to be read back with
+     * {@link #readFrom(DataInput, Path)}.
+     * Complexity: O(k).
+     *
+     * @param out The output.
+     * @throws IOException If the output cannot be written.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(k);
+        for (List<Entry> entries : List.of(mostPositive(), mostNegative())) {
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeLong(entry.line());
+                out.writeDouble(entry.score());
+            }
+        }
+    }
+
+    /**
+     * Reads the tweets written by {@link #writeTo(DataOutput)} for one tweet file.
+     * Complexity: O(k log k).
+     *
+     * @param in     The input.
+     * @param source The tweet file the tweets were read from.
+     * @return The tracker.
+     * @throws IOException If the input cannot be read.
+     */
+    public static TopKTracker readFrom(DataInput in, Path source) throws IOException {
+        TopKTracker tracker = new TopKTracker(in.readInt(), source);
+        for (int list = 0; list < 2; list++) {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                tracker.offer(source, in.readLong(), in.readDouble());
+            }
+        }
+        return tracker;
+    }
+
+    /**
+     * Reads the text of some tweets back from their tweet file, line by line up to the last one needed.
+     * Complexity: O(b), where b is the size of the file up to the last line needed.
+     *
+     * @param source  The tweet file.
+     * @param entries The tweets from this file.
+     * @return The text of each line read, by line number; lines beyond the end of the file are missing.
+     * @throws IOException If the file cannot be read.
+     */
+    public static Map<Long, String> readTweets(Path source, Collection<Entry> entries) throws IOException {
+        TreeSet<Long> wanted = new TreeSet<>();
+        for (Entry entry : entries) {
+            wanted.add(entry.line());
+        }
+        Map<Long, String> tweets = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            long lineNumber = 0;
+            String line;
+            while (!wanted.isEmpty() && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (wanted.first() == lineNumber) {
+                    tweets.put(wanted.pollFirst(), line);
+                }
+            }
+        }
+        return tweets;
+    }
+}
@@ -0,0 +1,248 @@
+package ie.atu.sw;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A bounded, reusable batch of consecutive tweets from one source together with their scores.
+ * Tweets are streamed from a reader a batch at a time, so memory stays bounded by the batch capacity
+ * however large the source file is. Each refill overwrites the previous tweets and scores in place.
+ * A batch scored against several lexicons holds one score per lexicon for every tweet, in named columns.
+ * Instances are not thread-safe; each batch belongs to the thread that fills it.
+ */
+public final class TweetBatch {
+    private final String source;
+    private final String[] tweets;
+    private final List<String> scoreNames;
+    private final int columns;
+    // The scores of tweet i are at [i * columns, (i + 1) * columns)
+    private final double[] scores;
+    private long firstLine = 1;
+    private int size;
+
+    /**
+     * Creates an empty batch for a source.
+     * Complexity: O(c), where c is the capacity.
+     *
+     * @param source   An identifier for the source of the tweets (e.g., filename).
+     * @param capacity The maximum number of tweets held at once.
+     */
+    public TweetBatch(String source, int capacity) {
+        this(source, capacity, null);
+    }
+
+    /**
+     * Creates an empty batch for a source with a score column per lexicon.
+     * Complexity: O(c*l), where c is the capacity and l is the number of score columns.
+     *
+     * @param source     An identifier for the source of the tweets (e.g., filename).
+     * @param capacity   The maximum number of tweets held at once.
+     * @param scoreNames The name of each score column, or null for a single score.
+     */
+    public TweetBatch(String source, int capacity, List<String> scoreNames) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + capacity);
+        }
+        this.source = source;
+        this.tweets = new String[capacity];
+        this.scoreNames = scoreNames;
+        this.columns = scoreNames == null ? 1 : scoreNames.size();
+        this.scores = new double[capacity * columns];
+    }
+
+    /**
+     * Creates a full batch around tweets that were already read, such as one chunk of a large file.
+     * The line numbers start at 1 until {@link #startAt(long)} places the batch in its source.
+     * Complexity: O(c), where c is the number of tweets.
+     *
+     * @param source     An identifier for the source of the tweets (e.g., filename).
+     * @param tweets     The tweets; the array is used as it is.
+     * @param scoreNames The name of each score column, or null for a single score.
+     */
+    TweetBatch(String source, String[] tweets, List<String> scoreNames) {
+        this.source = source;
+        this.tweets = tweets;
+        this.scoreNames = scoreNames;
+        this.columns = scoreNames == null ? 1 : scoreNames.size();
+        this.scores = new double[tweets.length * columns];
+        this.size = tweets.length;
+    }
+
+    /**
+     * Replaces the contents of the batch with the next lines of a reader.
+     * Line numbers continue from the previous batch, so they match the lines of the source file.
+     * Complexity: O(c*(m + l)), where c is the capacity, m is the average length of a tweet and l is the number
+     * of score columns.
+     *
+     * @param reader The reader positioned after the previous batch.
+     * @return true if at least one tweet was read, false at the end of the source.
+     * @throws IOException If the source cannot be read.
+     */
+    public boolean fill(BufferedReader reader) throws IOException {
+        firstLine += size;
+        int count = 0;
+        String line;
+        while (count < tweets.length && (line = reader.readLine()) != null) {
+            tweets[count] = line;
+            count++;
+        }
+        Arrays.fill(scores, 0, count * columns, 0.0);
+        Arrays.fill(tweets, count, Math.max(size, count), null);
+        size = count;
+        return count > 0;
+    }
+
+    /**
+     * Sets the line number of the first tweet in the batch.
+     * Complexity: O(1).
+     *
+     * @param firstLine The line number of the first tweet in its source, starting at 1.
+     */
+    void startAt(long firstLine) {
+        this.firstLine = firstLine;
+    }
+
+    /**
+     * Returns the identifier of the source of the tweets.
+     * Complexity: O(1).
+     *
+     * @return The source identifier.
+     */
+    public String source() {
+        return source;
+    }
+
+    /**
+     * Returns the number of scores each tweet has.
+     * Complexity: O(1).
+     *
+     * @return The number of score columns, 1 unless the batch is scored against several lexicons.
+     */
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * Returns the names of the score columns.
+     * Complexity: O(1).
+     *
+     * @return The name of each column, or null for a batch with a single score.
+     */
+    public List<String> scoreNames() {
+        return scoreNames;
+    }
+
+    /**
+     * Returns the number of tweets in the batch.
+     * Complexity: O(1).
+     *
+     * @return The number of tweets.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of tweets held at once.
+     * Complexity: O(1).
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return tweets.length;
+    }
+
+    /**
+     * Returns a tweet of the batch.
+     * Complexity: O(1).
+     *
+     * @param index The position of the tweet in the batch.
+     * @return The tweet text.
+     */
+    public String tweet(int index) {
+        return tweets[index];
+    }
+
+    /**
+     * Returns the line number of a tweet in its source, starting at 1.
+     * Complexity: O(1).
+     *
+     * @param index The position of the tweet in the batch.
+     * @return The line number.
+     */
+    public long lineNumber(int index) {
+        return firstLine + index;
+    }
+
+    /**
+     * Counts the tokens of the tweets in the batch, the words between runs of {@link TweetTokenizer} separators.
+     * Empty tokens are not counted. The tweets are scanned again, so this is only worth calling when the count
+     * is reported.
+     * Complexity: O(n*m), where n is the number of tweets and m is the average length of a tweet.
+     *
+     * @return The number of tokens.
+     */
+    public long tokenCount() {
+        long tokens = 0;
+        for (int i = 0; i < size; i++) {
+            String tweet = tweets[i];
+            boolean inToken = false;
+            for (int c = 0; c < tweet.length(); c++) {
+                boolean separator = TweetTokenizer.isSeparator(tweet.charAt(c));
+                if (!separator && !inToken) {
+                    tokens++;
+                }
+                inToken = !separator;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns the score of a tweet, the first column of a batch with several.
+     * Complexity: O(1).
+     *
+     * @param index The position of the tweet in the batch.
+     * @return The sentiment score.
+     */
+    public double score(int index) {
+        return scores[index * columns];
+    }
+
+    /**
+     * Returns one of the scores of a tweet.
+     * Complexity: O(1).
+     *
+     * @param index  The position of the tweet in the batch.
+     * @param column The score column.
+     * @return The sentiment score.
+     */
+    public double score(int index, int column) {
+        return scores[index * columns + column];
+    }
+
+    /**
+     * Sets the score of a tweet, the first column of a batch with several.
+     * Complexity: O(1).
+     *
+     * @param index The position of the tweet in the batch.
+     * @param score The sentiment score.
+     */
+    public void setScore(int index, double score) {
+        scores[index * columns] = score;
+    }
+
+    /**
+     * Sets one of the scores of a tweet.
+     * Complexity: O(1).
+     *
+     * @param index  The position of the tweet in the batch.
+     * @param column The score column.
+     * @param score  The sentiment score.
+     */
+    public void setScore(int index, int column, double score) {
+        scores[index * columns + column] = score;
+    }
+}
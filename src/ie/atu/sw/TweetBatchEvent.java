@@ -0,0 +1,32 @@
+package ie.atu.sw;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for scoring one batch of tweets against the lexicons, or one chunk of a large file.
+ */
+@Name("ie.atu.sw.TweetBatch")
+@Label("Tweet Batch")
+@Category({"Sentiment Analysis", "Tweets"})
+@Description("Scoring of one batch of tweets")
+@StackTrace(false)
+final class TweetBatchEvent extends Event {
+    @Label("Source")
+    String source;
+
+    @Label("First Line")
+    @Description("Line number of the first tweet in its source, or 0 for a chunk of a large file")
+    long firstLine;
+
+    @Label("Tweets")
+    int tweets;
+
+    @Label("Tokens")
+    @Description("Whitespace-separated words in the tweets")
+    long tokens;
+}
@@ -0,0 +1,239 @@
+package ie.atu.sw;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches a landing directory, and its subdirectories, for tweet files and hands each one over once it is
+ * fully written.
+ * A file counts as fully written when its size and modification time have not changed for the settle delay,
+ * so files that are still being copied in are left alone. Hidden and temporary files (".name", "name.tmp",
+ * "name.part", "name.partial") are ignored, so collectors can also write under a temporary name and rename
+ * the file into place when it is complete.
+ * Each path is handed over at most once: files that were already handed over, or given as already processed,
+ * are skipped even if they change later. Files already in the directory when watching starts are handed over too.
+ */
+public class TweetDirectoryWatcher implements AutoCloseable {
+    private final Path directory;
+    private final long settleNanos;
+    private final Set<Path> handedOver;
+    private final Set<Path> ignored;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Map<Path, Candidate> candidates = new HashMap<>();
+
+    /**
+     * Callback for a tweet file that is ready to be scored.
+     */
+    @FunctionalInterface
+    public interface ReadyFileHandler {
+        /**
+         * Handles a file that has been fully written.
+         *
+         * @param file The absolute path of the file.
+         * @throws IOException If the file cannot be handed over for scoring.
+         */
+        void fileReady(Path file) throws IOException;
+    }
+
+    /**
+     * Creates a watcher for a directory.
+     * Complexity: O(p), where p is the number of paths already processed or ignored.
+     *
+     * @param directory         The landing directory for tweet files.
+     * @param settleMillis      How long a file must stay unchanged before it is handed over, in milliseconds.
+     * @param alreadyProcessed  Absolute paths of files handed over by an earlier run, which are skipped.
+     * @param ignored           Absolute paths never handed over, such as the results file if it is in the directory.
+     * @throws IOException If the directory cannot be watched.
+     */
+    public TweetDirectoryWatcher(Path directory, long settleMillis, Set<Path> alreadyProcessed, Set<Path> ignored)
+            throws IOException {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.settleNanos = TimeUnit.MILLISECONDS.toNanos(settleMillis);
+        this.handedOver = new HashSet<>(alreadyProcessed);
+        this.ignored = new HashSet<>(ignored);
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Watches the directory, handing over every new file once it has settled, until the watcher is closed
+     * or the thread is interrupted.
+     * Complexity: O(e + c) per poll, where e is the number of events and c is the number of files still settling.
+     *
+     * @param handler The callback for files that are ready.
+     * @throws IOException If the directory cannot be listed or watched, or the handler fails.
+     */
+    public void watch(ReadyFileHandler handler) throws IOException {
+        registerTree(directory);
+        long pollMillis = Math.max(10, TimeUnit.NANOSECONDS.toMillis(settleNanos) / 4);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.poll(pollMillis, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    handleEvents(key);
+                    key = watchService.poll();
+                }
+                handOverSettled(handler);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Closed by another thread: stop watching
+        }
+    }
+
+    /**
+     * Returns the number of files handed over by this watcher or an earlier run.
+     * Complexity: O(1).
+     *
+     * @return The number of files.
+     */
+    public synchronized int handedOverCount() {
+        return handedOver.size();
+    }
+
+    /**
+     * Stops watching; a thread blocked in {@link #watch(ReadyFileHandler)} returns.
+     * Complexity: O(1).
+     *
+     * @throws IOException If the watch service cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Registers a directory and its subdirectories, and takes the files already in them as candidates.
+     * Complexity: O(f), where f is the number of files and directories in the tree.
+     */
+    private void registerTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    WatchKey key = path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                    watchedDirectories.put(key, path);
+                } else {
+                    consider(path);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // A subdirectory removed while being listed has nothing left to watch
+        }
+    }
+
+    /**
+     * Turns the events of a directory into candidates, watching new subdirectories as they appear.
+     * After an overflow, events were lost, so the directory is listed again.
+     * Complexity: O(e), where e is the number of events.
+     */
+    private void handleEvents(WatchKey key) throws IOException {
+        Path watched = watchedDirectories.get(key);
+        if (watched == null) {
+            key.cancel();
+            return;
+        }
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                registerTree(watched);
+                continue;
+            }
+            Path path = watched.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                    && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                registerTree(path);
+            } else {
+                consider(path);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+    }
+
+    /**
+     * Starts or restarts the settle delay of a file, unless it is skipped.
+     * Complexity: O(1).
+     */
+    private void consider(Path path) {
+        Path file = path.toAbsolutePath().normalize();
+        if (isSkipped(file)) {
+            return;
+        }
+        candidates.computeIfAbsent(file, f -> new Candidate());
+    }
+
+    /**
+     * Hands over the candidates whose size and modification time have not changed for the settle delay.
+     * Complexity: O(c), where c is the number of files still settling.
+     */
+    private void handOverSettled(ReadyFileHandler handler) throws IOException {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, Candidate>> iterator = candidates.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Candidate> entry = iterator.next();
+            Path file = entry.getKey();
+            Candidate candidate = entry.getValue();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                // Removed or renamed away before it settled
+                iterator.remove();
+                continue;
+            }
+            if (!attributes.isRegularFile()) {
+                iterator.remove();
+                continue;
+            }
+            long size = attributes.size();
+            long modified = attributes.lastModifiedTime().toMillis();
+            if (size != candidate.size || modified != candidate.modified) {
+                candidate.size = size;
+                candidate.modified = modified;
+                candidate.unchangedSince = now;
+            } else if (now - candidate.unchangedSince >= settleNanos) {
+                iterator.remove();
+                synchronized (this) {
+                    handedOver.add(file);
+                }
+                handler.fileReady(file);
+            }
+        }
+    }
+
+    private synchronized boolean isSkipped(Path file) {
+        if (handedOver.contains(file) || ignored.contains(file)) {
+            return true;
+        }
+        String name = file.getFileName().toString();
+        return name.startsWith(".") || name.endsWith(".tmp") || name.endsWith(".part") || name.endsWith(".partial");
+    }
+
+    /**
+     * The last size and modification time seen for a file that has not settled yet.
+     */
+    private static final class Candidate {
+        private long size = -1;
+        private long modified = -1;
+        private long unchangedSince;
+    }
+}
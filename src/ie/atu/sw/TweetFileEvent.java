@@ -0,0 +1,44 @@
+package ie.atu.sw;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for scoring one tweet file, from waiting to open it until its last batch is queued for
+ * the output file.
+ */
+@Name("ie.atu.sw.TweetFile")
+@Label("Tweet File")
+@Category({"Sentiment Analysis", "Tweets"})
+@Description("Reading, scoring and queuing the results of one tweet file")
+@StackTrace(false)
+final class TweetFileEvent extends Event {
+    @Label("Path")
+    String path;
+
+    @Label("Mode")
+    @Description("How the file was read: chunked, in-memory or streamed")
+    String mode;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Tweets")
+    long tweets;
+
+    @Label("Tokens")
+    @Description("Whitespace-separated words in the tweets")
+    long tokens;
+
+    @Label("Admission Wait")
+    @Description("Time spent waiting for admission to open the file")
+    @Timespan
+    long admissionWait;
+}
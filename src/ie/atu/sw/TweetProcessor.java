@@ -1,5 +1,7 @@
 package ie.atu.sw;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.Map;
 
 /**
@@ -7,6 +9,8 @@ import java.util.Map;
  * This class provides an abstract method for calculating the sentiment of a tweet.
  */
 public abstract class TweetProcessor {
+    private static final double TIE_MARGIN = 1e-6;
+    private static final double FAST_ROUNDING_LIMIT = 1e9;
 
     /**
      * Calculates the sentiment score of a given tweet.
@@ -16,4 +20,108 @@ public abstract class TweetProcessor {
      * @return The sentiment score of the tweet.
      */
     public abstract double calculateSentiment(String tweet, Map<String, Double> lexicon);
+
+    /**
+     * Calculates the sentiment score of a given tweet using a compiled lexicon.
+     *
+     * @param tweet   The tweet text whose sentiment is to be calculated.
+     * @param lexicon The compiled lexicon containing words and their associated sentiment scores.
+     * @return The sentiment score of the tweet.
+     */
+    public abstract double calculateSentiment(String tweet, CompiledLexicon lexicon);
+
+    /**
+     * Calculates the sentiment score of a given tweet using a compiled lexicon, recording each lexicon term
+     * that contributed to the score in a sketch.
+     * Processors that do not report their terms score the tweet without recording anything.
+     *
+     * @param tweet   The tweet text whose sentiment is to be calculated.
+     * @param lexicon The compiled lexicon containing words and their associated sentiment scores.
+     * @param terms   The sketch the matched terms are recorded in, or null to record nothing.
+     * @return The sentiment score of the tweet.
+     */
+    public double calculateSentiment(String tweet, CompiledLexicon lexicon, TermSketch terms) {
+        return calculateSentiment(tweet, lexicon);
+    }
+
+    /**
+     * Identifies the scoring rules a processor applies on top of the lexicon, so results scored under other rules
+     * are not reused by an incremental run.
+     * Complexity: O(1).
+     *
+     * @return A checksum of the rules, or 0 for a processor whose scores only depend on the lexicon.
+     */
+    public long rulesHash() {
+        return 0;
+    }
+
+    /**
+     * Calculates the sentiment scores of a given tweet against every lexicon of a set.
+     * This implementation scores the tweet with each lexicon in turn; processors that can share the tokenisation
+     * between the lexicons override it.
+     *
+     * @param tweet    The tweet text whose sentiment is to be calculated.
+     * @param lexicons The lexicons to score the tweet against.
+     * @param scores   Receives the score against each lexicon, in the order of the set.
+     */
+    public void calculateSentiments(String tweet, LexiconSet lexicons, double[] scores) {
+        for (int column = 0; column < lexicons.size(); column++) {
+            scores[column] = calculateSentiment(tweet, lexicons.lexicon(column));
+        }
+    }
+
+    /**
+     * Scores every tweet of a batch, with one score column per lexicon of the set.
+     * A single lexicon is scored with {@link #calculateSentiment(String, CompiledLexicon, TermSketch)}, so its
+     * matched terms can be recorded; terms are not recorded against several lexicons.
+     * Complexity: O(n*(m + l)), where n is the number of tweets, m is the average length of a tweet and l is the
+     * number of lexicons.
+     *
+     * @param batch    The tweets, with as many score columns as there are lexicons.
+     * @param lexicons The lexicons to score the tweets against.
+     * @param terms    The sketch the matched terms of a single lexicon are recorded in, or null to record nothing.
+     */
+    public void scoreBatch(TweetBatch batch, LexiconSet lexicons, TermSketch terms) {
+        if (lexicons.size() == 1) {
+            CompiledLexicon lexicon = lexicons.lexicon(0);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.setScore(i, calculateSentiment(batch.tweet(i), lexicon, terms));
+            }
+            return;
+        }
+        double[] scores = new double[lexicons.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            calculateSentiments(batch.tweet(i), lexicons, scores);
+            for (int column = 0; column < scores.length; column++) {
+                batch.setScore(i, column, scores[column]);
+            }
+        }
+    }
+
+    /**
+     * Rounds a sentiment score to one decimal place, rounding halves away from zero.
+     * Gives the same result as formatting the score with "%.1f" and parsing it back, without the formatter.
+     * Scores that are clearly not halfway between two tenths are rounded with plain arithmetic; only
+     * near-ties fall back to BigDecimal, which rounds the shortest decimal form of the score exactly.
+     * Complexity: O(1) - constant time complexity for a single rounding operation.
+     *
+     * @param score The unrounded sentiment score.
+     * @return The score rounded to one decimal place.
+     */
+    protected static double roundScore(double score) {
+        if (!Double.isFinite(score)) {
+            return score;
+        }
+        double scaled = score * 10.0;
+        if (Math.abs(scaled) < FAST_ROUNDING_LIMIT) {
+            double floor = Math.floor(scaled);
+            double fraction = scaled - floor;
+            if (Math.abs(fraction - 0.5) > TIE_MARGIN) {
+                double tenths = fraction > 0.5 ? floor + 1.0 : floor;
+                return Math.copySign(tenths / 10.0, score);
+            }
+        }
+        double rounded = BigDecimal.valueOf(score).setScale(1, RoundingMode.HALF_UP).doubleValue();
+        return Math.copySign(rounded, score);
+    }
 }
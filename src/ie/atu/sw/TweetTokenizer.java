@@ -0,0 +1,209 @@
+package ie.atu.sw;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Splits tweet text into lower-case tokens in a single pass over its characters.
+ * The tokenizer is a reusable cursor: call {@link #reset(CharSequence)} with a tweet, then {@link #next()}
+ * until it returns false, reading each token from {@link #token()} and {@link #tokenLength()}.
+ * Tokens are folded into an internal buffer that is reused between tokens, so no substring is created per token.
+ * <p>
+ * The result is identical to {@code text.split("\\s+")} followed by {@code toLowerCase()} on every part:
+ * tokens are separated by ASCII whitespace, a tweet that starts with whitespace yields a leading empty token,
+ * and tokens with non-ASCII characters are lower-cased with the full Unicode rules of {@link String#toLowerCase()}.
+ * Instances are not thread-safe; use one tokenizer per thread.
+ */
+public final class TweetTokenizer {
+    private static final int INITIAL_CAPACITY = 32;
+
+    private CharSequence text = "";
+    private int position;
+    private boolean leadingEmptyToken;
+    private boolean asciiFastPath;
+    private char[] token = new char[INITIAL_CAPACITY];
+    private int tokenLength;
+    private int tokenStart;
+    private int tokenEnd;
+    private boolean tokenAllCaps;
+
+    /**
+     * Starts tokenising a new tweet.
+     * Complexity: O(1) - constant time complexity as it only resets the cursor.
+     *
+     * @param text The tweet text to tokenise.
+     */
+    public void reset(CharSequence text) {
+        this.text = text;
+        this.position = 0;
+        this.tokenLength = 0;
+        this.tokenStart = 0;
+        this.tokenEnd = 0;
+        this.tokenAllCaps = false;
+        this.leadingEmptyToken = text.isEmpty() || (isSeparator(text.charAt(0)) && !isBlank(text));
+        this.asciiFastPath = foldsAsciiLikeRoot(Locale.getDefault());
+    }
+
+    /**
+     * Advances to the next token of the tweet.
+     * Complexity: O(k), where k is the number of characters up to the end of the next token.
+     *
+     * @return true if a token is available, false once the tweet is exhausted.
+     */
+    public boolean next() {
+        if (leadingEmptyToken) {
+            leadingEmptyToken = false;
+            tokenLength = 0;
+            tokenStart = 0;
+            tokenEnd = 0;
+            tokenAllCaps = false;
+            return true;
+        }
+
+        int length = text.length();
+        while (position < length && isSeparator(text.charAt(position))) {
+            position++;
+        }
+        if (position >= length) {
+            return false;
+        }
+
+        tokenStart = position;
+        boolean ascii = true;
+        boolean upper = false;
+        boolean lower = false;
+        int count = 0;
+        while (position < length) {
+            char c = text.charAt(position);
+            if (isSeparator(c)) {
+                break;
+            }
+            if (c >= 0x80) {
+                ascii = false;
+                upper |= Character.isUpperCase(c);
+                lower |= Character.isLowerCase(c);
+            } else if (c >= 'A' && c <= 'Z') {
+                upper = true;
+                if (c == 'I' && !asciiFastPath) {
+                    ascii = false;
+                } else {
+                    c = (char) (c + ('a' - 'A'));
+                }
+            } else if (c >= 'a' && c <= 'z') {
+                lower = true;
+            }
+            if (count == token.length) {
+                token = Arrays.copyOf(token, count * 2);
+            }
+            token[count++] = c;
+            position++;
+        }
+        tokenEnd = position;
+        tokenLength = count;
+        tokenAllCaps = upper && !lower;
+
+        if (!ascii) {
+            foldWithUnicodeRules();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the buffer holding the current lower-case token.
+     * The buffer is reused by the next call to {@link #next()}; only the first {@link #tokenLength()} characters are valid.
+     * Complexity: O(1).
+     *
+     * @return The token buffer.
+     */
+    public char[] token() {
+        return token;
+    }
+
+    /**
+     * Returns the length of the current lower-case token.
+     * Complexity: O(1).
+     *
+     * @return The number of valid characters in the token buffer.
+     */
+    public int tokenLength() {
+        return tokenLength;
+    }
+
+    /**
+     * Returns the index in the tweet of the first character of the current token.
+     * Complexity: O(1).
+     *
+     * @return The start index of the token (inclusive).
+     */
+    public int tokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * Returns the index in the tweet just after the last character of the current token.
+     * Complexity: O(1).
+     *
+     * @return The end index of the token (exclusive).
+     */
+    public int tokenEnd() {
+        return tokenEnd;
+    }
+
+    /**
+     * Checks whether the current token is written in capitals, as emphasis: it has at least one upper-case letter
+     * and no lower-case letter, like Python's {@code str.isupper()}. Digits and punctuation do not count either way.
+     * Complexity: O(1).
+     *
+     * @return true if the token, before folding, has upper-case letters and no lower-case ones.
+     */
+    public boolean tokenAllCaps() {
+        return tokenAllCaps;
+    }
+
+    /**
+     * Checks whether a character separates tokens, matching the regex class {@code \s}.
+     * Complexity: O(1).
+     *
+     * @param c The character to check.
+     * @return true for space, tab, line feed, vertical tab, form feed and carriage return.
+     */
+    public static boolean isSeparator(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    /**
+     * Lower-cases the current token with String.toLowerCase, the slow path for non-ASCII tokens.
+     * Complexity: O(k), where k is the length of the token.
+     */
+    private void foldWithUnicodeRules() {
+        String folded = text.subSequence(tokenStart, tokenEnd).toString().toLowerCase();
+        if (folded.length() > token.length) {
+            token = new char[folded.length()];
+        }
+        folded.getChars(0, folded.length(), token, 0);
+        tokenLength = folded.length();
+    }
+
+    /**
+     * Checks whether the text only contains separators.
+     * Complexity: O(n), where n is the length of the text.
+     */
+    private static boolean isBlank(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!isSeparator(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the locale lower-cases ASCII letters like the root locale.
+     * Turkish and Azerbaijani map 'I' to a dotless 'ı', so tokens containing 'I' take the slow path there.
+     * Complexity: O(1).
+     */
+    private static boolean foldsAsciiLikeRoot(Locale locale) {
+        String language = locale.getLanguage();
+        return !"tr".equals(language) && !"az".equals(language);
+    }
+}